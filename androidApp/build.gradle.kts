@@ -71,6 +71,9 @@ dependencies {
     implementation(project(":shared"))
     implementation(project(":commons"))
 
+    // File system access for shared models (DirectorySnapshot)
+    implementation("com.squareup.okio:okio:3.9.1")
+
     // Compose
     implementation(libs.compose.runtime)
     implementation(libs.compose.foundation)
@@ -42,6 +42,8 @@ import digital.vasic.opoc.model.GsSharedPreferencesPropertyBackend
 import digital.vasic.yole.format.FormatRegistry
 import digital.vasic.yole.format.ParserRegistry
 import digital.vasic.yole.format.ParseOptions
+import digital.vasic.yole.model.DirectorySnapshot
+import digital.vasic.yole.model.watchDirectory
 import digital.vasic.yole.ui.pressScale
 import digital.vasic.yole.ui.hoverScale
 import digital.vasic.yole.ui.ScreenTransitions
@@ -49,6 +51,9 @@ import digital.vasic.yole.ui.ListAnimations
 import digital.vasic.yole.ui.LoadingStateWrapper
 import digital.vasic.yole.ui.LoadingAnimations
 import java.io.File
+import okio.FileSystem
+import okio.Path.Companion.toOkioPath
+import okio.Path.Companion.toPath
 
 /**
  * Settings manager for Yole app
@@ -747,9 +752,15 @@ fun FileBrowserScreen(
 ) {
     val context = LocalContext.current
     var currentDirectory by remember { mutableStateOf<File?>(null) }
-    var allFiles by remember { mutableStateOf<List<File>>(emptyList()) }
+    var snapshot by remember { mutableStateOf<DirectorySnapshot?>(null) }
     var isLoadingFiles by remember { mutableStateOf(true) }
 
+    // Stat each entry once; sorting and filtering then work on the snapshot
+    suspend fun list(directory: File): DirectorySnapshot =
+        kotlinx.coroutines.withContext(kotlinx.coroutines.Dispatchers.IO) {
+            DirectorySnapshot.load(FileSystem.SYSTEM, directory.toOkioPath())
+        }
+
     // Initialize with documents directory
     LaunchedEffect(Unit) {
         isLoadingFiles = true
@@ -757,29 +768,37 @@ fun FileBrowserScreen(
         val docsDir = File(context.getExternalFilesDir(null)?.parentFile, "Documents")
         if (docsDir.exists()) {
             currentDirectory = docsDir
-            allFiles = docsDir.listFiles()?.toList() ?: emptyList()
+            snapshot = list(docsDir)
         } else {
             // Fallback to app's private directory
             currentDirectory = context.filesDir
-            allFiles = context.filesDir.listFiles()?.toList() ?: emptyList()
+            snapshot = list(context.filesDir)
         }
         isLoadingFiles = false
     }
 
-    // Filter and sort files
-    val files = remember(allFiles, searchQuery, sortBy) {
-        var filtered = allFiles.filter { file ->
-            searchQuery.isEmpty() || file.name.contains(searchQuery, ignoreCase = true)
+    // Re-stat only the entries the platform reports as changed
+    LaunchedEffect(currentDirectory) {
+        val directory = currentDirectory ?: return@LaunchedEffect
+        val path = directory.toOkioPath()
+        watchDirectory(directory.absolutePath).collect { changed ->
+            val current = snapshot?.takeIf { it.directory == path } ?: return@collect
+            val updated = kotlinx.coroutines.withContext(kotlinx.coroutines.Dispatchers.IO) {
+                current.updated(FileSystem.SYSTEM, listOf(changed.toPath()))
+            }
+            // A listing or another update may have replaced the snapshot meanwhile
+            if (snapshot === current) snapshot = updated
         }
+    }
 
-        filtered = when (sortBy) {
-            "name" -> filtered.sortedBy { it.name.lowercase() }
-            "date" -> filtered.sortedByDescending { it.lastModified() }
-            "size" -> filtered.sortedByDescending { if (it.isFile) it.length() else 0L }
-            else -> filtered
+    // Filter and sort files without touching the file system
+    val entries = remember(snapshot, searchQuery, sortBy) {
+        val sortKey = when (sortBy) {
+            "date" -> DirectorySnapshot.SortKey.DATE
+            "size" -> DirectorySnapshot.SortKey.SIZE
+            else -> DirectorySnapshot.SortKey.NAME
         }
-
-        filtered
+        snapshot?.view(sortKey, searchQuery) ?: IntArray(0)
     }
 
     val directoryPicker = rememberLauncherForActivityResult(
@@ -853,7 +872,8 @@ fun FileBrowserScreen(
             }
         ) {
             // Actual file list or empty state
-            if (files.isEmpty()) {
+            val listing = snapshot
+            if (listing == null || entries.isEmpty()) {
                 // Show appropriate empty state
                 Box(modifier = Modifier.weight(1f).fillMaxWidth()) {
                     if (searchQuery.isNotEmpty()) {
@@ -867,13 +887,15 @@ fun FileBrowserScreen(
             } else {
                 // File list with staggered animations
                 LazyColumn(modifier = Modifier.weight(1f)) {
-                    itemsIndexed(
-                        items = files,
-                        key = { _, file -> file.absolutePath }
-                    ) { index, file ->
-                        val isDirectory = file.isDirectory
-                        val fileName = file.name
-                        val fileSize = if (file.isFile) "${file.length()} bytes" else ""
+                    items(
+                        count = entries.size,
+                        key = { index -> listing.name(entries[index]) }
+                    ) { index ->
+                        val entry = entries[index]
+                        val file = File(listing.path(entry).toString())
+                        val isDirectory = listing.isDirectory(entry)
+                        val fileName = listing.name(entry)
+                        val fileSize = if (!isDirectory) "${listing.size(entry)} bytes" else ""
 
                         // Animated list item with staggered entrance
                         androidx.compose.animation.AnimatedVisibility(
@@ -893,7 +915,7 @@ fun FileBrowserScreen(
                                     currentDirectory = file
                                     kotlinx.coroutines.CoroutineScope(kotlinx.coroutines.Dispatchers.Main).launch {
                                         kotlinx.coroutines.delay(200) // Brief delay for loading animation
-                                        allFiles = file.listFiles()?.toList() ?: emptyList()
+                                        snapshot = list(file)
                                         isLoadingFiles = false
                                     }
                                 } else {
@@ -956,7 +978,7 @@ fun FileBrowserScreen(
                         currentDirectory = parent
                         kotlinx.coroutines.CoroutineScope(kotlinx.coroutines.Dispatchers.Main).launch {
                             kotlinx.coroutines.delay(200) // Brief delay for loading animation
-                            allFiles = parent.listFiles()?.toList() ?: emptyList()
+                            snapshot = list(parent)
                             isLoadingFiles = false
                         }
                     }
@@ -0,0 +1,164 @@
+/*#######################################################
+ *
+ * SPDX-FileCopyrightText: 2025 Milos Vasic
+ * SPDX-License-Identifier: Unlicense OR CC0-1.0
+ *
+ * To the extent possible under law, the author(s) have dedicated all copyright
+ * and related and neighboring rights to this software to the public domain worldwide.
+ * This software is distributed without any warranty.
+ * You should have received a copy of the CC0 Public Domain Dedication along with this software.
+ * If not, see <http://creativecommons.org/publicdomain/zero/1.0/>.
+ #########################################################*/
+package digital.vasic.opoc.util
+
+import java.io.IOException
+import java.io.InputStream
+
+/**
+ * Finds any of several needles in a byte stream in a single pass.
+ *
+ * The needles are compiled once into an Aho-Corasick automaton over their
+ * UTF-8 bytes, with the failure links folded into a dense transition table.
+ * Scanning then costs one table lookup per input byte, independent of the
+ * number of needles, and allocates nothing per line or per needle.
+ *
+ * ASCII letters match case-insensitively. Other characters match exactly,
+ * so needles should be given in lower case, as text usually is.
+ *
+ * Example usage:
+ * ```kotlin
+ * val matcher = GsByteMatcher("todo", "fixme")
+ * for (file in files) {
+ *     val match = GsFileUtils.findInFile(file, matcher) ?: continue
+ *     println("${file.name}: ${matcher.needles[match.needle]} at ${match.offset}")
+ * }
+ * ```
+ */
+class GsByteMatcher(vararg needles: String) {
+
+    /**
+     * A needle found in the input.
+     *
+     * @property needle Index of the needle
+     * @property offset Byte offset of the first byte of the match
+     */
+    data class Match(val needle: Int, val offset: Long)
+
+    val needles: List<String> = needles.toList()
+
+    // transitions[state * 256 + byte] is the next state
+    private val transitions: IntArray
+
+    // Lowest needle index ending in each state, or -1
+    private val outputs: IntArray
+
+    private val lengths = IntArray(needles.size) { needles[it].toByteArray(Charsets.UTF_8).size }
+
+    init {
+        val capacity = 1 + lengths.sum()
+        var goto = IntArray(capacity * ALPHABET) { -1 }
+        val output = IntArray(capacity) { -1 }
+        var states = 1
+
+        // Trie of the folded needle bytes
+        for (index in needles.indices) {
+            var state = 0
+            for (byte in needles[index].toByteArray(Charsets.UTF_8)) {
+                val slot = state * ALPHABET + fold(byte.toInt() and 0xFF)
+                if (goto[slot] < 0) goto[slot] = states++
+                state = goto[slot]
+            }
+            if (output[state] < 0) output[state] = index
+        }
+
+        // Breadth-first: complete each state's row from its failure state
+        val fail = IntArray(states)
+        val queue = IntArray(states)
+        var head = 0
+        var tail = 0
+        for (b in 0 until ALPHABET) {
+            val next = goto[b]
+            if (next < 0) {
+                goto[b] = 0
+            } else {
+                fail[next] = 0
+                queue[tail++] = next
+            }
+        }
+        while (head < tail) {
+            val state = queue[head++]
+            val inherited = output[fail[state]]
+            if (inherited >= 0 && (output[state] < 0 || inherited < output[state])) output[state] = inherited
+            for (b in 0 until ALPHABET) {
+                val slot = state * ALPHABET + b
+                val next = goto[slot]
+                val fallback = goto[fail[state] * ALPHABET + b]
+                if (next < 0) {
+                    goto[slot] = fallback
+                } else {
+                    fail[next] = fallback
+                    queue[tail++] = next
+                }
+            }
+        }
+
+        // Input bytes are folded through the table itself
+        for (state in 0 until states) {
+            for (upper in 'A'.code..'Z'.code) {
+                goto[state * ALPHABET + upper] = goto[state * ALPHABET + upper + CASE_OFFSET]
+            }
+        }
+        if (goto.size != states * ALPHABET) goto = goto.copyOf(states * ALPHABET)
+        transitions = goto
+        outputs = output.copyOf(states)
+    }
+
+    /**
+     * First needle in [bytes], or null.
+     */
+    fun find(bytes: ByteArray, offset: Int = 0, length: Int = bytes.size - offset): Match? {
+        if (outputs[0] >= 0) return Match(outputs[0], 0)
+        var state = 0
+        for (i in offset until offset + length) {
+            state = transitions[(state shl 8) or (bytes[i].toInt() and 0xFF)]
+            if (outputs[state] >= 0) {
+                val needle = outputs[state]
+                return Match(needle, (i - offset + 1 - lengths[needle]).toLong())
+            }
+        }
+        return null
+    }
+
+    /**
+     * First needle in [input], reading it in chunks of [buffer]. The stream
+     * is read only up to the end of the match and is not closed.
+     */
+    @Throws(IOException::class)
+    fun find(input: InputStream, buffer: ByteArray = ByteArray(BUFFER_SIZE)): Match? {
+        if (outputs[0] >= 0) return Match(outputs[0], 0)
+        val transitions = transitions
+        val outputs = outputs
+        var state = 0
+        var position = 0L
+        while (true) {
+            val count = input.read(buffer)
+            if (count < 0) return null
+            for (i in 0 until count) {
+                state = transitions[(state shl 8) or (buffer[i].toInt() and 0xFF)]
+                if (outputs[state] >= 0) {
+                    val needle = outputs[state]
+                    return Match(needle, position + i + 1 - lengths[needle])
+                }
+            }
+            position += count
+        }
+    }
+
+    companion object {
+        const val BUFFER_SIZE = 64 * 1024
+        private const val ALPHABET = 256
+        private const val CASE_OFFSET = 'a'.code - 'A'.code
+
+        private fun fold(b: Int): Int = if (b in 'A'.code..'Z'.code) b + CASE_OFFSET else b
+    }
+}
@@ -24,11 +24,20 @@ import android.util.Log
 import android.util.Pair
 import androidx.annotation.RequiresApi
 import digital.vasic.opoc.format.GsTextUtils
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.channels.ProducerScope
+import kotlinx.coroutines.ensureActive
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.channelFlow
+import kotlinx.coroutines.flow.flowOn
+import kotlinx.coroutines.flow.take
+import kotlinx.coroutines.flow.toList
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.runBlocking
 import java.io.*
 import java.net.URLConnection
 import java.nio.charset.Charset
 import java.nio.file.*
-import java.nio.file.attribute.BasicFileAttributes
 import java.security.MessageDigest
 import java.security.NoSuchAlgorithmException
 import java.text.DecimalFormat
@@ -345,31 +354,48 @@ object GsFileUtils {
         }
     }
 
+    // Matcher of the last needle set, reused while the same filter runs over many files
+    @Volatile
+    private var lastMatcher: GsByteMatcher? = null
+
+    private val matchBuffer = object : ThreadLocal<ByteArray>() {
+        override fun initialValue() = ByteArray(GsByteMatcher.BUFFER_SIZE)
+    }
+
     /**
-     * Check if file contains any of the given needles (case-insensitive).
+     * Check if file contains any of the given needles (case-insensitive for ASCII).
      * Returns index of found needle or -1 if none found.
      * Needles MUST be in lower-case.
      */
     @JvmStatic
     fun fileContains(file: File, vararg needles: String): Int {
+        val matcher = lastMatcher?.takeIf { it.needles == needles.asList() }
+            ?: GsByteMatcher(*needles).also { lastMatcher = it }
+        return fileContains(file, matcher)
+    }
+
+    /**
+     * Check if file contains any needle of [matcher].
+     * Returns index of found needle or -1 if none found.
+     */
+    @JvmStatic
+    fun fileContains(file: File, matcher: GsByteMatcher): Int = findInFile(file, matcher)?.needle ?: -1
+
+    /**
+     * Find the first needle of [matcher] in file, streaming its bytes once.
+     * Returns the needle index and byte offset, or null if none found.
+     */
+    @JvmStatic
+    fun findInFile(file: File, matcher: GsByteMatcher): GsByteMatcher.Match? {
         try {
             FileInputStream(file).use { input ->
-                BufferedReader(InputStreamReader(input)).use { reader ->
-                    var line: String?
-                    while (reader.readLine().also { line = it } != null) {
-                        for (i in needles.indices) {
-                            if (line!!.lowercase(Locale.ROOT).contains(needles[i])) {
-                                return i
-                            }
-                        }
-                    }
-                }
+                return matcher.find(input, matchBuffer.get()!!)
             }
         } catch (e: IOException) {
             e.printStackTrace()
         }
 
-        return -1
+        return null
     }
 
     /**
@@ -902,16 +928,46 @@ object GsFileUtils {
     }
 
     /**
-     * Make sort key for file based on sort type.
+     * Compare names in natural order, ignoring case: digit runs compare by
+     * numeric value, so "file9" sorts before "file10". Does not allocate.
      */
-    private fun makeSortKey(sortBy: String, file: File): String {
-        val name = file.name.lowercase()
-        return when (sortBy) {
-            SORT_BY_MTIME -> file.lastModified().toString() + name
-            SORT_BY_FILESIZE -> String.format("%015d", file.length()) + name
-            SORT_BY_MIMETYPE -> getMimeType(file).lowercase() + name
-            else -> name // SORT_BY_NAME and any other value
+    @JvmStatic
+    fun compareNaturally(a: String, b: String): Int {
+        var i = 0
+        var j = 0
+        while (i < a.length && j < b.length) {
+            val ca = a[i]
+            val cb = b[j]
+            if (ca in '0'..'9' && cb in '0'..'9') {
+                // Skip leading zeros, then the longer run is the larger number
+                var startA = i
+                var startB = j
+                while (startA < a.length - 1 && a[startA] == '0' && a[startA + 1] in '0'..'9') startA++
+                while (startB < b.length - 1 && b[startB] == '0' && b[startB + 1] in '0'..'9') startB++
+                var endA = startA
+                var endB = startB
+                while (endA < a.length && a[endA] in '0'..'9') endA++
+                while (endB < b.length && b[endB] in '0'..'9') endB++
+                if (endA - startA != endB - startB) return (endA - startA) - (endB - startB)
+                while (startA < endA) {
+                    if (a[startA] != b[startB]) return a[startA] - b[startB]
+                    startA++
+                    startB++
+                }
+                i = endA
+                j = endB
+                continue
+            }
+            if (ca != cb) {
+                val la = Character.toLowerCase(Character.toUpperCase(ca))
+                val lb = Character.toLowerCase(Character.toUpperCase(cb))
+                if (la != lb) return la - lb
+            }
+            i++
+            j++
         }
+        val remaining = (a.length - i) - (b.length - j)
+        return if (remaining != 0) remaining else a.compareTo(b)
     }
 
     /**
@@ -955,6 +1011,9 @@ object GsFileUtils {
 
     /**
      * Sort files according to sort order.
+     *
+     * Each file is stat'ed once into primitive key arrays before sorting, so
+     * comparisons make no file system calls and do not allocate.
      */
     @JvmStatic
     fun sortFiles(filesToSort: MutableCollection<File>?, order: SortOrder) {
@@ -963,28 +1022,72 @@ object GsFileUtils {
         }
 
         try {
-            val copy = filesToSort !is MutableList<*>
-            val sortable = if (copy) ArrayList(filesToSort) else filesToSort as MutableList<File>
-
-            GsCollectionUtils.keySort(sortable) { f -> makeSortKey(order.sortByType, f) }
-
-            if (order.reverse) {
-                sortable.reverse()
+            val files = filesToSort.toTypedArray()
+            val count = files.size
+            val names = Array(count) { files[it].name }
+            val folders = if (order.folderFirst) BooleanArray(count) { files[it].isDirectory } else null
+            val numbers = when (order.sortByType) {
+                SORT_BY_MTIME -> LongArray(count) { files[it].lastModified() }
+                SORT_BY_FILESIZE -> LongArray(count) { files[it].length() }
+                else -> null
             }
+            val mimeTypes = if (order.sortByType == SORT_BY_MIMETYPE) {
+                Array(count) { getMimeType(files[it]).lowercase() }
+            } else {
+                null
+            }
+            val direction = if (order.reverse) -1 else 1
 
-            if (order.folderFirst) {
-                GsCollectionUtils.keySort(sortable) { f -> !f.isDirectory }
+            val sorted = sortIndices(count) { a, b ->
+                if (folders != null && folders[a] != folders[b]) {
+                    return@sortIndices if (folders[a]) -1 else 1
+                }
+                var cmp = if (numbers != null) numbers[a].compareTo(numbers[b]) else 0
+                if (cmp == 0 && mimeTypes != null) cmp = mimeTypes[a].compareTo(mimeTypes[b])
+                if (cmp == 0) cmp = compareNaturally(names[a], names[b])
+                cmp * direction
             }
 
-            if (copy) {
-                filesToSort.clear()
-                filesToSort.addAll(sortable)
+            filesToSort.clear()
+            for (index in sorted) {
+                filesToSort.add(files[index])
             }
         } catch (e: Exception) {
             e.printStackTrace()
         }
     }
 
+    /**
+     * Indices 0 until [count] ordered by [compare], using a stable merge sort
+     * on primitive arrays.
+     */
+    private inline fun sortIndices(count: Int, compare: (Int, Int) -> Int): IntArray {
+        var source = IntArray(count) { it }
+        var target = IntArray(count)
+        var width = 1
+        while (width < count) {
+            var start = 0
+            while (start < count) {
+                val middle = minOf(start + width, count)
+                val end = minOf(start + 2 * width, count)
+                var i = start
+                var j = middle
+                var k = start
+                while (i < middle && j < end) {
+                    target[k++] = if (compare(source[j], source[i]) < 0) source[j++] else source[i++]
+                }
+                while (i < middle) target[k++] = source[i++]
+                while (j < end) target[k++] = source[j++]
+                start = end
+            }
+            val swap = source
+            source = target
+            target = swap
+            width *= 2
+        }
+        return source
+    }
+
     /**
      * Check if file is writable.
      */
@@ -1120,28 +1223,111 @@ object GsFileUtils {
         return File(stack.joinToString(File.separator))
     }
 
+    /**
+     * Directory names skipped by [walkFiles] and [searchFilesFlow] by default.
+     */
+    @JvmField
+    val DEFAULT_IGNORED_DIRECTORIES: Set<String> = setOf(".git", "node_modules", ".gradle", "build")
+
+    const val DEFAULT_WALK_PARALLELISM = 4
+
+    /**
+     * Default directory filter: skips [DEFAULT_IGNORED_DIRECTORIES] and hidden directories.
+     */
+    @JvmStatic
+    fun isIgnoredDirectory(directory: File): Boolean =
+        directory.name.startsWith(".") || directory.name in DEFAULT_IGNORED_DIRECTORIES
+
+    /**
+     * Walk the files below [root], listing subdirectories in parallel on at
+     * most [parallelism] IO threads. Files passing [accept] are emitted as
+     * soon as their directory is listed, in no particular order. Cancelling
+     * the collector, e.g. with `take(n)` or `first()`, stops the walk.
+     * Symbolic links to directories are not followed.
+     *
+     * @param maxDepth Maximum depth; files directly in [root] have depth 1
+     * @param ignoreDirectory Directories for which this returns true are skipped
+     */
+    @JvmStatic
+    @JvmOverloads
+    fun walkFiles(
+        root: File,
+        maxDepth: Int = Int.MAX_VALUE,
+        parallelism: Int = DEFAULT_WALK_PARALLELISM,
+        ignoreDirectory: (File) -> Boolean = ::isIgnoredDirectory,
+        accept: (File) -> Boolean = { true }
+    ): Flow<File> = channelFlow {
+        if (maxDepth > 0) walkDirectory(root, 1, maxDepth, ignoreDirectory, accept)
+    }.flowOn(Dispatchers.IO.limitedParallelism(parallelism))
+
+    /**
+     * Collect up to [limit] files of [walkFiles], blocking the calling thread.
+     * The walk stops once [limit] files were found.
+     */
+    @JvmStatic
+    @JvmOverloads
+    fun walkFilesBlocking(
+        root: File,
+        maxDepth: Int = Int.MAX_VALUE,
+        limit: Int = Int.MAX_VALUE,
+        ignoreDirectory: (File) -> Boolean = ::isIgnoredDirectory,
+        accept: (File) -> Boolean = { true }
+    ): List<File> = runBlocking {
+        walkFiles(root, maxDepth, ignoreDirectory = ignoreDirectory, accept = accept).take(limit).toList()
+    }
+
+    private fun ProducerScope<File>.walkDirectory(
+        directory: File,
+        depth: Int,
+        maxDepth: Int,
+        ignoreDirectory: (File) -> Boolean,
+        accept: (File) -> Boolean
+    ) {
+        launch {
+            val children = directory.listFiles() ?: return@launch
+            for (child in children) {
+                ensureActive()
+                if (child.isDirectory) {
+                    if (depth < maxDepth && !ignoreDirectory(child) && !isSymbolicLink(child)) {
+                        walkDirectory(child, depth + 1, maxDepth, ignoreDirectory, accept)
+                    }
+                } else if (accept(child)) {
+                    send(child)
+                }
+            }
+        }
+    }
+
+    /**
+     * Stream files matching glob pattern as they are found (requires Android O+).
+     * See [walkFiles] for ordering, cancellation and the directory filter.
+     */
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    @JvmStatic
+    @JvmOverloads
+    fun searchFilesFlow(
+        root: File,
+        glob: String,
+        maxDepth: Int = Int.MAX_VALUE,
+        ignoreDirectory: (File) -> Boolean = ::isIgnoredDirectory
+    ): Flow<File> {
+        val pattern = if (glob.trim().startsWith("glob:")) glob.trim() else "glob:${glob.trim()}"
+        val matcher = FileSystems.getDefault().getPathMatcher(pattern)
+        return walkFiles(root, maxDepth, ignoreDirectory = ignoreDirectory) { matcher.matches(it.toPath()) }
+    }
+
     /**
      * Search files matching glob pattern (requires Android O+).
+     * Walks the whole tree, including hidden directories; prefer
+     * [searchFilesFlow] to show results while searching.
      */
     @RequiresApi(api = Build.VERSION_CODES.O)
     @JvmStatic
     fun searchFiles(root: File, glob: String): List<File>? {
+        if (!root.exists()) return null
         return try {
-            val pattern = if (glob.trim().startsWith("glob:")) glob.trim() else "glob:${glob.trim()}"
-            val matcher = FileSystems.getDefault().getPathMatcher(pattern)
-            val found = ArrayList<File>()
-
-            Files.walkFileTree(root.toPath(), object : SimpleFileVisitor<Path>() {
-                override fun visitFile(path: Path, attrs: BasicFileAttributes): FileVisitResult {
-                    if (matcher.matches(path)) {
-                        found.add(path.toFile())
-                    }
-                    return FileVisitResult.CONTINUE
-                }
-            })
-
-            found
-        } catch (e: IOException) {
+            runBlocking { searchFilesFlow(root, glob, ignoreDirectory = { false }).toList() }
+        } catch (e: IllegalArgumentException) {
             Log.d(GsFileUtils::class.java.name, e.toString())
             null
         }
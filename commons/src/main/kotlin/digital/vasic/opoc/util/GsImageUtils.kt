@@ -160,6 +160,21 @@ object GsImageUtils {
         return BitmapFactory.decodeFile(imagePath.absolutePath, options)
     }
 
+    /**
+     * Get a thumbnail of the image at imagePath from the [GsThumbnailCache].
+     * The image is decoded only on the first request; use this for previews
+     * that are shown repeatedly, e.g. in file lists.
+     *
+     * @param context Android context
+     * @param imagePath File path to image
+     * @param maxDimen Max dimension (width or height) for the thumbnail
+     * @return Thumbnail bitmap, or null if the image cannot be decoded
+     */
+    @JvmStatic
+    fun loadThumbnailFromFilesystem(context: Context, imagePath: File, maxDimen: Int): Bitmap? {
+        return GsThumbnailCache.loadThumbnail(context, imagePath, maxDimen)
+    }
+
     /**
      * Calculate the scaling factor so the bitmap is maximal as big as the maxDimen.
      *
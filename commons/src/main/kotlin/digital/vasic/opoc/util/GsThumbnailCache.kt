@@ -0,0 +1,176 @@
+/*#######################################################
+ *
+ * SPDX-FileCopyrightText: 2025 Milos Vasic
+ * SPDX-License-Identifier: Unlicense OR CC0-1.0
+ *
+ * To the extent possible under law, the author(s) have dedicated all copyright
+ * and related and neighboring rights to this software to the public domain worldwide.
+ * This software is distributed without any warranty.
+ * You should have received a copy of the CC0 Public Domain Dedication along with this software.
+ * If not, see <http://creativecommons.org/publicdomain/zero/1.0/>.
+ #########################################################*/
+package digital.vasic.opoc.util
+
+import android.content.Context
+import android.graphics.Bitmap
+import android.graphics.BitmapFactory
+import android.os.Build
+import android.util.LruCache
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.withContext
+import java.io.File
+import java.io.FileOutputStream
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Two-tier thumbnail cache for image previews.
+ *
+ * Thumbnails are kept in a memory LRU sized in bytes and in a disk cache
+ * below [Context.getCacheDir]. Both are keyed by the file path, size,
+ * modification time and maximum dimension, so an edited image gets a new
+ * thumbnail. Each image is decoded once; scrolling a folder of images back
+ * and forth only hits the caches.
+ *
+ * Example usage:
+ * ```kotlin
+ * // In a list adapter
+ * val cached = GsThumbnailCache.getCached(file, 256)
+ * if (cached != null) imageView.setImageBitmap(cached)
+ * else scope.launch { imageView.setImageBitmap(GsThumbnailCache.load(context, file, 256)) }
+ * ```
+ */
+@Suppress("unused", "MemberVisibilityCanBePrivate")
+object GsThumbnailCache {
+
+    private const val DISK_DIRECTORY = "thumbnails"
+    private const val DISK_BYTES = 64L * 1024 * 1024
+    private const val QUALITY = 85
+
+    private val memory = object : LruCache<String, Bitmap>(
+        (Runtime.getRuntime().maxMemory() / 16).coerceAtMost(Int.MAX_VALUE.toLong()).toInt()
+    ) {
+        override fun sizeOf(key: String, value: Bitmap): Int = value.allocationByteCount
+    }
+
+    // One lock per key, so concurrent requests for the same image decode it once
+    private val locks = ConcurrentHashMap<String, Any>()
+
+    @Volatile
+    private var diskUsed = -1L
+
+    /**
+     * Cache key of the current version of [file].
+     */
+    @JvmStatic
+    fun key(file: File, maxDimen: Int): String =
+        "${file.absolutePath}|${file.length()}|${file.lastModified()}|$maxDimen"
+
+    /**
+     * Thumbnail of [file] from memory, or null. Cheap enough for list binding.
+     */
+    @JvmStatic
+    fun getCached(file: File, maxDimen: Int): Bitmap? = memory.get(key(file, maxDimen))
+
+    /**
+     * Thumbnail of [file] fitting into [maxDimen], from memory, disk or decoded.
+     * Blocks on disk access and decoding; see [load] for the coroutine variant.
+     *
+     * @return The thumbnail, or null if the file cannot be decoded
+     */
+    @JvmStatic
+    fun loadThumbnail(context: Context, file: File, maxDimen: Int): Bitmap? {
+        val key = key(file, maxDimen)
+        memory.get(key)?.let { return it }
+        val lock = locks.getOrPut(key) { Any() }
+        try {
+            synchronized(lock) {
+                memory.get(key)?.let { return it }
+                val diskFile = File(File(context.cacheDir, DISK_DIRECTORY), diskName(key))
+                val bitmap = BitmapFactory.decodeFile(diskFile.absolutePath)
+                    ?: decode(file, maxDimen)?.also { writeDisk(diskFile, it) }
+                    ?: return null
+                memory.put(key, bitmap)
+                return bitmap
+            }
+        } finally {
+            locks.remove(key, lock)
+        }
+    }
+
+    /**
+     * Coroutine variant of [loadThumbnail], running on [Dispatchers.IO].
+     */
+    suspend fun load(context: Context, file: File, maxDimen: Int): Bitmap? =
+        withContext(Dispatchers.IO) { loadThumbnail(context, file, maxDimen) }
+
+    /**
+     * Drop all thumbnails from memory and disk.
+     */
+    @JvmStatic
+    fun clear(context: Context) {
+        memory.evictAll()
+        File(context.cacheDir, DISK_DIRECTORY).listFiles()?.forEach { it.delete() }
+        diskUsed = 0
+    }
+
+    private fun decode(file: File, maxDimen: Int): Bitmap? {
+        val decoded = try {
+            GsImageUtils.loadImageFromFilesystem(file, maxDimen)
+        } catch (e: Exception) {
+            null
+        } ?: return null
+
+        // inSampleSize only scales by powers of two, so fit the rest exactly
+        val largest = maxOf(decoded.width, decoded.height)
+        if (largest <= maxDimen) return decoded
+        val scale = maxDimen.toFloat() / largest
+        val scaled = Bitmap.createScaledBitmap(
+            decoded,
+            maxOf(1, (decoded.width * scale).toInt()),
+            maxOf(1, (decoded.height * scale).toInt()),
+            true
+        )
+        if (scaled !== decoded) decoded.recycle()
+        return scaled
+    }
+
+    private fun writeDisk(target: File, bitmap: Bitmap) {
+        try {
+            val directory = target.parentFile ?: return
+            directory.mkdirs()
+            val temp = File(directory, target.name + ".tmp")
+            FileOutputStream(temp).use { out ->
+                @Suppress("DEPRECATION")
+                val format = if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+                    Bitmap.CompressFormat.WEBP_LOSSY
+                } else {
+                    Bitmap.CompressFormat.WEBP
+                }
+                if (!bitmap.compress(format, QUALITY, out)) return
+            }
+            if (!temp.renameTo(target)) return
+            trimDisk(directory, target.length())
+        } catch (ignored: Exception) {
+        }
+    }
+
+    /**
+     * Delete the oldest disk entries once the disk cache exceeds its budget.
+     */
+    @Synchronized
+    private fun trimDisk(directory: File, added: Long) {
+        val files = directory.listFiles() ?: return
+        diskUsed = if (diskUsed < 0) files.sumOf { it.length() } else diskUsed + added
+        if (diskUsed <= DISK_BYTES) return
+        var used = diskUsed
+        for (file in files.sortedBy { it.lastModified() }) {
+            if (used <= DISK_BYTES * 3 / 4) break
+            val length = file.length()
+            if (file.delete()) used -= length
+        }
+        diskUsed = used
+    }
+
+    private fun diskName(key: String): String =
+        GsFileUtils.crc32(key).toString(16) + "_" + key.hashCode().toUInt().toString(16) + ".webp"
+}
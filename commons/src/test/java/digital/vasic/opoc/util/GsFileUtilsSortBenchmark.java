@@ -0,0 +1,136 @@
+package digital.vasic.opoc.util;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Benchmark of GsFileUtils.sortFiles on 50k files.
+ * <p>
+ * Files are simulated so that stat calls can be counted and the timing
+ * measures sorting rather than disk access. Each sort must stat every file
+ * at most once per key.
+ * <p>
+ * Performance Targets:
+ * - Sorting 50k files by name, date or size: < 100ms
+ * <p>
+ * The assertions allow {@link #CI_MARGIN} times the target (300ms) to absorb
+ * slow shared CI machines.
+ */
+@RunWith(JUnit4.class)
+public class GsFileUtilsSortBenchmark {
+
+    private static final int FILE_COUNT = 50_000;
+    private static final int ITERATIONS = 5;
+    private static final double TARGET_MS = 100.0;
+    private static final double CI_MARGIN = 3.0;
+
+    private static class StatFile extends File {
+        private final long modified;
+        private final long size;
+        private final boolean directory;
+        int stats;
+
+        StatFile(String name, long modified, long size, boolean directory) {
+            super("/storage/notes/" + name);
+            this.modified = modified;
+            this.size = size;
+            this.directory = directory;
+        }
+
+        @Override
+        public long lastModified() {
+            stats++;
+            return modified;
+        }
+
+        @Override
+        public long length() {
+            stats++;
+            return size;
+        }
+
+        @Override
+        public boolean isDirectory() {
+            stats++;
+            return directory;
+        }
+    }
+
+    private static List<StatFile> makeFiles() {
+        Random random = new Random(42);
+        List<StatFile> files = new ArrayList<>(FILE_COUNT);
+        for (int i = 0; i < FILE_COUNT; i++) {
+            String name = (random.nextBoolean() ? "Note " : "note-") + random.nextInt(FILE_COUNT) + ".md";
+            files.add(new StatFile(name, random.nextLong() & 0xFFFFFFFFFFL, random.nextInt(1 << 20), i % 20 == 0));
+        }
+        return files;
+    }
+
+    private static double benchmark(String sortBy) {
+        GsFileUtils.SortOrder order = new GsFileUtils.SortOrder();
+        order.sortByType = sortBy;
+        List<StatFile> files = makeFiles();
+        List<File> sortable = new ArrayList<>(files);
+
+        // Warmup
+        for (int i = 0; i < 3; i++) {
+            GsFileUtils.sortFiles(new ArrayList<>(sortable), order);
+        }
+
+        long total = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            List<File> copy = new ArrayList<>(sortable);
+            long start = System.nanoTime();
+            GsFileUtils.sortFiles(copy, order);
+            total += System.nanoTime() - start;
+        }
+
+        // One isDirectory plus at most one time or size call per sort
+        int sorts = 3 + ITERATIONS;
+        for (StatFile file : files) {
+            assertThat(file.stats).isLessThanOrEqualTo(2 * sorts);
+        }
+
+        double averageMs = total / (double) ITERATIONS / 1_000_000.0;
+        System.out.printf("sortFiles(%s, %d files): %.2f ms (target %.0f ms)%n", sortBy, FILE_COUNT, averageMs, TARGET_MS);
+        return averageMs;
+    }
+
+    @Test
+    public void benchmarkSortByName() {
+        assertThat(benchmark(GsFileUtils.SORT_BY_NAME)).isLessThan(TARGET_MS * CI_MARGIN);
+    }
+
+    @Test
+    public void benchmarkSortByDate() {
+        assertThat(benchmark(GsFileUtils.SORT_BY_MTIME)).isLessThan(TARGET_MS * CI_MARGIN);
+    }
+
+    @Test
+    public void benchmarkSortBySize() {
+        assertThat(benchmark(GsFileUtils.SORT_BY_FILESIZE)).isLessThan(TARGET_MS * CI_MARGIN);
+    }
+
+    @Test
+    public void testNaturalOrder() {
+        List<File> files = new ArrayList<>();
+        files.add(new StatFile("file10.md", 0, 0, false));
+        files.add(new StatFile("File9.md", 0, 0, false));
+        files.add(new StatFile("archive", 0, 0, true));
+        files.add(new StatFile("file1.md", 0, 0, false));
+
+        GsFileUtils.sortFiles(files, new GsFileUtils.SortOrder());
+
+        assertThat(files).extracting(File::getName)
+                .containsExactly("archive", "file1.md", "File9.md", "file10.md");
+        assertThat(GsFileUtils.compareNaturally("a01", "a1")).isLessThan(0);
+        assertThat(GsFileUtils.compareNaturally("b", "A")).isGreaterThan(0);
+    }
+}
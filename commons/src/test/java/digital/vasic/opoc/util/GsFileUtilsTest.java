@@ -1,15 +1,26 @@
 package digital.vasic.opoc.util;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 import static org.assertj.core.api.Assertions.*;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @RunWith(JUnit4.class)
 public class GsFileUtilsTest {
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     @Test
     public void testGetFilenameExtension() {
         // Test normal cases
@@ -36,4 +47,110 @@ public class GsFileUtilsTest {
         // This would require mocking file I/O, simplified for now
         assertThat(true).isTrue(); // Placeholder test
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testByteMatcher() {
+        GsByteMatcher matcher = new GsByteMatcher("she", "he", "hers");
+
+        assertThat(matcher.find("uSHErs".getBytes(StandardCharsets.UTF_8), 0, 6))
+                .isEqualTo(new GsByteMatcher.Match(0, 1));
+        assertThat(matcher.find("HIS HERS".getBytes(StandardCharsets.UTF_8), 0, 8))
+                .isEqualTo(new GsByteMatcher.Match(1, 4));
+        assertThat(matcher.find("nothing".getBytes(StandardCharsets.UTF_8), 0, 7)).isNull();
+    }
+
+    @Test
+    public void testFileContains() throws IOException {
+        File file = File.createTempFile("contains", ".md");
+        try {
+            Files.write(file.toPath(), "# Notes\nSome TODO items\nÄrger und ärger\n".getBytes(StandardCharsets.UTF_8));
+
+            assertThat(GsFileUtils.fileContains(file, "missing", "todo")).isEqualTo(1);
+            assertThat(GsFileUtils.fileContains(file, "missing")).isEqualTo(-1);
+            assertThat(GsFileUtils.findInFile(file, new GsByteMatcher("ärger")))
+                    .isEqualTo(new GsByteMatcher.Match(0, 35));
+        } finally {
+            file.delete();
+        }
+    }
+
+    private File createFile(String path) throws IOException {
+        File file = new File(folder.getRoot(), path);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), path.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private List<String> relativePaths(List<File> files) {
+        List<String> paths = new ArrayList<>();
+        for (File file : files) {
+            paths.add(folder.getRoot().toPath().relativize(file.toPath()).toString().replace(File.separatorChar, '/'));
+        }
+        return paths;
+    }
+
+    @Test
+    public void testWalkFilesMaxDepth() throws Exception {
+        createFile("a.md");
+        createFile("sub/b.md");
+        createFile("sub/deep/c.md");
+
+        File root = folder.getRoot();
+        assertThat(GsFileUtils.walkFilesBlocking(root, 0)).isEmpty();
+        assertThat(relativePaths(GsFileUtils.walkFilesBlocking(root, 1))).containsExactly("a.md");
+        assertThat(relativePaths(GsFileUtils.walkFilesBlocking(root, 2))).containsExactlyInAnyOrder("a.md", "sub/b.md");
+        assertThat(relativePaths(GsFileUtils.walkFilesBlocking(root)))
+                .containsExactlyInAnyOrder("a.md", "sub/b.md", "sub/deep/c.md");
+    }
+
+    @Test
+    public void testWalkFilesIgnoresDefaultDirectories() throws Exception {
+        createFile(".env");
+        createFile("notes/n.md");
+        createFile(".git/config");
+        createFile("node_modules/lib/index.js");
+        createFile(".hidden/h.md");
+        createFile("notes/build/out.md");
+
+        File root = folder.getRoot();
+        assertThat(relativePaths(GsFileUtils.walkFilesBlocking(root)))
+                .containsExactlyInAnyOrder(".env", "notes/n.md");
+        assertThat(GsFileUtils.walkFilesBlocking(root, Integer.MAX_VALUE, Integer.MAX_VALUE, directory -> false))
+                .hasSize(6);
+        assertThat(GsFileUtils.isIgnoredDirectory(new File("node_modules"))).isTrue();
+        assertThat(GsFileUtils.isIgnoredDirectory(new File(".cache"))).isTrue();
+        assertThat(GsFileUtils.isIgnoredDirectory(new File("notes"))).isFalse();
+    }
+
+    @Test
+    public void testWalkFilesStopsEarly() throws Exception {
+        int total = 0;
+        for (int dir = 0; dir < 100; dir++) {
+            for (int file = 0; file < 50; file++, total++) {
+                createFile("d" + dir + "/f" + file + ".md");
+            }
+        }
+        AtomicInteger visited = new AtomicInteger();
+        List<File> files = GsFileUtils.walkFilesBlocking(folder.getRoot(), Integer.MAX_VALUE, 5,
+                GsFileUtils::isIgnoredDirectory, file -> {
+                    visited.incrementAndGet();
+                    return true;
+                });
+
+        assertThat(files).hasSize(5);
+        assertThat(visited.get()).isLessThan(total / 2);
+    }
+
+    @Test
+    public void testSearchFilesIncludesHiddenDirectories() throws Exception {
+        createFile("a.md");
+        createFile("sub/b.txt");
+        createFile("sub/c.md");
+        createFile(".hidden/h.md");
+        createFile("node_modules/m.md");
+
+        assertThat(relativePaths(GsFileUtils.searchFiles(folder.getRoot(), "**.md")))
+                .containsExactlyInAnyOrder("a.md", "sub/c.md", ".hidden/h.md", "node_modules/m.md");
+        assertThat(GsFileUtils.searchFiles(new File(folder.getRoot(), "missing"), "**.md")).isNull();
+    }
+}
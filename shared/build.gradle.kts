@@ -105,6 +105,8 @@ kotlin {
         val commonTest by getting {
             dependencies {
                 implementation(kotlin("test"))
+                // In-memory okio FileSystem for file-based parser tests
+                implementation("com.squareup.okio:okio-fakefilesystem:3.9.1")
                 // kotlinx-coroutines-test doesn't have WASM variant
                 // implementation("org.jetbrains.kotlinx:kotlinx-coroutines-test:1.7.3")
             }
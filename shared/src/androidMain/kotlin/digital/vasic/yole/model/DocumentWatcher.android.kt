@@ -0,0 +1,40 @@
+/*#######################################################
+ *
+ * SPDX-FileCopyrightText: 2025 Milos Vasic
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Document Watcher - Android Implementation
+ *
+ *########################################################*/
+package digital.vasic.yole.model
+
+import android.os.FileObserver
+import kotlinx.coroutines.channels.awaitClose
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.callbackFlow
+import java.io.File
+
+/**
+ * Raw change events for the entries of [directory] from a [FileObserver] (Android)
+ */
+actual fun watchDirectory(directory: String): Flow<String> = callbackFlow {
+    // The String constructor is deprecated from API 29 but is the only one available on older devices
+    @Suppress("DEPRECATION")
+    val observer = object : FileObserver(directory, EVENTS) {
+        override fun onEvent(event: Int, path: String?) {
+            if (event and Q_OVERFLOW != 0 || path == null) {
+                trySend(directory)
+            } else {
+                trySend(File(directory, path).path)
+            }
+        }
+    }
+    observer.startWatching()
+    awaitClose { observer.stopWatching() }
+}
+
+private const val EVENTS = FileObserver.CLOSE_WRITE or FileObserver.MODIFY or FileObserver.CREATE or
+    FileObserver.DELETE or FileObserver.MOVED_FROM or FileObserver.MOVED_TO
+
+// FileObserver reports a lost event queue with this inotify flag
+private const val Q_OVERFLOW = 0x00004000
@@ -0,0 +1,238 @@
+/*#######################################################
+ *
+ * SPDX-FileCopyrightText: 2025 Milos Vasic
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Include Directive Resolution
+ * Shared fragment cache for include:: style directives
+ *
+ *########################################################*/
+package digital.vasic.yole.format
+
+import okio.FileSystem
+import okio.IOException
+import okio.Path
+import okio.Path.Companion.toPath
+
+/**
+ * Cache of rendered include fragments.
+ *
+ * Entries are keyed by fragment kind (e.g. the format id) and path, and are valid as
+ * long as the modification time of the fragment and of every file it includes is
+ * unchanged. A header included by hundreds of pages is therefore rendered once per
+ * build instead of once per page.
+ *
+ * @param maxEntries Maximum number of cached fragments; the oldest entry is evicted first
+ */
+class FragmentCache(private val maxEntries: Int = DEFAULT_MAX_ENTRIES) {
+    private val entries = LinkedHashMap<String, Entry>()
+
+    /**
+     * Number of lookups served from the cache.
+     */
+    var hitCount: Int = 0
+        private set
+
+    /**
+     * Number of lookups that required rendering the fragment.
+     */
+    var missCount: Int = 0
+        private set
+
+    /**
+     * Number of cached fragments.
+     */
+    val size: Int get() = entries.size
+
+    /**
+     * Remove all cached fragments and reset the statistics.
+     */
+    fun clear() {
+        entries.clear()
+        hitCount = 0
+        missCount = 0
+    }
+
+    internal fun get(kind: String, path: Path, isValid: (Entry) -> Boolean): Entry? {
+        val entry = entries[key(kind, path)]
+        if (entry != null && isValid(entry)) {
+            hitCount++
+            return entry
+        }
+        missCount++
+        return null
+    }
+
+    internal fun put(kind: String, path: Path, entry: Entry) {
+        val key = key(kind, path)
+        entries.remove(key)
+        if (entries.size >= maxEntries) {
+            entries.remove(entries.keys.first())
+        }
+        entries[key] = entry
+    }
+
+    private fun key(kind: String, path: Path) = "$kind:$path"
+
+    /**
+     * A rendered fragment and the (path, modification time) of every file it was
+     * rendered from, including nested includes.
+     */
+    internal class Entry(val html: String, val dependencies: List<Pair<Path, Long>>)
+
+    companion object {
+        /**
+         * Default maximum number of cached fragments.
+         */
+        const val DEFAULT_MAX_ENTRIES = 1024
+    }
+}
+
+/**
+ * Resolves include directives (AsciiDoc `include::`, reStructuredText `.. include::`)
+ * through a pluggable okio [FileSystem].
+ *
+ * Included files are rendered by the including parser and stored in a
+ * [FragmentCache], so a resolver (and its cache) should be shared by all documents
+ * of a build. Circular includes are detected and rendered as an error instead of
+ * recursing forever.
+ *
+ * @param fileSystem File system used to read included files
+ * @param cache Cache for rendered fragments
+ *
+ * @example
+ * ```kotlin
+ * val resolver = IncludeResolver(FileSystem.SYSTEM)
+ * val options = ParseOptions.create()
+ *     .setIncludeResolver(resolver, "/docs/index.adoc")
+ *     .build()
+ * val html = AsciidocParser().parse(content, options).toHtml()
+ * ```
+ */
+class IncludeResolver(
+    val fileSystem: FileSystem,
+    val cache: FragmentCache = FragmentCache()
+) {
+    /**
+     * Files currently being rendered, innermost last.
+     */
+    private val stack = ArrayList<Path>()
+
+    /**
+     * Dependencies collected for each fragment on [stack].
+     */
+    private val dependencyFrames = ArrayList<MutableList<Pair<Path, Long>>>()
+
+    /**
+     * Render an included file, using the cache when possible.
+     *
+     * @param path Resolved path of the included file
+     * @param kind Fragment kind, usually the format id of the including parser
+     * @param render Renders the included content; nested includes must be resolved
+     *               through this resolver as well
+     * @return The rendered fragment, or an error fragment for missing or circular includes
+     */
+    fun render(path: Path, kind: String, render: (content: String) -> String): String {
+        if (path in stack) {
+            return "<div class='include-error'>Circular include: ${path.name.escapeHtml()}</div>"
+        }
+        val modTime = modTime(path)
+            ?: return "<div class='include-error'>Missing include: ${path.name.escapeHtml()}</div>"
+
+        cache.get(kind, path) { entry -> entry.dependencies.all { (dependency, time) -> modTime(dependency) == time } }
+            ?.let { entry ->
+                dependencyFrames.lastOrNull()?.addAll(entry.dependencies)
+                return entry.html
+            }
+
+        val content = try {
+            fileSystem.read(path) { readUtf8() }
+        } catch (e: IOException) {
+            return "<div class='include-error'>Unreadable include: ${path.name.escapeHtml()}</div>"
+        }
+
+        val frame = mutableListOf(path to modTime)
+        stack.add(path)
+        dependencyFrames.add(frame)
+        val html = try {
+            render(content)
+        } finally {
+            stack.removeAt(stack.size - 1)
+            dependencyFrames.removeAt(dependencyFrames.size - 1)
+        }
+
+        dependencyFrames.lastOrNull()?.addAll(frame)
+        cache.put(kind, path, FragmentCache.Entry(html, frame))
+        return html
+    }
+
+    private fun modTime(path: Path): Long? {
+        return try {
+            fileSystem.metadataOrNull(path)?.let { it.lastModifiedAtMillis ?: -1L }
+        } catch (e: IOException) {
+            null
+        }
+    }
+}
+
+/**
+ * Include resolution state of one document: the resolver plus the path of the
+ * document, against which relative include targets are resolved.
+ *
+ * Parsers attach it to their [ParsedDocument] under [KEY] so that `toHtml()` can
+ * expand includes.
+ *
+ * @property resolver The shared include resolver
+ * @property documentPath Path of the document containing the include directives
+ */
+class IncludeContext(
+    val resolver: IncludeResolver,
+    val documentPath: Path
+) {
+    /**
+     * Render the file referenced by an include directive of this document.
+     *
+     * @param target The include target as written in the directive
+     * @param kind Fragment kind, usually the format id of the including parser
+     * @param render Renders included content with the context of the included file
+     */
+    fun render(target: String, kind: String, render: (content: String, context: IncludeContext) -> String): String {
+        val path = resolve(target)
+        return resolver.render(path, kind) { content -> render(content, IncludeContext(resolver, path)) }
+    }
+
+    private fun resolve(target: String): Path {
+        val targetPath = target.trim().toPath()
+        if (targetPath.isAbsolute) return targetPath.normalized()
+        val directory = documentPath.parent ?: return targetPath
+        return directory.resolve(targetPath, normalize = true)
+    }
+
+    companion object {
+        /**
+         * Attachment holding the include context of a parsed document.
+         */
+        val KEY = AttachmentKey<IncludeContext>("include.context")
+
+        /**
+         * Option key for the [IncludeResolver].
+         */
+        const val OPTION_RESOLVER = "includeResolver"
+
+        /**
+         * Option key for the path of the document being parsed.
+         */
+        const val OPTION_DOCUMENT_PATH = "documentPath"
+
+        /**
+         * Create the include context from parse options.
+         *
+         * @return The context, or null if no resolver or document path was given
+         */
+        fun fromOptions(options: Map<String, Any>): IncludeContext? {
+            val resolver = options[OPTION_RESOLVER] as? IncludeResolver ?: return null
+            val documentPath = options[OPTION_DOCUMENT_PATH] as? String ?: return null
+            return IncludeContext(resolver, documentPath.toPath())
+        }
+    }
+}
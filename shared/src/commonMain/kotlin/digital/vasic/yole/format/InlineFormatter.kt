@@ -0,0 +1,288 @@
+/*#######################################################
+ *
+ * SPDX-FileCopyrightText: 2025 Milos Vasic
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Inline Formatter - Platform Agnostic
+ * Table-driven single-pass scanner for delimited inline markup
+ *
+ *########################################################*/
+package digital.vasic.yole.format
+
+/**
+ * How the text between the delimiters of an [InlineRule] is passed to its renderer.
+ */
+enum class InlineContent {
+    /** Formatted with the same rules, so constructs can nest. */
+    FORMATTED,
+
+    /** Escaped like plain text (when the formatter escapes), but not formatted. */
+    TEXT,
+
+    /** Passed as written; the renderer formats or escapes parts of it itself. */
+    RAW
+}
+
+/**
+ * One delimited inline construct such as `**bold**` or `[[link]]`.
+ *
+ * The content between [open] and [close] is at least one character long and ends
+ * at the first [close] after it, as with a lazy regex. The guards mirror the
+ * `(?<!*)**(?!*)` lookarounds wiki formats use so that `***` is not read as bold.
+ * A rule with an empty [close] is a literal token such as a `\\` line break; its
+ * renderer gets an empty string.
+ *
+ * @property open Opening delimiter
+ * @property close Closing delimiter
+ * @property content How the content is passed to [render]
+ * @property excluded Characters the content may not contain
+ * @property leftGuard The opener may not follow its own first character
+ * @property innerGuard The opener may not be followed by its own first character
+ * @property rightGuard The closer may not be followed by its own first character
+ * @property atomic Formatted content of other rules skips over this construct when
+ *                  looking for its closer, so links and code bind tighter than emphasis
+ * @property suffix Extends the match past the closer, returning the end of the suffix
+ *                  or -1 to reject; the renderer then gets everything after [open] as written
+ * @property render Renders the construct, or returns null to reject the match
+ *
+ * @example
+ * ```kotlin
+ * val bold = InlineRule("**", "**", excluded = "*") { "<strong>$it</strong>" }
+ * ```
+ */
+class InlineRule(
+    val open: String,
+    val close: String,
+    val content: InlineContent = InlineContent.FORMATTED,
+    val excluded: String = "",
+    val leftGuard: Boolean = false,
+    val innerGuard: Boolean = false,
+    val rightGuard: Boolean = false,
+    val atomic: Boolean = false,
+    val suffix: ((text: String, start: Int, end: Int) -> Int)? = null,
+    val render: InlineFormatter.(content: String) -> String?
+) {
+    init {
+        require(open.isNotEmpty()) { "Opening delimiter must not be empty" }
+        require(open[0].code < InlineFormatter.TABLE_SIZE) { "Opening delimiter must start with an ASCII character" }
+    }
+
+    companion object {
+        /**
+         * Rule for `[[target|label]]` style constructs: RAW and atomic, split at the
+         * first `|`. The target and, if there is a pipe, the label must not be empty.
+         *
+         * @param render Renders the target and the label (null without a pipe)
+         */
+        fun piped(
+            open: String,
+            close: String,
+            render: InlineFormatter.(target: String, label: String?) -> String
+        ) = InlineRule(open, close, InlineContent.RAW, excluded = close.substring(0, 1), atomic = true) { content ->
+            val pipe = content.indexOf('|')
+            when {
+                pipe < 0 -> render(content, null)
+                pipe == 0 || pipe == content.length - 1 -> null
+                else -> render(content.substring(0, pipe), content.substring(pipe + 1))
+            }
+        }
+    }
+}
+
+/**
+ * Single-pass inline formatter driven by a delimiter table.
+ *
+ * The rules are indexed by the first character of their opening delimiter. The
+ * text is scanned once from left to right; at each character only the rules in its
+ * table slot are tried, in the order given, and the first one that matches is
+ * rendered. Everything else is copied as plain text, HTML-escaped if [escape] is
+ * set. This replaces chains of regex `replace` passes, which re-scan the line once
+ * per construct and can match across the tags produced by earlier passes.
+ *
+ * Formatters are immutable and can be shared; parsers keep theirs in a companion
+ * object so the table is built once.
+ *
+ * @param rules Rules in priority order
+ * @param escape Whether plain text and [InlineContent.TEXT] content are HTML-escaped
+ *
+ * @example
+ * ```kotlin
+ * val formatter = InlineFormatter(
+ *     listOf(
+ *         InlineRule("**", "**", excluded = "*") { "<strong>$it</strong>" },
+ *         InlineRule("//", "//", excluded = "/") { "<em>$it</em>" }
+ *     )
+ * )
+ * formatter.format("**bold** and //italic// <text>")
+ * // <strong>bold</strong> and <em>italic</em> &lt;text&gt;
+ * ```
+ */
+class InlineFormatter(
+    rules: List<InlineRule>,
+    val escape: Boolean = true
+) {
+    private val rules: Array<InlineRule> = rules.toTypedArray()
+
+    /** Rule indices by first character of the opening delimiter. */
+    private val table: Array<IntArray?> = arrayOfNulls(TABLE_SIZE)
+
+    private val hasAtomic = this.rules.any { it.atomic }
+
+    init {
+        for (c in 0 until TABLE_SIZE) {
+            val indices = this.rules.indices.filter { this.rules[it].open[0].code == c }
+            if (indices.isNotEmpty()) table[c] = indices.toIntArray()
+        }
+    }
+
+    /**
+     * Format a line of inline markup.
+     */
+    fun format(text: String): String {
+        val out = StringBuilder(text.length + 32)
+        format(text, 0, text.length, out)
+        return out.toString()
+    }
+
+    /**
+     * Plain text as this formatter outputs it: escaped if [escape] is set.
+     */
+    fun text(text: String): String = if (escape) text.escapeHtml() else text
+
+    /**
+     * Format the range [start, end) of [text] into [out] without copying it first.
+     */
+    fun format(text: String, start: Int, end: Int, out: StringBuilder) {
+        // Position from which a rule is known to have no closing delimiter before end
+        var noClose: IntArray? = null
+        var i = start
+        var plainStart = start
+
+        while (i < end) {
+            val c = text[i]
+            val candidates = if (c.code < TABLE_SIZE) table[c.code] else null
+            var matched = false
+
+            if (candidates != null) {
+                for (index in candidates) {
+                    val rule = rules[index]
+                    if (noClose != null && i >= noClose[index]) continue
+                    if (!text.startsWith(rule.open, i) || i + rule.open.length > end) continue
+
+                    val contentStart = i + rule.open.length
+                    if (rule.close.isEmpty()) {
+                        val rendered = rule.render(this, "") ?: continue
+                        appendPlain(text, plainStart, i, out)
+                        out.append(rendered)
+                        i = contentStart
+                        plainStart = i
+                        matched = true
+                        break
+                    }
+
+                    val closeAt = findClose(rule, text, start, contentStart, end)
+                    if (closeAt == NO_CLOSE) {
+                        if (noClose == null) noClose = IntArray(rules.size) { Int.MAX_VALUE }
+                        noClose[index] = i
+                        continue
+                    }
+                    if (closeAt < 0) continue
+                    val matchEnd = rule.suffix?.invoke(text, closeAt + rule.close.length, end) ?: (closeAt + rule.close.length)
+                    if (matchEnd < 0) continue
+
+                    val content = when {
+                        rule.suffix != null -> text.substring(contentStart, matchEnd)
+                        rule.content == InlineContent.FORMATTED -> StringBuilder().also { format(text, contentStart, closeAt, it) }.toString()
+                        rule.content == InlineContent.TEXT -> text(text.substring(contentStart, closeAt))
+                        else -> text.substring(contentStart, closeAt)
+                    }
+                    val rendered = rule.render(this, content) ?: continue
+
+                    appendPlain(text, plainStart, i, out)
+                    out.append(rendered)
+                    i = matchEnd
+                    plainStart = i
+                    matched = true
+                    break
+                }
+            }
+            if (!matched) i++
+        }
+        appendPlain(text, plainStart, end, out)
+    }
+
+    /**
+     * Find the closing delimiter of [rule] for content starting at [contentStart].
+     *
+     * @return The index of the closer, [NO_CLOSE] if there is none before [end] at all,
+     *         or -1 if the opener is rejected by a guard or an excluded character
+     */
+    private fun findClose(rule: InlineRule, text: String, start: Int, contentStart: Int, end: Int): Int {
+        val marker = rule.open[0]
+        if (rule.leftGuard && contentStart - rule.open.length > start && text[contentStart - rule.open.length - 1] == marker) return -1
+        if (contentStart >= end) return -1
+        if (rule.innerGuard && text[contentStart] == marker) return -1
+
+        val excluded = rule.excluded
+        if (excluded.isNotEmpty() && text[contentStart] in excluded) return -1
+
+        val skipAtomic = hasAtomic && rule.content == InlineContent.FORMATTED
+        var k = contentStart + 1
+        while (k + rule.close.length <= end) {
+            if (text.startsWith(rule.close, k)) {
+                val after = k + rule.close.length
+                if (!rule.rightGuard || after >= end || text[after] != rule.close[0]) return k
+            }
+            if (skipAtomic) {
+                val skip = atomicEnd(text, start, k, end)
+                if (skip > k) {
+                    k = skip
+                    continue
+                }
+            }
+            if (excluded.isNotEmpty() && text[k] in excluded) return -1
+            k++
+        }
+        return NO_CLOSE
+    }
+
+    /**
+     * End of an atomic construct starting at [at], or -1 if there is none.
+     */
+    private fun atomicEnd(text: String, start: Int, at: Int, end: Int): Int {
+        val c = text[at]
+        val candidates = (if (c.code < TABLE_SIZE) table[c.code] else null) ?: return -1
+        for (index in candidates) {
+            val rule = rules[index]
+            if (!rule.atomic || rule.close.isEmpty() || !text.startsWith(rule.open, at)) continue
+            val closeAt = findClose(rule, text, start, at + rule.open.length, end)
+            if (closeAt < 0) continue
+            val matchEnd = rule.suffix?.invoke(text, closeAt + rule.close.length, end) ?: (closeAt + rule.close.length)
+            if (matchEnd >= 0) return matchEnd
+        }
+        return -1
+    }
+
+    private fun appendPlain(text: String, from: Int, to: Int, out: StringBuilder) {
+        if (from >= to) return
+        if (!escape) {
+            out.appendRange(text, from, to)
+            return
+        }
+        for (k in from until to) {
+            when (val c = text[k]) {
+                '&' -> out.append("&amp;")
+                '<' -> out.append("&lt;")
+                '>' -> out.append("&gt;")
+                '"' -> out.append("&quot;")
+                '\'' -> out.append("&#39;")
+                else -> out.append(c)
+            }
+        }
+    }
+
+    companion object {
+        internal const val TABLE_SIZE = 128
+        private const val NO_CLOSE = -2
+    }
+}
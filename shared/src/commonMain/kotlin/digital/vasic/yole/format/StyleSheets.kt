@@ -110,6 +110,26 @@ object StyleSheets {
 .wikitext pre { background-color: #f0f0f0; padding: 10px; overflow-x: auto; }
 .wikitext a { color: #1ea3fd; text-decoration: none; }
 .wikitext a:hover { text-decoration: underline; }
+</style>"""
+
+    /**
+     * Syntax highlighting CSS styles for source code.
+     * Token classes are produced by the plain-text syntax highlighter.
+     */
+    const val CODE_HIGHLIGHT_STYLES = """<style>
+.code-block .hl-keyword { color: #cc7832; font-weight: bold; }
+.code-block .hl-literal { color: #9876aa; }
+.code-block .hl-string { color: #6a8759; }
+.code-block .hl-number { color: #1c7ed6; }
+.code-block .hl-comment { color: #808080; font-style: italic; }
+.code-block .hl-annotation { color: #a0822c; }
+.code-block .hl-variable { color: #9876aa; }
+.code-block .hl-key { color: #b5401a; }
+.code-block .hl-tag { color: #2f6fad; }
+.code-block .hl-attribute { color: #9a6e00; }
+.code-block .hl-inserted { color: #2b8a3e; background-color: #ebfbee; }
+.code-block .hl-deleted { color: #c92a2a; background-color: #fff5f5; }
+.code-block .hl-meta { color: #5c7cfa; }
 </style>"""
 
     /**
@@ -159,6 +159,46 @@ class ParsedDocument(
         _cachedHtmlDark = null
     }
 
+    /**
+     * Parser-specific attachments (e.g. a parsed model). Not part of equality and
+     * not carried over by [copy].
+     */
+    private var _attachments: MutableMap<AttachmentKey<*>, Any>? = null
+
+    /**
+     * Attach a typed value to this document.
+     *
+     * Parsers use attachments to keep an intermediate model (e.g. a notebook's cell
+     * list) next to the document, so `toHtml()` can render from it instead of parsing
+     * `rawContent` again. Attachments are not copied by [copy], because a copy may
+     * carry different content.
+     *
+     * @param key The typed key identifying the attachment
+     * @param value The value to attach
+     *
+     * @example
+     * ```kotlin
+     * val MODEL = AttachmentKey<MyModel>("my.model")
+     * document.putAttachment(MODEL, model)
+     * val cached: MyModel? = document.getAttachment(MODEL)
+     * ```
+     */
+    fun <T : Any> putAttachment(key: AttachmentKey<T>, value: T) {
+        val attachments = _attachments ?: mutableMapOf<AttachmentKey<*>, Any>().also { _attachments = it }
+        attachments[key] = value
+    }
+
+    /**
+     * Get a value previously attached with [putAttachment].
+     *
+     * @param key The typed key identifying the attachment
+     * @return The attached value, or null if none was attached
+     */
+    fun <T : Any> getAttachment(key: AttachmentKey<T>): T? {
+        @Suppress("UNCHECKED_CAST")
+        return _attachments?.get(key) as T?
+    }
+
     /**
      * Check if HTML has been generated and cached for the given mode.
      *
@@ -224,6 +264,19 @@ class ParsedDocument(
     }
 }
 
+/**
+ * Typed key for [ParsedDocument] attachments.
+ *
+ * Keys are compared by identity, so each parser should declare its keys once
+ * (e.g. in a companion object).
+ *
+ * @param T The type of the attached value
+ * @property name Descriptive name used in [toString]
+ */
+class AttachmentKey<T : Any>(val name: String) {
+    override fun toString(): String = "AttachmentKey($name)"
+}
+
 /**
  * Interface for text format parsers.
  * 
@@ -614,6 +667,19 @@ class ParseOptions {
         return this
     }
 
+    /**
+     * Enable include directive resolution for formats that support it.
+     *
+     * @param resolver The include resolver, shared between documents of a build
+     * @param documentPath Path of the document being parsed; relative includes are resolved against its directory
+     * @return This builder for method chaining
+     */
+    fun setIncludeResolver(resolver: IncludeResolver, documentPath: String): ParseOptions {
+        options[IncludeContext.OPTION_RESOLVER] = resolver
+        options[IncludeContext.OPTION_DOCUMENT_PATH] = documentPath
+        return this
+    }
+
     /**
      * Set a custom option key-value pair.
      * 
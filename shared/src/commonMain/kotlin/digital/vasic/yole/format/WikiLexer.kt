@@ -0,0 +1,337 @@
+/*#######################################################
+ *
+ * SPDX-FileCopyrightText: 2025 Milos Vasic
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Wiki Lexer - Platform Agnostic
+ * Grammar-driven block lexer shared by the wiki-family formats
+ *
+ *########################################################*/
+package digital.vasic.yole.format
+
+/**
+ * Token types stored in a [WikiTokenBuffer].
+ */
+internal object WikiToken {
+    const val BLANK: Byte = 0
+    const val PARAGRAPH: Byte = 1
+    const val HEADING: Byte = 2
+    const val BULLET: Byte = 3
+    const val NUMBERED: Byte = 4
+    const val CHECK: Byte = 5
+    const val QUOTE: Byte = 6
+    const val QUOTE_TOGGLE: Byte = 7
+    const val RULE: Byte = 8
+    const val TABLE_ROW: Byte = 9
+    const val CODE_OPEN: Byte = 10
+    const val CODE_LINE: Byte = 11
+    const val CODE_CLOSE: Byte = 12
+
+    fun isListItem(type: Byte): Boolean = type == BULLET || type == NUMBERED || type == CHECK
+}
+
+/**
+ * Block tokens of a document in parallel primitive arrays.
+ *
+ * Each token covers one source line. The text of a token is a range of [source]
+ * rather than a substring, so lexing a document allocates nothing per line. A
+ * buffer can be [clear]ed and reused for the next document.
+ *
+ * @example
+ * ```kotlin
+ * val tokens = WikiLexer(grammar).tokenize("== Title ==\n* item")
+ * tokens.type(1)  // WikiToken.BULLET
+ * tokens.text(1)  // "item"
+ * ```
+ */
+internal class WikiTokenBuffer(capacity: Int = 64) {
+    /** The document the token ranges point into. */
+    var source: String = ""
+        private set
+
+    /** Number of tokens. */
+    var size = 0
+        private set
+
+    private var types = ByteArray(capacity)
+    private var levels = IntArray(capacity)
+    private var markers = CharArray(capacity)
+    private var starts = IntArray(capacity)
+    private var ends = IntArray(capacity)
+    private var lineStarts = IntArray(capacity)
+    private var indents = IntArray(capacity)
+    private var lines = IntArray(capacity)
+
+    fun type(index: Int): Byte = types[index]
+
+    /** Heading level or list depth; 0 for other tokens. */
+    fun level(index: Int): Int = levels[index]
+
+    /** Format-specific marker character, such as the state of a checklist item. */
+    fun marker(index: Int): Char = markers[index]
+
+    fun start(index: Int): Int = starts[index]
+
+    fun end(index: Int): Int = ends[index]
+
+    /** Zero-based source line of the token. */
+    fun line(index: Int): Int = lines[index]
+
+    fun text(index: Int): String = source.substring(starts[index], ends[index])
+
+    /** Leading whitespace of the line that the format keeps in its output. */
+    fun indent(index: Int): String = source.substring(lineStarts[index], lineStarts[index] + indents[index])
+
+    fun clear() {
+        source = ""
+        size = 0
+    }
+
+    internal fun reset(source: String) {
+        this.source = source
+        size = 0
+    }
+
+    internal fun add(type: Byte, level: Int, marker: Char, start: Int, end: Int, lineStart: Int, indent: Int, line: Int) {
+        if (size == types.size) grow()
+        types[size] = type
+        levels[size] = level
+        markers[size] = marker
+        starts[size] = start
+        ends[size] = end
+        lineStarts[size] = lineStart
+        indents[size] = indent
+        lines[size] = line
+        size++
+    }
+
+    private fun grow() {
+        val capacity = maxOf(16, types.size * 2)
+        types = types.copyOf(capacity)
+        levels = levels.copyOf(capacity)
+        markers = markers.copyOf(capacity)
+        starts = starts.copyOf(capacity)
+        ends = ends.copyOf(capacity)
+        lineStarts = lineStarts.copyOf(capacity)
+        indents = indents.copyOf(capacity)
+        lines = lines.copyOf(capacity)
+    }
+}
+
+/**
+ * The line a [LineRule] is asked to classify, and the token it produces.
+ *
+ * All positions are indices into [text], the whole document. [from] and [to]
+ * bound the line without surrounding whitespace, as `String.trim()` would.
+ */
+internal class WikiLine {
+    lateinit var text: String
+        private set
+    var start = 0
+        private set
+    var end = 0
+        private set
+    var from = 0
+        private set
+    var to = 0
+        private set
+
+    internal var type: Byte = WikiToken.PARAGRAPH
+    internal var level = 0
+    internal var marker = '\u0000'
+    internal var textStart = 0
+    internal var textEnd = 0
+    internal var indent = 0
+
+    val isBlank: Boolean get() = from >= to
+
+    /** Whether the trimmed line starts with [prefix]. */
+    fun startsWith(prefix: String): Boolean = from + prefix.length <= to && text.startsWith(prefix, from)
+
+    /** Whether the trimmed line is exactly [value]. */
+    fun equalsTrimmed(value: String): Boolean = to - from == value.length && text.startsWith(value, from)
+
+    /**
+     * Record the token for this line.
+     *
+     * @return Always true, so rules can end with `return line.token(...)`
+     */
+    fun token(type: Byte, level: Int, textStart: Int, textEnd: Int, marker: Char = '\u0000', indent: Int = 0): Boolean {
+        this.type = type
+        this.level = level
+        this.textStart = textStart
+        this.textEnd = textEnd
+        this.marker = marker
+        this.indent = indent
+        return true
+    }
+
+    internal fun reset(text: String, start: Int, end: Int) {
+        this.text = text
+        this.start = start
+        this.end = end
+        var from = start
+        while (from < end && text[from].isWhitespace()) from++
+        var to = end
+        while (to > from && text[to - 1].isWhitespace()) to--
+        this.from = from
+        this.to = to
+    }
+}
+
+/**
+ * One entry of a block grammar: recognizes a kind of line and records its token.
+ */
+internal fun interface LineRule {
+    /**
+     * @return True if the rule matched and called [WikiLine.token]
+     */
+    fun match(line: WikiLine): Boolean
+}
+
+/**
+ * Delimiters of verbatim blocks. Inside a block every line is a
+ * [WikiToken.CODE_LINE] until [closes] matches; a line that [opens] another
+ * block is dropped.
+ *
+ * @property opens Whether a line starts a block; the line itself is not content
+ * @property closes Whether a line inside a block ends it
+ */
+internal class CodeBlockRule(
+    val opens: (WikiLine) -> Boolean,
+    val closes: (WikiLine) -> Boolean
+)
+
+/**
+ * Block and inline grammar of one wiki-family format.
+ *
+ * @property rules Line rules in priority order; a line no rule matches is a paragraph
+ * @property inline Inline markup of headings, paragraphs, list items and table cells
+ * @property code Verbatim block delimiters, checked before [rules]
+ * @property nestedLists Whether list depth comes from the marker run (`**`) or lists are flat
+ * @property trimParagraphs Whether paragraph text is trimmed
+ */
+internal class WikiGrammar(
+    val rules: List<LineRule>,
+    val inline: InlineFormatter,
+    val code: CodeBlockRule? = null,
+    val nestedLists: Boolean = false,
+    val trimParagraphs: Boolean = true
+)
+
+/**
+ * Common rule shapes of the wiki formats.
+ */
+internal object LineRules {
+
+    /** Whitespace as regex `\s` defines it. */
+    fun isSpace(c: Char): Boolean = c == ' ' || c in '\t'..'\r'
+
+    /**
+     * A run of [marker] followed by a space and text, such as `** item`; the level
+     * is the length of the run, capped at [maxLevel].
+     *
+     * @param anySpace Accept any run of whitespace after the markers, not just one space
+     */
+    fun run(marker: Char, type: Byte, anySpace: Boolean = false, maxLevel: Int = Int.MAX_VALUE) = LineRule { line ->
+        val text = line.text
+        var p = line.from
+        while (p < line.to && text[p] == marker) p++
+        val count = p - line.from
+        when {
+            count == 0 || p >= line.to -> false
+            anySpace && isSpace(text[p]) -> {
+                while (isSpace(text[p])) p++
+                line.token(type, minOf(count, maxLevel), p, line.to)
+            }
+            !anySpace && text[p] == ' ' -> line.token(type, minOf(count, maxLevel), p + 1, line.to)
+            else -> false
+        }
+    }
+
+    /** A trimmed line starting with [prefix]; the rest is the text. */
+    fun prefix(prefix: String, type: Byte) = LineRule { line ->
+        line.startsWith(prefix) && line.token(type, 1, line.from + prefix.length, line.to)
+    }
+
+    /** A trimmed line of at least [min] [marker] characters, such as `----`. */
+    fun fill(marker: Char, min: Int, type: Byte = WikiToken.RULE) = LineRule { line ->
+        line.to - line.from >= min && (line.from until line.to).all { line.text[it] == marker } &&
+            line.token(type, 0, line.from, line.to)
+    }
+
+    /** A trimmed line that is exactly [value]. */
+    fun exact(value: String, type: Byte) = LineRule { line ->
+        line.equalsTrimmed(value) && line.token(type, 0, line.from, line.to)
+    }
+}
+
+/**
+ * Splits a document into block tokens according to a [WikiGrammar].
+ *
+ * Lines are separated by `\n`, `\r\n` or `\r` like `String.lines()`. Each line
+ * is checked against the verbatim block delimiters and then the grammar's rules
+ * in order; only rules are format-specific, the scanning loop and the token
+ * buffer are shared by all wiki formats.
+ *
+ * @example
+ * ```kotlin
+ * val grammar = WikiGrammar(
+ *     rules = listOf(LineRules.run('*', WikiToken.BULLET), LineRules.fill('-', 4)),
+ *     inline = InlineFormatter(emptyList())
+ * )
+ * val tokens = WikiLexer(grammar).tokenize("* one\n** two\n----")
+ * tokens.level(1)  // 2
+ * ```
+ */
+internal class WikiLexer(val grammar: WikiGrammar) {
+    private val rules: Array<LineRule> = grammar.rules.toTypedArray()
+
+    fun tokenize(content: String, tokens: WikiTokenBuffer = WikiTokenBuffer()): WikiTokenBuffer {
+        tokens.reset(content)
+        val line = WikiLine()
+        val code = grammar.code
+        var inCode = false
+        var lineNumber = 0
+        var start = 0
+
+        while (true) {
+            var end = start
+            while (end < content.length && content[end] != '\n' && content[end] != '\r') end++
+            line.reset(content, start, end)
+
+            if (inCode) {
+                if (code!!.closes(line)) {
+                    tokens.add(WikiToken.CODE_CLOSE, 0, '\u0000', start, end, start, 0, lineNumber)
+                    inCode = false
+                } else if (!code.opens(line)) {
+                    tokens.add(WikiToken.CODE_LINE, 0, '\u0000', start, end, start, 0, lineNumber)
+                }
+            } else if (code != null && code.opens(line)) {
+                tokens.add(WikiToken.CODE_OPEN, 0, '\u0000', start, end, start, 0, lineNumber)
+                inCode = true
+            } else if (line.isBlank) {
+                tokens.add(WikiToken.BLANK, 0, '\u0000', start, end, start, 0, lineNumber)
+            } else {
+                classify(line)
+                tokens.add(line.type, line.level, line.marker, line.textStart, line.textEnd, start, line.indent, lineNumber)
+            }
+
+            if (end >= content.length) break
+            start = if (content[end] == '\r' && end + 1 < content.length && content[end + 1] == '\n') end + 2 else end + 1
+            lineNumber++
+        }
+        return tokens
+    }
+
+    private fun classify(line: WikiLine) {
+        for (rule in rules) {
+            if (rule.match(line)) return
+        }
+        if (grammar.trimParagraphs) {
+            line.token(WikiToken.PARAGRAPH, 0, line.from, line.to)
+        } else {
+            line.token(WikiToken.PARAGRAPH, 0, line.start, line.end)
+        }
+    }
+}
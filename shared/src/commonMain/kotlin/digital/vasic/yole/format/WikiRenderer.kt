@@ -0,0 +1,188 @@
+/*#######################################################
+ *
+ * SPDX-FileCopyrightText: 2025 Milos Vasic
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Wiki Renderer - Platform Agnostic
+ * Shared HTML renderer for wiki-family block tokens
+ *
+ *########################################################*/
+package digital.vasic.yole.format
+
+/**
+ * Renders the tokens of a [WikiLexer] as HTML.
+ *
+ * Block structure is the same for all wiki formats: list items open and close
+ * `<ul>`/`<ol>` containers (one per level when the grammar nests lists), table
+ * rows are grouped into a `<table>`, and any other line closes both. Verbatim
+ * blocks and `<<<` quote blocks do not interrupt an open list. Everything the
+ * formats differ in lives in their [WikiGrammar].
+ *
+ * @example
+ * ```kotlin
+ * val renderer = WikiRenderer(grammar)
+ * val html = StringBuilder("<div class='creole'>")
+ * renderer.render(content, html)
+ * html.append("</div>")
+ * ```
+ */
+internal class WikiRenderer(val grammar: WikiGrammar) {
+    private val lexer = WikiLexer(grammar)
+
+    /**
+     * Lex [content] and append its HTML to [out].
+     */
+    fun render(content: String, out: StringBuilder) {
+        render(lexer.tokenize(content), out)
+    }
+
+    /**
+     * Append the HTML of already lexed [tokens] to [out].
+     */
+    fun render(tokens: WikiTokenBuffer, out: StringBuilder) {
+        val source = tokens.source
+        val inline = grammar.inline
+        var listType: Byte = NO_LIST
+        var listLevel = 0
+        var inTable = false
+        var inCode = false
+        var inQuote = false
+
+        fun closeList() {
+            repeat(listLevel) { out.append(closeTag(listType)) }
+            listType = NO_LIST
+            listLevel = 0
+        }
+
+        fun closeTable() {
+            if (inTable) out.append("</table>")
+            inTable = false
+        }
+
+        for (i in 0 until tokens.size) {
+            val type = tokens.type(i)
+            val start = tokens.start(i)
+            val end = tokens.end(i)
+
+            when (type) {
+                WikiToken.CODE_OPEN -> {
+                    out.append("<pre>")
+                    inCode = true
+                }
+                WikiToken.CODE_LINE -> out.append(source.substring(start, end).escapeHtml()).append('\n')
+                WikiToken.CODE_CLOSE -> {
+                    out.append("</pre>")
+                    inCode = false
+                }
+                WikiToken.QUOTE_TOGGLE -> {
+                    out.append(if (inQuote) "</blockquote>" else "<blockquote>")
+                    inQuote = !inQuote
+                }
+                WikiToken.TABLE_ROW -> {
+                    if (!inTable) {
+                        closeList()
+                        out.append("<table>")
+                        inTable = true
+                    }
+                    appendTableRow(source, start, end, out)
+                }
+                WikiToken.BULLET, WikiToken.NUMBERED, WikiToken.CHECK -> {
+                    closeTable()
+                    if (listType != type) closeList()
+                    val level = if (grammar.nestedLists) tokens.level(i) else 1
+                    while (listLevel < level) {
+                        out.append(openTag(type))
+                        listLevel++
+                    }
+                    while (listLevel > level) {
+                        out.append(closeTag(type))
+                        listLevel--
+                    }
+                    listType = type
+
+                    out.append(tokens.indent(i)).append("<li")
+                    when (tokens.marker(i)) {
+                        '*' -> out.append(" class='checked'")
+                        'x' -> out.append(" class='crossed'")
+                    }
+                    out.append('>')
+                    inline.format(source, start, end, out)
+                    out.append("</li>")
+                }
+                else -> {
+                    closeList()
+                    closeTable()
+                    when (type) {
+                        WikiToken.HEADING -> {
+                            val level = tokens.level(i)
+                            out.append("<h").append(level).append('>')
+                            inline.format(source, start, end, out)
+                            out.append("</h").append(level).append('>')
+                        }
+                        WikiToken.QUOTE -> {
+                            out.append("<blockquote>")
+                            inline.format(source, start, end, out)
+                            out.append("</blockquote>")
+                        }
+                        WikiToken.RULE -> out.append("<hr>")
+                        WikiToken.PARAGRAPH -> {
+                            out.append("<p>")
+                            inline.format(source, start, end, out)
+                            out.append("</p>")
+                        }
+                    }
+                }
+            }
+        }
+
+        closeList()
+        closeTable()
+        if (inCode) out.append("</pre>")
+        if (inQuote) out.append("</blockquote>")
+    }
+
+    /**
+     * `|= Header | cell |`: cells are split on `|`; a cell starting with `=` is a header.
+     */
+    private fun appendTableRow(source: String, start: Int, end: Int, out: StringBuilder) {
+        out.append("<tr>")
+        var cellStart = start + 1
+        val rowEnd = maxOf(cellStart, end - 1)
+        while (true) {
+            var cellEnd = source.indexOf('|', cellStart)
+            if (cellEnd < 0 || cellEnd > rowEnd) cellEnd = rowEnd
+
+            var from = cellStart
+            var to = cellEnd
+            while (from < to && source[from].isWhitespace()) from++
+            while (to > from && source[to - 1].isWhitespace()) to--
+            if (from < to && source[from] == '=') {
+                from++
+                while (from < to && source[from].isWhitespace()) from++
+                out.append("<th>")
+                grammar.inline.format(source, from, to, out)
+                out.append("</th>")
+            } else {
+                out.append("<td>")
+                grammar.inline.format(source, from, to, out)
+                out.append("</td>")
+            }
+
+            if (cellEnd >= rowEnd) break
+            cellStart = cellEnd + 1
+        }
+        out.append("</tr>")
+    }
+
+    private companion object {
+        const val NO_LIST: Byte = -1
+
+        fun openTag(type: Byte): String = when (type) {
+            WikiToken.NUMBERED -> "<ol>"
+            WikiToken.CHECK -> "<ul class='checklist'>"
+            else -> "<ul>"
+        }
+
+        fun closeTag(type: Byte): String = if (type == WikiToken.NUMBERED) "</ol>" else "</ul>"
+    }
+}
@@ -22,17 +22,19 @@ class AsciidocParser : TextParser {
         val metadata = extractMetadata(content)
         val errors = validate(content)
         
-        return ParsedDocument(
+        val document = ParsedDocument(
             format = supportedFormat,
             rawContent = content,
             parsedContent = content, // Raw content for now, will be converted to HTML in toHtml
             metadata = metadata,
             errors = errors
         )
+        IncludeContext.fromOptions(options)?.let { document.putAttachment(IncludeContext.KEY, it) }
+        return document
     }
 
     override fun toHtml(document: ParsedDocument, lightMode: Boolean): String {
-        return convertAsciidocToHtml(document.rawContent, lightMode)
+        return convertAsciidocToHtml(document.rawContent, lightMode, document.getAttachment(IncludeContext.KEY))
     }
 
     override fun validate(content: String): List<String> {
@@ -122,12 +124,26 @@ class AsciidocParser : TextParser {
     /**
      * Convert AsciiDoc content to HTML
      */
-    private fun convertAsciidocToHtml(content: String, lightMode: Boolean): String {
-        val lines = content.lines()
+    private fun convertAsciidocToHtml(content: String, lightMode: Boolean, includes: IncludeContext?): String {
         val html = StringBuilder()
 
         html.append("<div class='asciidoc'>\n")
         html.append(StyleSheets.getStyleSheet(TextFormat.ID_ASCIIDOC, lightMode))
+        html.append(renderBody(content, includes))
+        html.append("</div>")
+        
+        return html.toString()
+    }
+
+    /**
+     * Render AsciiDoc content to theme-independent body HTML.
+     *
+     * `include::target[]` lines are expanded through [includes] when available;
+     * included files are rendered with this method as well, so nested includes work.
+     */
+    private fun renderBody(content: String, includes: IncludeContext?): String {
+        val lines = content.lines()
+        val html = StringBuilder()
         
         var inCodeBlock = false
         var inCommentBlock = false
@@ -160,6 +176,14 @@ class AsciidocParser : TextParser {
                     html.append("\n")
                 }
                 
+                // Include directives
+                includes != null && line.startsWith("include::") && line.trimEnd().endsWith("]") -> {
+                    val target = line.substring("include::".length).substringBefore('[')
+                    html.append(includes.render(target, TextFormat.ID_ASCIIDOC) { included, context ->
+                        renderBody(included, context)
+                    })
+                }
+                
                 // Headings
                 line.startsWith("=") && line.count { it == '=' } >= 1 -> {
                     val level = line.takeWhile { it == '=' }.length
@@ -224,8 +248,6 @@ class AsciidocParser : TextParser {
             }
         }
         
-        html.append("</div>")
-        
         return html.toString()
     }
 }
@@ -10,6 +10,8 @@
 package digital.vasic.yole.format.binary
 
 import digital.vasic.yole.format.*
+import digital.vasic.yole.format.plaintext.openMappedFile
+import okio.ByteString.Companion.toByteString
 
 /**
  * Parser for binary files and embedded content
@@ -23,17 +25,20 @@ class BinaryParser : TextParser {
         val filename = options["filename"] as? String ?: ""
         val fileSize = options["fileSize"] as? Long ?: 0L
         val mimeType = options["mimeType"] as? String ?: detectMimeType(filename)
+        val path = options["path"] as? String
+        val thumbnail = options["thumbnail"] as? ByteArray
         
         return ParsedDocument(
             format = supportedFormat,
             rawContent = content,
-            parsedContent = generateContentPreview(mimeType, filename, content),
+            parsedContent = generateContentPreview(mimeType, filename, content, path, thumbnail),
             metadata = buildMap {
                 put("mime_type", mimeType)
                 put("file_size", fileSize.toString())
                 put("is_binary", "true")
                 put("file_type", getFileType(mimeType))
                 put("extension", filename.substringAfterLast('.', ""))
+                if (path != null) put("path", path)
             }
         )
     }
@@ -55,7 +60,7 @@ class BinaryParser : TextParser {
             |  </div>
             |</div>
             |<div class="binary-content">
-            |${generateContentPreview(mimeType, filename, document.rawContent)}
+            |${document.parsedContent}
             |</div>
             |</div>
             |<style>
@@ -79,6 +84,8 @@ class BinaryParser : TextParser {
             |  border-radius: 4px; cursor: pointer; text-decoration: none; display: inline-block;
             |}
             |.download-button:hover { background: #73d216; }
+            |.hex-view { overflow-x: auto; margin: 1rem 0; font-size: 0.85rem; }
+            |.hex-view mark { background: #fce94f; color: black; }
             |</style>
         """.trimMargin()
     }
@@ -135,13 +142,20 @@ class BinaryParser : TextParser {
         }
     }
     
-    private fun generateContentPreview(mimeType: String, filename: String, content: String): String {
+    private fun generateContentPreview(
+        mimeType: String,
+        filename: String,
+        content: String,
+        path: String?,
+        thumbnail: ByteArray? = null
+    ): String {
         return when {
+            mimeType.startsWith("image/") && thumbnail != null -> generateThumbnailPreview(filename, thumbnail, mimeType)
             mimeType.startsWith("image/") -> generateImagePreview(filename, content)
             mimeType.startsWith("audio/") -> generateAudioPreview(filename, content)
             mimeType.startsWith("video/") -> generateVideoPreview(filename, content)
             mimeType == "application/pdf" -> generatePdfPreview(filename, content)
-            else -> generateGenericPreview(mimeType, filename)
+            else -> generateGenericPreview(mimeType, filename, path)
         }
     }
     
@@ -156,6 +170,34 @@ class BinaryParser : TextParser {
         """.trimMargin()
     }
     
+    /**
+     * Image preview from an encoded thumbnail, e.g. one from [ThumbnailCache]
+     */
+    private fun generateThumbnailPreview(filename: String, thumbnail: ByteArray, mimeType: String): String {
+        return """
+            |<div class="image-container">
+            |  <img class="image-preview" src="data:${thumbnailMimeType(thumbnail, mimeType)};base64,${thumbnail.toByteString().base64()}" alt="${escapeHtml(filename)}">
+            |  <p>Image file: ${escapeHtml(filename)}</p>
+            |  <a href="#" class="download-button">Download Image</a>
+            |</div>
+        """.trimMargin()
+    }
+    
+    /**
+     * Image type of encoded [thumbnail] from its signature, falling back to the file's type
+     */
+    private fun thumbnailMimeType(thumbnail: ByteArray, fallback: String): String {
+        fun startsWith(vararg signature: Int) =
+            thumbnail.size >= signature.size && signature.indices.all { thumbnail[it] == signature[it].toByte() }
+        return when {
+            startsWith(0x89, 0x50, 0x4E, 0x47) -> "image/png"
+            startsWith(0xFF, 0xD8, 0xFF) -> "image/jpeg"
+            startsWith(0x47, 0x49, 0x46) -> "image/gif"
+            startsWith(0x52, 0x49, 0x46, 0x46) -> "image/webp"
+            else -> fallback
+        }
+    }
+    
     private fun generateAudioPreview(filename: String, content: String): String {
         return """
             |<div class="audio-container">
@@ -200,7 +242,7 @@ class BinaryParser : TextParser {
         """.trimMargin()
     }
     
-    private fun generateGenericPreview(mimeType: String, filename: String): String {
+    private fun generateGenericPreview(mimeType: String, filename: String, path: String?): String {
         val icon = when (mimeType) {
             "application/zip", "application/x-tar", "application/gzip" -> "📦"
             else -> "📁"
@@ -213,12 +255,19 @@ class BinaryParser : TextParser {
             |  <p>File: ${escapeHtml(filename)}</p>
             |  <p>Type: ${getFileType(mimeType)}</p>
             |  <p>MIME Type: $mimeType</p>
-            |  <p><em>This file type cannot be previewed in the editor.</em></p>
+            |  ${path?.let { hexPreview(it) } ?: "<p><em>This file type cannot be previewed in the editor.</em></p>"}
             |  <a href="#" class="download-button">Download File</a>
             |</div>
         """.trimMargin()
     }
     
+    /**
+     * Hex dump of the first page of the file at [path], or null if it cannot be opened
+     */
+    private fun hexPreview(path: String): String? {
+        return openHexViewer(path)?.use { it.toHtml(it.page(0)) }
+    }
+    
     private fun escapeHtml(text: String): String {
         return text
             .replace("&", "&amp;")
@@ -227,6 +276,17 @@ class BinaryParser : TextParser {
             .replace("\"", "&quot;")
             .replace("'", "&#39;")
     }
+    
+    companion object {
+        /**
+         * Open [path] in a [HexViewer] backed by a memory-mapped file.
+         *
+         * @return The viewer, or null when the file cannot be mapped on this platform
+         */
+        fun openHexViewer(path: String): HexViewer? {
+            return openMappedFile(path)?.let { HexViewer(it) }
+        }
+    }
 }
 
 /**
@@ -0,0 +1,256 @@
+/*#######################################################
+ *
+ * SPDX-FileCopyrightText: 2025 Milos Vasic
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Hex Viewer - Platform Agnostic
+ * Paged hex/ASCII dump of binary files of any size
+ *
+ *########################################################*/
+package digital.vasic.yole.format.binary
+
+import digital.vasic.yole.format.plaintext.PagedFile
+
+/**
+ * One page of a [HexViewer].
+ *
+ * @property index Page number
+ * @property offset File offset of the first byte
+ * @property bytes Page contents; shared with the viewer's cache and must not be modified
+ * @property length Number of valid bytes, less than the page size only on the last page
+ */
+class HexPage(
+    val index: Long,
+    val offset: Long,
+    val bytes: ByteArray,
+    val length: Int
+) {
+    /**
+     * Byte at [position] within the file, which must lie on this page.
+     */
+    operator fun get(position: Long): Byte = bytes[(position - offset).toInt()]
+}
+
+/**
+ * Hex/ASCII dump viewer that reads fixed-size pages of a [PagedFile] on demand.
+ *
+ * Only the last few pages are cached, so inspecting a multi-gigabyte file
+ * touches a few kilobytes of heap no matter where the user jumps. Searching
+ * streams over the file in chunks with a Knuth-Morris-Pratt matcher, which
+ * needs no overlap between chunks and never backtracks in the input.
+ *
+ * The viewer is not thread-safe; use it from the UI thread only.
+ *
+ * @param file The file to show; closed with the viewer
+ * @param bytesPerRow Bytes shown per row
+ * @param rowsPerPage Rows per page
+ * @param cachedPages Number of recently used pages kept in memory
+ *
+ * @example
+ * ```kotlin
+ * BinaryParser.openHexViewer("/data/disk.img")?.use { viewer ->
+ *     val hit = viewer.find(HexViewer.searchPattern("7f 45 4c 46"))
+ *     if (hit >= 0) show(viewer.toHtml(viewer.pageAt(hit), hit until hit + 4))
+ * }
+ * ```
+ */
+class HexViewer(
+    private val file: PagedFile,
+    val bytesPerRow: Int = DEFAULT_BYTES_PER_ROW,
+    val rowsPerPage: Int = DEFAULT_ROWS_PER_PAGE,
+    private val cachedPages: Int = DEFAULT_CACHED_PAGES
+) : AutoCloseable {
+    init {
+        require(bytesPerRow > 0 && rowsPerPage > 0 && cachedPages > 0) { "Page geometry must be positive" }
+    }
+
+    /**
+     * File size in bytes.
+     */
+    val size: Long
+        get() = file.size
+
+    /**
+     * Bytes per page.
+     */
+    val pageSize: Int = bytesPerRow * rowsPerPage
+
+    /**
+     * Number of pages; an empty file has one empty page.
+     */
+    val pageCount: Long = maxOf(1L, (file.size + pageSize - 1) / pageSize)
+
+    // Hex digits for offsets: eight, widened in steps of four for files over 4GB
+    private val offsetDigits = run {
+        var digits = 8
+        while (digits < 16 && (file.size - 1) ushr (digits * 4) != 0L) digits += 4
+        digits
+    }
+
+    private val cache = arrayOfNulls<HexPage>(cachedPages)
+    private val lastUse = LongArray(cachedPages)
+    private var clock = 0L
+
+    /**
+     * Page number [index], read from the file unless it is cached.
+     */
+    fun page(index: Long): HexPage {
+        require(index in 0 until pageCount) { "Page $index out of range 0..${pageCount - 1}" }
+        var slot = 0
+        for (i in cache.indices) {
+            val cached = cache[i]
+            if (cached != null && cached.index == index) {
+                lastUse[i] = ++clock
+                return cached
+            }
+            if (lastUse[i] < lastUse[slot]) slot = i
+        }
+        val offset = index * pageSize
+        val bytes = ByteArray(pageSize)
+        var length = 0
+        while (length < pageSize) {
+            val count = file.read(offset + length, bytes, length, pageSize - length)
+            if (count <= 0) break
+            length += count
+        }
+        val page = HexPage(index, offset, bytes, length)
+        cache[slot] = page
+        lastUse[slot] = ++clock
+        return page
+    }
+
+    /**
+     * Page number containing [offset]; offsets outside the file are clamped.
+     */
+    fun pageIndexOf(offset: Long): Long = (offset.coerceIn(0, maxOf(0L, size - 1)) / pageSize)
+
+    /**
+     * The page containing [offset], for jumping to an address.
+     */
+    fun pageAt(offset: Long): HexPage = page(pageIndexOf(offset))
+
+    /**
+     * Find the first occurrence of [pattern] starting at or after [from].
+     *
+     * The file is read in chunks of [chunkSize] bytes that bypass the page
+     * cache, so a search does not evict the visible pages.
+     *
+     * @return The offset of the match, or -1 if there is none
+     */
+    fun find(pattern: ByteArray, from: Long = 0, chunkSize: Int = SEARCH_CHUNK_SIZE): Long {
+        if (pattern.isEmpty()) return -1
+        val failure = failureTable(pattern)
+        val chunk = ByteArray(chunkSize)
+        var position = maxOf(0L, from)
+        var matched = 0
+        while (position < size) {
+            val count = file.read(position, chunk)
+            if (count <= 0) break
+            for (i in 0 until count) {
+                val b = chunk[i]
+                while (matched > 0 && pattern[matched] != b) matched = failure[matched - 1]
+                if (pattern[matched] == b && ++matched == pattern.size) {
+                    return position + i - pattern.size + 1
+                }
+            }
+            position += count
+        }
+        return -1
+    }
+
+    /**
+     * Render [page] as an offset / hex / ASCII dump, marking the bytes in [highlight].
+     */
+    fun toHtml(page: HexPage, highlight: LongRange = LongRange.EMPTY): String = buildString {
+        append("<div class='hex-view' data-page='").append(page.index)
+        append("' data-offset='").append(page.offset)
+        append("' data-size='").append(size).append("'>")
+        append("<pre style='font-family: monospace; text-align: left;'>")
+        var row = 0
+        while (row * bytesPerRow < page.length) {
+            if (row > 0) append('\n')
+            val rowStart = row * bytesPerRow
+            val rowEnd = minOf(rowStart + bytesPerRow, page.length)
+            appendHex(page.offset + rowStart, offsetDigits)
+            append("  ")
+            for (i in rowStart until rowStart + bytesPerRow) {
+                if (i > rowStart) append(if ((i - rowStart) % 8 == 0) "  " else " ")
+                if (i >= rowEnd) {
+                    append("  ")
+                } else if (page.offset + i in highlight) {
+                    append("<mark>")
+                    appendHex(page.bytes[i].toLong() and 0xFF, 2)
+                    append("</mark>")
+                } else {
+                    appendHex(page.bytes[i].toLong() and 0xFF, 2)
+                }
+            }
+            append("  ")
+            for (i in rowStart until rowEnd) {
+                val marked = page.offset + i in highlight
+                if (marked) append("<mark>")
+                appendAscii(page.bytes[i].toInt() and 0xFF)
+                if (marked) append("</mark>")
+            }
+            row++
+        }
+        append("</pre>")
+        append("</div>")
+    }
+
+    override fun close() {
+        file.close()
+    }
+
+    private fun StringBuilder.appendHex(value: Long, digits: Int) {
+        for (shift in (digits - 1) * 4 downTo 0 step 4) {
+            append(HEX_DIGITS[((value ushr shift) and 0xF).toInt()])
+        }
+    }
+
+    private fun StringBuilder.appendAscii(b: Int) {
+        when (b) {
+            '&'.code -> append("&amp;")
+            '<'.code -> append("&lt;")
+            '>'.code -> append("&gt;")
+            '"'.code -> append("&quot;")
+            '\''.code -> append("&#39;")
+            in 0x20..0x7E -> append(b.toChar())
+            else -> append('.')
+        }
+    }
+
+    companion object {
+        const val DEFAULT_BYTES_PER_ROW = 16
+        const val DEFAULT_ROWS_PER_PAGE = 256
+        const val DEFAULT_CACHED_PAGES = 4
+        private const val SEARCH_CHUNK_SIZE = 64 * 1024
+        private const val HEX_DIGITS = "0123456789abcdef"
+
+        private val HEX_QUERY = Regex("""^\s*([0-9a-fA-F]{2}\s*)+$""")
+
+        /**
+         * Bytes to search for: a sequence of hex byte pairs such as
+         * `"7f 45 4c 46"` or `"CAFEBABE"`, or otherwise the UTF-8 text itself.
+         */
+        fun searchPattern(query: String): ByteArray {
+            if (!HEX_QUERY.matches(query)) return query.encodeToByteArray()
+            val digits = query.filterNot { it.isWhitespace() }
+            return ByteArray(digits.length / 2) { digits.substring(it * 2, it * 2 + 2).toInt(16).toByte() }
+        }
+
+        /**
+         * Length of the longest proper prefix of `pattern[0..i]` that is also its suffix.
+         */
+        private fun failureTable(pattern: ByteArray): IntArray {
+            val failure = IntArray(pattern.size)
+            var k = 0
+            for (i in 1 until pattern.size) {
+                while (k > 0 && pattern[k] != pattern[i]) k = failure[k - 1]
+                if (pattern[k] == pattern[i]) k++
+                failure[i] = k
+            }
+            return failure
+        }
+    }
+}
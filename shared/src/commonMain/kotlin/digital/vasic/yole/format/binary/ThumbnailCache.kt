@@ -0,0 +1,256 @@
+/*#######################################################
+ *
+ * SPDX-FileCopyrightText: 2025 Milos Vasic
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Thumbnail Cache - Platform Agnostic
+ * Two-tier (memory and disk) cache of encoded image thumbnails
+ *
+ *########################################################*/
+package digital.vasic.yole.format.binary
+
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.CompletableDeferred
+import kotlinx.coroutines.CoroutineDispatcher
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.NonCancellable
+import kotlinx.coroutines.currentCoroutineContext
+import kotlinx.coroutines.ensureActive
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
+import kotlinx.coroutines.withContext
+import okio.FileSystem
+import okio.IOException
+import okio.Path
+
+/**
+ * Identity of a thumbnail. A file that is modified or replaced gets a new
+ * key, so stale thumbnails are never returned.
+ */
+data class ThumbnailKey(
+    val path: String,
+    val size: Long,
+    val modTime: Long,
+    val maxDimen: Int
+) {
+    /**
+     * Name of the disk entry: a 64-bit FNV-1a hash of all fields.
+     */
+    val fileName: String
+        get() {
+            var hash = FNV_OFFSET
+            for (c in "$path|$size|$modTime|$maxDimen") {
+                hash = (hash xor c.code.toLong()) * FNV_PRIME
+            }
+            return hash.toULong().toString(16).padStart(16, '0') + ".thumb"
+        }
+
+    private companion object {
+        const val FNV_OFFSET = -0x340d631b7bdddcdbL
+        const val FNV_PRIME = 0x100000001b3L
+    }
+}
+
+/**
+ * Two-tier cache of encoded thumbnails (PNG, JPEG or WebP bytes).
+ *
+ * Lookups check an in-memory LRU bounded by [memoryBytes] first, then
+ * [directory] on disk, bounded by [diskBytes]. Only when both miss is the
+ * generator called, on [dispatcher]. Concurrent requests for the same key
+ * share one generation, so a folder full of images is decoded once even
+ * when the list is scrolled back and forth while thumbnails are loading.
+ *
+ * Disk entries are trimmed oldest first. Entries of changed files are
+ * never hit again and age out the same way.
+ *
+ * @param fileSystem File system holding [directory]
+ * @param directory Directory for disk entries, created on first write
+ * @param memoryBytes Memory budget of the LRU in bytes
+ * @param diskBytes Disk budget in bytes
+ * @param dispatcher Dispatcher for disk access and generation; pass
+ *        `Dispatchers.IO` on JVM platforms
+ *
+ * @example
+ * ```kotlin
+ * val cache = ThumbnailCache(FileSystem.SYSTEM, cacheDir / "thumbnails", dispatcher = Dispatchers.IO)
+ * val key = cache.keyFor(image, maxDimen = 256) ?: return
+ * val png = cache.get(key) { decodeAndScale(image, it.maxDimen) }
+ * parser.parse("", mapOf("filename" to image.name, "thumbnail" to png))
+ * ```
+ */
+class ThumbnailCache(
+    private val fileSystem: FileSystem,
+    val directory: Path,
+    val memoryBytes: Long = DEFAULT_MEMORY_BYTES,
+    val diskBytes: Long = DEFAULT_DISK_BYTES,
+    private val dispatcher: CoroutineDispatcher = Dispatchers.Default
+) {
+    private val mutex = Mutex()
+
+    // Iteration order is least recently used first; hits are moved to the end
+    private val memory = LinkedHashMap<ThumbnailKey, ByteArray>()
+    private var memoryUsed = 0L
+    private val pending = HashMap<ThumbnailKey, CompletableDeferred<ByteArray?>>()
+
+    /** Bytes used on disk, or -1 until the directory has been measured. */
+    private var diskUsed = -1L
+
+    /**
+     * Key for the current version of the file at [path].
+     *
+     * @return The key, or null if the file does not exist
+     */
+    fun keyFor(path: Path, maxDimen: Int): ThumbnailKey? {
+        val metadata = try {
+            fileSystem.metadataOrNull(path)
+        } catch (e: IOException) {
+            null
+        } ?: return null
+        if (!metadata.isRegularFile) return null
+        return ThumbnailKey(path.toString(), metadata.size ?: 0L, metadata.lastModifiedAtMillis ?: 0L, maxDimen)
+    }
+
+    /**
+     * Thumbnail held in memory for [key], without touching the disk.
+     */
+    suspend fun getCached(key: ThumbnailKey): ByteArray? = mutex.withLock { touch(key) }
+
+    /**
+     * Thumbnail for [key] from memory or disk, or produced by [generate].
+     *
+     * @return The encoded thumbnail, or null if [generate] returned null
+     */
+    suspend fun get(key: ThumbnailKey, generate: suspend (ThumbnailKey) -> ByteArray?): ByteArray? {
+        while (true) {
+            var owner = false
+            val deferred = mutex.withLock {
+                touch(key)?.let { return it }
+                pending.getOrPut(key) {
+                    owner = true
+                    CompletableDeferred()
+                }
+            }
+
+            if (!owner) {
+                try {
+                    return deferred.await()
+                } catch (e: CancellationException) {
+                    // The loading coroutine was cancelled; load it here unless this one was too
+                    currentCoroutineContext().ensureActive()
+                    continue
+                }
+            }
+
+            try {
+                val bytes = withContext(dispatcher) {
+                    readDisk(key) ?: generate(key)?.also { writeDisk(key, it) }
+                }
+                mutex.withLock {
+                    pending.remove(key)
+                    if (bytes != null) put(key, bytes)
+                }
+                deferred.complete(bytes)
+                return bytes
+            } catch (e: Throwable) {
+                withContext(NonCancellable) { mutex.withLock { pending.remove(key) } }
+                deferred.completeExceptionally(e)
+                throw e
+            }
+        }
+    }
+
+    /**
+     * Bytes currently held in memory.
+     */
+    suspend fun memorySize(): Long = mutex.withLock { memoryUsed }
+
+    /**
+     * Drop all entries from memory and disk.
+     */
+    suspend fun clear() {
+        mutex.withLock {
+            memory.clear()
+            memoryUsed = 0
+            withContext(dispatcher) {
+                entries().forEach { fileSystem.delete(it, mustExist = false) }
+            }
+            diskUsed = 0
+        }
+    }
+
+    /**
+     * Return the memory entry for [key] and mark it most recently used.
+     */
+    private fun touch(key: ThumbnailKey): ByteArray? {
+        val bytes = memory.remove(key) ?: return null
+        memory[key] = bytes
+        return bytes
+    }
+
+    private fun put(key: ThumbnailKey, bytes: ByteArray) {
+        if (bytes.size > memoryBytes) return
+        memory.remove(key)?.let { memoryUsed -= it.size }
+        memory[key] = bytes
+        memoryUsed += bytes.size
+        val iterator = memory.values.iterator()
+        while (memoryUsed > memoryBytes) {
+            memoryUsed -= iterator.next().size
+            iterator.remove()
+        }
+    }
+
+    private fun readDisk(key: ThumbnailKey): ByteArray? {
+        return try {
+            fileSystem.read(directory / key.fileName) { readByteArray() }
+        } catch (e: IOException) {
+            null
+        }
+    }
+
+    private suspend fun writeDisk(key: ThumbnailKey, bytes: ByteArray) {
+        try {
+            fileSystem.createDirectories(directory)
+            // Write to a temporary file first so a crash never leaves a truncated entry
+            val target = directory / key.fileName
+            val temp = directory / (key.fileName + ".tmp")
+            fileSystem.write(temp) { write(bytes) }
+            fileSystem.atomicMove(temp, target)
+        } catch (e: IOException) {
+            return
+        }
+        mutex.withLock {
+            diskUsed = if (diskUsed < 0) measureDisk() else diskUsed + bytes.size
+            if (diskUsed > diskBytes) trimDisk()
+        }
+    }
+
+    private fun entries(): List<Path> =
+        fileSystem.listOrNull(directory).orEmpty().filter { it.name.endsWith(".thumb") }
+
+    private fun measureDisk(): Long = entries().sumOf { fileSystem.metadataOrNull(it)?.size ?: 0L }
+
+    /**
+     * Delete the oldest disk entries until three quarters of [diskBytes] are used.
+     */
+    private fun trimDisk() {
+        val files = entries()
+            .mapNotNull { path -> fileSystem.metadataOrNull(path)?.let { Triple(path, it.size ?: 0L, it.lastModifiedAtMillis ?: 0L) } }
+            .sortedBy { it.third }
+        var used = files.sumOf { it.second }
+        for ((path, size, _) in files) {
+            if (used <= diskBytes * 3 / 4) break
+            try {
+                fileSystem.delete(path, mustExist = false)
+                used -= size
+            } catch (e: IOException) {
+                // Still open elsewhere; try again on the next trim
+            }
+        }
+        diskUsed = used
+    }
+
+    companion object {
+        const val DEFAULT_MEMORY_BYTES = 8L * 1024 * 1024
+        const val DEFAULT_DISK_BYTES = 64L * 1024 * 1024
+    }
+}
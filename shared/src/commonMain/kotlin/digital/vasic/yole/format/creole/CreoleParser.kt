@@ -47,7 +47,6 @@ class CreoleParser : TextParser {
      * Convert Creole to HTML
      */
     private fun convertToHtml(content: String): String {
-        val lines = content.lines()
         val html = StringBuilder()
 
         html.append("<div class='creole'>")
@@ -73,255 +72,12 @@ class CreoleParser : TextParser {
         html.append(".creole a:hover { text-decoration: underline; }")
         html.append("</style>")
 
-        var inUnorderedList = false
-        var inOrderedList = false
-        var inCodeBlock = false
-        var inTable = false
-        var currentListLevel = 0
-
-        var i = 0
-        while (i < lines.size) {
-            val line = lines[i]
-            val trimmed = line.trim()
-
-            // Handle code blocks
-            if (trimmed == "{{{") {
-                if (!inCodeBlock) {
-                    html.append("<pre>")
-                    inCodeBlock = true
-                }
-                i++
-                continue
-            } else if (trimmed == "}}}" && inCodeBlock) {
-                html.append("</pre>")
-                inCodeBlock = false
-                i++
-                continue
-            } else if (inCodeBlock) {
-                html.append(line.escapeHtml())
-                html.append("\n")
-                i++
-                continue
-            }
-
-            // Detect line types
-            val unorderedListMatch = Regex("^(\\*+) (.+)$").find(trimmed)
-            val orderedListMatch = Regex("^(#+) (.+)$").find(trimmed)
-            val isTableRow = trimmed.startsWith("|") && trimmed.endsWith("|")
-            val isEmpty = trimmed.isEmpty()
-
-            // Handle tables
-            if (isTableRow) {
-                if (!inTable) {
-                    // Close any open lists
-                    if (inUnorderedList) {
-                        html.append("</ul>".repeat(currentListLevel))
-                        inUnorderedList = false
-                        currentListLevel = 0
-                    }
-                    if (inOrderedList) {
-                        html.append("</ol>".repeat(currentListLevel))
-                        inOrderedList = false
-                        currentListLevel = 0
-                    }
-                    html.append("<table>")
-                    inTable = true
-                }
-                html.append(convertTableRow(trimmed))
-            } else if (unorderedListMatch != null) {
-                // Close table if open
-                if (inTable) {
-                    html.append("</table>")
-                    inTable = false
-                }
-                // Close ordered list if open
-                if (inOrderedList) {
-                    html.append("</ol>".repeat(currentListLevel))
-                    inOrderedList = false
-                    currentListLevel = 0
-                }
-
-                val level = unorderedListMatch.groupValues[1].length
-                val text = unorderedListMatch.groupValues[2]
-
-                // Adjust list nesting
-                while (currentListLevel < level) {
-                    html.append("<ul>")
-                    currentListLevel++
-                    inUnorderedList = true
-                }
-                while (currentListLevel > level) {
-                    html.append("</ul>")
-                    currentListLevel--
-                }
-
-                html.append("<li>${convertInlineMarkup(text)}</li>")
-            } else if (orderedListMatch != null) {
-                // Close table if open
-                if (inTable) {
-                    html.append("</table>")
-                    inTable = false
-                }
-                // Close unordered list if open
-                if (inUnorderedList) {
-                    html.append("</ul>".repeat(currentListLevel))
-                    inUnorderedList = false
-                    currentListLevel = 0
-                }
-
-                val level = orderedListMatch.groupValues[1].length
-                val text = orderedListMatch.groupValues[2]
-
-                // Adjust list nesting
-                while (currentListLevel < level) {
-                    html.append("<ol>")
-                    currentListLevel++
-                    inOrderedList = true
-                }
-                while (currentListLevel > level) {
-                    html.append("</ol>")
-                    currentListLevel--
-                }
-
-                html.append("<li>${convertInlineMarkup(text)}</li>")
-            } else {
-                // Not a list or table - close any open structures
-                if (inUnorderedList) {
-                    html.append("</ul>".repeat(currentListLevel))
-                    inUnorderedList = false
-                    currentListLevel = 0
-                }
-                if (inOrderedList) {
-                    html.append("</ol>".repeat(currentListLevel))
-                    inOrderedList = false
-                    currentListLevel = 0
-                }
-                if (inTable) {
-                    html.append("</table>")
-                    inTable = false
-                }
-
-                if (!isEmpty) {
-                    html.append(convertLine(trimmed))
-                }
-            }
-
-            i++
-        }
-
-        // Close any open structures at the end
-        if (inUnorderedList) html.append("</ul>".repeat(currentListLevel))
-        if (inOrderedList) html.append("</ol>".repeat(currentListLevel))
-        if (inTable) html.append("</table>")
-        if (inCodeBlock) html.append("</pre>")
+        RENDERER.render(content, html)
 
         html.append("</div>")
         return html.toString()
     }
 
-    /**
-     * Convert a single line of Creole to HTML
-     */
-    private fun convertLine(line: String): String {
-        val trimmed = line.trim()
-
-        // Headings: = H1 =, == H2 ==, etc.
-        val headingMatch = Regex("^(=+)\\s+(.+?)\\s*=*$").find(trimmed)
-        if (headingMatch != null) {
-            val level = minOf(headingMatch.groupValues[1].length, 6)
-            val text = headingMatch.groupValues[2]
-            return "<h$level>${convertInlineMarkup(text)}</h$level>"
-        }
-
-        // Horizontal rule: ----
-        if (trimmed.matches(Regex("^-{4,}$"))) {
-            return "<hr>"
-        }
-
-        // Paragraph
-        if (trimmed.isNotEmpty()) {
-            return "<p>${convertInlineMarkup(trimmed)}</p>"
-        }
-
-        return ""
-    }
-
-    /**
-     * Convert a table row
-     */
-    private fun convertTableRow(line: String): String {
-        val trimmed = line.trim()
-        val cells = trimmed.substring(1, trimmed.length - 1).split("|")
-
-        val html = StringBuilder("<tr>")
-        for (cell in cells) {
-            val cellTrimmed = cell.trim()
-            if (cellTrimmed.startsWith("=")) {
-                // Header cell
-                val content = cellTrimmed.substring(1).trim()
-                html.append("<th>${convertInlineMarkup(content)}</th>")
-            } else {
-                // Regular cell
-                html.append("<td>${convertInlineMarkup(cellTrimmed)}</td>")
-            }
-        }
-        html.append("</tr>")
-        return html.toString()
-    }
-
-    /**
-     * Convert inline Creole markup to HTML
-     */
-    private fun convertInlineMarkup(text: String): String {
-        var result = text
-
-        // Process inline code FIRST (before escaping)
-        result = result.replace(Regex("""\{\{\{([^}]+)\}\}\}""")) { match ->
-            val code = match.groupValues[1].escapeHtml()
-            "##CODE##$code##/CODE##"
-        }
-
-        // Process links and images BEFORE escaping
-        result = result.replace(Regex("""\[\[([^|\]]+)(?:\|([^\]]+))?\]\]""")) { match ->
-            val link = match.groupValues[1]
-            val description = match.groupValues[2].ifEmpty { link }
-            "##LINK##$link##SEP##$description##/LINK##"
-        }
-
-        result = result.replace(Regex("""\{\{([^|}]+)(?:\|([^}]+))?\}\}""")) { match ->
-            val img = match.groupValues[1]
-            val alt = match.groupValues[2].ifEmpty { img }
-            "##IMG##$img##ALT##$alt##/IMG##"
-        }
-
-        // Escape HTML
-        result = result.escapeHtml()
-
-        // Line breaks: \\ -> <br>
-        result = result.replace("\\\\", "<br>")
-
-        // Bold: **text**
-        result = result.replace(Regex("""\*\*([^*]+)\*\*""")) { "<strong>${it.groupValues[1]}</strong>" }
-
-        // Italics: //text//
-        result = result.replace(Regex("""//([^/]+)//""")) { "<em>${it.groupValues[1]}</em>" }
-
-        // Restore inline code
-        result = result.replace(Regex("""##CODE##(.+?)##/CODE##""")) { "<code>${it.groupValues[1]}</code>" }
-
-        // Restore links
-        result = result.replace(Regex("""##LINK##(.+?)##SEP##(.+?)##/LINK##""")) { match ->
-            "<a href='${match.groupValues[1]}'>${match.groupValues[2]}</a>"
-        }
-
-        // Restore images
-        result = result.replace(Regex("""##IMG##(.+?)##ALT##(.+?)##/IMG##""")) { match ->
-            "<img src='${match.groupValues[1]}' alt='${match.groupValues[2]}'/>"
-        }
-
-        return result
-    }
-
     /**
      * Extract file extension from filename
      */
@@ -379,6 +135,58 @@ class CreoleParser : TextParser {
     companion object {
         // Supported extensions
         val EXTENSIONS = setOf(".creole", ".txt")
+
+        /**
+         * Inline markup table: code, links and images first, then line breaks and emphasis.
+         */
+        private val INLINE = InlineFormatter(
+            listOf(
+                InlineRule("{{{", "}}}", InlineContent.TEXT, excluded = "}", atomic = true) { "<code>$it</code>" },
+                InlineRule.piped("[[", "]]") { target, label ->
+                    "<a href='${text(target)}'>${if (label != null) format(label) else text(target)}</a>"
+                },
+                InlineRule.piped("{{", "}}") { src, alt -> "<img src='${text(src)}' alt='${text(alt ?: src)}'/>" },
+                InlineRule("\\\\", "") { "<br>" },
+                InlineRule("**", "**", excluded = "*") { "<strong>$it</strong>" },
+                InlineRule("//", "//", excluded = "/") { "<em>$it</em>" }
+            )
+        )
+
+        /**
+         * Block grammar: `{{{` verbatim blocks, `|` tables, nested `*` and `#` lists,
+         * `= Heading =` and `----` rules.
+         */
+        internal val GRAMMAR = WikiGrammar(
+            rules = listOf(
+                LineRule { it.startsWith("|") && it.text[it.to - 1] == '|' && it.token(WikiToken.TABLE_ROW, 0, it.from, it.to) },
+                LineRules.run('*', WikiToken.BULLET),
+                LineRules.run('#', WikiToken.NUMBERED),
+                LineRule(::heading),
+                LineRules.fill('-', 4)
+            ),
+            inline = INLINE,
+            code = CodeBlockRule(opens = { it.equalsTrimmed("{{{") }, closes = { it.equalsTrimmed("}}}") }),
+            nestedLists = true
+        )
+
+        private val RENDERER = WikiRenderer(GRAMMAR)
+
+        /**
+         * `== Heading ==`: the closing `=` are optional and need not match.
+         */
+        private fun heading(line: WikiLine): Boolean {
+            val text = line.text
+            var p = line.from
+            while (p < line.to && text[p] == '=') p++
+            val count = p - line.from
+            if (count == 0 || p >= line.to || !LineRules.isSpace(text[p])) return false
+            while (LineRules.isSpace(text[p])) p++
+
+            var to = line.to
+            while (to > p && text[to - 1] == '=') to--
+            while (to > p && LineRules.isSpace(text[to - 1])) to--
+            return line.token(WikiToken.HEADING, minOf(count, 6), p, maxOf(to, p + 1))
+        }
     }
 }
 
@@ -10,7 +10,8 @@
 package digital.vasic.yole.format.jupyter
 
 import digital.vasic.yole.format.*
-import kotlinx.serialization.json.*
+import digital.vasic.yole.format.markdown.MarkdownParser
+import kotlinx.coroutines.sync.Mutex
 
 /**
  * Parser for Jupyter Notebook (.ipynb) files
@@ -19,14 +20,24 @@ class JupyterParser : TextParser {
     
     override val supportedFormat = FormatRegistry.formats.first { it.id == TextFormat.ID_JUPYTER }
     
+    private val markdownParser by lazy { MarkdownParser() }
+    
+    /**
+     * Rendered Markdown cells keyed by cell source, so re-rendering a notebook (or
+     * switching themes) only converts cells whose source changed. The parser is a
+     * registry singleton, so the cache is only touched while holding
+     * [markdownCellLock]; a call that finds it held renders without the cache.
+     */
+    private val markdownCellCache = LinkedHashMap<String, String>()
+    private val markdownCellLock = Mutex()
+    
     override fun parse(content: String, options: Map<String, Any>): ParsedDocument {
         val filename = options["filename"] as? String ?: ""
         
         return try {
-            val json = Json.parseToJsonElement(content)
-            val notebook = parseNotebook(json)
+            val notebook = readNotebook(content)
             
-            ParsedDocument(
+            val document = ParsedDocument(
                 format = supportedFormat,
                 rawContent = content,
                 parsedContent = generateNotebookHtml(notebook, true),
@@ -38,6 +49,8 @@ class JupyterParser : TextParser {
                     notebook.title?.let { put("title", it) }
                 }
             )
+            document.putAttachment(NOTEBOOK_MODEL, notebook)
+            document
         } catch (e: Exception) {
             // If JSON parsing fails, treat as plain text
             ParsedDocument(
@@ -51,8 +64,7 @@ class JupyterParser : TextParser {
     
     override fun toHtml(document: ParsedDocument, lightMode: Boolean): String {
         return try {
-            val json = Json.parseToJsonElement(document.rawContent)
-            val notebook = parseNotebook(json)
+            val notebook = document.getAttachment(NOTEBOOK_MODEL) ?: readNotebook(document.rawContent)
             generateNotebookHtml(notebook, lightMode)
         } catch (e: Exception) {
             // Fallback to plain text display
@@ -70,72 +82,29 @@ class JupyterParser : TextParser {
     
     override fun validate(content: String): List<String> {
         return try {
-            Json.parseToJsonElement(content)
+            NotebookReader(content).validate()
             emptyList()
         } catch (e: Exception) {
             listOf("Invalid JSON format: ${e.message}")
         }
     }
     
-    private fun parseNotebook(json: JsonElement): JupyterNotebook {
-        val obj = json.jsonObject
-        
-        val cells = obj["cells"]?.jsonArray?.map { parseCell(it) } ?: emptyList()
-        val metadata = obj["metadata"]?.jsonObject ?: JsonObject(emptyMap())
-        val nbformat = obj["nbformat"]?.jsonPrimitive?.intOrNull ?: 4
-        val nbformatMinor = obj["nbformat_minor"]?.jsonPrimitive?.intOrNull ?: 0
-        
-        val kernel = metadata["kernelspec"]?.jsonObject?.get("name")?.jsonPrimitive?.content ?: "python3"
-        val language = metadata["language_info"]?.jsonObject?.get("name")?.jsonPrimitive?.content ?: "python"
-        val title = metadata["title"]?.jsonPrimitive?.content
+    /**
+     * Stream the notebook cells into a model.
+     *
+     * Only cell sources and bounded output previews are kept; large output `data`
+     * entries are recorded as offsets into [content] (see [NotebookReader]).
+     */
+    private fun readNotebook(content: String): JupyterNotebook {
+        val cells = ArrayList<NotebookCell>()
+        val header = NotebookReader(content).read { cells.add(it) }
         
         return JupyterNotebook(
             cells = cells,
-            kernel = kernel,
-            language = language,
-            formatVersion = "$nbformat.$nbformatMinor",
-            title = title
-        )
-    }
-    
-    private fun parseCell(cellJson: JsonElement): NotebookCell {
-        val obj = cellJson.jsonObject
-        val cellType = obj["cell_type"]?.jsonPrimitive?.content ?: "code"
-        val source = obj["source"]?.let { 
-            when (it) {
-                is JsonArray -> it.joinToString("") { elem -> elem.jsonPrimitive.content }
-                is JsonPrimitive -> it.content
-                else -> ""
-            }
-        } ?: ""
-        
-        val outputs = obj["outputs"]?.jsonArray?.map { parseOutput(it) } ?: emptyList()
-        val executionCount = obj["execution_count"]?.jsonPrimitive?.intOrNull
-        
-        return NotebookCell(
-            cellType = cellType,
-            source = source,
-            outputs = outputs,
-            executionCount = executionCount
-        )
-    }
-    
-    private fun parseOutput(outputJson: JsonElement): CellOutput {
-        val obj = outputJson.jsonObject
-        val outputType = obj["output_type"]?.jsonPrimitive?.content ?: ""
-        val data = obj["data"]?.jsonObject ?: JsonObject(emptyMap())
-        val text = obj["text"]?.let { 
-            when (it) {
-                is JsonArray -> it.joinToString("") { elem -> elem.jsonPrimitive.content }
-                is JsonPrimitive -> it.content
-                else -> ""
-            }
-        } ?: ""
-        
-        return CellOutput(
-            outputType = outputType,
-            data = data,
-            text = text
+            kernel = header.kernel,
+            language = header.language,
+            formatVersion = header.formatVersion,
+            title = header.title
         )
     }
     
@@ -182,6 +151,7 @@ class JupyterParser : TextParser {
             |.output-text { font-family: monospace; white-space: pre-wrap; background: #f0f0f0; padding: 0.5rem; border-radius: 3px; }
             |.dark .output-text { background: #3d3d3d; }
             |</style>
+            |${if (notebook.cells.any { it.cellType == "markdown" }) StyleSheets.MARKDOWN_STYLES else ""}
         """.trimMargin()
     }
     
@@ -199,14 +169,15 @@ class JupyterParser : TextParser {
         }
         
         val sourceHtml = when (cell.cellType) {
-            "markdown" -> cell.source // Markdown will be rendered by the markdown parser
+            "markdown" -> renderMarkdownCell(cell.source)
             else -> "<div class=\"code-source\">${escapeHtml(cell.source)}</div>"
         }
         
         val outputsHtml = if (cell.outputs.isNotEmpty()) {
             "<div class=\"cell-output\">${
                 cell.outputs.joinToString("\n") { output ->
-                    "<div class=\"output-text\">${escapeHtml(output.text)}</div>"
+                    val ellipsis = if (output.textTruncated) "\n…" else ""
+                    "<div class=\"output-text\">${escapeHtml(output.text)}$ellipsis</div>"
                 }
             }</div>"
         } else ""
@@ -224,6 +195,33 @@ class JupyterParser : TextParser {
         """.trimMargin()
     }
     
+    private fun renderMarkdownCell(source: String): String {
+        withCache { it[source] }?.let { return it }
+        
+        val html = markdownParser.toHtmlFragment(source)
+        withCache { cache ->
+            if (cache.size >= MAX_CACHED_MARKDOWN_CELLS) {
+                cache.remove(cache.keys.first())
+            }
+            cache[source] = html
+        }
+        return html
+    }
+    
+    /**
+     * Run [block] on the Markdown cell cache if no other call holds it.
+     *
+     * @return The result of [block], or null if the cache is busy
+     */
+    private inline fun <T> withCache(block: (LinkedHashMap<String, String>) -> T): T? {
+        if (!markdownCellLock.tryLock()) return null
+        try {
+            return block(markdownCellCache)
+        } finally {
+            markdownCellLock.unlock()
+        }
+    }
+    
     private fun escapeHtml(text: String): String {
         return text
             .replace("&", "&amp;")
@@ -232,6 +230,18 @@ class JupyterParser : TextParser {
             .replace("\"", "&quot;")
             .replace("'", "&#39;")
     }
+    
+    companion object {
+        /**
+         * Attachment holding the [JupyterNotebook] model on documents produced by [parse].
+         */
+        val NOTEBOOK_MODEL = AttachmentKey<JupyterNotebook>("jupyter.notebook")
+        
+        /**
+         * Maximum number of rendered Markdown cells kept in the cache.
+         */
+        private const val MAX_CACHED_MARKDOWN_CELLS = 512
+    }
 }
 
 /**
@@ -256,8 +266,37 @@ data class NotebookCell(
     val executionCount: Int? = null
 )
 
+/**
+ * A single cell output.
+ *
+ * @property outputType Output type (e.g. "stream", "execute_result", "display_data")
+ * @property text Output text, limited to [NotebookReader.DEFAULT_OUTPUT_PREVIEW_CHARS] characters
+ * @property data Lazily loadable references to the output's `data` entries
+ * @property textTruncated Whether [text] was cut off at the preview limit
+ */
 data class CellOutput(
     val outputType: String,
-    val data: JsonObject,
-    val text: String
-)
\ No newline at end of file
+    val text: String,
+    val data: List<OutputDataRef> = emptyList(),
+    val textTruncated: Boolean = false
+)
+
+/**
+ * Reference to an output `data` entry (e.g. a base64 encoded `image/png`) that has
+ * not been decoded. Use [NotebookReader.loadOutputData] with the notebook content
+ * to decode it on demand.
+ *
+ * @property mimeType The MIME type key of the entry
+ * @property startOffset Offset of the entry's JSON value in the notebook content
+ * @property endOffset Offset just past the entry's JSON value
+ */
+data class OutputDataRef(
+    val mimeType: String,
+    val startOffset: Int,
+    val endOffset: Int
+) {
+    /**
+     * Length of the encoded JSON value in characters.
+     */
+    val length: Int get() = endOffset - startOffset
+}
@@ -0,0 +1,493 @@
+/*#######################################################
+ *
+ * SPDX-FileCopyrightText: 2025 Milos Vasic
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Streaming Jupyter Notebook Reader
+ * Walks .ipynb JSON without building a JsonElement tree
+ *
+ *########################################################*/
+package digital.vasic.yole.format.jupyter
+
+/**
+ * Thrown when notebook content is not well-formed JSON.
+ *
+ * @property offset Character offset into the notebook content where the error was detected
+ */
+class NotebookFormatException(
+    message: String,
+    val offset: Int
+) : IllegalArgumentException("$message at offset $offset")
+
+/**
+ * Notebook-level information collected while streaming the cells.
+ *
+ * @property kernel Kernel name from `metadata.kernelspec.name`
+ * @property language Language name from `metadata.language_info.name`
+ * @property formatVersion Notebook format version as "nbformat.nbformat_minor"
+ * @property title Optional title from `metadata.title`
+ * @property cellCount Number of cells that were visited
+ */
+data class NotebookHeader(
+    val kernel: String,
+    val language: String,
+    val formatVersion: String,
+    val title: String?,
+    val cellCount: Int
+)
+
+/**
+ * Event-style reader for Jupyter notebooks.
+ *
+ * The reader walks the `cells` array one cell at a time and hands each cell to a
+ * callback, so the caller decides what to keep. Unlike `Json.parseToJsonElement`,
+ * no tree of the whole notebook is built: cell sources are decoded in full, output
+ * text is decoded up to [outputPreviewChars], and `data` entries of outputs (e.g.
+ * base64 encoded plots) are only skipped over and recorded as [OutputDataRef]
+ * offsets so they can be loaded lazily with [loadOutputData].
+ *
+ * @param content The raw notebook JSON
+ * @param outputPreviewChars Maximum number of characters kept from each output's text
+ *
+ * @example
+ * ```kotlin
+ * val header = NotebookReader(content).read { cell ->
+ *     println("${cell.cellType}: ${cell.source.length} chars")
+ * }
+ * println(header.cellCount)
+ * ```
+ */
+class NotebookReader(
+    private val content: CharSequence,
+    private val outputPreviewChars: Int = DEFAULT_OUTPUT_PREVIEW_CHARS
+) {
+    private var pos = 0
+    private var depth = 0
+
+    /**
+     * Read the notebook, invoking [onCell] for every cell in document order.
+     *
+     * @param onCell Callback receiving each parsed cell
+     * @return Notebook-level information
+     * @throws NotebookFormatException if the content is not well-formed JSON
+     */
+    fun read(onCell: (NotebookCell) -> Unit): NotebookHeader {
+        pos = 0
+        depth = 0
+
+        var kernel: String? = null
+        var language: String? = null
+        var title: String? = null
+        var nbformat: Int? = null
+        var nbformatMinor: Int? = null
+        var cellCount = 0
+
+        readObject { key ->
+            when (key) {
+                "cells" -> readArray {
+                    onCell(readCell())
+                    cellCount++
+                }
+                "metadata" -> readObject { metaKey ->
+                    when (metaKey) {
+                        "kernelspec" -> kernel = readNameField() ?: kernel
+                        "language_info" -> language = readNameField() ?: language
+                        "title" -> title = readScalarOrNull()
+                        else -> skipValue()
+                    }
+                }
+                "nbformat" -> nbformat = readIntOrNull()
+                "nbformat_minor" -> nbformatMinor = readIntOrNull()
+                else -> skipValue()
+            }
+        }
+        skipWhitespace()
+        if (pos < content.length) fail("Unexpected trailing content")
+
+        return NotebookHeader(
+            kernel = kernel ?: "python3",
+            language = language ?: "python",
+            formatVersion = "${nbformat ?: 4}.${nbformatMinor ?: 0}",
+            title = title,
+            cellCount = cellCount
+        )
+    }
+
+    /**
+     * Check that the content is well-formed JSON without materializing any of it.
+     *
+     * @throws NotebookFormatException if the content is not well-formed JSON
+     */
+    fun validate() {
+        pos = 0
+        depth = 0
+        skipValue()
+        skipWhitespace()
+        if (pos < content.length) fail("Unexpected trailing content")
+    }
+
+    private fun readCell(): NotebookCell {
+        var cellType = "code"
+        var source = ""
+        var executionCount: Int? = null
+        val outputs = ArrayList<CellOutput>()
+
+        readObject { key ->
+            when (key) {
+                "cell_type" -> cellType = readScalarOrNull() ?: cellType
+                "source" -> source = readText(Int.MAX_VALUE).text
+                "execution_count" -> executionCount = readIntOrNull()
+                "outputs" -> readArray { outputs.add(readOutput()) }
+                else -> skipValue()
+            }
+        }
+
+        return NotebookCell(
+            cellType = cellType,
+            source = source,
+            outputs = outputs,
+            executionCount = executionCount
+        )
+    }
+
+    private fun readOutput(): CellOutput {
+        var outputType = ""
+        var text = TextPreview.EMPTY
+        val data = ArrayList<OutputDataRef>()
+
+        readObject { key ->
+            when (key) {
+                "output_type" -> outputType = readScalarOrNull() ?: ""
+                "text" -> text = readText(outputPreviewChars)
+                "data" -> readObject { mimeType ->
+                    skipWhitespace()
+                    val start = pos
+                    skipValue()
+                    data.add(OutputDataRef(mimeType, start, pos))
+                }
+                else -> skipValue()
+            }
+        }
+
+        return CellOutput(
+            outputType = outputType,
+            text = text.text,
+            data = data,
+            textTruncated = text.truncated
+        )
+    }
+
+    /**
+     * Read `{"name": ...}` style objects (kernelspec, language_info).
+     */
+    private fun readNameField(): String? {
+        if (peek() != '{') {
+            skipValue()
+            return null
+        }
+        var name: String? = null
+        readObject { key ->
+            if (key == "name") name = readScalarOrNull() else skipValue()
+        }
+        return name
+    }
+
+    /**
+     * Read notebook text, which is either a string or an array of strings that are
+     * concatenated. Anything else yields an empty string. At most [limit] characters
+     * are kept; the rest of the value is consumed without being decoded.
+     */
+    private fun readText(limit: Int): TextPreview {
+        return when (peek()) {
+            '"' -> {
+                val sb = StringBuilder()
+                val truncated = readString(sb, limit)
+                TextPreview(sb.toString(), truncated)
+            }
+            '[' -> {
+                val sb = StringBuilder()
+                var truncated = false
+                readArray {
+                    if (peek() == '"') {
+                        if (readString(sb, limit - sb.length)) truncated = true
+                    } else {
+                        skipValue()
+                    }
+                }
+                TextPreview(sb.toString(), truncated)
+            }
+            else -> {
+                skipValue()
+                TextPreview.EMPTY
+            }
+        }
+    }
+
+    /**
+     * Read a JSON scalar as its textual content. Strings are decoded, numbers and
+     * booleans are returned verbatim, `null` and containers yield null.
+     */
+    private fun readScalarOrNull(): String? {
+        return when (peek()) {
+            '"' -> StringBuilder().also { readString(it, Int.MAX_VALUE) }.toString()
+            '{', '[' -> {
+                skipValue()
+                null
+            }
+            else -> {
+                val start = pos
+                skipLiteralOrNumber()
+                val literal = content.subSequence(start, pos).toString()
+                if (literal == "null") null else literal
+            }
+        }
+    }
+
+    private fun readIntOrNull(): Int? = readScalarOrNull()?.toIntOrNull()
+
+    // ==================== JSON scanning ====================
+
+    private inline fun readObject(onKey: (String) -> Unit) {
+        expect('{')
+        enter()
+        if (peek() == '}') {
+            pos++
+        } else {
+            while (true) {
+                if (peek() != '"') fail("Expected property name")
+                val key = StringBuilder().also { readString(it, Int.MAX_VALUE) }.toString()
+                expect(':')
+                onKey(key)
+                when (peek()) {
+                    ',' -> pos++
+                    '}' -> {
+                        pos++
+                        break
+                    }
+                    else -> fail("Expected ',' or '}'")
+                }
+            }
+        }
+        depth--
+    }
+
+    private inline fun readArray(onElement: () -> Unit) {
+        expect('[')
+        enter()
+        if (peek() == ']') {
+            pos++
+        } else {
+            while (true) {
+                onElement()
+                when (peek()) {
+                    ',' -> pos++
+                    ']' -> {
+                        pos++
+                        break
+                    }
+                    else -> fail("Expected ',' or ']'")
+                }
+            }
+        }
+        depth--
+    }
+
+    private fun skipValue() {
+        when (peek()) {
+            '{' -> readObject { skipValue() }
+            '[' -> readArray { skipValue() }
+            '"' -> skipString()
+            else -> skipLiteralOrNumber()
+        }
+    }
+
+    /**
+     * Decode a JSON string into [out], keeping at most [limit] characters.
+     *
+     * @return true if characters were dropped because of the limit
+     */
+    private fun readString(out: StringBuilder, limit: Int): Boolean {
+        expect('"')
+        var remaining = if (limit < 0) 0 else limit
+        var truncated = false
+        var runStart = pos
+        while (true) {
+            if (pos >= content.length) fail("Unterminated string")
+            val c = content[pos]
+            if (c == '"' || c == '\\') {
+                val runLength = pos - runStart
+                if (runLength > 0) {
+                    val take = minOf(runLength, remaining)
+                    out.appendRange(content, runStart, runStart + take)
+                    remaining -= take
+                    if (take < runLength) truncated = true
+                }
+                if (c == '"') {
+                    pos++
+                    return truncated
+                }
+                val decoded = readEscape()
+                if (remaining > 0) {
+                    out.append(decoded)
+                    remaining--
+                } else {
+                    truncated = true
+                }
+                runStart = pos
+            } else {
+                pos++
+            }
+        }
+    }
+
+    private fun skipString() {
+        expect('"')
+        while (true) {
+            if (pos >= content.length) fail("Unterminated string")
+            when (content[pos]) {
+                '"' -> {
+                    pos++
+                    return
+                }
+                '\\' -> readEscape()
+                else -> pos++
+            }
+        }
+    }
+
+    /**
+     * Decode the escape sequence starting at the backslash under the cursor.
+     */
+    private fun readEscape(): Char {
+        pos++ // backslash
+        if (pos >= content.length) fail("Unterminated escape sequence")
+        val c = content[pos++]
+        return when (c) {
+            '"' -> '"'
+            '\\' -> '\\'
+            '/' -> '/'
+            'b' -> '\b'
+            'f' -> '\u000C'
+            'n' -> '\n'
+            'r' -> '\r'
+            't' -> '\t'
+            'u' -> {
+                if (pos + 4 > content.length) fail("Invalid unicode escape")
+                var code = 0
+                repeat(4) {
+                    val digit = content[pos++].digitToIntOrNull(16) ?: fail("Invalid unicode escape")
+                    code = code * 16 + digit
+                }
+                code.toChar()
+            }
+            else -> fail("Invalid escape sequence '\\$c'")
+        }
+    }
+
+    private fun skipLiteralOrNumber() {
+        val start = pos
+        when (content.getOrNull(pos)) {
+            't' -> expectKeyword("true")
+            'f' -> expectKeyword("false")
+            'n' -> expectKeyword("null")
+            else -> {
+                if (content.getOrNull(pos) == '-') pos++
+                val intStart = pos
+                skipDigits()
+                if (pos == intStart) {
+                    pos = start
+                    fail("Unexpected character")
+                }
+                if (content.getOrNull(pos) == '.') {
+                    pos++
+                    val fractionStart = pos
+                    skipDigits()
+                    if (pos == fractionStart) fail("Invalid number")
+                }
+                val e = content.getOrNull(pos)
+                if (e == 'e' || e == 'E') {
+                    pos++
+                    val sign = content.getOrNull(pos)
+                    if (sign == '+' || sign == '-') pos++
+                    val exponentStart = pos
+                    skipDigits()
+                    if (pos == exponentStart) fail("Invalid number")
+                }
+            }
+        }
+    }
+
+    private fun skipDigits() {
+        while (pos < content.length && content[pos] in '0'..'9') pos++
+    }
+
+    private fun expectKeyword(keyword: String) {
+        if (pos + keyword.length > content.length ||
+            !content.subSequence(pos, pos + keyword.length).contentEquals(keyword)) {
+            fail("Unexpected character")
+        }
+        pos += keyword.length
+    }
+
+    private fun expect(c: Char) {
+        if (peek() != c) fail("Expected '$c'")
+        pos++
+    }
+
+    /**
+     * Skip whitespace and return the next character without consuming it,
+     * or `'\u0000'` at the end of the content.
+     */
+    private fun peek(): Char {
+        skipWhitespace()
+        return if (pos < content.length) content[pos] else '\u0000'
+    }
+
+    private fun skipWhitespace() {
+        while (pos < content.length) {
+            when (content[pos]) {
+                ' ', '\n', '\r', '\t' -> pos++
+                else -> return
+            }
+        }
+    }
+
+    private fun enter() {
+        if (++depth > MAX_DEPTH) fail("Maximum nesting depth exceeded")
+    }
+
+    private fun fail(message: String): Nothing {
+        throw NotebookFormatException(message, pos)
+    }
+
+    private class TextPreview(val text: String, val truncated: Boolean) {
+        companion object {
+            val EMPTY = TextPreview("", false)
+        }
+    }
+
+    companion object {
+        /**
+         * Default number of characters kept from each output's text.
+         */
+        const val DEFAULT_OUTPUT_PREVIEW_CHARS = 8 * 1024
+
+        /**
+         * Nesting limit guarding the recursive skip against malicious input.
+         */
+        private const val MAX_DEPTH = 512
+
+        /**
+         * Decode a lazily recorded output `data` entry.
+         *
+         * @param content The same notebook content the reference was recorded from
+         * @param ref The output data reference
+         * @return The decoded entry (string arrays are concatenated)
+         * @throws NotebookFormatException if the reference does not point at a string value
+         */
+        fun loadOutputData(content: CharSequence, ref: OutputDataRef): String {
+            val reader = NotebookReader(content.subSequence(ref.startOffset, ref.endOffset), Int.MAX_VALUE)
+            return reader.readText(Int.MAX_VALUE).text
+        }
+    }
+}
@@ -0,0 +1,296 @@
+/*#######################################################
+ *
+ * SPDX-FileCopyrightText: 2025 Milos Vasic
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * iCalendar Date-Range Index - Platform Agnostic
+ * Sorted start/end arrays for range queries over large .ics files
+ *
+ *########################################################*/
+package digital.vasic.yole.format.keyvalue
+
+import kotlinx.datetime.IllegalTimeZoneException
+import kotlinx.datetime.Instant
+import kotlinx.datetime.LocalDate
+import kotlinx.datetime.LocalDateTime
+import kotlinx.datetime.TimeZone
+import kotlinx.datetime.atStartOfDayIn
+import kotlinx.datetime.toInstant
+import okio.Source
+import okio.use
+
+/**
+ * Date-range index over the VEVENTs of an iCalendar file.
+ *
+ * Building the index streams the file once through [VComponentReader] and keeps
+ * only the start, end, byte offset and line number of each event in primitive
+ * arrays sorted by start. A range query is a binary search plus a scan of the
+ * candidates; the matching events are then read back from their byte offsets, so
+ * "events this week" on a 50k-event export materializes only that week's events.
+ *
+ * Recurrence rules are not expanded; an event is indexed by its first occurrence.
+ * Floating times (no `Z` and no `TZID`) and dates use [defaultTimeZone].
+ *
+ * @example
+ * ```kotlin
+ * val index = FileSystem.SYSTEM.source(path).use { CalendarIndex.build(it, TimeZone.currentSystemDefault()) }
+ * val events = index.eventsBetween(weekStart, weekEnd) { FileSystem.SYSTEM.source(path) }
+ * events.forEach { println(it.value("SUMMARY")) }
+ * ```
+ */
+class CalendarIndex private constructor(
+    private val starts: LongArray,
+    private val ends: LongArray,
+    /** Running maximum of [ends] in start order, used to find the first candidate. */
+    private val maxEnds: LongArray,
+    private val offsets: LongArray,
+    private val lines: IntArray,
+    /** Number of events skipped because they have no parseable DTSTART. */
+    val skippedEvents: Int
+) {
+    /**
+     * Number of indexed events.
+     */
+    val size: Int get() = starts.size
+
+    /**
+     * Start of the event at [position] (positions are in start order).
+     */
+    fun startOf(position: Int): Instant = Instant.fromEpochMilliseconds(starts[position])
+
+    /**
+     * End of the event at [position]; equal to the start for events without duration.
+     */
+    fun endOf(position: Int): Instant = Instant.fromEpochMilliseconds(ends[position])
+
+    /**
+     * Byte offset of the `BEGIN:VEVENT` line of the event at [position].
+     */
+    fun byteOffsetOf(position: Int): Long = offsets[position]
+
+    /**
+     * Positions of the events that overlap `[from, to)`, in start order.
+     *
+     * An event overlaps when it starts before [to] and ends after [from]; events
+     * without duration match when they start within the range.
+     */
+    fun positionsBetween(from: Instant, to: Instant): IntArray {
+        val fromMillis = from.toEpochMilliseconds()
+        val toMillis = to.toEpochMilliseconds()
+        val end = lowerBound(starts, toMillis)
+        val first = minOf(lowerBound(starts, fromMillis), firstEndingAfter(fromMillis))
+
+        val result = IntArray(maxOf(0, end - first))
+        var count = 0
+        for (i in first until end) {
+            if (ends[i] > fromMillis || starts[i] >= fromMillis) result[count++] = i
+        }
+        return result.copyOf(count)
+    }
+
+    /**
+     * Read the events that overlap `[from, to)` from the calendar file.
+     *
+     * @param open Opens a new source over the same file the index was built from
+     * @return The events in start order
+     */
+    fun eventsBetween(from: Instant, to: Instant, open: () -> Source): List<VComponent> {
+        val positions = positionsBetween(from, to)
+        if (positions.isEmpty()) return emptyList()
+
+        // Read in file order so the source only moves forward
+        val byOffset = positions.sortedBy { offsets[it] }
+        val events = HashMap<Int, VComponent>(positions.size)
+        VComponentReader(open()).use { reader ->
+            for (position in byOffset) {
+                reader.seek(offsets[position], lines[position])
+                reader.next(EVENT)?.let { events[position] = it }
+            }
+        }
+        return positions.toList().mapNotNull { events[it] }
+    }
+
+    private fun firstEndingAfter(millis: Long): Int {
+        var low = 0
+        var high = maxEnds.size
+        while (low < high) {
+            val mid = (low + high) ushr 1
+            if (maxEnds[mid] > millis) high = mid else low = mid + 1
+        }
+        return low
+    }
+
+    companion object {
+        private val EVENT = setOf("VEVENT")
+        private const val DAY_MILLIS = 24L * 60 * 60 * 1000
+
+        /**
+         * Build the index by streaming [source], which is closed afterwards.
+         *
+         * @param defaultTimeZone Zone for floating times and all-day dates
+         */
+        fun build(source: Source, defaultTimeZone: TimeZone = TimeZone.UTC): CalendarIndex {
+            var starts = LongArray(256)
+            var ends = LongArray(256)
+            var offsets = LongArray(256)
+            var lines = IntArray(256)
+            var count = 0
+            var skipped = 0
+
+            VComponentReader(source).use { reader ->
+                while (true) {
+                    val event = reader.next(EVENT) ?: break
+                    val start = event.property("DTSTART")?.let { parseDateTime(it, defaultTimeZone) }
+                    if (start == null) {
+                        skipped++
+                        continue
+                    }
+                    if (count == starts.size) {
+                        starts = starts.copyOf(count * 2)
+                        ends = ends.copyOf(count * 2)
+                        offsets = offsets.copyOf(count * 2)
+                        lines = lines.copyOf(count * 2)
+                    }
+                    starts[count] = start
+                    ends[count] = maxOf(start, endOf(event, start, defaultTimeZone))
+                    offsets[count] = event.byteOffset
+                    lines[count] = event.lineNumber
+                    count++
+                }
+            }
+
+            val order = (0 until count).sortedBy { starts[it] }
+            val sortedStarts = LongArray(count) { starts[order[it]] }
+            val sortedEnds = LongArray(count) { ends[order[it]] }
+            val maxEnds = LongArray(count)
+            var max = Long.MIN_VALUE
+            for (i in 0 until count) {
+                max = maxOf(max, sortedEnds[i])
+                maxEnds[i] = max
+            }
+
+            return CalendarIndex(
+                starts = sortedStarts,
+                ends = sortedEnds,
+                maxEnds = maxEnds,
+                offsets = LongArray(count) { offsets[order[it]] },
+                lines = IntArray(count) { lines[order[it]] },
+                skippedEvents = skipped
+            )
+        }
+
+        private fun endOf(event: VComponent, start: Long, zone: TimeZone): Long {
+            event.property("DTEND")?.let { line -> parseDateTime(line, zone)?.let { return it } }
+            event.property("DURATION")?.let { line -> parseDuration(line.value)?.let { return start + it } }
+            val isDate = event.property("DTSTART")?.let { isDate(it) } ?: false
+            return if (isDate) start + DAY_MILLIS else start
+        }
+
+        private fun isDate(line: ContentLine): Boolean {
+            return line.parameters["VALUE"].equals("DATE", ignoreCase = true) || line.value.trim().length == 8
+        }
+
+        /**
+         * Parse a DATE (`20251018`) or DATE-TIME (`20251018T090000[Z]`) value to epoch
+         * milliseconds, honouring a TZID parameter.
+         */
+        internal fun parseDateTime(line: ContentLine, defaultTimeZone: TimeZone): Long? {
+            val value = line.value.trim()
+            if (value.length < 8) return null
+            val year = digits(value, 0, 4) ?: return null
+            val month = digits(value, 4, 2) ?: return null
+            val day = digits(value, 6, 2) ?: return null
+
+            return try {
+                if (value.length == 8) {
+                    LocalDate(year, month, day).atStartOfDayIn(defaultTimeZone).toEpochMilliseconds()
+                } else {
+                    if (value.length < 15 || value[8] != 'T') return null
+                    val hour = digits(value, 9, 2) ?: return null
+                    val minute = digits(value, 11, 2) ?: return null
+                    val second = digits(value, 13, 2) ?: return null
+                    val zone = when {
+                        value.endsWith("Z") -> TimeZone.UTC
+                        else -> line.parameters["TZID"]?.let { timeZone(it) } ?: defaultTimeZone
+                    }
+                    // Leap second 60 is clamped to 59
+                    LocalDateTime(year, month, day, hour, minute, minOf(second, 59)).toInstant(zone).toEpochMilliseconds()
+                }
+            } catch (e: IllegalArgumentException) {
+                null
+            }
+        }
+
+        /**
+         * Parse an RFC 5545 duration such as `PT1H30M`, `P1D` or `-P1W` to milliseconds.
+         */
+        internal fun parseDuration(value: String): Long? {
+            var text = value.trim()
+            var sign = 1L
+            if (text.startsWith("-")) sign = -1L
+            if (text.startsWith("-") || text.startsWith("+")) text = text.substring(1)
+            if (!text.startsWith("P")) return null
+
+            var total = 0L
+            var number = 0L
+            var hasNumber = false
+            var inTime = false
+            for (i in 1 until text.length) {
+                val c = text[i]
+                if (c in '0'..'9') {
+                    number = number * 10 + (c - '0')
+                    hasNumber = true
+                    continue
+                }
+                if (c == 'T') {
+                    inTime = true
+                    continue
+                }
+                if (!hasNumber) return null
+                total += number * when {
+                    c == 'W' -> 7 * DAY_MILLIS
+                    c == 'D' -> DAY_MILLIS
+                    c == 'H' && inTime -> 60 * 60 * 1000L
+                    c == 'M' && inTime -> 60 * 1000L
+                    c == 'S' && inTime -> 1000L
+                    else -> return null
+                }
+                number = 0
+                hasNumber = false
+            }
+            return if (hasNumber) null else sign * total
+        }
+
+        private fun timeZone(id: String): TimeZone? {
+            return try {
+                TimeZone.of(id)
+            } catch (e: IllegalTimeZoneException) {
+                null
+            }
+        }
+
+        private fun digits(value: String, start: Int, length: Int): Int? {
+            if (start + length > value.length) return null
+            var result = 0
+            for (i in start until start + length) {
+                val c = value[i]
+                if (c !in '0'..'9') return null
+                result = result * 10 + (c - '0')
+            }
+            return result
+        }
+
+        /**
+         * First index whose value is not less than [value].
+         */
+        private fun lowerBound(values: LongArray, value: Long): Int {
+            var low = 0
+            var high = values.size
+            while (low < high) {
+                val mid = (low + high) ushr 1
+                if (values[mid] < value) low = mid + 1 else high = mid
+            }
+            return low
+        }
+    }
+}
@@ -0,0 +1,256 @@
+/*#######################################################
+ *
+ * SPDX-FileCopyrightText: 2025 Milos Vasic
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * KeyValue Index - Platform Agnostic
+ * Hashed section -> key -> entry index built in one pass
+ *
+ *########################################################*/
+package digital.vasic.yole.format.keyvalue
+
+import digital.vasic.yole.format.escapeHtml
+import okio.Source
+import okio.buffer
+import okio.use
+
+/**
+ * Hashed index over the lines of a key-value file (INI, properties, ...).
+ *
+ * The index is built in a single pass and maps `section → key → entry`, so
+ * [get] is a constant-time lookup regardless of file size. Every line is also
+ * classified once; validation and HTML rendering read that classification instead
+ * of re-parsing the content. Keys before the first `[section]` header belong to
+ * the `null` section. When a key occurs more than once in a section the last
+ * occurrence wins, as in INI and properties files.
+ *
+ * @example
+ * ```kotlin
+ * val index = KeyValueIndex.parse("[db]\nhost = localhost\nport = 5432")
+ * index.get("db", "port")              // "5432"
+ * index.entry("db", "host")?.lineNumber // 2
+ *
+ * // Large generated configs can be indexed straight from a file
+ * val config = FileSystem.SYSTEM.source(path).use { KeyValueIndex.read(it, retainLines = false) }
+ * ```
+ */
+class KeyValueIndex private constructor(
+    private val lines: List<String>?,
+    private val kinds: ByteArray,
+    private val separators: IntArray,
+    private val sections: Map<String?, Map<String, KeyValueEntry>>,
+    /** Names of all `[section]` headers in document order (without duplicates). */
+    val sectionNames: List<String>,
+    /** Number of key-value entries, including duplicates. */
+    val entryCount: Int,
+    /** Number of `[section]` headers. */
+    val sectionCount: Int,
+    /** Number of lines. */
+    val lineCount: Int,
+    private val invalidLines: IntArray
+) {
+
+    /**
+     * Look up a value.
+     *
+     * @param section The section name, or null for keys before the first section
+     * @param key The key
+     * @return The value, or null if the key is not present in the section
+     */
+    operator fun get(section: String?, key: String): String? = sections[section]?.get(key)?.value
+
+    /**
+     * Look up an entry including its line number.
+     */
+    fun entry(section: String?, key: String): KeyValueEntry? = sections[section]?.get(key)
+
+    /**
+     * All effective key-value pairs of a section in first-occurrence order.
+     */
+    fun section(section: String?): Map<String, String> {
+        return sections[section]?.mapValues { it.value.value } ?: emptyMap()
+    }
+
+    /**
+     * 1-based numbers of lines that have no key-value separator.
+     */
+    fun invalidLineNumbers(): List<Int> = invalidLines.toList()
+
+    /**
+     * Render the indexed lines as highlighted HTML.
+     *
+     * @throws IllegalStateException if the index was read without retaining lines
+     */
+    fun toHtml(): String {
+        val lines = checkNotNull(lines) { "Index was built without retaining lines" }
+        return buildString {
+            append("<div class='keyvalue'>")
+            append("<pre style='white-space: pre-wrap; font-family: monospace;'>")
+
+            for (i in lines.indices) {
+                val line = lines[i]
+                when (kinds[i]) {
+                    BLANK -> {}
+                    SECTION -> {
+                        append("<span style='color: #ef6d00; font-size: 1.25em; font-weight: bold;'>")
+                        append(line.escapeHtml())
+                        append("</span>")
+                    }
+                    COMMENT -> {
+                        append("<span style='color: #88b04b;'>")
+                        append(line.escapeHtml())
+                        append("</span>")
+                    }
+                    else -> {
+                        val separator = separators[i]
+                        if (separator < 0) {
+                            append(line.escapeHtml())
+                        } else {
+                            append("<span style='font-weight: bold;'>")
+                            append(line.substring(0, separator).escapeHtml())
+                            append("</span>")
+                            append(line.substring(separator).escapeHtml())
+                        }
+                    }
+                }
+                append("\n")
+            }
+
+            append("</pre>")
+            append("</div>")
+        }
+    }
+
+    /**
+     * Incremental single-pass builder, fed one line at a time.
+     */
+    private class Builder(retainLines: Boolean) {
+        private val lines: MutableList<String>? = if (retainLines) ArrayList() else null
+        private var kinds = ByteArray(64)
+        private var separators = IntArray(64)
+        private val sections = LinkedHashMap<String?, LinkedHashMap<String, KeyValueEntry>>()
+        private val sectionNames = LinkedHashSet<String>()
+        private val invalidLines = ArrayList<Int>()
+        private var currentSection: String? = null
+        private var entryCount = 0
+        private var sectionCount = 0
+        private var lineCount = 0
+
+        fun add(line: String) {
+            val index = lineCount++
+            if (index == kinds.size) {
+                kinds = kinds.copyOf(index * 2)
+                separators = separators.copyOf(index * 2)
+            }
+            lines?.add(line)
+            separators[index] = -1
+
+            val trimmed = line.trim()
+            kinds[index] = when {
+                trimmed.isEmpty() -> BLANK
+                trimmed.length >= 2 && trimmed[0] == '[' && trimmed[trimmed.length - 1] == ']' -> {
+                    val name = trimmed.substring(1, trimmed.length - 1)
+                    currentSection = name
+                    sectionNames.add(name)
+                    sectionCount++
+                    SECTION
+                }
+                trimmed[0] == '#' || trimmed[0] == ';' || trimmed.startsWith("//") -> COMMENT
+                else -> {
+                    separators[index] = separatorIndex(line)
+                    if (separators[index] < 0) {
+                        invalidLines.add(index + 1)
+                        INVALID
+                    } else {
+                        addEntry(trimmed, index + 1)
+                    }
+                }
+            }
+        }
+
+        /**
+         * Split at the first separator that yields a non-empty key, trying `=`, `:`
+         * and `-` in that order.
+         */
+        private fun addEntry(trimmed: String, lineNumber: Int): Byte {
+            for (separator in SEPARATORS) {
+                val at = trimmed.indexOf(separator)
+                if (at < 0) continue
+                val key = trimmed.substring(0, at).trim().removeSurrounding("\"", "\"").removeSurrounding("'", "'")
+                if (key.isEmpty()) continue
+                val value = trimmed.substring(at + 1).trim().removeSurrounding("\"", "\"")
+
+                val entry = KeyValueEntry(key = key, value = value, section = currentSection, lineNumber = lineNumber)
+                val keys = sections.getOrPut(currentSection) { LinkedHashMap() }
+                keys.remove(key)
+                keys[key] = entry
+                entryCount++
+                return ENTRY
+            }
+            return TEXT
+        }
+
+        fun build(): KeyValueIndex {
+            return KeyValueIndex(
+                lines = lines,
+                kinds = kinds.copyOf(lineCount),
+                separators = separators.copyOf(lineCount),
+                sections = sections,
+                sectionNames = sectionNames.toList(),
+                entryCount = entryCount,
+                sectionCount = sectionCount,
+                lineCount = lineCount,
+                invalidLines = invalidLines.toIntArray()
+            )
+        }
+    }
+
+    companion object {
+        private const val BLANK: Byte = 0
+        private const val SECTION: Byte = 1
+        private const val COMMENT: Byte = 2
+        private const val ENTRY: Byte = 3
+        private const val TEXT: Byte = 4
+        private const val INVALID: Byte = 5
+
+        private val SEPARATORS = charArrayOf('=', ':', '-')
+
+        /**
+         * Index of the separator used for highlighting: the first `=`, else the
+         * first `:`, else the first `-`.
+         */
+        private fun separatorIndex(line: String): Int {
+            for (separator in SEPARATORS) {
+                val at = line.indexOf(separator)
+                if (at >= 0) return at
+            }
+            return -1
+        }
+
+        /**
+         * Build the index from in-memory content.
+         */
+        fun parse(content: String): KeyValueIndex {
+            val builder = Builder(retainLines = true)
+            content.lines().forEach { builder.add(it) }
+            return builder.build()
+        }
+
+        /**
+         * Build the index by streaming lines from [source], which is closed afterwards.
+         *
+         * @param retainLines Keep the line text for [toHtml]; pass false when only
+         *                    lookups are needed to keep memory proportional to the entries
+         */
+        fun read(source: Source, retainLines: Boolean = true): KeyValueIndex {
+            val builder = Builder(retainLines)
+            source.buffer().use { buffered ->
+                while (true) {
+                    val line = buffered.readUtf8Line() ?: break
+                    builder.add(line)
+                }
+            }
+            return builder.build()
+        }
+    }
+}
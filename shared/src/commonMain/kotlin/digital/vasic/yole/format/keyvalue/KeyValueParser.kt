@@ -10,6 +10,8 @@
 package digital.vasic.yole.format.keyvalue
 
 import digital.vasic.yole.format.*
+import okio.Buffer
+import okio.use
 
 /**
  * Key-value file type
@@ -53,190 +55,36 @@ class KeyValueParser : TextParser {
         // Determine key-value type
         val type = detectType(extension)
 
-        // Parse entries
-        val entries = parseKeyValueEntries(content)
+        // Index entries and classify lines in a single pass
+        val index = KeyValueIndex.parse(content)
 
         val metadata = buildMap {
             put("type", type.name.lowercase())
             put("extension", extension)
-            put("entries", entries.filter { !it.isComment && !it.isSection }.size.toString())
-            put("lines", content.lines().size.toString())
-            put("sections", entries.count { it.isSection }.toString())
+            put("entries", index.entryCount.toString())
+            put("lines", index.lineCount.toString())
+            put("sections", index.sectionCount.toString())
+            when (type) {
+                KeyValueType.VCARD -> put("contacts", countComponents(content, "VCARD").toString())
+                KeyValueType.ICALENDAR -> put("events", countComponents(content, "VEVENT").toString())
+                else -> {}
+            }
         }
 
-        // Convert to HTML
-        val html = toHtml(type, entries, content)
-
-        return ParsedDocument(
+        val document = ParsedDocument(
             format = supportedFormat,
             rawContent = content,
-            parsedContent = html,
+            parsedContent = index.toHtml(),
             metadata = metadata
         )
+        document.putAttachment(INDEX, index)
+        return document
     }
 
     override fun toHtml(document: ParsedDocument, lightMode: Boolean): String {
         return document.parsedContent
     }
 
-    /**
-     * Parse key-value entries from content
-     */
-    private fun parseKeyValueEntries(content: String): List<KeyValueEntry> {
-        val entries = mutableListOf<KeyValueEntry>()
-        val lines = content.lines()
-        var currentSection: String? = null
-
-        lines.forEachIndexed { index, line ->
-            val trimmed = line.trim()
-
-            when {
-                // Empty line
-                trimmed.isEmpty() -> { /* skip */ }
-
-                // INI section: [section]
-                trimmed.matches(Regex("^\\[.*\\]$")) -> {
-                    val sectionName = trimmed.removeSurrounding("[", "]")
-                    currentSection = sectionName
-                    entries.add(
-                        KeyValueEntry(
-                            key = sectionName,
-                            value = "",
-                            section = null,
-                            lineNumber = index + 1,
-                            isSection = true
-                        )
-                    )
-                }
-
-                // Comment: # or ; or //
-                trimmed.startsWith("#") || trimmed.startsWith(";") || trimmed.startsWith("//") -> {
-                    entries.add(
-                        KeyValueEntry(
-                            key = "",
-                            value = trimmed,
-                            section = currentSection,
-                            lineNumber = index + 1,
-                            isComment = true
-                        )
-                    )
-                }
-
-                // Key-value pairs
-                else -> {
-                    parseKeyValueLine(trimmed)?.let { (key, value) ->
-                        entries.add(
-                            KeyValueEntry(
-                                key = key,
-                                value = value,
-                                section = currentSection,
-                                lineNumber = index + 1
-                            )
-                        )
-                    }
-                }
-            }
-        }
-
-        return entries
-    }
-
-    /**
-     * Parse a single key-value line
-     * Supports formats: key=value, key:value, key: value, "key": value
-     */
-    private fun parseKeyValueLine(line: String): Pair<String, String>? {
-        // Try different separators: =, :, -
-        val separators = listOf("=", ":", "-")
-
-        for (separator in separators) {
-            if (separator in line) {
-                val parts = line.split(separator, limit = 2)
-                if (parts.size == 2) {
-                    val key = parts[0].trim().removeSurrounding("\"", "\"").removeSurrounding("'", "'")
-                    val value = parts[1].trim().removeSurrounding("\"", "\"")
-                    if (key.isNotEmpty()) {
-                        return Pair(key, value)
-                    }
-                }
-            }
-        }
-
-        return null
-    }
-
-    /**
-     * Convert to HTML with syntax highlighting
-     */
-    private fun toHtml(type: KeyValueType, entries: List<KeyValueEntry>, originalContent: String): String {
-        return buildString {
-            append("<div class='keyvalue'>")
-            append("<pre style='white-space: pre-wrap; font-family: monospace;'>")
-
-            val lines = originalContent.lines()
-            lines.forEachIndexed { index, line ->
-                val trimmed = line.trim()
-
-                when {
-                    // Empty line
-                    trimmed.isEmpty() -> {
-                        append("\n")
-                    }
-
-                    // Section header
-                    trimmed.matches(Regex("^\\[.*\\]$")) -> {
-                        append("<span style='color: #ef6d00; font-size: 1.25em; font-weight: bold;'>")
-                        append(line.escapeHtml())
-                        append("</span>\n")
-                    }
-
-                    // Comment
-                    trimmed.startsWith("#") || trimmed.startsWith(";") || trimmed.startsWith("//") -> {
-                        append("<span style='color: #88b04b;'>")
-                        append(line.escapeHtml())
-                        append("</span>\n")
-                    }
-
-                    // Key-value pair
-                    else -> {
-                        val highlighted = highlightKeyValue(line)
-                        append(highlighted)
-                        append("\n")
-                    }
-                }
-            }
-
-            append("</pre>")
-            append("</div>")
-        }
-    }
-
-    /**
-     * Highlight key-value pair
-     */
-    private fun highlightKeyValue(line: String): String {
-        // Try to split by separator
-        val separators = listOf("=", ":", "-")
-
-        for (separator in separators) {
-            if (separator in line) {
-                val index = line.indexOf(separator)
-                val key = line.substring(0, index)
-                val rest = line.substring(index)
-
-                return buildString {
-                    append("<span style='font-weight: bold;'>")
-                    append(key.escapeHtml())
-                    append("</span>")
-                    append(rest.escapeHtml())
-                }
-            }
-        }
-
-        // No separator found, return as-is
-        return line.escapeHtml()
-    }
-
     /**
      * Detect key-value type from extension
      */
@@ -266,36 +114,32 @@ class KeyValueParser : TextParser {
         }
     }
 
-    override fun validate(content: String): List<String> {
-        val errors = mutableListOf<String>()
-
-        val lines = content.lines()
-        lines.forEachIndexed { index, line ->
-            val trimmed = line.trim()
-
-            // Skip empty lines and comments
-            if (trimmed.isEmpty() || trimmed.startsWith("#") || trimmed.startsWith(";") || trimmed.startsWith("//")) {
-                return@forEachIndexed
-            }
-
-            // Skip section headers
-            if (trimmed.matches(Regex("^\\[.*\\]$"))) {
-                return@forEachIndexed
-            }
-
-            // Check if line contains a separator
-            val hasSeparator = "=" in trimmed || ":" in trimmed || "-" in trimmed
-            if (!hasSeparator) {
-                errors.add("Line ${index + 1}: No key-value separator found")
-            }
+    /**
+     * Count components by streaming them one at a time.
+     */
+    private fun countComponents(content: String, name: String): Int {
+        val names = setOf(name)
+        var count = 0
+        VComponentReader(Buffer().writeUtf8(content)).use { reader ->
+            while (reader.next(names) != null) count++
         }
+        return count
+    }
 
-        return errors
+    override fun validate(content: String): List<String> {
+        return KeyValueIndex.parse(content).invalidLineNumbers().map { line ->
+            "Line $line: No key-value separator found"
+        }
     }
 
     companion object {
         // Supported extensions
         val EXTENSIONS = setOf(".yml", ".yaml", ".toml", ".vcf", ".ics", ".ini", ".json", ".zim", ".properties")
+
+        /**
+         * Attachment holding the [KeyValueIndex] of a parsed document, for O(1) lookups.
+         */
+        val INDEX = AttachmentKey<KeyValueIndex>("keyvalue.index")
     }
 }
 
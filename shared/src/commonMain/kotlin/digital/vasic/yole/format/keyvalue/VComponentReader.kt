@@ -0,0 +1,276 @@
+/*#######################################################
+ *
+ * SPDX-FileCopyrightText: 2025 Milos Vasic
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * vCard / iCalendar Component Reader - Platform Agnostic
+ * Streaming BEGIN/END component parser with line unfolding
+ *
+ *########################################################*/
+package digital.vasic.yole.format.keyvalue
+
+import okio.BufferedSource
+import okio.Closeable
+import okio.Source
+import okio.buffer
+
+/**
+ * One unfolded content line such as `DTSTART;TZID=Europe/Berlin:20251020T090000`
+ * (RFC 5545 section 3.1, RFC 6350 section 3.3).
+ *
+ * @property group Optional vCard property group (`item1` in `item1.EMAIL:...`)
+ * @property name Upper-case property name
+ * @property parameters Parameters by upper-case name; quotes are removed
+ * @property value Raw value, with escapes left in place
+ * @property lineNumber 1-based physical line number where the content line starts
+ */
+data class ContentLine(
+    val group: String?,
+    val name: String,
+    val parameters: Map<String, String>,
+    val value: String,
+    val lineNumber: Int
+) {
+    /**
+     * The value as text, with `\n`, `\,`, `\;` and `\\` escapes resolved.
+     */
+    val text: String
+        get() {
+            if ('\\' !in value) return value
+            val result = StringBuilder(value.length)
+            var i = 0
+            while (i < value.length) {
+                val c = value[i]
+                if (c == '\\' && i + 1 < value.length) {
+                    val next = value[++i]
+                    result.append(if (next == 'n' || next == 'N') '\n' else next)
+                } else {
+                    result.append(c)
+                }
+                i++
+            }
+            return result.toString()
+        }
+
+    companion object {
+        /**
+         * Parse an unfolded content line.
+         *
+         * @return The content line, or null if it has no `:` separator
+         */
+        fun parse(line: String, lineNumber: Int = 0): ContentLine? {
+            // Name ends at the first ';' or ':'; parameters end at the first ':' outside quotes
+            var i = 0
+            while (i < line.length && line[i] != ';' && line[i] != ':') i++
+            if (i >= line.length) return null
+            val fullName = line.substring(0, i)
+
+            val parameters = LinkedHashMap<String, String>()
+            while (i < line.length && line[i] == ';') {
+                val start = ++i
+                var inQuotes = false
+                while (i < line.length && (inQuotes || (line[i] != ';' && line[i] != ':'))) {
+                    if (line[i] == '"') inQuotes = !inQuotes
+                    i++
+                }
+                val parameter = line.substring(start, i)
+                val equals = parameter.indexOf('=')
+                if (equals < 0) {
+                    // vCard 2.1 bare parameter such as TEL;HOME:
+                    parameters["TYPE"] = parameters["TYPE"]?.let { "$it,$parameter" } ?: parameter
+                } else {
+                    parameters[parameter.substring(0, equals).uppercase()] =
+                        parameter.substring(equals + 1).replace("\"", "")
+                }
+            }
+            if (i >= line.length) return null
+
+            val dot = fullName.indexOf('.')
+            return ContentLine(
+                group = if (dot >= 0) fullName.substring(0, dot) else null,
+                name = (if (dot >= 0) fullName.substring(dot + 1) else fullName).uppercase(),
+                parameters = parameters,
+                value = line.substring(i + 1),
+                lineNumber = lineNumber
+            )
+        }
+    }
+}
+
+/**
+ * A `BEGIN:NAME ... END:NAME` component such as VCARD, VEVENT or VALARM.
+ *
+ * @property name Upper-case component name
+ * @property properties Content lines of the component in order (BEGIN/END excluded)
+ * @property children Nested components, e.g. VALARM inside VEVENT
+ * @property lineNumber 1-based line of the BEGIN line
+ * @property byteOffset Offset of the BEGIN line in the source, in bytes
+ */
+data class VComponent(
+    val name: String,
+    val properties: List<ContentLine>,
+    val children: List<VComponent>,
+    val lineNumber: Int,
+    val byteOffset: Long
+) {
+    /**
+     * First property with the given name.
+     */
+    fun property(name: String): ContentLine? = properties.firstOrNull { it.name == name }
+
+    /**
+     * Text value of the first property with the given name.
+     */
+    fun value(name: String): String? = property(name)?.text
+}
+
+/**
+ * Streaming reader for vCard (`.vcf`) and iCalendar (`.ics`) files.
+ *
+ * Physical lines are unfolded on the fly (a line starting with a space or tab
+ * continues the previous one) and [next] returns one component at a time, so a
+ * contact list or calendar export is never materialized as a whole. Only the
+ * requested components (and their children) are kept in memory while reading.
+ *
+ * @param source The source to read; closed by [close]
+ *
+ * @example
+ * ```kotlin
+ * FileSystem.SYSTEM.source(path).use { source ->
+ *     VComponentReader(source).use { reader ->
+ *         while (true) {
+ *             val event = reader.next(setOf("VEVENT")) ?: break
+ *             println(event.value("SUMMARY"))
+ *         }
+ *     }
+ * }
+ * ```
+ */
+class VComponentReader(source: Source) : Closeable {
+    private val source: BufferedSource = source.buffer()
+
+    /** Next physical line (read ahead to detect folding), or null at the end. */
+    private var pending: String? = null
+    private var pendingOffset = 0L
+    private var pendingLine = 0
+    private var started = false
+
+    /** Byte offset of the next physical line to read. */
+    private var offset = 0L
+    private var physicalLine = 0
+
+    private var lineOffset = 0L
+    private var lineNumber = 0
+
+    /**
+     * Read the next unfolded content line.
+     *
+     * @return The logical line, or null at the end of the source
+     */
+    fun nextLine(): String? {
+        if (!started) {
+            started = true
+            advance()
+        }
+        val first = pending ?: return null
+        lineOffset = pendingOffset
+        lineNumber = pendingLine
+        advance()
+
+        var next = pending
+        if (next == null || !isContinuation(next)) return first
+
+        val unfolded = StringBuilder(first)
+        while (next != null && isContinuation(next)) {
+            unfolded.appendRange(next, 1, next.length)
+            advance()
+            next = pending
+        }
+        return unfolded.toString()
+    }
+
+    /**
+     * Read up to and including the next component whose name is in [names].
+     *
+     * Components are matched at any depth, so `setOf("VEVENT")` finds events inside
+     * VCALENDAR. A matched component is returned with its nested children.
+     *
+     * @param names Upper-case component names to return
+     * @return The next matching component, or null at the end of the source
+     */
+    fun next(names: Set<String>): VComponent? {
+        val stack = ArrayList<Builder>()
+
+        while (true) {
+            val line = nextLine() ?: return null
+            val content = ContentLine.parse(line, lineNumber) ?: continue
+
+            when (content.name) {
+                "BEGIN" -> {
+                    val name = content.value.trim().uppercase()
+                    if (stack.isNotEmpty() || name in names) {
+                        stack.add(Builder(name, lineNumber, lineOffset))
+                    }
+                }
+                "END" -> {
+                    // END of a component that is not being collected
+                    if (stack.isEmpty()) continue
+                    val component = stack.removeAt(stack.size - 1).build()
+                    if (stack.isEmpty()) return component
+                    stack.last().children.add(component)
+                }
+                else -> if (stack.isNotEmpty()) stack.last().properties.add(content)
+            }
+        }
+    }
+
+    /**
+     * Continue reading at a line start further ahead in the source, e.g. the
+     * [VComponent.byteOffset] of a component recorded in an earlier pass.
+     *
+     * @param byteOffset Offset of a physical line start, not before the current position
+     * @param lineNumber 1-based line number of that line, for the line numbers reported afterwards
+     */
+    internal fun seek(byteOffset: Long, lineNumber: Int) {
+        if (started && pending != null && byteOffset == pendingOffset) return
+        require(byteOffset >= offset) { "Cannot seek backwards from $offset to $byteOffset" }
+        source.skip(byteOffset - offset)
+        offset = byteOffset
+        physicalLine = lineNumber - 1
+        pending = null
+        started = false
+    }
+
+    override fun close() {
+        source.close()
+    }
+
+    private fun advance() {
+        pendingOffset = offset
+        if (source.exhausted()) {
+            pending = null
+            return
+        }
+        val newline = source.indexOf('\n'.code.toByte())
+        val line = if (newline < 0) {
+            val remaining = source.buffer.size
+            offset += remaining
+            source.readUtf8()
+        } else {
+            offset += newline + 1
+            source.readUtf8(newline).also { source.skip(1) }
+        }
+        physicalLine++
+        pendingLine = physicalLine
+        pending = line.removeSuffix("\r")
+    }
+
+    private fun isContinuation(line: String): Boolean = line.isNotEmpty() && (line[0] == ' ' || line[0] == '\t')
+
+    private class Builder(val name: String, val lineNumber: Int, val byteOffset: Long) {
+        val properties = ArrayList<ContentLine>()
+        val children = ArrayList<VComponent>()
+
+        fun build() = VComponent(name, properties, children, lineNumber, byteOffset)
+    }
+}
@@ -36,67 +36,246 @@ class LatexParser : TextParser {
     }
 
     override fun validate(content: String): List<String> {
-        val errors = mutableListOf<String>()
-        
-        val lines = content.lines()
-        var inMathMode = false
-        var inEnvironment = false
-        var currentEnvironment = ""
-        
-        lines.forEachIndexed { index, line ->
-            val lineNumber = index + 1
-            
-            // Check for unclosed math mode
-            if (line.contains("\\[") || line.contains("\\begin{equation}")) {
-                inMathMode = true
-            }
-            if (line.contains("\\]") || line.contains("\\end{equation}")) {
-                inMathMode = false
-            }
-            
-            // Check for environment boundaries
-            val beginMatch = Regex("\\\\begin\\{([^}]+)\\}").find(line)
-            if (beginMatch != null) {
-                inEnvironment = true
-                currentEnvironment = beginMatch.groupValues[1]
-            }
-            
-            val endMatch = Regex("\\\\end\\{([^}]+)\\}").find(line)
-            if (endMatch != null) {
-                val endEnv = endMatch.groupValues[1]
-                if (endEnv == currentEnvironment || currentEnvironment.isEmpty()) {
-                    inEnvironment = false
-                    currentEnvironment = ""
-                } else {
-                    errors.add("Line $lineNumber: Mismatched environment end: $endEnv (expected: $currentEnvironment)")
+        return diagnose(content).map { it.toString() }
+    }
+
+    /**
+     * Validate LaTeX content in a single linear pass.
+     *
+     * A [LatexTokenizer] drives an environment stack, so nested environments are
+     * matched correctly and every problem is reported with its position. Math mode
+     * (`$`, `$$`, `\[`, `\(` and math environments), alignment environments (where
+     * `&` is legal), macro definitions (where `#` is legal) and verbatim content
+     * are taken into account.
+     *
+     * @param content The LaTeX source to validate
+     * @return Diagnostics in source order, followed by unclosed constructs
+     */
+    fun diagnose(content: String): List<LatexDiagnostic> {
+        val diagnostics = mutableListOf<LatexDiagnostic>()
+        val tokenizer = LatexTokenizer(content)
+
+        val environments = ArrayList<String>()
+        val environmentLines = ArrayList<Int>()
+        var mathEnvironmentDepth = 0
+        var alignmentEnvironmentDepth = 0
+
+        var inlineMathLine = 0      // line of the open `$`, 0 if closed
+        var displayMathLine = 0     // line of the open `$$` or `\[`, 0 if closed
+        var parenMathLine = 0       // line of the open `\(`, 0 if closed
+
+        val braceLines = ArrayList<Int>()
+        var definitionDepth = -1    // brace depth at which a macro definition started
+        var definitionGroups = 0    // argument groups of the definition still to close, the body last
+        var definitionNameGroup = false // whether an unbraced name may still replace the name group
+
+        var lastAmpersandLine = 0
+        var lastHashLine = 0
+
+        fun report(message: String) {
+            diagnostics.add(LatexDiagnostic(tokenizer.line, tokenizer.column, tokenizer.start, message))
+        }
+
+        fun inMath() = inlineMathLine > 0 || displayMathLine > 0 || parenMathLine > 0 || mathEnvironmentDepth > 0
+
+        while (tokenizer.next()) {
+            when (tokenizer.type) {
+                LatexTokenType.COMMAND -> when {
+                    definitionNameGroup && braceLines.size == definitionDepth -> {
+                        // `\newcommand\foo{...}`: the name is not a group
+                        definitionNameGroup = false
+                        definitionGroups--
+                    }
+                    tokenizer.nameEquals("begin") -> {
+                        val environment = tokenizer.readGroupArgument()
+                        if (environment == null) {
+                            report("Malformed LaTeX command: \\begin without environment name")
+                        } else if (environment in VERBATIM_ENVIRONMENTS) {
+                            if (!tokenizer.skipVerbatimEnvironment(environment)) {
+                                report("Unclosed environment: $environment")
+                            }
+                        } else {
+                            environments.add(environment)
+                            environmentLines.add(tokenizer.line)
+                            if (environment in MATH_ENVIRONMENTS) mathEnvironmentDepth++
+                            if (environment in ALIGNMENT_ENVIRONMENTS) alignmentEnvironmentDepth++
+                        }
+                    }
+                    tokenizer.nameEquals("end") -> {
+                        val environment = tokenizer.readGroupArgument()
+                        when {
+                            environment == null ->
+                                report("Malformed LaTeX command: \\end without environment name")
+                            environments.isEmpty() ->
+                                report("Unmatched environment end: $environment")
+                            environments.last() == environment -> {
+                                environments.removeAt(environments.size - 1)
+                                environmentLines.removeAt(environmentLines.size - 1)
+                                if (environment in MATH_ENVIRONMENTS) mathEnvironmentDepth--
+                                if (environment in ALIGNMENT_ENVIRONMENTS) alignmentEnvironmentDepth--
+                            }
+                            else -> {
+                                report("Mismatched environment end: $environment (expected: ${environments.last()})")
+                                // Recover by closing up to a matching begin, if there is one
+                                val index = environments.lastIndexOf(environment)
+                                if (index >= 0) {
+                                    while (environments.size > index) {
+                                        val closed = environments.removeAt(environments.size - 1)
+                                        environmentLines.removeAt(environmentLines.size - 1)
+                                        if (closed in MATH_ENVIRONMENTS) mathEnvironmentDepth--
+                                        if (closed in ALIGNMENT_ENVIRONMENTS) alignmentEnvironmentDepth--
+                                    }
+                                }
+                            }
+                        }
+                    }
+                    tokenizer.nameEquals("def") || tokenizer.nameEquals("gdef") ||
+                        tokenizer.nameEquals("edef") || tokenizer.nameEquals("xdef") ||
+                        tokenizer.nameEquals("newcommand") || tokenizer.nameEquals("renewcommand") ||
+                        tokenizer.nameEquals("providecommand") || tokenizer.nameEquals("newenvironment") ||
+                        tokenizer.nameEquals("renewenvironment") -> {
+                        definitionDepth = braceLines.size
+                        definitionNameGroup = tokenizer.nameEquals("newcommand") ||
+                            tokenizer.nameEquals("renewcommand") || tokenizer.nameEquals("providecommand")
+                        definitionGroups = when {
+                            definitionNameGroup -> 2    // {name}{body}
+                            tokenizer.nameEquals("newenvironment") ||
+                                tokenizer.nameEquals("renewenvironment") -> 3   // {name}{begin}{end}
+                            else -> 1                   // \def\name#1{body}
+                        }
+                    }
                 }
-            }
-            
-            // Check for malformed commands
-            val malformedCommands = Regex("\\\\[^a-zA-Z@]+").findAll(line)
-            malformedCommands.forEach { match ->
-                errors.add("Line $lineNumber: Malformed LaTeX command: ${match.value}")
-            }
-            
-            // Check for unescaped special characters
-            if (line.contains("&") && !line.contains("\\\\&") && !inMathMode) {
-                errors.add("Line $lineNumber: Unescaped ampersand (&)")
-            }
-            
-            if (line.contains("#") && !line.contains("\\\\#") && !inMathMode) {
-                errors.add("Line $lineNumber: Unescaped hash (#)")
+
+                LatexTokenType.CONTROL_SYMBOL -> {
+                    when (val symbol = tokenizer.symbol()) {
+                        '[' -> if (displayMathLine > 0) {
+                            report("Nested display math: \\[")
+                        } else {
+                            displayMathLine = tokenizer.line
+                        }
+                        ']' -> if (displayMathLine > 0) displayMathLine = 0 else report("Unmatched math mode end: \\]")
+                        '(' -> if (parenMathLine > 0) {
+                            report("Nested inline math: \\(")
+                        } else {
+                            parenMathLine = tokenizer.line
+                        }
+                        ')' -> if (parenMathLine > 0) parenMathLine = 0 else report("Unmatched math mode end: \\)")
+                        else -> {
+                            val valid = symbol in TEXT_CONTROL_SYMBOLS ||
+                                (symbol in MATH_CONTROL_SYMBOLS && inMath())
+                            if (!valid) report("Malformed LaTeX command: ${tokenizer.text()}")
+                        }
+                    }
+                }
+
+                LatexTokenType.BEGIN_GROUP -> {
+                    braceLines.add(tokenizer.line)
+                    definitionNameGroup = false
+                }
+
+                LatexTokenType.END_GROUP -> {
+                    if (braceLines.isEmpty()) {
+                        report("Unmatched closing brace")
+                    } else {
+                        braceLines.removeAt(braceLines.size - 1)
+                        // The definition ends when its body group closes
+                        if (definitionDepth >= 0 && braceLines.size <= definitionDepth) {
+                            definitionGroups--
+                            if (definitionGroups <= 0 || braceLines.size < definitionDepth) definitionDepth = -1
+                        }
+                    }
+                }
+
+                LatexTokenType.MATH_SHIFT -> {
+                    if (displayMathLine == 0 && parenMathLine == 0 && mathEnvironmentDepth == 0) {
+                        inlineMathLine = if (inlineMathLine > 0) 0 else tokenizer.line
+                    }
+                }
+
+                LatexTokenType.DISPLAY_MATH_SHIFT -> {
+                    if (inlineMathLine == 0 && parenMathLine == 0 && mathEnvironmentDepth == 0) {
+                        displayMathLine = if (displayMathLine > 0) 0 else tokenizer.line
+                    }
+                }
+
+                LatexTokenType.ALIGNMENT -> {
+                    if (!inMath() && alignmentEnvironmentDepth == 0 && tokenizer.line != lastAmpersandLine) {
+                        lastAmpersandLine = tokenizer.line
+                        report("Unescaped ampersand (&)")
+                    }
+                }
+
+                LatexTokenType.PARAMETER -> {
+                    val inDefinition = definitionDepth >= 0
+                    if (!inMath() && !inDefinition && tokenizer.line != lastHashLine) {
+                        lastHashLine = tokenizer.line
+                        report("Unescaped hash (#)")
+                    }
+                }
+
+                LatexTokenType.PARAGRAPH -> {
+                    // Inline math cannot span paragraphs
+                    if (inlineMathLine > 0 || parenMathLine > 0) {
+                        val line = maxOf(inlineMathLine, parenMathLine)
+                        diagnostics.add(LatexDiagnostic(line, 0, -1, "Unclosed inline math mode"))
+                        inlineMathLine = 0
+                        parenMathLine = 0
+                    }
+                }
+
+                LatexTokenType.COMMENT,
+                LatexTokenType.VERBATIM,
+                LatexTokenType.TEXT -> Unit
             }
         }
-        
-        // Check for unclosed blocks
-        if (inMathMode) {
-            errors.add("Unclosed math mode")
+
+        if (inlineMathLine > 0 || displayMathLine > 0 || parenMathLine > 0) {
+            val line = maxOf(inlineMathLine, displayMathLine, parenMathLine)
+            diagnostics.add(LatexDiagnostic(line, 0, -1, "Unclosed math mode"))
         }
-        if (inEnvironment) {
-            errors.add("Unclosed environment: $currentEnvironment")
+        for (i in environments.indices.reversed()) {
+            diagnostics.add(LatexDiagnostic(environmentLines[i], 0, -1, "Unclosed environment: ${environments[i]}"))
         }
-        
-        return errors
+        if (braceLines.isNotEmpty()) {
+            diagnostics.add(LatexDiagnostic(braceLines.last(), 0, -1, "Unclosed brace"))
+        }
+
+        return diagnostics
+    }
+
+    companion object {
+        /**
+         * Environments whose body is not tokenized.
+         */
+        private val VERBATIM_ENVIRONMENTS = setOf("verbatim", "verbatim*", "lstlisting", "minted", "comment", "Verbatim")
+
+        /**
+         * Environments that switch to math mode.
+         */
+        private val MATH_ENVIRONMENTS = setOf(
+            "equation", "equation*", "align", "align*", "alignat", "alignat*", "gather", "gather*",
+            "multline", "multline*", "flalign", "flalign*", "eqnarray", "eqnarray*",
+            "displaymath", "math", "split", "aligned", "gathered", "cases"
+        )
+
+        /**
+         * Environments in which `&` is a legal alignment tab.
+         */
+        private val ALIGNMENT_ENVIRONMENTS = setOf(
+            "tabular", "tabular*", "tabularx", "longtable", "array", "align", "align*", "alignat",
+            "alignat*", "flalign", "flalign*", "eqnarray", "eqnarray*", "split", "aligned", "cases",
+            "matrix", "pmatrix", "bmatrix", "Bmatrix", "vmatrix", "Vmatrix", "smallmatrix", "tabu"
+        )
+
+        /**
+         * Control symbols that are valid anywhere.
+         */
+        private const val TEXT_CONTROL_SYMBOLS = "\\&#$%_{}[]()' \"`^~=.-/@|,\n\t"
+
+        /**
+         * Control symbols that are only valid in math mode.
+         */
+        private const val MATH_CONTROL_SYMBOLS = "!;:>*"
     }
 
     /**
@@ -144,20 +323,37 @@ class LatexParser : TextParser {
      * Extract content from LaTeX command braces
      */
     private fun extractBraceContent(line: String, command: String): String {
-        val pattern = Regex("\\\\$command\\{([^}]*)\\}")
-        val match = pattern.find(line)
-        return match?.groupValues?.get(1) ?: ""
+        return LatexTokenizer.commandArgument(line, command) ?: ""
     }
 
     /**
      * Convert LaTeX content to HTML
      */
     private fun convertLatexToHtml(content: String, lightMode: Boolean): String {
+        return wrapHtml(renderFragment(content), lightMode)
+    }
+
+    /**
+     * Wrap rendered LaTeX body HTML with the container and theme stylesheet.
+     */
+    internal fun wrapHtml(body: String, lightMode: Boolean): String {
+        return buildString(body.length + 4096) {
+            append("<div class='latex'>\n")
+            append(StyleSheets.getStyleSheet(TextFormat.ID_LATEX, lightMode))
+            append(body)
+            append("</div>")
+        }
+    }
+
+    /**
+     * Render LaTeX content to body HTML without container or stylesheet.
+     *
+     * The result does not depend on the theme, so it can be cached and composed
+     * (see [LatexProject]).
+     */
+    internal fun renderFragment(content: String): String {
         val lines = content.lines()
         val html = StringBuilder()
-
-        html.append("<div class='latex'>\n")
-        html.append(StyleSheets.getStyleSheet(TextFormat.ID_LATEX, lightMode))
         
         var inDocument = false
         var inMathMode = false
@@ -234,10 +430,10 @@ class LatexParser : TextParser {
                 
                 // Environments
                 line.contains("\\begin{") -> {
-                    val envMatch = Regex("\\\\begin\\{([^}]+)\\}").find(line)
-                    if (envMatch != null) {
+                    val environment = LatexTokenizer.commandArgument(line, "begin")
+                    if (environment != null) {
                         inEnvironment = true
-                        currentEnvironment = envMatch.groupValues[1]
+                        currentEnvironment = environment
                         html.append("<div class='environment'>")
                         html.append("<div class='environment-title'>${currentEnvironment.escapeHtml()}</div>\n")
                     }
@@ -308,12 +504,29 @@ class LatexParser : TextParser {
             }
         }
         
-        html.append("</div>")
-        
         return html.toString()
     }
 }
 
+/**
+ * A validation problem found by [LatexParser.diagnose].
+ *
+ * @property line 1-based line of the problem
+ * @property column 1-based column of the problem, or 0 for problems that refer to a whole line
+ * @property offset Character offset of the problem, or -1 for problems that refer to a whole line
+ * @property message Human readable description
+ */
+data class LatexDiagnostic(
+    val line: Int,
+    val column: Int,
+    val offset: Int,
+    val message: String
+) {
+    override fun toString(): String {
+        return if (column > 0) "Line $line, column $column: $message" else "Line $line: $message"
+    }
+}
+
 /**
  * Register the LaTeX parser with the registry
  */
@@ -0,0 +1,348 @@
+/*#######################################################
+ *
+ * SPDX-FileCopyrightText: 2025 Milos Vasic
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Multi-file LaTeX Project
+ * Include graph with per-file caching and incremental rendering
+ *
+ *########################################################*/
+package digital.vasic.yole.format.latex
+
+import digital.vasic.yole.format.ParsedDocument
+import digital.vasic.yole.format.escapeHtml
+import okio.FileSystem
+import okio.IOException
+import okio.Path
+
+/**
+ * A LaTeX project spread over several files connected by `\input` and `\include`.
+ *
+ * Starting from a root `.tex` file, the project builds the include graph and keeps
+ * a cache entry per file, keyed by (path, modification time, content hash). Each
+ * file is rendered once into theme-independent HTML pieces split at its include
+ * points; the project HTML is composed from those pieces. When a file changes, only
+ * that file is re-parsed and re-rendered, and only the composed HTML of the file and
+ * its ancestors is rebuilt – siblings keep their cached output.
+ *
+ * Include paths are resolved like LaTeX does: relative to the directory of the
+ * root file, with `.tex` appended when no extension is given.
+ *
+ * @param fileSystem File system used to read the project files
+ * @param root Path of the root `.tex` file
+ * @param parser Parser used to parse and render individual files
+ *
+ * @example
+ * ```kotlin
+ * val project = LatexProject(FileSystem.SYSTEM, "/thesis/main.tex".toPath())
+ * project.load()
+ * val html = project.toHtml(lightMode = true)
+ *
+ * // After chapters/results.tex was saved:
+ * val rerendered = project.update("/thesis/chapters/results.tex".toPath())
+ * // rerendered == {results.tex, main.tex}
+ * ```
+ */
+class LatexProject(
+    private val fileSystem: FileSystem,
+    val root: Path,
+    private val parser: LatexParser = LatexParser()
+) {
+    private val baseDirectory: Path? = root.parent
+
+    private val entries = mutableMapOf<Path, Entry>()
+
+    /**
+     * Include targets that could not be read; re-checked by [update].
+     */
+    private val missing = mutableSetOf<Path>()
+
+    /**
+     * Composed body HTML per file (the file with all its includes expanded).
+     * Invalidated for a changed file and its ancestors.
+     */
+    private val composed = mutableMapOf<Path, String>()
+
+    /**
+     * Number of times a file was rendered. Exposed for tests and diagnostics.
+     */
+    internal var renderCount = 0
+        private set
+
+    /**
+     * All files currently reachable from [root].
+     */
+    val files: Set<Path>
+        get() = entries.keys.toSet()
+
+    /**
+     * Load the project: read the root and, transitively, every included file.
+     */
+    fun load() {
+        entries.clear()
+        composed.clear()
+        missing.clear()
+        loadReachable()
+    }
+
+    /**
+     * Check files for changes and re-render what changed.
+     *
+     * A file counts as changed when its modification time or size differs and its
+     * content hash differs as well; touching a file without modifying it does not
+     * trigger re-rendering. Included files that were missing and now exist are
+     * loaded and count as changed.
+     *
+     * @param path The file that changed, or null to check every project file
+     * @return The files whose composed HTML was invalidated: the changed files and
+     *         all of their ancestors
+     */
+    fun update(path: Path? = null): Set<Path> {
+        val candidates = if (path != null) listOf(path) else entries.keys.toList()
+        val changed = mutableSetOf<Path>()
+
+        for (candidate in candidates) {
+            val entry = entries[candidate] ?: continue
+            if (refresh(entry)) changed.add(candidate)
+        }
+        val appeared = missing.filter { (path == null || it == path) && exists(it) }
+        missing.removeAll(appeared.toSet())
+        changed.addAll(appeared)
+        if (changed.isEmpty()) return emptySet()
+
+        val invalidated = mutableSetOf<Path>()
+        for (file in changed) collectAncestors(file, invalidated)
+        invalidated.forEach { composed.remove(it) }
+
+        // Includes may have been added or removed
+        loadReachable()
+        val reachable = reachableFrom(root)
+        entries.keys.retainAll(reachable)
+        missing.retainAll(reachable)
+        composed.keys.retainAll(entries.keys)
+
+        return invalidated
+    }
+
+    /**
+     * Render the whole project to HTML.
+     *
+     * @param lightMode Whether to use light theme (true) or dark theme (false)
+     */
+    fun toHtml(lightMode: Boolean = true): String {
+        return parser.wrapHtml(compose(root, mutableSetOf()), lightMode)
+    }
+
+    /**
+     * Get the cached parse result of a project file.
+     *
+     * @return The parsed document, or null if the file is not part of the project
+     */
+    fun document(path: Path): ParsedDocument? = entries[path]?.document
+
+    /**
+     * Files directly included by [path], in document order.
+     */
+    fun includesOf(path: Path): List<Path> = entries[path]?.includes?.map { it.target } ?: emptyList()
+
+    /**
+     * Files that directly include [path].
+     */
+    fun includersOf(path: Path): Set<Path> {
+        return entries.values.filter { entry -> entry.includes.any { it.target == path } }
+            .map { it.path }
+            .toSet()
+    }
+
+    /**
+     * Validation errors of all project files, prefixed with the file name.
+     */
+    fun errors(): List<String> {
+        return entries.values.flatMap { entry ->
+            entry.document.errors.map { "${entry.path.name}: $it" }
+        }
+    }
+
+    /**
+     * Load every file reachable from the root that is not cached yet.
+     */
+    private fun loadReachable() {
+        val pending = ArrayDeque<Path>()
+        pending.add(root)
+        val seen = mutableSetOf<Path>()
+
+        while (pending.isNotEmpty()) {
+            val path = pending.removeFirst()
+            if (!seen.add(path)) continue
+
+            val entry = entries[path] ?: read(path)?.also { entries[path] = it }
+            if (entry == null) {
+                missing.add(path)
+                continue
+            }
+            entry.includes.forEach { pending.add(it.target) }
+        }
+    }
+
+    private fun reachableFrom(start: Path): Set<Path> {
+        val reachable = mutableSetOf<Path>()
+        val pending = ArrayDeque<Path>()
+        pending.add(start)
+        while (pending.isNotEmpty()) {
+            val path = pending.removeFirst()
+            if (!reachable.add(path)) continue
+            entries[path]?.includes?.forEach { pending.add(it.target) }
+        }
+        return reachable
+    }
+
+    private fun collectAncestors(path: Path, into: MutableSet<Path>) {
+        if (!into.add(path)) return
+        for (entry in entries.values) {
+            if (entry.includes.any { it.target == path }) collectAncestors(entry.path, into)
+        }
+    }
+
+    /**
+     * Re-read [entry] if its metadata changed.
+     *
+     * @return true if the content changed and the entry was re-rendered
+     */
+    private fun refresh(entry: Entry): Boolean {
+        val metadata = try {
+            fileSystem.metadataOrNull(entry.path)
+        } catch (e: IOException) {
+            null
+        }
+        if (metadata == null) {
+            entries.remove(entry.path)
+            return true
+        }
+
+        val modTime = metadata.lastModifiedAtMillis ?: -1L
+        val size = metadata.size ?: -1L
+        if (modTime == entry.modTime && size == entry.size) return false
+
+        val content = readText(entry.path) ?: return false
+        if (content.hashCode() == entry.hash && content == entry.content) {
+            entry.modTime = modTime
+            entry.size = size
+            return false
+        }
+
+        entries[entry.path] = createEntry(entry.path, content, modTime, size)
+        return true
+    }
+
+    private fun read(path: Path): Entry? {
+        val metadata = try {
+            fileSystem.metadataOrNull(path)
+        } catch (e: IOException) {
+            null
+        } ?: return null
+        val content = readText(path) ?: return null
+        return createEntry(path, content, metadata.lastModifiedAtMillis ?: -1L, metadata.size ?: -1L)
+    }
+
+    private fun exists(path: Path): Boolean {
+        return try {
+            fileSystem.metadataOrNull(path)?.isRegularFile == true
+        } catch (e: IOException) {
+            false
+        }
+    }
+
+    private fun readText(path: Path): String? {
+        return try {
+            fileSystem.read(path) { readUtf8() }
+        } catch (e: IOException) {
+            null
+        }
+    }
+
+    private fun createEntry(path: Path, content: String, modTime: Long, size: Long): Entry {
+        val includes = findIncludes(content)
+        val pieces = ArrayList<String>(includes.size + 1)
+        var previousEnd = 0
+        for (include in includes) {
+            pieces.add(parser.renderFragment(content.substring(previousEnd, include.start)))
+            previousEnd = include.end
+        }
+        pieces.add(parser.renderFragment(content.substring(previousEnd)))
+        renderCount++
+
+        return Entry(
+            path = path,
+            content = content,
+            hash = content.hashCode(),
+            modTime = modTime,
+            size = size,
+            includes = includes,
+            pieces = pieces,
+            document = parser.parse(content, mapOf("filename" to path.name))
+        )
+    }
+
+    /**
+     * Find `\input{...}` and `\include{...}` commands outside comments and verbatim.
+     */
+    private fun findIncludes(content: String): List<Include> {
+        val includes = ArrayList<Include>()
+        val tokenizer = LatexTokenizer(content)
+        while (tokenizer.next()) {
+            if (tokenizer.type != LatexTokenType.COMMAND) continue
+            if (tokenizer.nameEquals("input") || tokenizer.nameEquals("include")) {
+                val start = tokenizer.start
+                val argument = tokenizer.readGroupArgument() ?: continue
+                includes.add(Include(start, tokenizer.end, resolve(argument.trim())))
+            } else if (tokenizer.nameEquals("begin")) {
+                val environment = tokenizer.readGroupArgument() ?: continue
+                if (environment == "verbatim" || environment == "comment" || environment == "lstlisting") {
+                    tokenizer.skipVerbatimEnvironment(environment)
+                }
+            }
+        }
+        return includes
+    }
+
+    private fun resolve(name: String): Path {
+        val fileName = if (name.substringAfterLast('/').contains('.')) name else "$name.tex"
+        return baseDirectory?.resolve(fileName, normalize = true) ?: root.resolve(fileName, normalize = true)
+    }
+
+    private fun compose(path: Path, visiting: MutableSet<Path>): String {
+        composed[path]?.let { return it }
+
+        val entry = entries[path]
+            ?: return "<div class='latex-include-missing'>Missing file: ${path.name.escapeHtml()}</div>\n"
+        if (!visiting.add(path)) {
+            return "<div class='latex-include-cycle'>Circular include: ${path.name.escapeHtml()}</div>\n"
+        }
+
+        val html = StringBuilder()
+        entry.pieces.forEachIndexed { index, piece ->
+            html.append(piece)
+            if (index < entry.includes.size) html.append(compose(entry.includes[index].target, visiting))
+        }
+        visiting.remove(path)
+
+        return html.toString().also { composed[path] = it }
+    }
+
+    /**
+     * An include command spanning [start] until [end] in the including file.
+     */
+    private class Include(val start: Int, val end: Int, val target: Path)
+
+    private class Entry(
+        val path: Path,
+        val content: String,
+        val hash: Int,
+        var modTime: Long,
+        var size: Long,
+        val includes: List<Include>,
+        /** Rendered HTML of the content between includes; includes.size + 1 pieces. */
+        val pieces: List<String>,
+        val document: ParsedDocument
+    )
+}
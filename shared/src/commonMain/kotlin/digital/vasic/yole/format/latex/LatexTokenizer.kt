@@ -0,0 +1,351 @@
+/*#######################################################
+ *
+ * SPDX-FileCopyrightText: 2025 Milos Vasic
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * LaTeX Tokenizer for Kotlin Multiplatform
+ * Single-pass, allocation-free LaTeX lexer
+ *
+ *########################################################*/
+package digital.vasic.yole.format.latex
+
+/**
+ * Token types produced by [LatexTokenizer].
+ */
+enum class LatexTokenType {
+    /** Control word such as `\section` (name excludes the backslash). */
+    COMMAND,
+
+    /** Control symbol such as `\&`, `\\` or `\[` (name is the single character). */
+    CONTROL_SYMBOL,
+
+    /** Opening brace `{`. */
+    BEGIN_GROUP,
+
+    /** Closing brace `}`. */
+    END_GROUP,
+
+    /** Inline math shift `$`. */
+    MATH_SHIFT,
+
+    /** Display math shift `$$`. */
+    DISPLAY_MATH_SHIFT,
+
+    /** Alignment tab `&`. */
+    ALIGNMENT,
+
+    /** Macro parameter `#`. */
+    PARAMETER,
+
+    /** Comment from `%` to the end of the line (the newline is not included). */
+    COMMENT,
+
+    /** Inline verbatim such as `\verb|x|`. */
+    VERBATIM,
+
+    /** One or more blank lines (a paragraph break). */
+    PARAGRAPH,
+
+    /** Run of ordinary text. */
+    TEXT
+}
+
+/**
+ * Single-pass LaTeX lexer.
+ *
+ * The tokenizer walks the content once, left to right, and exposes the current token
+ * through [type], [start], [end], [line] and [column] instead of allocating token
+ * objects, so tokenizing is linear in the content length. Text is only materialized
+ * on request through [text], [name] or [readGroupArgument].
+ *
+ * @param content The LaTeX source to tokenize
+ *
+ * @example
+ * ```kotlin
+ * val tokenizer = LatexTokenizer("\\section{Intro} Text % comment")
+ * while (tokenizer.next()) {
+ *     if (tokenizer.type == LatexTokenType.COMMAND && tokenizer.nameEquals("section")) {
+ *         println(tokenizer.readGroupArgument()) // "Intro"
+ *     }
+ * }
+ * ```
+ */
+class LatexTokenizer(private val content: CharSequence) {
+
+    /** Type of the current token. */
+    var type: LatexTokenType = LatexTokenType.TEXT
+        private set
+
+    /** Offset of the first character of the current token. */
+    var start: Int = 0
+        private set
+
+    /** Offset just past the last character of the current token. */
+    var end: Int = 0
+        private set
+
+    /** 1-based line of the current token's first character. */
+    var line: Int = 1
+        private set
+
+    /** 1-based column of the current token's first character. */
+    var column: Int = 1
+        private set
+
+    private var pos = 0
+    private var currentLine = 1
+    private var lineStart = 0
+
+    /**
+     * Advance to the next token.
+     *
+     * @return false when the end of the content has been reached
+     */
+    fun next(): Boolean {
+        if (pos >= content.length) return false
+
+        start = pos
+        line = currentLine
+        column = pos - lineStart + 1
+
+        when (content[pos]) {
+            '\\' -> readControlSequence()
+            '{' -> single(LatexTokenType.BEGIN_GROUP)
+            '}' -> single(LatexTokenType.END_GROUP)
+            '&' -> single(LatexTokenType.ALIGNMENT)
+            '#' -> single(LatexTokenType.PARAMETER)
+            '$' -> {
+                if (pos + 1 < content.length && content[pos + 1] == '$') {
+                    pos += 2
+                    type = LatexTokenType.DISPLAY_MATH_SHIFT
+                } else {
+                    single(LatexTokenType.MATH_SHIFT)
+                }
+            }
+            '%' -> {
+                while (pos < content.length && content[pos] != '\n') pos++
+                type = LatexTokenType.COMMENT
+            }
+            else -> {
+                if (!readParagraphBreak()) readText()
+            }
+        }
+
+        end = pos
+        return true
+    }
+
+    /**
+     * Name of the current COMMAND or CONTROL_SYMBOL token, without the backslash.
+     */
+    fun name(): String = content.subSequence(start + 1, end).toString()
+
+    /**
+     * Compare the name of the current COMMAND token without allocating.
+     */
+    fun nameEquals(name: String): Boolean {
+        if (end - start - 1 != name.length) return false
+        for (i in name.indices) {
+            if (content[start + 1 + i] != name[i]) return false
+        }
+        return true
+    }
+
+    /**
+     * Character of the current CONTROL_SYMBOL token, or `'\u0000'` for a lone
+     * backslash at the end of the content.
+     */
+    fun symbol(): Char = if (end - start > 1) content[start + 1] else '\u0000'
+
+    /**
+     * Source text of the current token.
+     */
+    fun text(): String = content.subSequence(start, end).toString()
+
+    /**
+     * Read a `{...}` argument directly following the current token, skipping
+     * spaces in between. Nested braces are balanced and included verbatim.
+     *
+     * @return The argument text without the outer braces, or null (with the
+     *         position unchanged) if no complete group follows
+     */
+    fun readGroupArgument(): String? {
+        var i = pos
+        while (i < content.length && (content[i] == ' ' || content[i] == '\t')) i++
+        if (i >= content.length || content[i] != '{') return null
+
+        val argStart = i + 1
+        var depth = 0
+        while (i < content.length) {
+            when (content[i]) {
+                '\\' -> i++
+                '{' -> depth++
+                '}' -> {
+                    depth--
+                    if (depth == 0) {
+                        advanceTo(i + 1)
+                        return content.subSequence(argStart, i).toString()
+                    }
+                }
+                '\n' -> if (i + 1 < content.length && isBlankLineAhead(i + 1)) return null
+            }
+            i++
+        }
+        return null
+    }
+
+    /**
+     * Skip everything up to and including `\end{environment}`, as required for
+     * verbatim-like environments whose body must not be tokenized.
+     *
+     * @return true if the end marker was found, false if the content ended first
+     */
+    fun skipVerbatimEnvironment(environment: String): Boolean {
+        val marker = "\\end{$environment}"
+        val index = indexOf(marker, pos)
+        return if (index < 0) {
+            advanceTo(content.length)
+            false
+        } else {
+            advanceTo(index + marker.length)
+            true
+        }
+    }
+
+    private fun single(tokenType: LatexTokenType) {
+        pos++
+        type = tokenType
+    }
+
+    private fun readControlSequence() {
+        pos++ // backslash
+        if (pos >= content.length) {
+            type = LatexTokenType.CONTROL_SYMBOL
+            return
+        }
+        if (isLetter(content[pos])) {
+            while (pos < content.length && isLetter(content[pos])) pos++
+            type = LatexTokenType.COMMAND
+            end = pos
+            if (nameEquals("verb")) readInlineVerbatim()
+        } else {
+            if (content[pos] == '\n') newLine(pos)
+            pos++
+            type = LatexTokenType.CONTROL_SYMBOL
+        }
+    }
+
+    /**
+     * `\verb` (or `\verb*`) takes the next character as delimiter and ends at its
+     * next occurrence on the same line.
+     */
+    private fun readInlineVerbatim() {
+        var i = pos
+        if (i < content.length && content[i] == '*') i++
+        if (i >= content.length || content[i] == '\n' || isLetter(content[i])) return
+        val delimiter = content[i]
+        i++
+        while (i < content.length && content[i] != delimiter && content[i] != '\n') i++
+        if (i < content.length && content[i] == delimiter) {
+            pos = i + 1
+            type = LatexTokenType.VERBATIM
+        }
+    }
+
+    /**
+     * At a newline that starts one or more blank lines, consume them as a single
+     * PARAGRAPH token.
+     */
+    private fun readParagraphBreak(): Boolean {
+        if (content[pos] != '\n' || !isBlankLineAhead(pos + 1)) return false
+
+        var lastNewline = pos
+        var i = pos + 1
+        while (i < content.length) {
+            val c = content[i]
+            if (c == '\n') {
+                newLine(lastNewline)
+                lastNewline = i
+            } else if (c != ' ' && c != '\t' && c != '\r') {
+                break
+            }
+            i++
+        }
+        newLine(lastNewline)
+        pos = i
+        type = LatexTokenType.PARAGRAPH
+        return true
+    }
+
+    private fun readText() {
+        while (pos < content.length) {
+            when (content[pos]) {
+                '\\', '{', '}', '&', '#', '$', '%' -> break
+                '\n' -> {
+                    if (pos > start && isBlankLineAhead(pos + 1)) break
+                    newLine(pos)
+                }
+            }
+            pos++
+        }
+        type = LatexTokenType.TEXT
+    }
+
+    /**
+     * Check whether the line starting at [from] contains only whitespace and is
+     * followed by another newline.
+     */
+    private fun isBlankLineAhead(from: Int): Boolean {
+        var i = from
+        while (i < content.length) {
+            when (content[i]) {
+                '\n' -> return true
+                ' ', '\t', '\r' -> i++
+                else -> return false
+            }
+        }
+        return false
+    }
+
+    private fun advanceTo(target: Int) {
+        while (pos < target) {
+            if (content[pos] == '\n') newLine(pos)
+            pos++
+        }
+        end = pos
+    }
+
+    private fun newLine(newlineOffset: Int) {
+        currentLine++
+        lineStart = newlineOffset + 1
+    }
+
+    private fun indexOf(marker: String, from: Int): Int {
+        return if (content is String) {
+            content.indexOf(marker, from)
+        } else {
+            content.toString().indexOf(marker, from)
+        }
+    }
+
+    companion object {
+        private fun isLetter(c: Char): Boolean = c in 'a'..'z' || c in 'A'..'Z' || c == '@'
+
+        /**
+         * Find the first `\command{argument}` in [text] and return the argument.
+         *
+         * @param text The text to search
+         * @param command Command name without backslash
+         * @return The balanced brace argument, or null if the command is not present
+         */
+        fun commandArgument(text: CharSequence, command: String): String? {
+            val tokenizer = LatexTokenizer(text)
+            while (tokenizer.next()) {
+                if (tokenizer.type == LatexTokenType.COMMAND && tokenizer.nameEquals(command)) {
+                    tokenizer.readGroupArgument()?.let { return it }
+                }
+            }
+            return null
+        }
+    }
+}
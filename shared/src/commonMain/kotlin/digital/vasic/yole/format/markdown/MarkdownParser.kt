@@ -68,6 +68,19 @@ class MarkdownParser : TextParser {
         return document.parsedContent
     }
 
+    /**
+     * Convert Markdown content to an HTML fragment without the embedded stylesheet.
+     *
+     * Useful when Markdown is embedded in another document (e.g. notebook cells) that
+     * includes [StyleSheets.MARKDOWN_STYLES] once for all fragments.
+     *
+     * @param content The Markdown content to convert
+     * @return HTML fragment wrapped in `<div class='markdown'>`
+     */
+    fun toHtmlFragment(content: String): String {
+        return convertToHtml(content, includeStyles = false)
+    }
+
     /**
      * Convert Markdown content to HTML.
      * 
@@ -83,14 +96,15 @@ class MarkdownParser : TextParser {
      * - Horizontal rules
      * 
      * @param content The Markdown content to convert
+     * @param includeStyles Whether to embed the Markdown stylesheet
      * @return HTML representation with embedded CSS styling
      */
-    private fun convertToHtml(content: String): String {
+    private fun convertToHtml(content: String, includeStyles: Boolean = true): String {
         val lines = content.lines()
         val html = StringBuilder()
 
         html.append("<div class='markdown'>")
-        html.append(StyleSheets.MARKDOWN_STYLES)
+        if (includeStyles) html.append(StyleSheets.MARKDOWN_STYLES)
 
         var inCodeBlock = false
         var inBlockQuote = false
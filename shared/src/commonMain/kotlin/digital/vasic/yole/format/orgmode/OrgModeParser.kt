@@ -181,36 +181,7 @@ class OrgModeParser : TextParser {
         return htmlLines.joinToString("\n")
     }
     
-    private fun formatInlineOrg(text: String): String {
-        return text
-            .replace("\\*\\*([^*]+)\\*\\*".toRegex()) { match ->
-                "<span class=\"org-bold\">${match.groupValues[1]}</span>"
-            }
-            .replace("\\/([^/]+)\\/".toRegex()) { match ->
-                "<span class=\"org-italic\">${match.groupValues[1]}</span>"
-            }
-            .replace("_([^_]+)_".toRegex()) { match ->
-                "<span class=\"org-underline\">${match.groupValues[1]}</span>"
-            }
-            .replace("\\+([^+]+)\\+".toRegex()) { match ->
-                "<span class=\"org-strikethrough\">${match.groupValues[1]}</span>"
-            }
-            .replace("=\"([^=\"]+)=\"".toRegex()) { match ->
-                "<span class=\"org-verbatim\">${match.groupValues[1]}</span>"
-            }
-            .replace("~([^~]+)~".toRegex()) { match ->
-                "<span class=\"org-code\">${match.groupValues[1]}</span>"
-            }
-            .replace("\\[\\[([^]]+)\\]\\[([^]]+)\\]\\]".toRegex()) { match ->
-                val url = match.groupValues[1]
-                val text = match.groupValues[2]
-                "<a href=\"$url\" class=\"org-link\">$text</a>"
-            }
-            .replace("\\[\\[([^]]+)\\]\\]".toRegex()) { match ->
-                val url = match.groupValues[1]
-                "<a href=\"$url\" class=\"org-link\">$url</a>"
-            }
-    }
+    private fun formatInlineOrg(text: String): String = INLINE.format(text)
     
     private fun escapeHtml(text: String): String {
         return text
@@ -220,6 +191,32 @@ class OrgModeParser : TextParser {
             .replace("\"", "&quot;")
             .replace("'", "&#39;")
     }
+
+    companion object {
+        /**
+         * Inline markup table; Org text is not escaped, as before.
+         */
+        private val INLINE = InlineFormatter(
+            listOf(
+                InlineRule("**", "**", excluded = "*") { "<span class=\"org-bold\">$it</span>" },
+                InlineRule("/", "/", excluded = "/") { "<span class=\"org-italic\">$it</span>" },
+                InlineRule("_", "_", excluded = "_") { "<span class=\"org-underline\">$it</span>" },
+                InlineRule("+", "+", excluded = "+") { "<span class=\"org-strikethrough\">$it</span>" },
+                InlineRule("=\"", "=\"", excluded = "=\"") { "<span class=\"org-verbatim\">$it</span>" },
+                InlineRule("~", "~", excluded = "~") { "<span class=\"org-code\">$it</span>" },
+                InlineRule("[[", "]]", InlineContent.RAW, atomic = true) { link ->
+                    val separator = link.indexOf("][")
+                    val url = if (separator >= 0) link.substring(0, separator) else link
+                    val label = if (separator >= 0) link.substring(separator + 2) else null
+                    when {
+                        url.isEmpty() || ']' in url || label == "" || (label != null && ']' in label) -> null
+                        else -> "<a href=\"$url\" class=\"org-link\">${label?.let { format(it) } ?: url}</a>"
+                    }
+                }
+            ),
+            escape = false
+        )
+    }
 }
 
 /**
@@ -0,0 +1,609 @@
+/*#######################################################
+ *
+ * SPDX-FileCopyrightText: 2025 Milos Vasic
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Code Lexer - Platform Agnostic
+ * Line-at-a-time lexers for syntax highlighting source code
+ *
+ *########################################################*/
+package digital.vasic.yole.format.plaintext
+
+/**
+ * Token kinds reported by a [CodeLexer].
+ */
+object CodeToken {
+    const val KEYWORD: Byte = 1
+    const val LITERAL: Byte = 2
+    const val STRING: Byte = 3
+    const val NUMBER: Byte = 4
+    const val COMMENT: Byte = 5
+    const val ANNOTATION: Byte = 6
+    const val VARIABLE: Byte = 7
+    const val KEY: Byte = 8
+    const val TAG: Byte = 9
+    const val ATTRIBUTE: Byte = 10
+    const val INSERTED: Byte = 11
+    const val DELETED: Byte = 12
+    const val META: Byte = 13
+
+    private val NAMES = arrayOf(
+        "", "keyword", "literal", "string", "number", "comment", "annotation",
+        "variable", "key", "tag", "attribute", "inserted", "deleted", "meta"
+    )
+
+    /**
+     * CSS-friendly name of a token kind, e.g. `keyword`.
+     */
+    fun name(kind: Byte): String = NAMES[kind.toInt()]
+}
+
+/**
+ * Receives the highlighted tokens of a line, in order and without overlap.
+ * Text between tokens is plain.
+ */
+fun interface CodeTokenSink {
+    fun token(start: Int, end: Int, kind: Byte)
+}
+
+/**
+ * Tokenizes source code one line at a time.
+ *
+ * Constructs that span lines, such as block comments and multi-line strings,
+ * are carried in an integer state: the state at the end of a line is the
+ * start state of the next one, and 0 is the state at the start of a file.
+ * Because a line's tokens depend only on its text and start state, a
+ * [SyntaxHighlighter] can cache end states and re-tokenize only from an
+ * edited line until the state converges.
+ */
+interface CodeLexer {
+    /**
+     * Report the tokens of [line] to [sink], starting in [state].
+     *
+     * @return The state at the end of the line
+     */
+    fun tokenize(line: String, state: Int, sink: CodeTokenSink): Int
+}
+
+/**
+ * Lexical description of a programming language for [GenericCodeLexer].
+ *
+ * @property name Language name as used in `language-` CSS classes
+ * @property keywords Reserved words
+ * @property literals Constant words such as `true` and `null`
+ * @property lineComments Prefixes starting a comment that runs to the end of the line
+ * @property blockComment Delimiters of a comment that may span lines
+ * @property quotes Characters delimiting single-line strings
+ * @property multilineQuotes Delimiters of strings that may span lines, e.g. `"""`
+ * @property identifierChars Characters besides letters, digits and `_` allowed in identifiers
+ * @property annotationPrefixes Characters starting an annotation or directive, e.g. `@Override`
+ * @property variablePrefixes Characters starting a variable, e.g. `$name`
+ * @property keys Whether a word or string followed by `:` is a key
+ * @property ignoreCase Whether keywords are matched case-insensitively
+ */
+class CodeLanguage(
+    val name: String,
+    val keywords: Set<String> = emptySet(),
+    val literals: Set<String> = emptySet(),
+    val lineComments: List<String> = emptyList(),
+    val blockComment: Pair<String, String>? = null,
+    val quotes: String = "\"'",
+    val multilineQuotes: List<String> = emptyList(),
+    val identifierChars: String = "",
+    val annotationPrefixes: String = "",
+    val variablePrefixes: String = "",
+    val keys: Boolean = false,
+    val ignoreCase: Boolean = false
+) {
+    internal val maxWordLength = (keywords + literals).maxOfOrNull { it.length } ?: 0
+}
+
+/**
+ * Table-driven lexer for C-like and scripting languages: comments, strings,
+ * numbers, keywords, literals, annotations, variables and keys.
+ *
+ * States: 0 is code, 1 is inside the block comment, and `2 + i` is inside
+ * the multi-line string delimited by `multilineQuotes[i]`. Block comments
+ * do not nest.
+ */
+class GenericCodeLexer(val language: CodeLanguage) : CodeLexer {
+
+    override fun tokenize(line: String, state: Int, sink: CodeTokenSink): Int {
+        val length = line.length
+        var i = 0
+        val block = language.blockComment
+        val multilineQuote = if (state >= IN_STRING) language.multilineQuotes.getOrNull(state - IN_STRING) else null
+        if (state == IN_BLOCK_COMMENT && block != null) {
+            val at = line.indexOf(block.second)
+            if (at < 0) {
+                if (length > 0) sink.token(0, length, CodeToken.COMMENT)
+                return IN_BLOCK_COMMENT
+            }
+            i = at + block.second.length
+            sink.token(0, i, CodeToken.COMMENT)
+        } else if (multilineQuote != null) {
+            val at = closingQuote(line, 0, multilineQuote)
+            if (at < 0) {
+                if (length > 0) sink.token(0, length, CodeToken.STRING)
+                return state
+            }
+            i = at + multilineQuote.length
+            sink.token(0, i, CodeToken.STRING)
+        }
+
+        while (i < length) {
+            val c = line[i]
+            if (c == ' ' || c == '\t') {
+                i++
+                continue
+            }
+
+            if (block != null && line.startsWith(block.first, i)) {
+                val at = line.indexOf(block.second, i + block.first.length)
+                if (at < 0) {
+                    sink.token(i, length, CodeToken.COMMENT)
+                    return IN_BLOCK_COMMENT
+                }
+                sink.token(i, at + block.second.length, CodeToken.COMMENT)
+                i = at + block.second.length
+                continue
+            }
+            if (language.lineComments.any { line.startsWith(it, i) }) {
+                sink.token(i, length, CodeToken.COMMENT)
+                return 0
+            }
+
+            val multiline = language.multilineQuotes.indexOfFirst { line.startsWith(it, i) }
+            if (multiline >= 0) {
+                val quote = language.multilineQuotes[multiline]
+                val at = closingQuote(line, i + quote.length, quote)
+                if (at < 0) {
+                    sink.token(i, length, CodeToken.STRING)
+                    return IN_STRING + multiline
+                }
+                sink.token(i, at + quote.length, CodeToken.STRING)
+                i = at + quote.length
+                continue
+            }
+
+            i = when {
+                c in language.quotes -> string(line, i, sink)
+                c.isDigit() || (c == '.' && i + 1 < length && line[i + 1].isDigit() && !isIdentifierPart(line, i - 1)) ->
+                    number(line, i, sink)
+                isIdentifierStart(c) -> word(line, i, sink)
+                c in language.annotationPrefixes && i + 1 < length && isIdentifierStart(line[i + 1]) -> {
+                    val end = identifierEnd(line, i + 1)
+                    sink.token(i, end, CodeToken.ANNOTATION)
+                    end
+                }
+                c in language.variablePrefixes && i + 1 < length && (isIdentifierStart(line[i + 1]) || line[i + 1] == '{') -> {
+                    val end = if (line[i + 1] == '{') (line.indexOf('}', i + 2).takeIf { it >= 0 }?.plus(1) ?: length)
+                    else identifierEnd(line, i + 1)
+                    sink.token(i, end, CodeToken.VARIABLE)
+                    end
+                }
+                else -> i + 1
+            }
+        }
+        return 0
+    }
+
+    private fun string(line: String, start: Int, sink: CodeTokenSink): Int {
+        val quote = line[start]
+        var i = start + 1
+        while (i < line.length && line[i] != quote) {
+            if (line[i] == '\\') i++
+            i++
+        }
+        val end = minOf(i + 1, line.length)
+        sink.token(start, end, if (language.keys && followedByColon(line, end)) CodeToken.KEY else CodeToken.STRING)
+        return end
+    }
+
+    private fun number(line: String, start: Int, sink: CodeTokenSink): Int {
+        var i = start + 1
+        while (i < line.length) {
+            val c = line[i]
+            if (c.isLetterOrDigit() || c == '_') {
+                i++
+            } else if (c == '.' && i + 1 < line.length && line[i + 1].isDigit()) {
+                i += 2
+            } else {
+                break
+            }
+        }
+        sink.token(start, i, CodeToken.NUMBER)
+        return i
+    }
+
+    private fun word(line: String, start: Int, sink: CodeTokenSink): Int {
+        val end = identifierEnd(line, start)
+        if (end - start <= language.maxWordLength) {
+            val word = line.substring(start, end).let { if (language.ignoreCase) it.lowercase() else it }
+            when (word) {
+                in language.keywords -> {
+                    sink.token(start, end, CodeToken.KEYWORD)
+                    return end
+                }
+                in language.literals -> {
+                    sink.token(start, end, CodeToken.LITERAL)
+                    return end
+                }
+            }
+        }
+        if (language.keys && followedByColon(line, end)) sink.token(start, end, CodeToken.KEY)
+        return end
+    }
+
+    private fun identifierEnd(line: String, start: Int): Int {
+        var i = start
+        while (i < line.length && (line[i].isLetterOrDigit() || line[i] == '_' || line[i] in language.identifierChars)) i++
+        return i
+    }
+
+    private fun isIdentifierStart(c: Char): Boolean = c.isLetter() || c == '_' || c in language.identifierChars
+
+    private fun isIdentifierPart(line: String, at: Int): Boolean =
+        at >= 0 && (line[at].isLetterOrDigit() || line[at] == '_')
+
+    /**
+     * A `:` after [end] and optional blanks, not part of `::`.
+     */
+    private fun followedByColon(line: String, end: Int): Boolean {
+        var i = end
+        while (i < line.length && (line[i] == ' ' || line[i] == '\t')) i++
+        return i < line.length && line[i] == ':' && (i + 1 >= line.length || line[i + 1] != ':')
+    }
+
+    /**
+     * Start of the first unescaped [quote] at or after [from], or -1.
+     */
+    private fun closingQuote(line: String, from: Int, quote: String): Int {
+        var i = from
+        while (i < line.length) {
+            if (line[i] == '\\') {
+                i += 2
+                continue
+            }
+            if (line.startsWith(quote, i)) return i
+            i++
+        }
+        return -1
+    }
+
+    private companion object {
+        const val IN_BLOCK_COMMENT = 1
+        const val IN_STRING = 2
+    }
+}
+
+/**
+ * Lexer for XML and HTML: tags, attributes, attribute values, entities and
+ * comments. States: 0 is text, 1 is inside a comment and 2 is inside a tag
+ * whose attributes continue on the next line.
+ */
+object MarkupLexer : CodeLexer {
+    private const val IN_COMMENT = 1
+    private const val IN_TAG = 2
+
+    override fun tokenize(line: String, state: Int, sink: CodeTokenSink): Int {
+        var i = 0
+        var current = state
+        while (i < line.length) {
+            when (current) {
+                IN_COMMENT -> {
+                    val at = line.indexOf("-->", i)
+                    val end = if (at < 0) line.length else at + 3
+                    sink.token(i, end, CodeToken.COMMENT)
+                    i = end
+                    if (at >= 0) current = 0
+                }
+                IN_TAG -> {
+                    val c = line[i]
+                    when {
+                        c == '>' -> {
+                            sink.token(i, i + 1, CodeToken.TAG)
+                            i++
+                            current = 0
+                        }
+                        (c == '/' || c == '?') && i + 1 < line.length && line[i + 1] == '>' -> {
+                            sink.token(i, i + 2, CodeToken.TAG)
+                            i += 2
+                            current = 0
+                        }
+                        c == '"' || c == '\'' -> {
+                            val close = line.indexOf(c, i + 1)
+                            val end = if (close < 0) line.length else close + 1
+                            sink.token(i, end, CodeToken.STRING)
+                            i = end
+                        }
+                        c.isWhitespace() || c == '=' -> i++
+                        else -> {
+                            var end = i
+                            while (end < line.length && !line[end].isWhitespace() && line[end] !in "=>/\"'") end++
+                            if (end == i) end++
+                            sink.token(i, end, CodeToken.ATTRIBUTE)
+                            i = end
+                        }
+                    }
+                }
+                else -> {
+                    val c = line[i]
+                    when {
+                        line.startsWith("<!--", i) -> {
+                            val at = line.indexOf("-->", i + 4)
+                            val end = if (at < 0) line.length else at + 3
+                            sink.token(i, end, CodeToken.COMMENT)
+                            i = end
+                            if (at < 0) current = IN_COMMENT
+                        }
+                        c == '<' && i + 1 < line.length && (line[i + 1].isLetter() || line[i + 1] in "/!?") -> {
+                            var end = i + 1
+                            if (line[end] in "/!?") end++
+                            while (end < line.length && (line[end].isLetterOrDigit() || line[end] in ":-_.")) end++
+                            sink.token(i, end, CodeToken.TAG)
+                            i = end
+                            current = IN_TAG
+                        }
+                        c == '&' -> {
+                            val semicolon = line.indexOf(';', i + 1)
+                            if (semicolon in i + 2..i + 10) {
+                                sink.token(i, semicolon + 1, CodeToken.LITERAL)
+                                i = semicolon + 1
+                            } else {
+                                i++
+                            }
+                        }
+                        else -> i++
+                    }
+                }
+            }
+        }
+        return current
+    }
+}
+
+/**
+ * Lexer for unified diffs: file headers and hunk headers are meta lines,
+ * `+` lines are inserted and `-` lines deleted.
+ */
+object DiffLexer : CodeLexer {
+    override fun tokenize(line: String, state: Int, sink: CodeTokenSink): Int {
+        if (line.isEmpty()) return 0
+        val kind = when {
+            line.startsWith("+++") || line.startsWith("---") || line.startsWith("@@") ||
+                line.startsWith("diff ") || line.startsWith("index ") -> CodeToken.META
+            line[0] == '+' -> CodeToken.INSERTED
+            line[0] == '-' -> CodeToken.DELETED
+            else -> return 0
+        }
+        sink.token(0, line.length, kind)
+        return 0
+    }
+}
+
+/**
+ * Lexers for the languages [PlaintextParser] recognizes, by `language-` name.
+ *
+ * @example
+ * ```kotlin
+ * val lexer = CodeLanguages.lexer("kotlin")
+ * lexer.tokenize("val x = 1 // one", 0) { start, end, kind -> println("$start..$end ${CodeToken.name(kind)}") }
+ * ```
+ */
+object CodeLanguages {
+    private val C_KEYWORDS = setOf(
+        "auto", "break", "case", "char", "const", "continue", "default", "do", "double", "else", "enum",
+        "extern", "float", "for", "goto", "if", "inline", "int", "long", "register", "return", "short",
+        "signed", "sizeof", "static", "struct", "switch", "typedef", "union", "unsigned", "void", "volatile", "while"
+    )
+
+    private val CPP_KEYWORDS = C_KEYWORDS + setOf(
+        "bool", "catch", "class", "constexpr", "delete", "explicit", "friend", "mutable", "namespace", "new",
+        "noexcept", "operator", "override", "private", "protected", "public", "template", "this", "throw",
+        "try", "typename", "using", "virtual"
+    )
+
+    private val JAVA_KEYWORDS = setOf(
+        "abstract", "assert", "boolean", "break", "byte", "case", "catch", "char", "class", "const", "continue",
+        "default", "do", "double", "else", "enum", "extends", "final", "finally", "float", "for", "if",
+        "implements", "import", "instanceof", "int", "interface", "long", "native", "new", "package", "private",
+        "protected", "public", "record", "return", "short", "static", "super", "switch", "synchronized", "this",
+        "throw", "throws", "try", "var", "void", "volatile", "while", "yield"
+    )
+
+    private val JS_KEYWORDS = setOf(
+        "async", "await", "break", "case", "catch", "class", "const", "continue", "debugger", "default",
+        "delete", "do", "else", "export", "extends", "finally", "for", "from", "function", "if", "import", "in",
+        "instanceof", "let", "new", "of", "return", "static", "super", "switch", "this", "throw", "try",
+        "typeof", "var", "void", "while", "with", "yield"
+    )
+
+    private val C_LIKE_LITERALS = setOf("true", "false", "null")
+    private val C_COMMENTS = listOf("//")
+    private val C_BLOCK = "/*" to "*/"
+
+    private val languages: Map<String, CodeLexer> = listOf(
+        CodeLanguage(
+            "python",
+            keywords = setOf(
+                "and", "as", "assert", "async", "await", "break", "class", "continue", "def", "del", "elif", "else",
+                "except", "finally", "for", "from", "global", "if", "import", "in", "is", "lambda", "match",
+                "nonlocal", "not", "or", "pass", "raise", "return", "try", "while", "with", "yield"
+            ),
+            literals = setOf("True", "False", "None"),
+            lineComments = listOf("#"),
+            multilineQuotes = listOf("\"\"\"", "'''"),
+            annotationPrefixes = "@"
+        ),
+        CodeLanguage(
+            "javascript", keywords = JS_KEYWORDS, literals = C_LIKE_LITERALS + "undefined",
+            lineComments = C_COMMENTS, blockComment = C_BLOCK, multilineQuotes = listOf("`"), identifierChars = "$"
+        ),
+        CodeLanguage(
+            "typescript",
+            keywords = JS_KEYWORDS + setOf(
+                "abstract", "any", "as", "boolean", "declare", "enum", "implements", "interface", "keyof", "module",
+                "namespace", "never", "number", "private", "protected", "public", "readonly", "string", "type", "unknown"
+            ),
+            literals = C_LIKE_LITERALS + "undefined",
+            lineComments = C_COMMENTS, blockComment = C_BLOCK, multilineQuotes = listOf("`"), identifierChars = "$",
+            annotationPrefixes = "@"
+        ),
+        CodeLanguage(
+            "java", keywords = JAVA_KEYWORDS, literals = C_LIKE_LITERALS,
+            lineComments = C_COMMENTS, blockComment = C_BLOCK, multilineQuotes = listOf("\"\"\""), annotationPrefixes = "@"
+        ),
+        CodeLanguage(
+            "kotlin",
+            keywords = setOf(
+                "as", "break", "by", "catch", "class", "companion", "const", "constructor", "continue", "data", "do",
+                "else", "enum", "expect", "actual", "for", "fun", "if", "import", "in", "init", "inline", "interface",
+                "internal", "is", "lateinit", "object", "open", "operator", "override", "package", "private",
+                "protected", "public", "return", "sealed", "super", "suspend", "this", "throw", "try", "typealias",
+                "val", "value", "var", "when", "where", "while"
+            ),
+            literals = C_LIKE_LITERALS,
+            lineComments = C_COMMENTS, blockComment = C_BLOCK, multilineQuotes = listOf("\"\"\""), annotationPrefixes = "@"
+        ),
+        CodeLanguage(
+            "c", keywords = C_KEYWORDS, literals = setOf("NULL", "true", "false"),
+            lineComments = C_COMMENTS, blockComment = C_BLOCK, annotationPrefixes = "#"
+        ),
+        CodeLanguage(
+            "cpp", keywords = CPP_KEYWORDS, literals = setOf("nullptr", "NULL", "true", "false"),
+            lineComments = C_COMMENTS, blockComment = C_BLOCK, annotationPrefixes = "#"
+        ),
+        CodeLanguage(
+            "csharp",
+            keywords = JAVA_KEYWORDS + setOf(
+                "as", "async", "await", "base", "decimal", "delegate", "event", "foreach", "get", "in", "internal",
+                "is", "namespace", "object", "out", "override", "params", "readonly", "ref", "sealed", "set",
+                "string", "struct", "using", "virtual"
+            ),
+            literals = C_LIKE_LITERALS,
+            lineComments = C_COMMENTS, blockComment = C_BLOCK, annotationPrefixes = "#"
+        ),
+        CodeLanguage(
+            "ruby",
+            keywords = setOf(
+                "alias", "and", "begin", "break", "case", "class", "def", "do", "else", "elsif", "end", "ensure",
+                "for", "if", "in", "module", "next", "not", "or", "redo", "rescue", "retry", "return", "self",
+                "super", "then", "unless", "until", "when", "while", "yield", "require", "attr_accessor"
+            ),
+            literals = setOf("true", "false", "nil"),
+            lineComments = listOf("#"), variablePrefixes = "@$"
+        ),
+        CodeLanguage(
+            "php",
+            keywords = setOf(
+                "abstract", "array", "as", "break", "case", "catch", "class", "const", "continue", "default", "do",
+                "echo", "else", "elseif", "extends", "final", "finally", "fn", "for", "foreach", "function", "global",
+                "if", "implements", "interface", "namespace", "new", "private", "protected", "public", "require",
+                "return", "static", "switch", "throw", "trait", "try", "use", "while"
+            ),
+            literals = setOf("true", "false", "null"),
+            lineComments = listOf("//", "#"), blockComment = C_BLOCK, variablePrefixes = "$", ignoreCase = true
+        ),
+        CodeLanguage(
+            "swift",
+            keywords = setOf(
+                "as", "associatedtype", "break", "case", "catch", "class", "continue", "default", "defer", "do",
+                "else", "enum", "extension", "fileprivate", "for", "func", "guard", "if", "import", "in", "init",
+                "inout", "internal", "is", "let", "private", "protocol", "public", "repeat", "return", "self",
+                "static", "struct", "subscript", "super", "switch", "throw", "throws", "try", "var", "where", "while"
+            ),
+            literals = setOf("true", "false", "nil"),
+            lineComments = C_COMMENTS, blockComment = C_BLOCK, multilineQuotes = listOf("\"\"\""), quotes = "\"",
+            annotationPrefixes = "@"
+        ),
+        CodeLanguage(
+            "rust",
+            keywords = setOf(
+                "as", "async", "await", "break", "const", "continue", "crate", "dyn", "else", "enum", "extern", "fn",
+                "for", "if", "impl", "in", "let", "loop", "match", "mod", "move", "mut", "pub", "ref", "return",
+                "self", "Self", "static", "struct", "super", "trait", "type", "unsafe", "use", "where", "while"
+            ),
+            literals = setOf("true", "false", "None", "Some", "Ok", "Err"),
+            lineComments = C_COMMENTS, blockComment = C_BLOCK, quotes = "\"", annotationPrefixes = "#"
+        ),
+        CodeLanguage(
+            "go",
+            keywords = setOf(
+                "break", "case", "chan", "const", "continue", "default", "defer", "else", "fallthrough", "for", "func",
+                "go", "goto", "if", "import", "interface", "map", "package", "range", "return", "select", "struct",
+                "switch", "type", "var"
+            ),
+            literals = setOf("true", "false", "nil", "iota"),
+            lineComments = C_COMMENTS, blockComment = C_BLOCK, multilineQuotes = listOf("`")
+        ),
+        CodeLanguage(
+            "bash",
+            keywords = setOf(
+                "case", "do", "done", "elif", "else", "esac", "export", "fi", "for", "function", "if", "in", "local",
+                "readonly", "return", "select", "then", "until", "while"
+            ),
+            lineComments = listOf("#"), quotes = "\"'`", variablePrefixes = "$"
+        ),
+        CodeLanguage(
+            "sql",
+            keywords = setOf(
+                "add", "all", "alter", "and", "as", "asc", "between", "by", "case", "create", "delete", "desc",
+                "distinct", "drop", "else", "end", "exists", "from", "group", "having", "in", "index", "inner",
+                "insert", "into", "is", "join", "key", "left", "like", "limit", "not", "on", "or", "order", "outer",
+                "primary", "right", "select", "set", "table", "then", "union", "update", "values", "view", "when", "where"
+            ),
+            literals = setOf("null", "true", "false"),
+            lineComments = listOf("--"), blockComment = C_BLOCK, ignoreCase = true
+        ),
+        CodeLanguage(
+            "r",
+            keywords = setOf("break", "else", "for", "function", "if", "in", "next", "repeat", "return", "while", "library"),
+            literals = setOf("TRUE", "FALSE", "NULL", "NA", "Inf", "NaN"),
+            lineComments = listOf("#"), identifierChars = "."
+        ),
+        CodeLanguage(
+            "lua",
+            keywords = setOf(
+                "and", "break", "do", "else", "elseif", "end", "for", "function", "goto", "if", "in", "local", "not",
+                "or", "repeat", "return", "then", "until", "while"
+            ),
+            literals = setOf("true", "false", "nil"),
+            lineComments = listOf("--"), blockComment = "--[[" to "]]", multilineQuotes = listOf("[[")
+        ),
+        CodeLanguage(
+            "perl",
+            keywords = setOf(
+                "else", "elsif", "for", "foreach", "if", "last", "local", "my", "next", "our", "package", "print",
+                "return", "sub", "unless", "until", "use", "while"
+            ),
+            lineComments = listOf("#"), variablePrefixes = "$@%"
+        ),
+        CodeLanguage("css", blockComment = C_BLOCK, identifierChars = "-", annotationPrefixes = "@", keys = true),
+        CodeLanguage("json", literals = setOf("true", "false", "null"), quotes = "\"", keys = true),
+        CodeLanguage(
+            "yaml", literals = setOf("true", "false", "null", "yes", "no", "on", "off"),
+            lineComments = listOf("#"), identifierChars = "-", keys = true
+        )
+    ).associate { it.name to GenericCodeLexer(it) } + mapOf(
+        "xml" to MarkupLexer,
+        "html" to MarkupLexer,
+        "diff" to DiffLexer
+    )
+
+    /**
+     * Names of the languages that have a lexer.
+     */
+    val names: Set<String>
+        get() = languages.keys
+
+    /**
+     * Lexer for a `language-` name; languages without a lexer get one that
+     * reports no tokens.
+     */
+    fun lexer(language: String): CodeLexer = languages[language] ?: PlainLexer
+
+    private object PlainLexer : CodeLexer {
+        override fun tokenize(line: String, state: Int, sink: CodeTokenSink): Int = 0
+    }
+}
@@ -0,0 +1,476 @@
+/*#######################################################
+ *
+ * SPDX-FileCopyrightText: 2025 Milos Vasic
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Streaming JSON Formatter - Platform Agnostic
+ * Validates and pretty-prints JSON from a Source to a Sink
+ *
+ *########################################################*/
+package digital.vasic.yole.format.plaintext
+
+import okio.Buffer
+import okio.BufferedSink
+import okio.BufferedSource
+import okio.Sink
+import okio.Source
+import okio.buffer
+
+/**
+ * Thrown when input is not well-formed JSON.
+ *
+ * @property offset Byte offset into the input where the error was detected
+ */
+class JsonFormatException(
+    message: String,
+    val offset: Long
+) : IllegalArgumentException("$message at offset $offset")
+
+/**
+ * Streaming JSON pretty-printer and validator.
+ *
+ * The input is read in fixed-size chunks and written out as it is validated,
+ * so memory use depends only on the nesting depth, not on the input size. A
+ * dump of several hundred megabytes is reformatted with the same few
+ * kilobytes as a small file. Strings and numbers are copied byte for byte;
+ * indentation comes from a cached table instead of being built per line.
+ *
+ * The formatter can also write an outline of huge documents: arrays are cut
+ * after [maxArrayItems] items with a `… N more items` line, and containers
+ * nested deeper than [collapseDepth] are shown as `[… N items]` or
+ * `{… N keys}`. Collapsed content is still validated. Outlines are for
+ * display and are not valid JSON.
+ *
+ * @param indent Spaces per nesting level
+ * @param maxArrayItems Items shown per array before the rest is collapsed
+ * @param collapseDepth Deepest nesting level shown in full
+ *
+ * @example
+ * ```kotlin
+ * val formatter = JsonFormatter()
+ * FileSystem.SYSTEM.source(dump).use { source ->
+ *     FileSystem.SYSTEM.sink(pretty).use { sink -> formatter.format(source, sink) }
+ * }
+ *
+ * JsonFormatter().validate(Buffer().writeUtf8("""{"a": [1, 2,]}"""))?.offset   // 12
+ * JsonFormatter.outline().format(hugeArrayJson)                                // first 20 items
+ * ```
+ */
+class JsonFormatter(
+    val indent: Int = 2,
+    val maxArrayItems: Int = Int.MAX_VALUE,
+    val collapseDepth: Int = Int.MAX_VALUE
+) {
+    init {
+        require(indent >= 0) { "indent must not be negative" }
+        require(maxArrayItems > 0) { "maxArrayItems must be positive" }
+    }
+
+    // A newline followed by the spaces of CACHED_LEVELS levels
+    private val indentTable = ByteArray(1 + indent * CACHED_LEVELS) { if (it == 0) NEWLINE else SPACE }
+
+    /**
+     * Reformat the JSON in [source] into [sink]. Output written before an
+     * error is flushed to [sink]; neither stream is closed.
+     *
+     * @throws JsonFormatException if the input is not well-formed JSON
+     */
+    fun format(source: Source, sink: Sink) {
+        val out = sink as? BufferedSink ?: sink.buffer()
+        try {
+            Run(source.buffered(), out).run()
+        } finally {
+            out.flush()
+        }
+    }
+
+    /**
+     * Reformat a JSON string.
+     *
+     * @throws JsonFormatException if [json] is not well-formed JSON; the
+     *         offset is in UTF-8 bytes
+     */
+    fun format(json: String): String {
+        val out = Buffer()
+        format(Buffer().writeUtf8(json), out)
+        return out.readUtf8()
+    }
+
+    /**
+     * Check that [source] holds well-formed JSON without writing any output.
+     *
+     * @return null if the JSON is valid, otherwise the error
+     */
+    fun validate(source: Source): JsonFormatException? {
+        return try {
+            Run(source.buffered(), null).run()
+            null
+        } catch (e: JsonFormatException) {
+            e
+        }
+    }
+
+    private fun Source.buffered(): BufferedSource = this as? BufferedSource ?: buffer()
+
+    /**
+     * State of one formatting pass; [out] is null when only validating.
+     */
+    private inner class Run(private val source: BufferedSource, private val out: BufferedSink?) {
+        private val buffer = ByteArray(BUFFER_SIZE)
+        private var pos = 0
+        private var limit = 0
+
+        /** Input offset of `buffer[0]`. */
+        private var base = 0L
+
+        // Kind and number of entries of each open container, indexed by depth
+        private var kinds = ByteArray(16)
+        private var counts = LongArray(16)
+        private var depth = 0
+
+        /** Output is suppressed while [depth] is at least this level. */
+        private var muteDepth = Int.MAX_VALUE
+        private var muteKind = COLLAPSED
+
+        fun run() {
+            try {
+                parse()
+            } finally {
+                flushStaged()
+            }
+        }
+
+        private fun parse() {
+            var state = VALUE
+            while (true) {
+                when (state) {
+                    VALUE -> state = value()
+                    KEY -> {
+                        val quote = nextNonBlank()
+                        if (quote != QUOTE.toInt()) unexpected(quote, "Expected string key")
+                        string()
+                        val colon = nextNonBlank()
+                        if (colon != ':'.code) unexpected(colon, "Expected ':'")
+                        write(COLON)
+                        write(SPACE)
+                        state = VALUE
+                    }
+                    else -> {
+                        if (depth == 0) {
+                            if (nextNonBlank() != EOF) fail("Unexpected data after JSON value")
+                            return
+                        }
+                        val kind = kinds[depth]
+                        when (val c = nextNonBlank()) {
+                            ','.code -> {
+                                counts[depth]++
+                                if (kind == ARRAY && counts[depth] == maxArrayItems + 1L && depth < muteDepth) {
+                                    mute(TRUNCATED)
+                                }
+                                write(COMMA)
+                                newline(depth)
+                                state = if (kind == OBJECT) KEY else VALUE
+                            }
+                            (if (kind == OBJECT) '}' else ']').code -> close()
+                            else -> unexpected(c, if (kind == OBJECT) "Expected ',' or '}'" else "Expected ',' or ']'")
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * Read one value, or open a container and return the state for its first entry.
+         */
+        private fun value(): Int {
+            when (val c = nextNonBlank()) {
+                '{'.code, '['.code -> {
+                    val close = if (c == '{'.code) '}'.code else ']'.code
+                    if (peekNonBlank() == close) {
+                        pos++
+                        write(c.toByte())
+                        write(close.toByte())
+                        return AFTER
+                    }
+                    open(if (c == '{'.code) OBJECT else ARRAY, c.toByte())
+                    return if (c == '{'.code) KEY else VALUE
+                }
+                QUOTE.toInt() -> string()
+                't'.code -> literal(c, "true")
+                'f'.code -> literal(c, "false")
+                'n'.code -> literal(c, "null")
+                EOF -> unexpected(c, "")
+                else -> if (c == '-'.code || c in '0'.code..'9'.code) number(c) else fail("Unexpected character")
+            }
+            return AFTER
+        }
+
+        private fun open(kind: Byte, bracket: Byte) {
+            if (++depth > MAX_DEPTH) fail("Maximum nesting depth exceeded")
+            if (depth == kinds.size) {
+                kinds = kinds.copyOf(depth * 2)
+                counts = counts.copyOf(depth * 2)
+            }
+            kinds[depth] = kind
+            counts[depth] = 1
+            if (depth > collapseDepth && depth < muteDepth) mute(COLLAPSED)
+            write(bracket)
+            newline(depth)
+        }
+
+        private fun close() {
+            val level = depth
+            val kind = kinds[level]
+            if (muteDepth == level) {
+                muteDepth = Int.MAX_VALUE
+                depth--
+                if (muteKind == COLLAPSED) {
+                    writeText(if (kind == OBJECT) "{… ${counts[level]} keys}" else "[… ${counts[level]} items]")
+                } else {
+                    newline(level)
+                    writeText("… ${counts[level] - maxArrayItems} more items")
+                    newline(level - 1)
+                    write(']'.code.toByte())
+                }
+                return
+            }
+            depth--
+            newline(level - 1)
+            write(if (kind == OBJECT) '}'.code.toByte() else ']'.code.toByte())
+        }
+
+        private fun mute(kind: Int) {
+            muteDepth = depth
+            muteKind = kind
+        }
+
+        /**
+         * Copy a string whose opening quote was just read, validating escapes.
+         */
+        private fun string() {
+            write(QUOTE)
+            while (true) {
+                if (pos == limit && !fill()) fail("Unterminated string", base + pos)
+                var i = pos
+                while (i < limit) {
+                    val b = buffer[i]
+                    if (b == QUOTE || b == BACKSLASH || (b >= 0 && b < 0x20)) break
+                    i++
+                }
+                write(pos, i)
+                pos = i
+                if (i == limit) continue
+
+                val b = buffer[pos++]
+                when {
+                    b == QUOTE -> {
+                        write(QUOTE)
+                        return
+                    }
+                    b == BACKSLASH -> {
+                        val e = next()
+                        write(BACKSLASH)
+                        when (e) {
+                            '"'.code, '\\'.code, '/'.code, 'b'.code, 'f'.code, 'n'.code, 'r'.code, 't'.code ->
+                                write(e.toByte())
+                            'u'.code -> {
+                                write(e.toByte())
+                                repeat(4) {
+                                    val h = next()
+                                    if (h !in '0'.code..'9'.code && h !in 'a'.code..'f'.code && h !in 'A'.code..'F'.code) {
+                                        unexpected(h, "Invalid unicode escape")
+                                    }
+                                    write(h.toByte())
+                                }
+                            }
+                            EOF -> fail("Unterminated string", base + pos)
+                            else -> fail("Invalid escape sequence")
+                        }
+                    }
+                    else -> fail("Unescaped control character in string")
+                }
+            }
+        }
+
+        private fun number(first: Int) {
+            var c = first
+            write(c.toByte())
+            if (c == '-'.code) {
+                c = next()
+                if (c !in '0'.code..'9'.code) unexpected(c, "Invalid number")
+                write(c.toByte())
+            }
+            if (c == '0'.code) {
+                if (peek() in '0'.code..'9'.code) fail("Invalid number", base + pos)
+            } else {
+                digits()
+            }
+            if (peek() == '.'.code) {
+                write(next().toByte())
+                if (digits() == 0) unexpected(peek(), "Invalid number", base + pos)
+            }
+            if (peek() == 'e'.code || peek() == 'E'.code) {
+                write(next().toByte())
+                if (peek() == '+'.code || peek() == '-'.code) write(next().toByte())
+                if (digits() == 0) unexpected(peek(), "Invalid number", base + pos)
+            }
+        }
+
+        private fun digits(): Int {
+            var count = 0
+            while (peek() in '0'.code..'9'.code) {
+                write(next().toByte())
+                count++
+            }
+            return count
+        }
+
+        private fun literal(first: Int, keyword: String) {
+            write(first.toByte())
+            for (k in 1 until keyword.length) {
+                val c = next()
+                if (c != keyword[k].code) unexpected(c, "Unexpected character")
+                write(c.toByte())
+            }
+        }
+
+        // ==================== Input ====================
+
+        private fun fill(): Boolean {
+            base += limit
+            pos = 0
+            limit = source.read(buffer, 0, buffer.size)
+            if (limit <= 0) {
+                limit = 0
+                return false
+            }
+            return true
+        }
+
+        private fun next(): Int {
+            if (pos == limit && !fill()) return EOF
+            return buffer[pos++].toInt() and 0xFF
+        }
+
+        private fun peek(): Int {
+            if (pos == limit && !fill()) return EOF
+            return buffer[pos].toInt() and 0xFF
+        }
+
+        /**
+         * Skip whitespace and return the next byte without consuming it.
+         */
+        private fun peekNonBlank(): Int {
+            while (true) {
+                val c = peek()
+                if (c != ' '.code && c != '\n'.code && c != '\r'.code && c != '\t'.code) return c
+                pos++
+            }
+        }
+
+        private fun nextNonBlank(): Int {
+            val c = peekNonBlank()
+            if (c != EOF) pos++
+            return c
+        }
+
+        /**
+         * Fail at [offset], which defaults to the byte just read.
+         */
+        private fun fail(message: String, offset: Long = base + pos - 1): Nothing {
+            throw JsonFormatException(message, offset)
+        }
+
+        /**
+         * Fail on byte [c], reporting the end of the input if [c] is [EOF].
+         */
+        private fun unexpected(c: Int, message: String, offset: Long = base + pos - 1): Nothing {
+            if (c == EOF) fail("Unexpected end of input", base + pos)
+            fail(message, offset)
+        }
+
+        // ==================== Output ====================
+
+        // Output is staged here so that single bytes do not each go through the sink
+        private val staged = ByteArray(BUFFER_SIZE)
+        private var stagedCount = 0
+
+        private val writing: Boolean
+            get() = out != null && depth < muteDepth
+
+        private fun write(b: Byte) {
+            if (!writing) return
+            if (stagedCount == staged.size) flushStaged()
+            staged[stagedCount++] = b
+        }
+
+        private fun write(from: Int, to: Int) {
+            if (writing) stage(buffer, from, to - from)
+        }
+
+        private fun writeText(text: String) {
+            if (!writing) return
+            flushStaged()
+            out!!.writeUtf8(text)
+        }
+
+        private fun newline(level: Int) {
+            if (!writing) return
+            var spaces = level * indent
+            val first = minOf(spaces, indentTable.size - 1)
+            stage(indentTable, 0, 1 + first)
+            spaces -= first
+            while (spaces > 0) {
+                val count = minOf(spaces, indentTable.size - 1)
+                stage(indentTable, 1, count)
+                spaces -= count
+            }
+        }
+
+        private fun stage(bytes: ByteArray, offset: Int, count: Int) {
+            if (count > staged.size - stagedCount) {
+                flushStaged()
+                if (count > staged.size) {
+                    out!!.write(bytes, offset, count)
+                    return
+                }
+            }
+            bytes.copyInto(staged, stagedCount, offset, offset + count)
+            stagedCount += count
+        }
+
+        private fun flushStaged() {
+            if (stagedCount > 0) out?.write(staged, 0, stagedCount)
+            stagedCount = 0
+        }
+    }
+
+    companion object {
+        private const val BUFFER_SIZE = 8192
+        private const val CACHED_LEVELS = 32
+        private const val MAX_DEPTH = 512
+        private const val EOF = -1
+
+        private const val VALUE = 0
+        private const val KEY = 1
+        private const val AFTER = 2
+
+        private const val OBJECT: Byte = 1
+        private const val ARRAY: Byte = 2
+        private const val COLLAPSED = 0
+        private const val TRUNCATED = 1
+
+        private const val NEWLINE = '\n'.code.toByte()
+        private const val SPACE = ' '.code.toByte()
+        private const val QUOTE = '"'.code.toByte()
+        private const val BACKSLASH = '\\'.code.toByte()
+        private const val COLON = ':'.code.toByte()
+        private const val COMMA = ','.code.toByte()
+
+        /**
+         * Formatter for an outline view of large documents.
+         */
+        fun outline(maxArrayItems: Int = 20, collapseDepth: Int = 8, indent: Int = 2): JsonFormatter =
+            JsonFormatter(indent, maxArrayItems, collapseDepth)
+    }
+}
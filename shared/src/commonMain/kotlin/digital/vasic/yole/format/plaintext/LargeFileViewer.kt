@@ -0,0 +1,169 @@
+/*#######################################################
+ *
+ * SPDX-FileCopyrightText: 2025 Milos Vasic
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Large File Viewer - Platform Agnostic
+ * Renders a window of lines from a file too large to load
+ *
+ *########################################################*/
+package digital.vasic.yole.format.plaintext
+
+import digital.vasic.yole.format.escapeHtml
+
+/**
+ * A run of consecutive lines read from a [LargeFileViewer].
+ *
+ * @property firstLine 0-based number of the first line, or -1 while the
+ *           index has not reached [startOffset]
+ * @property startOffset Byte offset of the first line
+ * @property endOffset Byte offset just past the last line read
+ * @property lines Decoded lines without their line terminators
+ * @property truncated True when the byte budget cut the last line short
+ */
+data class TextWindow(
+    val firstLine: Long,
+    val startOffset: Long,
+    val endOffset: Long,
+    val lines: List<String>,
+    val truncated: Boolean = false
+)
+
+/**
+ * Windowed viewer for plain-text files too large for [PlaintextParser].
+ *
+ * Instead of loading and escaping the whole file, the viewer reads only the
+ * visible lines plus [margin] lines on either side. A window never reads
+ * more than [maxWindowBytes], so the first paint costs the same for a 1 KB
+ * file and a 500 MB log. Jumping to a line uses the [index], which is built
+ * in the background with [buildIndex]; until it is complete, lines past
+ * the indexed part are found by scanning on from its last checkpoint, and
+ * [windowAt] positions by byte offset without needing the index at all.
+ *
+ * @example
+ * ```kotlin
+ * val viewer = PlaintextParser.openWindowed(path) ?: return
+ * scope.launch(Dispatchers.Default) { viewer.buildIndex() }
+ * webView.loadHtml(viewer.toHtml(viewer.window(firstLine = 0, count = 60)))
+ * // Scrollbar dragged to 75%
+ * val window = viewer.windowAt((viewer.size * 0.75).toLong(), count = 60)
+ * ```
+ */
+class LargeFileViewer(
+    private val file: PagedFile,
+    val margin: Int = DEFAULT_MARGIN,
+    val maxWindowBytes: Int = DEFAULT_WINDOW_BYTES,
+    stride: Int = LineOffsetIndex.DEFAULT_STRIDE
+) : AutoCloseable {
+    val index = LineOffsetIndex(file, stride)
+
+    /**
+     * File size in bytes.
+     */
+    val size: Long
+        get() = file.size
+
+    /**
+     * Build the line index; run it on a background dispatcher.
+     */
+    suspend fun buildIndex(onProgress: (Float) -> Unit = {}) {
+        index.build(onProgress)
+    }
+
+    /**
+     * Lines [firstLine] until `firstLine + count`, with [margin] lines before and after.
+     */
+    fun window(firstLine: Long, count: Int): TextWindow {
+        val first = maxOf(0L, firstLine - margin)
+        val start = index.lineStart(first)
+        if (start < 0) return TextWindow(index.lineCount, size, size, emptyList())
+        return readLines(first, start, (firstLine - first).toInt() + count + margin)
+    }
+
+    /**
+     * [count] lines starting with the line that contains byte [offset], with
+     * [margin] lines before and after. Used for scrollbar positions and for
+     * jumps before the index is complete.
+     */
+    fun windowAt(offset: Long, count: Int): TextWindow {
+        if (size == 0L) return TextWindow(0, 0, 0, emptyList())
+        val start = linesBefore(offset.coerceIn(0, size - 1), margin)
+        return readLines(index.lineAt(start), start, count + 2 * margin)
+    }
+
+    /**
+     * Render [window] like [PlaintextParser] renders plain text. The window
+     * position is kept in `data-` attributes for the scroll handler.
+     */
+    fun toHtml(window: TextWindow): String = buildString {
+        append("<div class='plaintext' data-first-line='").append(window.firstLine)
+        append("' data-start-offset='").append(window.startOffset)
+        append("' data-end-offset='").append(window.endOffset)
+        append("' data-size='").append(size).append("'>")
+        append("<pre style='white-space: pre-wrap; font-family: monospace;'>")
+        window.lines.forEachIndexed { i, line ->
+            if (i > 0) append('\n')
+            append(line.escapeHtml())
+        }
+        append("</pre>")
+        append("</div>")
+    }
+
+    override fun close() {
+        file.close()
+    }
+
+    /**
+     * Start of the line containing [offset], moved back [lines] more lines,
+     * scanning back at most [maxWindowBytes].
+     */
+    private fun linesBefore(offset: Long, lines: Int): Long {
+        val buffer = ByteArray(minOf(maxWindowBytes, SCAN_SIZE))
+        val limit = maxOf(0L, offset - maxWindowBytes)
+        var remaining = lines + 1
+        var end = offset
+        while (end > limit) {
+            val from = maxOf(limit, end - buffer.size)
+            val count = file.read(from, buffer, 0, (end - from).toInt())
+            if (count <= 0) break
+            for (i in count - 1 downTo 0) {
+                if (buffer[i] == LineOffsetIndex.NEWLINE && --remaining == 0) return from + i + 1
+            }
+            end = from
+        }
+        return limit
+    }
+
+    private fun readLines(firstLine: Long, start: Long, maxLines: Int): TextWindow {
+        val bytes = ByteArray(minOf(maxWindowBytes.toLong(), size - start).toInt())
+        val count = file.read(start, bytes)
+        val lines = ArrayList<String>(minOf(maxLines, 1024))
+        var lineStart = 0
+        var truncated = false
+        while (lines.size < maxLines && lineStart < count) {
+            var lineEnd = lineStart
+            while (lineEnd < count && bytes[lineEnd] != LineOffsetIndex.NEWLINE) lineEnd++
+            if (lineEnd == count) {
+                truncated = start + count < size
+                lines.add(decode(bytes, lineStart, count))
+                lineStart = count
+                break
+            }
+            lines.add(decode(bytes, lineStart, lineEnd))
+            lineStart = lineEnd + 1
+        }
+        return TextWindow(firstLine, start, start + lineStart, lines, truncated)
+    }
+
+    private fun decode(bytes: ByteArray, start: Int, end: Int): String {
+        val to = if (end > start && bytes[end - 1] == CARRIAGE_RETURN) end - 1 else end
+        return bytes.decodeToString(start, to)
+    }
+
+    companion object {
+        const val DEFAULT_MARGIN = 100
+        const val DEFAULT_WINDOW_BYTES = 1024 * 1024
+        private const val SCAN_SIZE = 16 * 1024
+        private const val CARRIAGE_RETURN = '\r'.code.toByte()
+    }
+}
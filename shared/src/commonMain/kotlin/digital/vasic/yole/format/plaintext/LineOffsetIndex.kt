@@ -0,0 +1,188 @@
+/*#######################################################
+ *
+ * SPDX-FileCopyrightText: 2025 Milos Vasic
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Line Offset Index - Platform Agnostic
+ * Sparse line-to-byte-offset index for large text files
+ *
+ *########################################################*/
+package digital.vasic.yole.format.plaintext
+
+import kotlin.concurrent.Volatile
+import kotlinx.coroutines.yield
+
+/**
+ * Sparse index from line numbers to byte offsets in a [PagedFile].
+ *
+ * Only the start of every [stride]th line is stored, so a 500 MB log with
+ * ten million lines needs about 80 KB. Lines between two checkpoints are
+ * found by scanning forward from the nearest one. Lines are separated by
+ * `\n`; a `\r` before it belongs to the line and is dropped when decoding.
+ *
+ * The index is built in chunks by a single writer ([indexNext] or [build])
+ * while any number of readers query it; lines past the indexed part are
+ * found by scanning on from the last checkpoint.
+ *
+ * @example
+ * ```kotlin
+ * val index = LineOffsetIndex(file)
+ * scope.launch(Dispatchers.Default) { index.build() }
+ * val offset = index.lineStart(120_000)
+ * ```
+ */
+class LineOffsetIndex(private val file: PagedFile, val stride: Int = DEFAULT_STRIDE) {
+    init {
+        require(stride > 0) { "stride must be positive" }
+    }
+
+    // checkpoints[k] is the byte offset of line k * stride
+    private var checkpoints = LongArray(64)
+
+    @Volatile
+    private var checkpointCount = 1
+
+    private val chunk = ByteArray(CHUNK_SIZE)
+    private var newlines = 0L
+    private var lastByte: Byte = NEWLINE
+
+    /**
+     * Number of bytes scanned so far.
+     */
+    @Volatile
+    var indexedBytes = 0L
+        private set
+
+    /**
+     * Total number of lines, or -1 until the index is complete. A trailing
+     * newline does not start another line.
+     */
+    @Volatile
+    var lineCount = -1L
+        private set
+
+    val isComplete: Boolean
+        get() = lineCount >= 0
+
+    /**
+     * Fraction of the file indexed so far, from 0 to 1.
+     */
+    val progress: Float
+        get() = if (file.size == 0L) 1f else indexedBytes.toFloat() / file.size
+
+    /**
+     * Index the next chunk of the file.
+     *
+     * @return false once the whole file is indexed
+     */
+    fun indexNext(): Boolean {
+        if (isComplete) return false
+        val position = indexedBytes
+        val count = file.read(position, chunk)
+        for (i in 0 until count) {
+            if (chunk[i] == NEWLINE) {
+                newlines++
+                if (newlines % stride == 0L) addCheckpoint(position + i + 1)
+            }
+        }
+        if (count > 0) lastByte = chunk[count - 1]
+        indexedBytes = position + count
+
+        if (count <= 0 || indexedBytes >= file.size) {
+            lineCount = if (lastByte == NEWLINE) newlines else newlines + 1
+            return false
+        }
+        return true
+    }
+
+    /**
+     * Index the rest of the file, suspending between chunks so the build can
+     * run in the background and be cancelled.
+     */
+    suspend fun build(onProgress: (Float) -> Unit = {}) {
+        while (indexNext()) {
+            onProgress(progress)
+            yield()
+        }
+        onProgress(1f)
+    }
+
+    /**
+     * Byte offset of the first byte of [line] (0-based).
+     *
+     * @return The offset, or -1 when the file has fewer lines
+     */
+    fun lineStart(line: Long): Long {
+        if (line < 0) return -1
+        if (line == 0L) return if (file.size > 0) 0 else -1
+        val count = checkpointCount
+        val points = checkpoints
+        val k = minOf(line / stride, count - 1L).toInt()
+        val offset = skipLines(points[k], line - k.toLong() * stride)
+        return if (offset < file.size) offset else -1
+    }
+
+    /**
+     * The line containing byte [offset], once the index has reached it.
+     *
+     * @return The 0-based line number, or -1 when [offset] is not indexed yet
+     */
+    fun lineAt(offset: Long): Long {
+        if (offset < 0 || offset >= indexedBytes) return -1
+        val count = checkpointCount
+        val points = checkpoints
+        var low = 0
+        var high = count - 1
+        while (low < high) {
+            val mid = (low + high + 1) ushr 1
+            if (points[mid] <= offset) low = mid else high = mid - 1
+        }
+        return low.toLong() * stride + countNewlines(points[low], offset)
+    }
+
+    private fun addCheckpoint(offset: Long) {
+        val count = checkpointCount
+        if (count == checkpoints.size) checkpoints = checkpoints.copyOf(count * 2)
+        checkpoints[count] = offset
+        // Publish after the write so readers never see an unset slot
+        checkpointCount = count + 1
+    }
+
+    /**
+     * Offset just after the [lines]th newline from [from], or the file size.
+     */
+    private fun skipLines(from: Long, lines: Long): Long {
+        if (lines == 0L) return from
+        val buffer = ByteArray(SCAN_SIZE)
+        var position = from
+        var remaining = lines
+        while (true) {
+            val count = file.read(position, buffer)
+            if (count <= 0) return file.size
+            for (i in 0 until count) {
+                if (buffer[i] == NEWLINE && --remaining == 0L) return position + i + 1
+            }
+            position += count
+        }
+    }
+
+    private fun countNewlines(from: Long, to: Long): Long {
+        val buffer = ByteArray(SCAN_SIZE)
+        var position = from
+        var newlines = 0L
+        while (position < to) {
+            val count = file.read(position, buffer, 0, minOf(buffer.size.toLong(), to - position).toInt())
+            if (count <= 0) break
+            for (i in 0 until count) if (buffer[i] == NEWLINE) newlines++
+            position += count
+        }
+        return newlines
+    }
+
+    companion object {
+        const val DEFAULT_STRIDE = 1024
+        private const val CHUNK_SIZE = 256 * 1024
+        private const val SCAN_SIZE = 16 * 1024
+        internal const val NEWLINE = '\n'.code.toByte()
+    }
+}
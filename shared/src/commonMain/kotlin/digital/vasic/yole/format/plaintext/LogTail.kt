@@ -0,0 +1,286 @@
+/*#######################################################
+ *
+ * SPDX-FileCopyrightText: 2025 Milos Vasic
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Log Tail - Platform Agnostic
+ * Follow mode for growing log files
+ *
+ *########################################################*/
+package digital.vasic.yole.format.plaintext
+
+import digital.vasic.yole.format.escapeHtml
+import digital.vasic.yole.model.watchDirectory
+import kotlinx.coroutines.channels.Channel
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.channelFlow
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.withTimeoutOrNull
+import okio.FileHandle
+import okio.FileSystem
+import okio.IOException
+import okio.Path
+import okio.Path.Companion.toPath
+import kotlin.time.Duration
+import kotlin.time.Duration.Companion.milliseconds
+
+/**
+ * Lines appended to a followed log file since the previous update.
+ *
+ * @property lines Complete lines, without their line terminators
+ * @property reset True when the file was truncated or rotated; the preview
+ *           must be cleared before appending [lines]
+ * @property offset Byte offset up to which the file has been read
+ * @property hasMore True when more bytes were appended than one update reads
+ */
+data class LogUpdate(
+    val lines: List<String>,
+    val reset: Boolean,
+    val offset: Long,
+    val hasMore: Boolean = false
+)
+
+/**
+ * Follows a growing log file, like `tail -f`.
+ *
+ * Each [poll] reads only the bytes appended since the previous one, so an
+ * update costs time proportional to the new data, not to the file size. An
+ * incomplete last line is held back until its newline arrives, or emitted
+ * in pieces of [maxLineBytes] when it grows longer than that.
+ *
+ * Truncation is detected when the file becomes shorter than the read offset.
+ * Rotation (the file replaced by a new one) is detected by comparing the
+ * first bytes of the file with those seen before. In both cases reading
+ * restarts at offset 0 and the update is flagged with [LogUpdate.reset].
+ * A missing file, for example between a rotation's rename and create, yields
+ * no update. The tail is not thread-safe.
+ *
+ * @param fileSystem File system to read the log from
+ * @param path Log file to follow
+ * @param startOffset Where to start reading; pass the file size to show only
+ *        new lines, e.g. after the initial view came from a [LargeFileViewer]
+ * @param maxReadBytes Maximum number of bytes one [poll] reads
+ * @param maxLineBytes Longest line kept whole; longer lines are split
+ * @param directoryEvents Source of change events for the log's directory
+ *
+ * @example
+ * ```kotlin
+ * val tail = LogTail(FileSystem.SYSTEM, path.toPath(), startOffset = viewer.size)
+ * tail.follow()
+ *     .flowOn(Dispatchers.IO)
+ *     .collect { update ->
+ *         if (update.reset) preview.clear()
+ *         preview.append(LogTail.toHtml(update.lines))
+ *     }
+ * ```
+ */
+class LogTail(
+    val fileSystem: FileSystem,
+    val path: Path,
+    startOffset: Long = 0,
+    private val maxReadBytes: Int = DEFAULT_MAX_READ_BYTES,
+    private val maxLineBytes: Int = DEFAULT_MAX_LINE_BYTES,
+    private val directoryEvents: (String) -> Flow<String> = ::watchDirectory
+) {
+    init {
+        require(maxLineBytes >= MIN_LINE_BYTES) { "maxLineBytes must be at least $MIN_LINE_BYTES" }
+    }
+
+    /**
+     * Byte offset of the next byte to read.
+     */
+    var offset: Long = startOffset
+        private set
+
+    private val chunk = ByteArray(CHUNK_SIZE)
+    private var pending = ByteArray(256)
+    private var pendingSize = 0
+    private var fingerprint = ByteArray(0)
+
+    /**
+     * Read what was appended since the previous poll.
+     *
+     * @return The update, or null when nothing changed or the file cannot be read
+     */
+    fun poll(): LogUpdate? {
+        return try {
+            fileSystem.openReadOnly(path).use { read(it) }
+        } catch (e: IOException) {
+            null
+        }
+    }
+
+    /**
+     * Emit each non-empty update as the file changes.
+     *
+     * The file is read when [watchDirectory] reports an event for it or its
+     * directory, and otherwise every [rescanInterval] in case an event was
+     * missed. On platforms without file notifications, where the event flow
+     * ends at once, the file is polled every [pollInterval] instead. Backlogs
+     * larger than one read are drained without waiting.
+     */
+    fun follow(
+        pollInterval: Duration = DEFAULT_POLL_INTERVAL,
+        rescanInterval: Duration = DEFAULT_RESCAN_INTERVAL
+    ): Flow<LogUpdate> = channelFlow {
+        val target = path.normalized()
+        val directory = target.parent
+        val wake = Channel<Unit>(Channel.CONFLATED)
+        var watching = directory != null
+        if (directory != null) {
+            launch {
+                try {
+                    directoryEvents(directory.toString()).collect { event ->
+                        val changed = event.toPath(normalize = true)
+                        if (changed == target || changed == directory) wake.trySend(Unit)
+                    }
+                } finally {
+                    // No notifications on this platform, or the watch failed
+                    watching = false
+                    wake.trySend(Unit)
+                }
+            }
+        }
+
+        while (true) {
+            val update = poll()
+            if (update != null) send(update)
+            if (update != null && update.hasMore) continue
+            withTimeoutOrNull(if (watching) rescanInterval else pollInterval) { wake.receive() }
+        }
+    }
+
+    private fun read(handle: FileHandle): LogUpdate? {
+        val size = handle.size()
+        var reset = false
+        if (size < offset || rotated(handle, size)) {
+            offset = 0
+            pendingSize = 0
+            fingerprint = ByteArray(0)
+            reset = true
+        }
+        if (fingerprint.size < minOf(size, FINGERPRINT_SIZE.toLong())) {
+            fingerprint = readHead(handle, size)
+        }
+        if (size == offset) {
+            return if (reset) LogUpdate(emptyList(), true, offset) else null
+        }
+
+        val lines = ArrayList<String>()
+        val end = minOf(size, offset + maxReadBytes)
+        var position = offset
+        while (position < end) {
+            val count = handle.read(position, chunk, 0, minOf(chunk.size.toLong(), end - position).toInt())
+            if (count <= 0) break
+            var lineStart = 0
+            for (i in 0 until count) {
+                if (chunk[i] == LineOffsetIndex.NEWLINE) {
+                    lines.add(takeLine(lineStart, i, lines))
+                    lineStart = i + 1
+                }
+            }
+            appendPending(lineStart, count, lines)
+            position += count
+        }
+        offset = position
+        if (lines.isEmpty() && !reset) return null
+        return LogUpdate(lines, reset, offset, hasMore = offset < size)
+    }
+
+    /**
+     * True when the head of the file no longer matches the bytes seen before.
+     */
+    private fun rotated(handle: FileHandle, size: Long): Boolean {
+        if (fingerprint.isEmpty()) return false
+        if (size < fingerprint.size) return true
+        val head = readHead(handle, fingerprint.size.toLong())
+        return !head.contentEquals(fingerprint)
+    }
+
+    private fun readHead(handle: FileHandle, size: Long): ByteArray {
+        val head = ByteArray(minOf(size, FINGERPRINT_SIZE.toLong()).toInt())
+        var read = 0
+        while (read < head.size) {
+            val count = handle.read(read.toLong(), head, read, head.size - read)
+            if (count <= 0) return head.copyOf(read)
+            read += count
+        }
+        return head
+    }
+
+    /**
+     * Decode the pending bytes plus `chunk[start, end)` as one line.
+     */
+    private fun takeLine(start: Int, end: Int, lines: MutableList<String>): String {
+        if (pendingSize > 0 || end - start > maxLineBytes) {
+            appendPending(start, end, lines)
+            val line = decode(pending, 0, pendingSize)
+            pendingSize = 0
+            return line
+        }
+        return decode(chunk, start, end)
+    }
+
+    /**
+     * Hold back `chunk[start, end)` as part of an incomplete line. Whenever
+     * the held line reaches [maxLineBytes], its head is added to [lines] as a
+     * truncated line, cut at a UTF-8 character boundary.
+     */
+    private fun appendPending(start: Int, end: Int, lines: MutableList<String>) {
+        var from = start
+        while (from < end) {
+            if (pendingSize == maxLineBytes) flushPending(lines)
+            val length = minOf(end - from, maxLineBytes - pendingSize)
+            if (pendingSize + length > pending.size) {
+                pending = pending.copyOf(minOf(maxLineBytes, maxOf(pending.size * 2, pendingSize + length)))
+            }
+            chunk.copyInto(pending, pendingSize, from, from + length)
+            pendingSize += length
+            from += length
+        }
+    }
+
+    private fun flushPending(lines: MutableList<String>) {
+        var cut = pendingSize
+        var lead = pendingSize - 1
+        while (lead > 0 && pending[lead].toInt() and 0xC0 == 0x80) lead--
+        val first = pending[lead].toInt() and 0xFF
+        val sequence = when {
+            first >= 0xF0 -> 4
+            first >= 0xE0 -> 3
+            first >= 0xC0 -> 2
+            else -> 1
+        }
+        if (lead + sequence > pendingSize) cut = lead
+        if (cut == 0) cut = pendingSize
+
+        lines.add(pending.decodeToString(0, cut))
+        pending.copyInto(pending, 0, cut, pendingSize)
+        pendingSize -= cut
+    }
+
+    private fun decode(bytes: ByteArray, start: Int, end: Int): String {
+        val to = if (end > start && bytes[end - 1] == CARRIAGE_RETURN) end - 1 else end
+        return bytes.decodeToString(start, to)
+    }
+
+    companion object {
+        const val DEFAULT_MAX_READ_BYTES = 4 * 1024 * 1024
+        const val DEFAULT_MAX_LINE_BYTES = 64 * 1024
+        val DEFAULT_POLL_INTERVAL: Duration = 500.milliseconds
+        val DEFAULT_RESCAN_INTERVAL: Duration = 5_000.milliseconds
+        private const val MIN_LINE_BYTES = 16
+        private const val CHUNK_SIZE = 64 * 1024
+        private const val FINGERPRINT_SIZE = 256
+        private const val CARRIAGE_RETURN = '\r'.code.toByte()
+
+        /**
+         * Render [lines] for appending to the `<pre>` of a plain-text preview.
+         */
+        fun toHtml(lines: List<String>): String = buildString {
+            for (line in lines) {
+                append(line.escapeHtml()).append('\n')
+            }
+        }
+    }
+}
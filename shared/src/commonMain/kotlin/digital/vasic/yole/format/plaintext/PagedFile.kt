@@ -0,0 +1,81 @@
+/*#######################################################
+ *
+ * SPDX-FileCopyrightText: 2025 Milos Vasic
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Paged File - Platform Agnostic
+ * Random access to the bytes of files too large to load
+ *
+ *########################################################*/
+package digital.vasic.yole.format.plaintext
+
+import okio.FileHandle
+
+/**
+ * Read-only random access to the bytes of a file.
+ *
+ * Implementations must allow concurrent [read] calls, so a background
+ * [LineOffsetIndex] build and the visible window can share one file.
+ *
+ * @example
+ * ```kotlin
+ * openMappedFile("/var/log/app.log")?.use { file ->
+ *     val head = ByteArray(512)
+ *     val count = file.read(0, head)
+ * }
+ * ```
+ */
+interface PagedFile : AutoCloseable {
+    /**
+     * File size in bytes, fixed when the file was opened.
+     */
+    val size: Long
+
+    /**
+     * Copy up to [length] bytes starting at [position] into [buffer] at [offset].
+     *
+     * @return The number of bytes copied; 0 at or after the end of the file
+     */
+    fun read(position: Long, buffer: ByteArray, offset: Int = 0, length: Int = buffer.size - offset): Int
+}
+
+/**
+ * Open [path] as a memory-mapped [PagedFile].
+ *
+ * This is a platform-specific function implemented via expect/actual.
+ * Pages are mapped on first access, so opening is constant time regardless
+ * of the file size.
+ *
+ * @return The mapped file, or null when the file cannot be opened or the
+ *         platform has no file system access
+ */
+expect fun openMappedFile(path: String): PagedFile?
+
+/**
+ * [PagedFile] over an okio [FileHandle], for platforms or file systems
+ * without memory mapping. Closing it closes the handle.
+ *
+ * @example
+ * ```kotlin
+ * val file = FileHandlePagedFile(FileSystem.SYSTEM.openReadOnly(path.toPath()))
+ * ```
+ */
+class FileHandlePagedFile(private val handle: FileHandle) : PagedFile {
+    override val size: Long = handle.size()
+
+    override fun read(position: Long, buffer: ByteArray, offset: Int, length: Int): Int {
+        if (position < 0 || position >= size || length <= 0) return 0
+        val total = minOf(length.toLong(), size - position).toInt()
+        var copied = 0
+        while (copied < total) {
+            val count = handle.read(position + copied, buffer, offset + copied, total - copied)
+            if (count <= 0) break
+            copied += count
+        }
+        return copied
+    }
+
+    override fun close() {
+        handle.close()
+    }
+}
@@ -53,7 +53,7 @@ class PlaintextParser : TextParser {
         }
 
         // Convert to HTML
-        val html = toHtml(type, extension, processedContent)
+        val html = toHtml(type, extension, processedContent, options["highlighting"] == true)
 
         return ParsedDocument(
             format = supportedFormat,
@@ -70,7 +70,7 @@ class PlaintextParser : TextParser {
     /**
      * Convert plaintext to HTML based on type
      */
-    private fun toHtml(type: PlaintextType, extension: String, content: String): String {
+    private fun toHtml(type: PlaintextType, extension: String, content: String, highlight: Boolean): String {
         return when (type) {
             PlaintextType.HTML -> {
                 // HTML: display as-is
@@ -82,8 +82,9 @@ class PlaintextParser : TextParser {
                 val language = mapExtensionToLanguage(extension)
                 buildString {
                     append("<div class='plaintext code-block'>")
+                    if (highlight) append(StyleSheets.CODE_HIGHLIGHT_STYLES)
                     append("<pre><code class='language-$language'>")
-                    append(content.escapeHtml())
+                    append(if (highlight) SyntaxHighlighter.highlight(content, language) else content.escapeHtml())
                     append("</code></pre>")
                     append("</div>")
                 }
@@ -163,74 +164,12 @@ class PlaintextParser : TextParser {
     }
 
     /**
-     * Pretty-print JSON content
+     * Pretty-print JSON content, or return it unchanged if it is not valid JSON
      */
     private fun prettyPrintJson(content: String): String {
         return try {
-            // Simple JSON pretty-printer
-            var result = content.trim()
-            var indent = 0
-            val output = StringBuilder()
-            var inString = false
-            var escaped = false
-
-            for (i in result.indices) {
-                val char = result[i]
-
-                when {
-                    escaped -> {
-                        output.append(char)
-                        escaped = false
-                    }
-
-                    char == '\\' && inString -> {
-                        output.append(char)
-                        escaped = true
-                    }
-
-                    char == '"' -> {
-                        output.append(char)
-                        inString = !inString
-                    }
-
-                    !inString && (char == '{' || char == '[') -> {
-                        output.append(char)
-                        indent++
-                        output.append("\n")
-                        output.append("  ".repeat(indent))
-                    }
-
-                    !inString && (char == '}' || char == ']') -> {
-                        indent--
-                        output.append("\n")
-                        output.append("  ".repeat(indent))
-                        output.append(char)
-                    }
-
-                    !inString && char == ',' -> {
-                        output.append(char)
-                        output.append("\n")
-                        output.append("  ".repeat(indent))
-                    }
-
-                    !inString && char == ':' -> {
-                        output.append(char)
-                        output.append(" ")
-                    }
-
-                    !inString && char.isWhitespace() -> {
-                        // Skip whitespace outside strings
-                    }
-
-                    else -> {
-                        output.append(char)
-                    }
-                }
-            }
-
-            output.toString()
-        } catch (e: Exception) {
-            // If pretty-print fails, return original
+            JSON_FORMATTER.format(content)
+        } catch (e: JsonFormatException) {
             content
         }
     }
@@ -253,6 +192,32 @@ class PlaintextParser : TextParser {
             ".txt", ".text", ".log", ".taskpaper", ".org", ".ldg", ".ledger",
             ".m3u", ".m3u8", ".svg", ".lrc", ".fen"
         )
+
+        private val JSON_FORMATTER = JsonFormatter()
+
+        /**
+         * Plain-text files at least this large are shown with [openWindowed]
+         * instead of being parsed into a single `<pre>`.
+         */
+        const val WINDOWED_VIEWER_THRESHOLD = 8L * 1024 * 1024
+
+        /**
+         * Whether a file should open in the windowed [LargeFileViewer].
+         */
+        fun shouldUseWindowedViewer(filename: String, size: Long): Boolean {
+            if (size < WINDOWED_VIEWER_THRESHOLD) return false
+            val lastDot = filename.lastIndexOf('.')
+            return lastDot >= 0 && filename.substring(lastDot).lowercase() in TEXT_EXTENSIONS
+        }
+
+        /**
+         * Open [path] in a windowed [LargeFileViewer] backed by a memory-mapped file.
+         *
+         * @return The viewer, or null when the file cannot be mapped on this platform
+         */
+        fun openWindowed(path: String, margin: Int = LargeFileViewer.DEFAULT_MARGIN): LargeFileViewer? {
+            return openMappedFile(path)?.let { LargeFileViewer(it, margin) }
+        }
     }
 }
 
@@ -0,0 +1,194 @@
+/*#######################################################
+ *
+ * SPDX-FileCopyrightText: 2025 Milos Vasic
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Syntax Highlighter - Platform Agnostic
+ * Incremental highlighting with per-line lexer state caching
+ *
+ *########################################################*/
+package digital.vasic.yole.format.plaintext
+
+/**
+ * Incremental syntax highlighter for source files.
+ *
+ * The highlighter keeps the lines of a document together with the lexer
+ * state at the end of each line and the line's rendered HTML. After an edit
+ * it re-tokenizes from the first changed line and stops as soon as a line
+ * past the edit ends in the same state as before; everything after that is
+ * known to be unchanged. Typing inside a line therefore re-tokenizes that one
+ * line, while opening a block comment re-tokenizes up to where it closes.
+ *
+ * Tokens are rendered as `<span class='hl-keyword'>` and similar, see
+ * [CodeToken.name]; the highlighter is not thread-safe.
+ *
+ * @example
+ * ```kotlin
+ * val highlighter = SyntaxHighlighter(CodeLanguages.lexer("kotlin"))
+ * highlighter.setText(source)
+ *
+ * // On every keystroke
+ * val changed = highlighter.setText(editor.text)   // usually a single line
+ * for (line in changed) view.updateLine(line, highlighter.lineHtml(line))
+ * ```
+ */
+class SyntaxHighlighter(val lexer: CodeLexer) {
+    private val lines = ArrayList<String>()
+    private val html = ArrayList<String>()
+    private var endStates = IntArray(64)
+    private val sink = HtmlSink()
+
+    /**
+     * Number of lines.
+     */
+    val lineCount: Int
+        get() = lines.size
+
+    /**
+     * Replace the document with [text], re-tokenizing only the lines that
+     * differ from the current document and the lines whose start state changed.
+     *
+     * @return The lines that were re-tokenized
+     */
+    fun setText(text: String): IntRange {
+        val newLines = text.lines()
+        val oldCount = lines.size
+        val newCount = newLines.size
+        var prefix = 0
+        while (prefix < oldCount && prefix < newCount && lines[prefix] == newLines[prefix]) prefix++
+        var suffix = 0
+        while (suffix < oldCount - prefix && suffix < newCount - prefix &&
+            lines[oldCount - 1 - suffix] == newLines[newCount - 1 - suffix]
+        ) suffix++
+        if (prefix == oldCount && oldCount == newCount) return IntRange.EMPTY
+        return replaceLines(prefix, oldCount - prefix - suffix, newLines.subList(prefix, newCount - suffix))
+    }
+
+    /**
+     * Replace [removed] lines starting at [start] with [inserted].
+     *
+     * @return The lines that were re-tokenized
+     */
+    fun replaceLines(start: Int, removed: Int, inserted: List<String>): IntRange {
+        require(start in 0..lines.size && removed >= 0 && start + removed <= lines.size) {
+            "Invalid line range $start+$removed for $lineCount lines"
+        }
+        val oldCount = lines.size
+        val newCount = oldCount - removed + inserted.size
+
+        // A replaced block ending in its old state leaves the following lines unchanged
+        val lastEnd = if (removed > 0) endStates[start + removed - 1] else UNKNOWN
+
+        // Shift the cached end states of the lines after the edit
+        val states = if (newCount > endStates.size) IntArray(maxOf(newCount, endStates.size * 2)) else endStates
+        endStates.copyInto(states, start + inserted.size, start + removed, oldCount)
+        if (states !== endStates) endStates.copyInto(states, 0, 0, start)
+        endStates = states
+        for (i in start until start + inserted.size) endStates[i] = UNKNOWN
+        if (inserted.isNotEmpty()) endStates[start + inserted.size - 1] = lastEnd
+
+        lines.subList(start, start + removed).clear()
+        lines.addAll(start, inserted)
+        html.subList(start, start + removed).clear()
+        html.addAll(start, List(inserted.size) { "" })
+
+        var line = start
+        var state = if (start == 0) 0 else endStates[start - 1]
+        while (line < newCount) {
+            val previous = endStates[line]
+            state = highlight(line, state)
+            line++
+            if (line >= start + inserted.size && state == previous) break
+        }
+        return start until line
+    }
+
+    /**
+     * Highlighted HTML of one line, without a line terminator.
+     */
+    fun lineHtml(line: Int): String = html[line]
+
+    /**
+     * Lexer state at the end of [line].
+     */
+    fun endState(line: Int): Int = endStates[line]
+
+    /**
+     * Append the highlighted lines to [out], separated by newlines.
+     */
+    fun appendHtml(out: StringBuilder) {
+        for (i in html.indices) {
+            if (i > 0) out.append('\n')
+            out.append(html[i])
+        }
+    }
+
+    /**
+     * All highlighted lines, separated by newlines.
+     */
+    fun toHtml(): String = StringBuilder().also { appendHtml(it) }.toString()
+
+    private fun highlight(line: Int, state: Int): Int {
+        val text = lines[line]
+        sink.begin(text)
+        val end = lexer.tokenize(text, state, sink)
+        html[line] = sink.finish()
+        endStates[line] = end
+        return end
+    }
+
+    /**
+     * Renders the tokens of one line, escaping the text in between.
+     */
+    private class HtmlSink : CodeTokenSink {
+        private val out = StringBuilder()
+        private var line = ""
+        private var cursor = 0
+
+        fun begin(text: String) {
+            out.setLength(0)
+            line = text
+            cursor = 0
+        }
+
+        override fun token(start: Int, end: Int, kind: Byte) {
+            appendEscaped(cursor, start)
+            out.append("<span class='hl-").append(CodeToken.name(kind)).append("'>")
+            appendEscaped(start, end)
+            out.append("</span>")
+            cursor = end
+        }
+
+        fun finish(): String {
+            appendEscaped(cursor, line.length)
+            return out.toString()
+        }
+
+        private fun appendEscaped(from: Int, to: Int) {
+            for (k in from until to) {
+                when (val c = line[k]) {
+                    '&' -> out.append("&amp;")
+                    '<' -> out.append("&lt;")
+                    '>' -> out.append("&gt;")
+                    '"' -> out.append("&quot;")
+                    '\'' -> out.append("&#39;")
+                    else -> out.append(c)
+                }
+            }
+        }
+    }
+
+    companion object {
+        /** End state of a line that has not been tokenized yet; never equals a real state. */
+        private const val UNKNOWN = -1
+
+        /**
+         * Highlight a whole document in one pass.
+         */
+        fun highlight(content: String, language: String): String {
+            val highlighter = SyntaxHighlighter(CodeLanguages.lexer(language))
+            highlighter.setText(content)
+            return highlighter.toHtml()
+        }
+    }
+}
@@ -19,28 +19,35 @@ class RestructuredTextParser : TextParser {
     override val supportedFormat = FormatRegistry.formats.first { it.id == TextFormat.ID_RESTRUCTUREDTEXT }
     
     override fun parse(content: String, options: Map<String, Any>): ParsedDocument {
-        val sections = extractSections(content)
-        val directives = extractDirectives(content)
+        val lines = RstLines(content)
+        val sections = lines.sections()
+        val directives = lines.directives()
+        val includes = IncludeContext.fromOptions(options)
         
-        return ParsedDocument(
+        val document = ParsedDocument(
             format = supportedFormat,
             rawContent = content,
-            parsedContent = generateRstHtml(content, true),
+            parsedContent = generateRstHtml(lines, true, includes),
             metadata = buildMap {
+                putAll(lines.docinfo())
                 put("sections", sections.size.toString())
                 put("directives", directives.size.toString())
                 put("max_level", sections.maxOfOrNull { it.level }?.toString() ?: "0")
             }
         )
+        document.putAttachment(LINES, lines)
+        includes?.let { document.putAttachment(IncludeContext.KEY, it) }
+        return document
     }
     
     override fun toHtml(document: ParsedDocument, lightMode: Boolean): String {
         val themeClass = if (lightMode) "light" else "dark"
         val styles = StyleSheets.getStyleSheet(TextFormat.ID_RESTRUCTUREDTEXT, lightMode)
+        val lines = document.getAttachment(LINES) ?: RstLines(document.rawContent)
 
         return """
             |<div class="rst-document $themeClass">
-            |${generateRstHtml(document.rawContent, lightMode)}
+            |${generateRstHtml(lines, lightMode, document.getAttachment(IncludeContext.KEY))}
             |</div>
             |$styles
         """.trimMargin()
@@ -54,7 +61,7 @@ class RestructuredTextParser : TextParser {
         val issues = mutableListOf<String>()
         
         // Check for invalid section underlines
-        val sections = extractSections(content)
+        val sections = RstLines(content).sections()
         sections.forEach { section ->
             if (section.underline.length < section.title.length) {
                 issues.add("Section underline too short for '${section.title}'")
@@ -64,144 +71,87 @@ class RestructuredTextParser : TextParser {
         return issues
     }
     
-    private fun extractSections(content: String): List<RstSection> {
-        val sections = mutableListOf<RstSection>()
-        val lines = content.lines()
-        var i = 0
-        
-        while (i < lines.size) {
-            val line = lines[i]
-            if (line.isNotEmpty() && i + 1 < lines.size) {
-                val nextLine = lines[i + 1]
-                if (isUnderline(nextLine)) {
-                    val level = getSectionLevel(nextLine)
-                    sections.add(RstSection(
-                        level = level,
-                        title = line.trim(),
-                        underline = nextLine.trim()
-                    ))
-                    i += 2
-                    continue
-                }
-            }
-            i++
-        }
-        
-        return sections
-    }
-    
-    private fun extractDirectives(content: String): List<RstDirective> {
-        val directives = mutableListOf<RstDirective>()
-        
-        val lines = content.lines()
-        var i = 0
-        
-        while (i < lines.size) {
-            val line = lines[i]
-            if (line.startsWith(".. ") && line.contains("::")) {
-                val directiveName = line.substringAfter(".. ").substringBefore("::").trim()
-                val content = mutableListOf<String>()
-                i++
-                
-                // Collect directive content (indented lines)
-                while (i < lines.size && lines[i].startsWith("   ")) {
-                    content.add(lines[i].trimStart())
-                    i++
-                }
-                
-                directives.add(RstDirective(
-                    name = directiveName,
-                    content = content.joinToString("\n")
-                ))
-            } else {
-                i++
-            }
-        }
-        
-        return directives
-    }
-    
-    private fun isUnderline(line: String): Boolean {
-        val firstChar = line.firstOrNull()
-        return firstChar != null && line.all { it == firstChar } && line.length >= 2
-    }
-    
-    private fun getSectionLevel(underline: String): Int {
-        val char = underline.first()
-        return when (char) {
-            '=' -> 1
-            '-' -> 2
-            '~' -> 3
-            '^' -> 4
-            '"' -> 5
-            else -> 6
-        }
-    }
-    
-    private fun generateRstHtml(content: String, lightMode: Boolean): String {
-        val lines = content.lines()
+    /**
+     * Render reStructuredText to body HTML.
+     *
+     * `.. include:: target` directives are expanded through [includes] when available;
+     * their option lines are skipped. Included files are rendered with this method as
+     * well, so nested includes work.
+     */
+    private fun generateRstHtml(lines: RstLines, lightMode: Boolean, includes: IncludeContext? = null): String {
         val htmlLines = mutableListOf<String>()
+        val types = lines.types
         var inDirective = false
-        var currentDirective = ""
-        var directiveContent = mutableListOf<String>()
+        val directiveContent = mutableListOf<String>()
+        
+        fun closeDirective() {
+            if (!inDirective) return
+            inDirective = false
+            htmlLines.add("<div class=\"rst-directive-content\">${directiveContent.joinToString("\n")}</div>")
+            htmlLines.add("</div>")
+        }
         
         var i = 0
         while (i < lines.size) {
             val line = lines[i]
+            val type = types[i]
+            if (type != RstLineType.DIRECTIVE_CONTENT) closeDirective()
             
-            when {
-                line.startsWith(".. ") && line.contains("::") -> {
+            when (type) {
+                RstLineType.DIRECTIVE -> {
+                    if (includes != null && line.startsWith(".. include::")) {
+                        val target = line.substringAfter("::").trim()
+                        htmlLines.add(includes.render(target, TextFormat.ID_RESTRUCTUREDTEXT) { included, context ->
+                            generateRstHtml(RstLines(included), lightMode, context)
+                        })
+                        // Skip the include options
+                        i++
+                        while (i < lines.size && types[i] == RstLineType.DIRECTIVE_CONTENT) i++
+                        continue
+                    }
                     inDirective = true
-                    currentDirective = line.substringAfter(".. ").substringBefore("::").trim()
                     directiveContent.clear()
                     htmlLines.add("<div class=\"rst-directive\">")
                     htmlLines.add("<div class=\"rst-directive-header\">$line</div>")
-                    i++
-                }
-                inDirective && line.startsWith("   ") -> {
-                    directiveContent.add(line.trimStart())
-                    i++
                 }
-                inDirective -> {
-                    // End of directive
-                    inDirective = false
-                    htmlLines.add("<div class=\"rst-directive-content\">${directiveContent.joinToString("\n")}</div>")
-                    htmlLines.add("</div>")
+                RstLineType.DIRECTIVE_CONTENT -> directiveContent.add(line.trimStart())
+                RstLineType.TITLE -> {
+                    val level = RstLines.sectionLevel(lines[i + 1])
+                    htmlLines.add("<div class=\"rst-section rst-section-$level\">${escapeHtml(line)}</div>")
                 }
-                isSectionTitle(line, i, lines) -> {
-                    // Section heading
-                    val title = line
-                    val underline = lines[i + 1]
-                    val level = getSectionLevel(underline)
-                    htmlLines.add("<div class=\"rst-section rst-section-$level\">${escapeHtml(title)}</div>")
-                    i += 2
+                RstLineType.UNDERLINE, RstLineType.OVERLINE -> {
+                    // Adornment of a section title
                 }
-                line.isNotEmpty() -> {
-                    // Regular paragraph
-                    htmlLines.add("<p>${escapeHtml(line)}</p>")
-                    i++
-                }
-                else -> {
-                    // Empty line
-                    htmlLines.add("<br>")
-                    i++
+                RstLineType.LITERAL -> {
+                    // Literal block: consecutive literal lines and the blank lines between them
+                    val start = i
+                    var end = i + 1
+                    while (end < lines.size && (types[end] == RstLineType.LITERAL ||
+                            (types[end] == RstLineType.BLANK && end + 1 < lines.size && types[end + 1] == RstLineType.LITERAL))
+                    ) end++
+                    val indent = (start until end).filter { types[it] == RstLineType.LITERAL }
+                        .minOf { index -> lines[index].takeWhile { it == ' ' || it == '\t' }.length }
+                    val code = (start until end).joinToString("\n") { index -> escapeHtml(lines[index].drop(indent)) }
+                    htmlLines.add("<pre class=\"rst-block\">$code</pre>")
+                    i = end
+                    continue
                 }
+                RstLineType.BLANK -> htmlLines.add("<br>")
+                else -> htmlLines.add("<p>${escapeHtml(line)}</p>")
             }
+            i++
         }
         
-        // Close any open directive
-        if (inDirective) {
-            htmlLines.add("<div class=\"rst-directive-content\">${directiveContent.joinToString("\n")}</div>")
-            htmlLines.add("</div>")
-        }
+        closeDirective()
         
         return htmlLines.joinToString("\n")
     }
     
-    private fun isSectionTitle(line: String, index: Int, lines: List<String>): Boolean {
-        if (index + 1 >= lines.size) return false
-        val nextLine = lines[index + 1]
-        return isUnderline(nextLine) && line.isNotEmpty()
+    companion object {
+        /**
+         * Attachment holding the classified lines, so [toHtml] does not classify again.
+         */
+        private val LINES = AttachmentKey<RstLines>("rst.lines")
     }
     
     private fun escapeHtml(text: String): String {
@@ -0,0 +1,198 @@
+/*#######################################################
+ *
+ * SPDX-FileCopyrightText: 2025 Milos Vasic
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * reStructuredText Line Classification
+ * Single-pass line typing shared by metadata extraction and rendering
+ *
+ *########################################################*/
+package digital.vasic.yole.format.restructuredtext
+
+/**
+ * Line types stored in [RstLines.types].
+ */
+internal object RstLineType {
+    const val BLANK: Byte = 0
+    const val PARAGRAPH: Byte = 1
+    const val TITLE: Byte = 2
+    const val UNDERLINE: Byte = 3
+    const val OVERLINE: Byte = 4
+    const val DIRECTIVE: Byte = 5
+    const val DIRECTIVE_CONTENT: Byte = 6
+    const val FIELD: Byte = 7
+    const val LITERAL: Byte = 8
+}
+
+/**
+ * The lines of a reStructuredText document, each classified once.
+ *
+ * Classification is a single forward pass; section extraction, directive
+ * extraction, validation and HTML generation then read [types] instead of
+ * re-scanning the content and looking at neighbouring lines again.
+ *
+ * @param content The reStructuredText source
+ */
+internal class RstLines(content: String) {
+    val lines: List<String> = content.lines()
+
+    /** One [RstLineType] per line. */
+    val types = ByteArray(lines.size)
+
+    val size: Int get() = lines.size
+
+    init {
+        classify()
+    }
+
+    operator fun get(index: Int): String = lines[index]
+
+    /**
+     * All section titles in document order.
+     */
+    fun sections(): List<RstSection> {
+        val sections = mutableListOf<RstSection>()
+        for (i in types.indices) {
+            if (types[i] == RstLineType.TITLE) {
+                val underline = lines[i + 1].trim()
+                sections.add(RstSection(sectionLevel(underline), lines[i].trim(), underline))
+            }
+        }
+        return sections
+    }
+
+    /**
+     * All directives with their indented content in document order.
+     */
+    fun directives(): List<RstDirective> {
+        val directives = mutableListOf<RstDirective>()
+        var i = 0
+        while (i < types.size) {
+            if (types[i] != RstLineType.DIRECTIVE) {
+                i++
+                continue
+            }
+            val name = lines[i].substringAfter(".. ").substringBefore("::").trim()
+            val start = ++i
+            while (i < types.size && types[i] == RstLineType.DIRECTIVE_CONTENT) i++
+            directives.add(RstDirective(name, (start until i).joinToString("\n") { lines[it].trimStart() }))
+        }
+        return directives
+    }
+
+    /**
+     * Bibliographic fields (`:Author: ...`) of the field list at the top of the
+     * document, i.e. before the first paragraph or directive, keyed by lowercase name.
+     */
+    fun docinfo(): Map<String, String> {
+        val fields = LinkedHashMap<String, String>()
+        for (i in types.indices) {
+            when (types[i]) {
+                RstLineType.FIELD -> {
+                    val line = lines[i]
+                    val end = line.indexOf(':', 1)
+                    fields[line.substring(1, end).trim().lowercase()] = line.substring(end + 1).trim()
+                }
+                RstLineType.BLANK, RstLineType.TITLE, RstLineType.UNDERLINE, RstLineType.OVERLINE -> Unit
+                else -> break
+            }
+        }
+        return fields
+    }
+
+    private fun classify() {
+        var inDirective = false
+        var literalPending = false
+        var inLiteral = false
+
+        var i = 0
+        while (i < lines.size) {
+            val line = lines[i]
+            val indented = line.isNotEmpty() && (line[0] == ' ' || line[0] == '\t')
+
+            when {
+                line.startsWith(".. ") && line.contains("::") -> {
+                    types[i] = RstLineType.DIRECTIVE
+                    inDirective = true
+                    inLiteral = false
+                    literalPending = false
+                }
+                inDirective && line.startsWith("   ") -> types[i] = RstLineType.DIRECTIVE_CONTENT
+                line.isBlank() -> {
+                    types[i] = RstLineType.BLANK
+                    inDirective = false
+                    if (inLiteral) literalPending = true
+                    inLiteral = false
+                }
+                literalPending && indented -> {
+                    types[i] = RstLineType.LITERAL
+                    inLiteral = true
+                }
+                else -> {
+                    inDirective = false
+                    inLiteral = false
+                    literalPending = false
+
+                    if (isUnderline(line) && i + 2 < lines.size && lines[i + 1].isNotBlank() &&
+                        isUnderline(lines[i + 2]) && lines[i + 2][0] == line[0]
+                    ) {
+                        types[i] = RstLineType.OVERLINE
+                        types[i + 1] = RstLineType.TITLE
+                        types[i + 2] = RstLineType.UNDERLINE
+                        i += 3
+                        continue
+                    }
+                    if (i + 1 < lines.size && isUnderline(lines[i + 1])) {
+                        types[i] = RstLineType.TITLE
+                        types[i + 1] = RstLineType.UNDERLINE
+                        i += 2
+                        continue
+                    }
+
+                    types[i] = if (isField(line)) RstLineType.FIELD else RstLineType.PARAGRAPH
+                    literalPending = line.endsWith("::")
+                }
+            }
+            i++
+        }
+    }
+
+    companion object {
+        /**
+         * A section adornment: at least two repetitions of one punctuation character.
+         */
+        fun isUnderline(line: String): Boolean {
+            if (line.length < 2) return false
+            val first = line[0]
+            if (first.isLetterOrDigit() || first.isWhitespace()) return false
+            for (c in line) {
+                if (c != first) return false
+            }
+            return true
+        }
+
+        fun sectionLevel(underline: String): Int {
+            return when (underline.first()) {
+                '=' -> 1
+                '-' -> 2
+                '~' -> 3
+                '^' -> 4
+                '"' -> 5
+                else -> 6
+            }
+        }
+
+        /**
+         * A field list item such as `:Author: Jane`.
+         */
+        private fun isField(line: String): Boolean {
+            if (line.length < 3 || line[0] != ':' || line[1] == ':') return false
+            val end = line.indexOf(':', 1)
+            if (end < 0 || (end + 1 < line.length && line[end + 1] != ' ')) return false
+            for (i in 1 until end) {
+                if (line[i] == '`') return false
+            }
+            return true
+        }
+    }
+}
@@ -10,6 +10,7 @@
 package digital.vasic.yole.format.rmarkdown
 
 import digital.vasic.yole.format.*
+import digital.vasic.yole.format.markdown.MarkdownParser
 
 /**
  * Parser for R Markdown (.rmd, .rmarkdown) files
@@ -17,46 +18,54 @@ import digital.vasic.yole.format.*
 class RMarkdownParser : TextParser {
     
     override val supportedFormat = FormatRegistry.formats.first { it.id == TextFormat.ID_RMARKDOWN }
+
+    /**
+     * Markdown engine for the prose between chunks, created on first use.
+     */
+    private val markdownParser by lazy { MarkdownParser() }
     
     override fun parse(content: String, options: Map<String, Any>): ParsedDocument {
-        val filename = options["filename"] as? String ?: ""
-        
-        val (frontMatter, markdownContent) = extractFrontMatter(content)
-        val codeChunks = extractCodeChunks(markdownContent)
+        val structure = RMarkdownScanner.scan(content)
+        val codeChunks = structure.chunks
         
-        return ParsedDocument(
+        val document = ParsedDocument(
             format = supportedFormat,
             rawContent = content,
-            parsedContent = generateContentHtml(markdownContent, codeChunks, true),
+            parsedContent = generateContentHtml(structure, true),
             metadata = buildMap {
-                put("has_frontmatter", frontMatter.isNotEmpty().toString())
+                put("has_frontmatter", structure.frontMatter.isNotEmpty().toString())
                 put("code_chunks", codeChunks.size.toString())
                 put("r_chunks", codeChunks.count { it.language == "r" }.toString())
-                frontMatter.forEach { (key, value) -> put(key, value) }
-            }
+                structure.frontMatter.forEach { (key, value) -> put(key, value) }
+            },
+            errors = validate(structure)
         )
+        document.putAttachment(STRUCTURE, structure)
+        return document
     }
     
     override fun toHtml(document: ParsedDocument, lightMode: Boolean): String {
-        val (frontMatter, markdownContent) = extractFrontMatter(document.rawContent)
-        val codeChunks = extractCodeChunks(markdownContent)
+        val structure = document.getAttachment(STRUCTURE) ?: RMarkdownScanner.scan(document.rawContent)
+        val codeChunks = structure.chunks
         
         val themeClass = if (lightMode) "light" else "dark"
-        val title = frontMatter["title"] ?: "R Markdown Document"
+        val title = structure.frontMatter["title"] ?: "R Markdown Document"
+        val markdownStyles = if (structure.blocks.any { it is RMarkdownBlock.Prose }) StyleSheets.MARKDOWN_STYLES else ""
         
         return """
             |<div class="rmarkdown-document $themeClass">
             |<div class="rmarkdown-header">
-            |  <h1>$title</h1>
+            |  <h1>${escapeHtml(title)}</h1>
             |  <div class="document-info">
             |    <span class="code-chunks">R Code Chunks: ${codeChunks.count { it.language == "r" }}</span>
             |    <span class="total-chunks">Total Chunks: ${codeChunks.size}</span>
             |  </div>
             |</div>
             |<div class="rmarkdown-content">
-            |${generateContentHtml(markdownContent, codeChunks, lightMode)}
+            |${generateContentHtml(structure, lightMode)}
             |</div>
             |</div>
+            |$markdownStyles
             |<style>
             |.rmarkdown-document { font-family: sans-serif; line-height: 1.6; }
             |.rmarkdown-document.light { background: white; color: black; }
@@ -84,105 +93,38 @@ class RMarkdownParser : TextParser {
     }
     
     override fun validate(content: String): List<String> {
+        return validate(RMarkdownScanner.scan(content))
+    }
+
+    private fun validate(structure: RMarkdownStructure): List<String> {
         val issues = mutableListOf<String>()
         
-        // Check for unclosed code chunks
-        val chunkStarts = "```\\{[^}]*\\}".toRegex().findAll(content).count()
-        val chunkEnds = "```".toRegex().findAll(content).count()
-        
-        if (chunkStarts * 2 != chunkEnds) {
-            issues.add("Mismatched code chunk delimiters")
+        structure.blocks.forEach { block ->
+            if (block is RMarkdownBlock.Chunk && !block.closed) {
+                issues.add("Line ${block.startLine}: Mismatched code chunk delimiters, chunk is never closed")
+            }
         }
         
-        // Check for unclosed front matter
-        if (content.contains("---") && content.indexOf("---") != content.lastIndexOf("---")) {
-            val firstDash = content.indexOf("---")
-            val secondDash = content.indexOf("---", firstDash + 3)
-            if (secondDash == -1) {
-                issues.add("Unclosed YAML front matter")
-            }
+        if (!structure.frontMatterClosed) {
+            issues.add("Line 1: Unclosed YAML front matter")
         }
         
         return issues
     }
     
-    private fun extractFrontMatter(content: String): Pair<Map<String, String>, String> {
-        val lines = content.lines()
-        if (lines.isEmpty() || lines[0] != "---") {
-            return emptyMap<String, String>() to content
-        }
-        
-        val frontMatter = mutableMapOf<String, String>()
-        var i = 1
-        
-        while (i < lines.size && lines[i] != "---") {
-            val line = lines[i].trim()
-            if (line.contains(":")) {
-                val parts = line.split(":", limit = 2)
-                val key = parts[0].trim()
-                val value = parts[1].trim()
-                frontMatter[key] = value
+    /**
+     * Render prose through the Markdown engine and chunks as styled code blocks.
+     */
+    private fun generateContentHtml(structure: RMarkdownStructure, lightMode: Boolean): String {
+        val html = StringBuilder()
+        structure.blocks.forEach { block ->
+            when (block) {
+                is RMarkdownBlock.Prose -> html.append(markdownParser.toHtmlFragment(block.text))
+                is RMarkdownBlock.Chunk -> html.append(generateCodeChunkHtml(block.chunk, lightMode))
             }
-            i++
-        }
-        
-        val remainingContent = lines.drop(i + 1).joinToString("\n")
-        return frontMatter to remainingContent
-    }
-    
-    private fun extractCodeChunks(content: String): List<CodeChunk> {
-        val chunks = mutableListOf<CodeChunk>()
-        val chunkRegex = "```\\{([^}]+)\\}\\s*\\n([\\s\\S]*?)\\n```".toRegex()
-        
-        chunkRegex.findAll(content).forEach { matchResult ->
-            val languageAndOptions = matchResult.groupValues[1].trim()
-            val code = matchResult.groupValues[2]
-            
-            // Extract language (first word before any options)
-            val language = languageAndOptions.split(",", " ").first().trim()
-            
-            chunks.add(CodeChunk(
-                language = language,
-                code = code,
-                options = languageAndOptions
-            ))
+            html.append("\n")
         }
-        
-        return chunks
-    }
-    
-    private fun generateContentHtml(content: String, codeChunks: List<CodeChunk>, lightMode: Boolean): String {
-        var processedContent = content
-        
-        // Replace code chunks with styled versions
-        codeChunks.forEach { chunk ->
-            val originalChunk = "```{${chunk.options}}\n${chunk.code}\n```"
-            val styledChunk = generateCodeChunkHtml(chunk, lightMode)
-            processedContent = processedContent.replace(originalChunk, styledChunk)
-        }
-        
-        // Process regular markdown content (simplified - in production, use a markdown parser)
-        return processedContent
-            .replace("```([^`]+)```".toRegex()) { match ->
-                val code = match.groupValues[1]
-                "<pre><code>${escapeHtml(code)}</code></pre>"
-            }
-            .replace("\n\n", "</p><p>")
-            .replace("# (.+)".toRegex()) { match ->
-                "<h1>${match.groupValues[1]}</h1>"
-            }
-            .replace("## (.+)".toRegex()) { match ->
-                "<h2>${match.groupValues[1]}</h2>"
-            }
-            .replace("### (.+)".toRegex()) { match ->
-                "<h3>${match.groupValues[1]}</h3>"
-            }
-            .replace("\\*\\*(.+)\\*\\*".toRegex()) { match ->
-                "<strong>${match.groupValues[1]}</strong>"
-            }
-            .replace("\\*(.+)\\*".toRegex()) { match ->
-                "<em>${match.groupValues[1]}</em>"
-            }
+        return html.toString()
     }
     
     private fun generateCodeChunkHtml(chunk: CodeChunk, lightMode: Boolean): String {
@@ -206,6 +148,13 @@ class RMarkdownParser : TextParser {
         """.trimMargin()
     }
     
+    companion object {
+        /**
+         * Attachment holding the scanned structure, so [toHtml] does not rescan.
+         */
+        val STRUCTURE = AttachmentKey<RMarkdownStructure>("rmarkdown.structure")
+    }
+    
     private fun escapeHtml(text: String): String {
         return text
             .replace("&", "&amp;")
@@ -223,8 +172,19 @@ fun registerRMarkdownParser() {
     ParserRegistry.register(RMarkdownParser())
 }
 
+/**
+ * An executable code chunk.
+ *
+ * @property language The chunk engine, e.g. `r` or `python`
+ * @property code The chunk body
+ * @property options The raw header between the braces
+ * @property label The chunk label, if any
+ * @property parameters The `key=value` chunk options in header order
+ */
 data class CodeChunk(
     val language: String,
     val code: String,
-    val options: String
+    val options: String,
+    val label: String? = null,
+    val parameters: Map<String, String> = emptyMap()
 )
\ No newline at end of file
@@ -0,0 +1,314 @@
+/*#######################################################
+ *
+ * SPDX-FileCopyrightText: 2025 Milos Vasic
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * R Markdown Scanner for Kotlin Multiplatform
+ * Single-pass, line-oriented chunk scanner
+ *
+ *########################################################*/
+package digital.vasic.yole.format.rmarkdown
+
+/**
+ * A block of an R Markdown document, in document order.
+ */
+sealed class RMarkdownBlock {
+    /** 1-based line of the first line of the block. */
+    abstract val startLine: Int
+
+    /**
+     * Markdown prose between code chunks, including plain fenced code blocks.
+     */
+    data class Prose(val text: String, override val startLine: Int) : RMarkdownBlock()
+
+    /**
+     * An executable code chunk such as ```` ```{r setup, echo=FALSE} ````.
+     *
+     * @property closed false if the document ended before the closing fence
+     */
+    data class Chunk(
+        val chunk: CodeChunk,
+        override val startLine: Int,
+        val closed: Boolean
+    ) : RMarkdownBlock()
+}
+
+/**
+ * Result of scanning an R Markdown document.
+ *
+ * @property frontMatter Top-level `key: value` pairs of the YAML front matter
+ * @property frontMatterClosed false if the front matter was opened but never closed
+ * @property blocks Prose and chunks in document order
+ */
+data class RMarkdownStructure(
+    val frontMatter: Map<String, String>,
+    val frontMatterClosed: Boolean,
+    val blocks: List<RMarkdownBlock>
+) {
+    /**
+     * All code chunks in document order.
+     */
+    val chunks: List<CodeChunk>
+        get() = blocks.mapNotNull { (it as? RMarkdownBlock.Chunk)?.chunk }
+}
+
+/**
+ * Line-oriented R Markdown scanner.
+ *
+ * Finds the YAML front matter, chunk headers and chunk bodies in a single pass over
+ * the content. Every line is inspected a constant number of times, so scanning is
+ * linear in the content length even for documents with unbalanced fences, which
+ * made the previous regex-based extraction backtrack.
+ *
+ * @example
+ * ```kotlin
+ * val structure = RMarkdownScanner.scan(content)
+ * structure.chunks.forEach { println("${it.language} ${it.label}") }
+ * ```
+ */
+object RMarkdownScanner {
+
+    /**
+     * Scan an R Markdown document.
+     */
+    fun scan(content: String): RMarkdownStructure {
+        val blocks = mutableListOf<RMarkdownBlock>()
+        val frontMatter = mutableMapOf<String, String>()
+        var frontMatterClosed = true
+
+        var lineStart = 0
+        var lineNumber = 1
+
+        // YAML front matter: "---" on the first line until "---" or "..."
+        if (lineText(content, 0).trimEnd() == "---") {
+            var pos = nextLine(content, 0)
+            var line = 2
+            var end = -1
+            while (pos < content.length) {
+                val text = lineText(content, pos)
+                val trimmed = text.trimEnd()
+                if (trimmed == "---" || trimmed == "...") {
+                    end = nextLine(content, pos)
+                    break
+                }
+                parseFrontMatterLine(text, frontMatter)
+                pos = nextLine(content, pos)
+                line++
+            }
+            if (end >= 0) {
+                lineStart = end
+                lineNumber = line + 1
+            } else {
+                // Unclosed front matter is treated as prose
+                frontMatterClosed = false
+                frontMatter.clear()
+            }
+        }
+
+        var proseStart = lineStart
+        var proseLine = lineNumber
+        var proseFence = ""
+
+        while (lineStart < content.length) {
+            val lineEnd = lineEnd(content, lineStart)
+            val indent = indentOf(content, lineStart, lineEnd)
+            val fenceLength = fenceLength(content, lineStart + indent, lineEnd)
+
+            if (proseFence.isNotEmpty()) {
+                // Inside a plain fenced code block; chunk headers are literal text here
+                if (fenceLength >= proseFence.length && isBlank(content, lineStart + indent + fenceLength, lineEnd)) {
+                    proseFence = ""
+                }
+            } else if (fenceLength >= 3) {
+                val afterFence = lineStart + indent + fenceLength
+                val headerEnd = if (afterFence < lineEnd && content[afterFence] == '{') {
+                    indexOf(content, '}', afterFence, lineEnd)
+                } else {
+                    -1
+                }
+
+                if (headerEnd < 0) {
+                    proseFence = content.substring(lineStart + indent, afterFence)
+                } else {
+                    if (lineStart > proseStart) {
+                        blocks.add(RMarkdownBlock.Prose(content.substring(proseStart, lineStart), proseLine))
+                    }
+
+                    val header = content.substring(afterFence + 1, headerEnd)
+                    val chunkLine = lineNumber
+                    val bodyStart = nextLine(content, lineStart)
+                    var pos = bodyStart
+                    var line = lineNumber + 1
+                    var bodyEnd = content.length
+                    var closed = false
+                    while (pos < content.length) {
+                        val end = lineEnd(content, pos)
+                        val bodyIndent = indentOf(content, pos, end)
+                        val length = fenceLength(content, pos + bodyIndent, end)
+                        if (length >= fenceLength && isBlank(content, pos + bodyIndent + length, end)) {
+                            bodyEnd = pos
+                            closed = true
+                            break
+                        }
+                        pos = nextLine(content, pos)
+                        line++
+                    }
+
+                    val code = content.substring(bodyStart.coerceAtMost(bodyEnd), bodyEnd).removeSuffix("\n")
+                    blocks.add(RMarkdownBlock.Chunk(parseChunkHeader(header, code), chunkLine, closed))
+
+                    lineStart = if (closed) nextLine(content, pos) else content.length
+                    lineNumber = if (closed) line + 1 else line
+                    proseStart = lineStart
+                    proseLine = lineNumber
+                    continue
+                }
+            }
+
+            lineStart = nextLine(content, lineStart)
+            lineNumber++
+        }
+
+        if (proseStart < content.length) {
+            blocks.add(RMarkdownBlock.Prose(content.substring(proseStart), proseLine))
+        }
+
+        return RMarkdownStructure(frontMatter, frontMatterClosed, blocks)
+    }
+
+    /**
+     * Parse a chunk header (the text between the braces) such as
+     * `r setup, echo=FALSE, fig.cap="A, B"`.
+     *
+     * The first word is the engine, an unnamed first option is the chunk label and
+     * the remaining `key=value` options are split at top-level commas; quoted values
+     * may contain commas.
+     *
+     * @param header The header without braces
+     * @param code The chunk body
+     */
+    fun parseChunkHeader(header: String, code: String = ""): CodeChunk {
+        val options = header.trim()
+        var i = 0
+        while (i < options.length && options[i] != ' ' && options[i] != ',' && options[i] != '\t') i++
+        val language = options.substring(0, i)
+
+        var label: String? = null
+        val parameters = LinkedHashMap<String, String>()
+        var first = true
+        val current = StringBuilder()
+        var quote = '\u0000'
+        var depth = 0
+
+        fun flush() {
+            val option = current.toString().trim()
+            current.clear()
+            if (option.isEmpty()) return
+            val equals = option.indexOf('=')
+            if (equals < 0) {
+                if (first) label = option
+            } else {
+                parameters[option.substring(0, equals).trim()] = option.substring(equals + 1).trim()
+            }
+            first = false
+        }
+
+        while (i < options.length) {
+            val c = options[i]
+            when {
+                quote != '\u0000' -> {
+                    current.append(c)
+                    if (c == '\\' && i + 1 < options.length) {
+                        current.append(options[++i])
+                    } else if (c == quote) {
+                        quote = '\u0000'
+                    }
+                }
+                c == '"' || c == '\'' -> {
+                    quote = c
+                    current.append(c)
+                }
+                c == '(' || c == '[' -> {
+                    depth++
+                    current.append(c)
+                }
+                c == ')' || c == ']' -> {
+                    depth--
+                    current.append(c)
+                }
+                c == ',' && depth <= 0 -> flush()
+                else -> current.append(c)
+            }
+            i++
+        }
+        flush()
+
+        return CodeChunk(
+            language = language,
+            code = code,
+            options = options,
+            label = label,
+            parameters = parameters
+        )
+    }
+
+    private fun parseFrontMatterLine(line: String, into: MutableMap<String, String>) {
+        if (line.isEmpty() || line[0] == ' ' || line[0] == '\t' || line[0] == '#') return
+        val colon = line.indexOf(':')
+        if (colon <= 0) return
+        into[line.substring(0, colon).trim()] = unquote(line.substring(colon + 1).trim())
+    }
+
+    private fun unquote(value: String): String {
+        if (value.length >= 2 && (value[0] == '"' || value[0] == '\'') && value.last() == value[0]) {
+            return value.substring(1, value.length - 1)
+        }
+        return value
+    }
+
+    private fun lineEnd(content: String, from: Int): Int {
+        val newline = content.indexOf('\n', from)
+        val end = if (newline < 0) content.length else newline
+        return if (end > from && content[end - 1] == '\r') end - 1 else end
+    }
+
+    private fun nextLine(content: String, from: Int): Int {
+        val newline = content.indexOf('\n', from)
+        return if (newline < 0) content.length else newline + 1
+    }
+
+    /**
+     * Index of [c] within [from] until [end], or -1. Bounded by the line so a
+     * missing closing brace never scans the rest of the document.
+     */
+    private fun indexOf(content: String, c: Char, from: Int, end: Int): Int {
+        for (i in from until end) {
+            if (content[i] == c) return i
+        }
+        return -1
+    }
+
+    private fun lineText(content: String, from: Int): String = content.substring(from, lineEnd(content, from))
+
+    /**
+     * Number of leading spaces (at most 3, like Markdown fences).
+     */
+    private fun indentOf(content: String, from: Int, end: Int): Int {
+        var i = from
+        while (i < end && i - from < 3 && content[i] == ' ') i++
+        return i - from
+    }
+
+    private fun fenceLength(content: String, from: Int, end: Int): Int {
+        var i = from
+        while (i < end && content[i] == '`') i++
+        return if (i - from >= 3) i - from else 0
+    }
+
+    private fun isBlank(content: String, from: Int, end: Int): Boolean {
+        for (i in from until end) {
+            if (content[i] != ' ' && content[i] != '\t') return false
+        }
+        return true
+    }
+}
@@ -47,7 +47,6 @@ class TextileParser : TextParser {
      * Convert Textile to HTML
      */
     private fun convertToHtml(content: String): String {
-        val lines = content.lines()
         val html = StringBuilder()
 
         html.append("<div class='textile'>")
@@ -66,165 +65,12 @@ class TextileParser : TextParser {
         html.append(".textile a:hover { text-decoration: underline; }")
         html.append("</style>")
 
-        var inUnorderedList = false
-        var inOrderedList = false
-        var inPre = false
-
-        for (line in lines) {
-            val trimmed = line.trim()
-
-            // Handle pre-formatted blocks
-            if (trimmed.startsWith("pre.")) {
-                if (!inPre) {
-                    html.append("<pre>")
-                    inPre = true
-                }
-                continue
-            } else if (inPre && trimmed.isEmpty()) {
-                html.append("</pre>")
-                inPre = false
-                continue
-            } else if (inPre) {
-                html.append(line.escapeHtml())
-                html.append("\n")
-                continue
-            }
-
-            // Detect line types
-            val isUnorderedList = trimmed.startsWith("* ")
-            val isOrderedList = trimmed.startsWith("# ")
-            val isEmpty = trimmed.isEmpty()
-
-            // Handle lists
-            if (isUnorderedList) {
-                if (!inUnorderedList) {
-                    if (inOrderedList) { html.append("</ol>"); inOrderedList = false }
-                    html.append("<ul>")
-                    inUnorderedList = true
-                }
-                val text = trimmed.substring(2)
-                html.append("<li>${convertInlineMarkup(text)}</li>")
-            } else if (isOrderedList) {
-                if (!inOrderedList) {
-                    if (inUnorderedList) { html.append("</ul>"); inUnorderedList = false }
-                    html.append("<ol>")
-                    inOrderedList = true
-                }
-                val text = trimmed.substring(2)
-                html.append("<li>${convertInlineMarkup(text)}</li>")
-            } else {
-                // Close any open lists
-                if (inUnorderedList) { html.append("</ul>"); inUnorderedList = false }
-                if (inOrderedList) { html.append("</ol>"); inOrderedList = false }
-
-                if (!isEmpty) {
-                    html.append(convertLine(line))
-                }
-            }
-        }
-
-        // Close any open lists
-        if (inUnorderedList) html.append("</ul>")
-        if (inOrderedList) html.append("</ol>")
-        if (inPre) html.append("</pre>")
+        RENDERER.render(content, html)
 
         html.append("</div>")
         return html.toString()
     }
 
-    /**
-     * Convert a single line of Textile to HTML
-     */
-    private fun convertLine(line: String): String {
-        val trimmed = line.trim()
-
-        // Headings: h1. Heading, h2. Heading, etc.
-        val headingMatch = Regex("^h([1-6])\\.\\.?\\s+(.+)$").find(trimmed)
-        if (headingMatch != null) {
-            val level = headingMatch.groupValues[1]
-            val text = headingMatch.groupValues[2]
-            return "<h$level>${convertInlineMarkup(text)}</h$level>"
-        }
-
-        // Blockquote: bq. Text
-        if (trimmed.startsWith("bq. ")) {
-            val text = trimmed.substring(4)
-            return "<blockquote>${convertInlineMarkup(text)}</blockquote>"
-        }
-
-        // Paragraph
-        if (trimmed.isNotEmpty()) {
-            return "<p>${convertInlineMarkup(trimmed)}</p>"
-        }
-
-        return ""
-    }
-
-    /**
-     * Convert inline Textile markup to HTML
-     */
-    private fun convertInlineMarkup(text: String): String {
-        var result = text
-
-        // Process inline code and links BEFORE escaping
-        result = result.replace(Regex("""@([^@]+)@""")) { match ->
-            val code = match.groupValues[1].escapeHtml()
-            "##CODE##$code##/CODE##"
-        }
-
-        // Links: "text":url
-        result = result.replace(Regex(""""([^"]+)":(\S+)""")) { match ->
-            val linkText = match.groupValues[1]
-            val url = match.groupValues[2]
-            "##LINK##$url##SEP##$linkText##/LINK##"
-        }
-
-        // Images: !imageurl!
-        result = result.replace(Regex("""!([^!]+)!""")) { match ->
-            val img = match.groupValues[1]
-            "##IMG##$img##/IMG##"
-        }
-
-        // Escape HTML
-        result = result.escapeHtml()
-
-        // Strong emphasis: **text**
-        result = result.replace(Regex("""\*\*([^*]+)\*\*""")) { "<strong>${it.groupValues[1]}</strong>" }
-
-        // Bold: *text*
-        result = result.replace(Regex("""\*([^*]+)\*""")) { "<b>${it.groupValues[1]}</b>" }
-
-        // Double emphasis: __text__
-        result = result.replace(Regex("""__([^_]+)__""")) { "<em><em>${it.groupValues[1]}</em></em>" }
-
-        // Emphasis/Italics: _text_
-        result = result.replace(Regex("""_([^_]+)_""")) { "<em>${it.groupValues[1]}</em>" }
-
-        // Strikethrough: -text-
-        result = result.replace(Regex("""-([^-]+)-""")) { "<s>${it.groupValues[1]}</s>" }
-
-        // Superscript: ^text^
-        result = result.replace(Regex("""\^([^^]+)\^""")) { "<sup>${it.groupValues[1]}</sup>" }
-
-        // Subscript: ~text~
-        result = result.replace(Regex("""~([^~]+)~""")) { "<sub>${it.groupValues[1]}</sub>" }
-
-        // Restore inline code
-        result = result.replace(Regex("""##CODE##(.+?)##/CODE##""")) { "<code>${it.groupValues[1]}</code>" }
-
-        // Restore links
-        result = result.replace(Regex("""##LINK##(.+?)##SEP##(.+?)##/LINK##""")) { match ->
-            "<a href='${match.groupValues[1]}'>${match.groupValues[2]}</a>"
-        }
-
-        // Restore images
-        result = result.replace(Regex("""##IMG##(.+?)##/IMG##""")) { match ->
-            "<img src='${match.groupValues[1]}' alt='${match.groupValues[1]}'/>"
-        }
-
-        return result
-    }
-
     /**
      * Extract file extension from filename
      */
@@ -272,6 +118,64 @@ class TextileParser : TextParser {
     companion object {
         // Supported extensions
         val EXTENSIONS = setOf(".textile", ".txt")
+
+        /**
+         * Inline markup table: code, links and images first, then emphasis.
+         */
+        private val INLINE = InlineFormatter(
+            listOf(
+                InlineRule("@", "@", InlineContent.TEXT, excluded = "@", atomic = true) { "<code>$it</code>" },
+                // "text":url - the URL runs to the next whitespace
+                InlineRule("\"", "\":", InlineContent.RAW, excluded = "\"", atomic = true, suffix = ::urlEnd) { link ->
+                    val separator = link.indexOf("\":")
+                    "<a href='${text(link.substring(separator + 2))}'>${format(link.substring(0, separator))}</a>"
+                },
+                InlineRule("!", "!", InlineContent.TEXT, excluded = "!", atomic = true) { "<img src='$it' alt='$it'/>" },
+                InlineRule("**", "**", excluded = "*") { "<strong>$it</strong>" },
+                InlineRule("*", "*", excluded = "*") { "<b>$it</b>" },
+                InlineRule("__", "__", excluded = "_") { "<em><em>$it</em></em>" },
+                InlineRule("_", "_", excluded = "_") { "<em>$it</em>" },
+                InlineRule("-", "-", excluded = "-") { "<s>$it</s>" },
+                InlineRule("^", "^", excluded = "^") { "<sup>$it</sup>" },
+                InlineRule("~", "~", excluded = "~") { "<sub>$it</sub>" }
+            )
+        )
+
+        /**
+         * Block grammar: `pre.` blocks up to the next blank line, flat `* ` and `# `
+         * lists, `hN.` headings and `bq.` quotes.
+         */
+        internal val GRAMMAR = WikiGrammar(
+            rules = listOf(
+                LineRules.prefix("* ", WikiToken.BULLET),
+                LineRules.prefix("# ", WikiToken.NUMBERED),
+                LineRule(::heading),
+                LineRules.prefix("bq. ", WikiToken.QUOTE)
+            ),
+            inline = INLINE,
+            code = CodeBlockRule(opens = { it.startsWith("pre.") }, closes = { it.isBlank })
+        )
+
+        private val RENDERER = WikiRenderer(GRAMMAR)
+
+        /**
+         * `h1. Heading` to `h6. Heading`, also with a double dot.
+         */
+        private fun heading(line: WikiLine): Boolean {
+            val text = line.text
+            var p = line.from + 3
+            if (p >= line.to || text[line.from] != 'h' || text[line.from + 1] !in '1'..'6' || text[line.from + 2] != '.') return false
+            if (text[p] == '.') p++
+            if (p >= line.to || !LineRules.isSpace(text[p])) return false
+            while (LineRules.isSpace(text[p])) p++
+            return line.token(WikiToken.HEADING, text[line.from + 1] - '0', p, line.to)
+        }
+
+        private fun urlEnd(text: String, start: Int, end: Int): Int {
+            var p = start
+            while (p < end && !LineRules.isSpace(text[p])) p++
+            return if (p > start) p else -1
+        }
     }
 }
 
@@ -0,0 +1,323 @@
+/*#######################################################
+ *
+ * SPDX-FileCopyrightText: 2025 Milos Vasic
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * TiddlyWiki Tiddler Store - Platform Agnostic
+ * Folder index of tiddler headers with tag and backlink lookups
+ *
+ *########################################################*/
+package digital.vasic.yole.format.tiddlywiki
+
+import okio.BufferedSource
+import okio.FileSystem
+import okio.IOException
+import okio.Path
+
+/**
+ * Header of one tiddler file as kept by [TiddlerStore].
+ *
+ * @property path File the tiddler was read from
+ * @property title Tiddler title; the file name without extension when there is no `title` field
+ * @property metadata Header fields of the tiddler
+ * @property links Targets of the `[[links]]` in the tiddler body
+ * @property modTime Modification time of the file when it was read, or -1 if unknown
+ */
+data class TiddlerHeader(
+    val path: Path,
+    val title: String,
+    val metadata: TiddlerMetadata,
+    val links: Set<String>,
+    val modTime: Long
+)
+
+/**
+ * Index over a TiddlyWiki folder of `.tid` / `.tiddler` files.
+ *
+ * [scan] reads the folder once. For each tiddler only the header fields are
+ * parsed; the body is streamed line by line to collect `[[link]]` targets and is
+ * never rendered or kept. Tags and links are indexed by file, so [tagged] and
+ * [backlinks] are hash lookups. When files change, [update] or [refresh] re-read
+ * only the affected tiddlers and patch the indices in place.
+ *
+ * Tags use TiddlyWiki syntax: space separated, with `[[double brackets]]` around
+ * tags containing spaces. Links follow [TiddlyWikiParser]: in `[[A|B]]` the target
+ * is `A`. The store is not thread-safe.
+ *
+ * @param fileSystem File system to read tiddlers from
+ * @param directory Root folder of the wiki; sub folders are included
+ *
+ * @example
+ * ```kotlin
+ * val store = TiddlerStore(FileSystem.SYSTEM, "/notes/wiki/tiddlers".toPath())
+ * store.scan()
+ * store.tagged("Project")       // titles tagged "Project"
+ * store.backlinks("HelloThere")  // titles linking to "HelloThere"
+ *
+ * // After an edit
+ * store.update(changedPath)
+ * ```
+ */
+class TiddlerStore(
+    val fileSystem: FileSystem,
+    val directory: Path
+) {
+    private val byPath = HashMap<Path, TiddlerHeader>()
+    private val byTitle = HashMap<String, Path>()
+
+    /** Tag → files carrying the tag. */
+    private val tagIndex = HashMap<String, MutableSet<Path>>()
+
+    /** Link target title → files linking to it. */
+    private val backlinkIndex = HashMap<String, MutableSet<Path>>()
+
+    /**
+     * Number of indexed tiddler files.
+     */
+    val size: Int get() = byPath.size
+
+    /**
+     * Titles of all indexed tiddlers.
+     */
+    val titles: Set<String> get() = byTitle.keys
+
+    /**
+     * All tags in use.
+     */
+    val tags: Set<String> get() = tagIndex.keys
+
+    /**
+     * Index every tiddler below [directory], replacing the current contents.
+     *
+     * @return The number of indexed tiddlers
+     */
+    fun scan(): Int {
+        clear()
+        for (path in tiddlerFiles()) {
+            read(path)?.let { add(it) }
+        }
+        return size
+    }
+
+    /**
+     * Re-read tiddlers whose modification time changed, index new files and drop
+     * deleted ones.
+     *
+     * @return The number of tiddlers that were added, updated or removed
+     */
+    fun refresh(): Int {
+        var changed = 0
+        val seen = HashSet<Path>()
+        for (path in tiddlerFiles()) {
+            seen.add(path)
+            val current = byPath[path]
+            if (current == null || current.modTime != modTime(path)) {
+                if (update(path)) changed++
+            }
+        }
+        for (path in byPath.keys.filter { it !in seen }) {
+            if (remove(path)) changed++
+        }
+        return changed
+    }
+
+    /**
+     * Re-read a single tiddler file, or drop it from the index if it no longer exists.
+     *
+     * @return True if the index changed
+     */
+    fun update(path: Path): Boolean {
+        val header = read(path)
+        val removed = remove(path)
+        header?.let { add(it) }
+        return removed || header != null
+    }
+
+    /**
+     * Drop a tiddler file from the index.
+     *
+     * @return True if the file was indexed
+     */
+    fun remove(path: Path): Boolean {
+        val header = byPath.remove(path) ?: return false
+        for (tag in header.metadata.tags) {
+            removeFrom(tagIndex, tag, path)
+        }
+        for (link in header.links) {
+            removeFrom(backlinkIndex, link, path)
+        }
+        if (byTitle[header.title] == path) {
+            // Another file may carry the same title
+            val other = byPath.values.firstOrNull { it.title == header.title }
+            if (other != null) byTitle[header.title] = other.path else byTitle.remove(header.title)
+        }
+        return true
+    }
+
+    /**
+     * Header of the tiddler with the given title.
+     */
+    fun tiddler(title: String): TiddlerHeader? = byTitle[title]?.let { byPath[it] }
+
+    /**
+     * Titles of the tiddlers tagged with [tag], sorted.
+     */
+    fun tagged(tag: String): List<String> = titlesOf(tagIndex[tag])
+
+    /**
+     * Titles of the tiddlers linking to [title], sorted.
+     */
+    fun backlinks(title: String): List<String> = titlesOf(backlinkIndex[title])
+
+    /**
+     * Remove all tiddlers from the index.
+     */
+    fun clear() {
+        byPath.clear()
+        byTitle.clear()
+        tagIndex.clear()
+        backlinkIndex.clear()
+    }
+
+    private fun add(header: TiddlerHeader) {
+        byPath[header.path] = header
+        byTitle[header.title] = header.path
+        for (tag in header.metadata.tags) {
+            tagIndex.getOrPut(tag) { HashSet() }.add(header.path)
+        }
+        for (link in header.links) {
+            backlinkIndex.getOrPut(link) { HashSet() }.add(header.path)
+        }
+    }
+
+    private fun removeFrom(index: HashMap<String, MutableSet<Path>>, key: String, path: Path) {
+        val paths = index[key] ?: return
+        paths.remove(path)
+        if (paths.isEmpty()) index.remove(key)
+    }
+
+    private fun titlesOf(paths: Set<Path>?): List<String> {
+        if (paths == null) return emptyList()
+        return paths.mapNotNull { byPath[it]?.title }.distinct().sorted()
+    }
+
+    private fun tiddlerFiles(): List<Path> {
+        return try {
+            fileSystem.listRecursively(directory)
+                .filter { path -> TiddlyWikiParser.EXTENSIONS.any { path.name.endsWith(it, ignoreCase = true) } }
+                .toList()
+        } catch (e: IOException) {
+            emptyList()
+        }
+    }
+
+    private fun modTime(path: Path): Long? {
+        return try {
+            fileSystem.metadataOrNull(path)?.let { it.lastModifiedAtMillis ?: -1L }
+        } catch (e: IOException) {
+            null
+        }
+    }
+
+    private fun read(path: Path): TiddlerHeader? {
+        val modTime = modTime(path) ?: return null
+        return try {
+            fileSystem.read(path) { readHeader(path, modTime, this) }
+        } catch (e: IOException) {
+            null
+        }
+    }
+
+    companion object {
+        private val STANDARD_FIELDS = setOf("title", "tags", "created", "modified", "type")
+
+        /**
+         * Read the header fields of a tiddler and collect the link targets of its body.
+         */
+        internal fun readHeader(path: Path, modTime: Long, source: BufferedSource): TiddlerHeader {
+            val fields = LinkedHashMap<String, String>()
+            val links = LinkedHashSet<String>()
+
+            // Header: "key: value" lines up to the first blank line or non-field line
+            var bodyLine: String? = null
+            while (true) {
+                val line = source.readUtf8Line() ?: break
+                if (line.isBlank()) break
+                val colon = line.indexOf(':')
+                if (colon <= 0) {
+                    bodyLine = line
+                    break
+                }
+                fields[line.substring(0, colon).trim().lowercase()] = line.substring(colon + 1).trim()
+            }
+
+            var inCode = false
+            var line = bodyLine ?: source.readUtf8Line()
+            while (line != null) {
+                if (line.trimStart().startsWith("```")) {
+                    inCode = !inCode
+                } else if (!inCode) {
+                    collectLinks(line, links)
+                }
+                line = source.readUtf8Line()
+            }
+
+            val metadata = TiddlerMetadata(
+                title = fields["title"],
+                tags = fields["tags"]?.let { parseTags(it) } ?: emptyList(),
+                created = fields["created"],
+                modified = fields["modified"],
+                type = fields["type"],
+                customFields = fields.filterKeys { it !in STANDARD_FIELDS }
+            )
+            return TiddlerHeader(
+                path = path,
+                title = metadata.title?.takeIf { it.isNotEmpty() } ?: path.name.substringBeforeLast('.'),
+                metadata = metadata,
+                links = links,
+                modTime = modTime
+            )
+        }
+
+        /**
+         * Split a `tags` field: `Alpha [[Two Words]] Beta` → `[Alpha, Two Words, Beta]`.
+         */
+        internal fun parseTags(value: String): List<String> {
+            val tags = ArrayList<String>()
+            var i = 0
+            while (i < value.length) {
+                when {
+                    value[i].isWhitespace() -> i++
+                    value.startsWith("[[", i) -> {
+                        val end = value.indexOf("]]", i + 2)
+                        val stop = if (end < 0) value.length else end
+                        value.substring(i + 2, stop).trim().takeIf { it.isNotEmpty() }?.let { tags.add(it) }
+                        i = if (end < 0) value.length else end + 2
+                    }
+                    else -> {
+                        val start = i
+                        while (i < value.length && !value[i].isWhitespace()) i++
+                        tags.add(value.substring(start, i))
+                    }
+                }
+            }
+            return tags
+        }
+
+        /**
+         * Add the targets of all `[[Target]]` / `[[Target|Text]]` links on a line.
+         */
+        private fun collectLinks(line: String, links: MutableSet<String>) {
+            var start = line.indexOf("[[")
+            while (start >= 0) {
+                val end = line.indexOf("]]", start + 2)
+                if (end < 0) return
+                val link = line.substring(start + 2, end)
+                val pipe = link.indexOf('|')
+                val target = (if (pipe >= 0) link.substring(0, pipe) else link).trim()
+                if (target.isNotEmpty()) links.add(target)
+                start = line.indexOf("[[", end + 2)
+            }
+        }
+    }
+}
@@ -161,262 +161,12 @@ class TiddlyWikiParser : TextParser {
             html.append("</div>")
         }
 
-        val lines = content.lines()
-        var inUnorderedList = false
-        var inOrderedList = false
-        var inCodeBlock = false
-        var inBlockQuote = false
-        var currentListLevel = 0
-
-        var i = 0
-        while (i < lines.size) {
-            val line = lines[i]
-            val trimmed = line.trim()
-
-            // Handle code blocks (triple backticks)
-            if (trimmed.startsWith("```")) {
-                if (!inCodeBlock) {
-                    html.append("<pre>")
-                    inCodeBlock = true
-                } else {
-                    html.append("</pre>")
-                    inCodeBlock = false
-                }
-                i++
-                continue
-            } else if (inCodeBlock) {
-                html.append(line.escapeHtml())
-                html.append("\n")
-                i++
-                continue
-            }
-
-            // Handle block quotes <<<...<<<
-            if (trimmed == "<<<") {
-                if (!inBlockQuote) {
-                    html.append("<blockquote>")
-                    inBlockQuote = true
-                } else {
-                    html.append("</blockquote>")
-                    inBlockQuote = false
-                }
-                i++
-                continue
-            }
-
-            // Detect line types
-            val unorderedListMatch = Regex("^(\\*+)\\s+(.+)$").find(trimmed)
-            val orderedListMatch = Regex("^(#+)\\s+(.+)$").find(trimmed)
-            val isEmpty = trimmed.isEmpty()
-
-            // Handle lists
-            if (unorderedListMatch != null) {
-                // Close ordered list if open
-                if (inOrderedList) {
-                    html.append("</ol>".repeat(currentListLevel))
-                    inOrderedList = false
-                    currentListLevel = 0
-                }
-
-                val level = unorderedListMatch.groupValues[1].length
-                val text = unorderedListMatch.groupValues[2]
-
-                // Adjust list nesting
-                while (currentListLevel < level) {
-                    html.append("<ul>")
-                    currentListLevel++
-                    inUnorderedList = true
-                }
-                while (currentListLevel > level) {
-                    html.append("</ul>")
-                    currentListLevel--
-                }
-
-                html.append("<li>${convertInlineMarkup(text)}</li>")
-            } else if (orderedListMatch != null) {
-                // Close unordered list if open
-                if (inUnorderedList) {
-                    html.append("</ul>".repeat(currentListLevel))
-                    inUnorderedList = false
-                    currentListLevel = 0
-                }
-
-                val level = orderedListMatch.groupValues[1].length
-                val text = orderedListMatch.groupValues[2]
-
-                // Adjust list nesting
-                while (currentListLevel < level) {
-                    html.append("<ol>")
-                    currentListLevel++
-                    inOrderedList = true
-                }
-                while (currentListLevel > level) {
-                    html.append("</ol>")
-                    currentListLevel--
-                }
-
-                html.append("<li>${convertInlineMarkup(text)}</li>")
-            } else {
-                // Not a list - close any open lists
-                if (inUnorderedList) {
-                    html.append("</ul>".repeat(currentListLevel))
-                    inUnorderedList = false
-                    currentListLevel = 0
-                }
-                if (inOrderedList) {
-                    html.append("</ol>".repeat(currentListLevel))
-                    inOrderedList = false
-                    currentListLevel = 0
-                }
-
-                if (!isEmpty) {
-                    html.append(convertLine(trimmed))
-                }
-            }
-
-            i++
-        }
-
-        // Close any open structures
-        if (inUnorderedList) html.append("</ul>".repeat(currentListLevel))
-        if (inOrderedList) html.append("</ol>".repeat(currentListLevel))
-        if (inCodeBlock) html.append("</pre>")
-        if (inBlockQuote) html.append("</blockquote>")
+        RENDERER.render(content, html)
 
         html.append("</div>")
         return html.toString()
     }
 
-    /**
-     * Convert a single line of TiddlyWiki wikitext to HTML
-     */
-    private fun convertLine(line: String): String {
-        val trimmed = line.trim()
-
-        // Headings: ! H1, !! H2, !!! H3, etc.
-        val headingMatch = Regex("^(!+)\\s+(.+)$").find(trimmed)
-        if (headingMatch != null) {
-            val level = minOf(headingMatch.groupValues[1].length, 6)
-            val text = headingMatch.groupValues[2]
-            return "<h$level>${convertInlineMarkup(text)}</h$level>"
-        }
-
-        // Horizontal rule: ---
-        if (trimmed.matches(Regex("^-{3,}$"))) {
-            return "<hr>"
-        }
-
-        // Block quote (single line): > text
-        if (trimmed.startsWith("> ")) {
-            val text = trimmed.substring(2)
-            return "<blockquote>${convertInlineMarkup(text)}</blockquote>"
-        }
-
-        // Paragraph
-        if (trimmed.isNotEmpty()) {
-            return "<p>${convertInlineMarkup(trimmed)}</p>"
-        }
-
-        return ""
-    }
-
-    /**
-     * Convert inline TiddlyWiki wikitext markup to HTML
-     */
-    private fun convertInlineMarkup(text: String): String {
-        var result = text
-
-        // Process ALL markup BEFORE escaping HTML (using placeholders)
-
-        // Inline code: `code`
-        result = result.replace(Regex("""`([^`]+)`""")) { match ->
-            val code = match.groupValues[1].escapeHtml()
-            "##CODE##$code##/CODE##"
-        }
-
-        // Internal links: [[Link]] or [[Link|Description]]
-        result = result.replace(Regex("""\[\[([^|\]]+)(?:\|([^\]]+))?\]\]""")) { match ->
-            val link = match.groupValues[1]
-            val description = match.groupValues[2].ifEmpty { link }
-            "\u0000LINK\u0000$link\u0000SEP\u0000$description\u0000/LINK\u0000"
-        }
-
-        // External links: [ext[URL]] or [ext[Description|URL]]
-        result = result.replace(Regex("""\[ext\[([^|\]]+)(?:\|([^\]]+))?\]\]""")) { match ->
-            val url = match.groupValues[1]
-            val description = match.groupValues[2].ifEmpty { url }
-            "\u0000EXTLINK\u0000$url\u0000SEP\u0000$description\u0000/EXTLINK\u0000"
-        }
-
-        // Images: [img[image.png]]
-        result = result.replace(Regex("""\[img\[([^\]]+)\]\]""")) { match ->
-            val img = match.groupValues[1]
-            "\u0000IMG\u0000$img\u0000/IMG\u0000"
-        }
-
-        // Bold: ''text'' - but NOT inside placeholders
-        result = result.replace(Regex("""''(.+?)''""")) { match ->
-            if (match.value.contains("\u0000")) match.value
-            else "\u0000BOLD\u0000${match.groupValues[1]}\u0000/BOLD\u0000"
-        }
-
-        // Italics: //text// - but NOT inside placeholders
-        result = result.replace(Regex("""//(.+?)//""")) { match ->
-            if (match.value.contains("\u0000")) match.value
-            else "\u0000ITALIC\u0000${match.groupValues[1]}\u0000/ITALIC\u0000"
-        }
-
-        // Underline: __text__ - but NOT inside placeholders
-        result = result.replace(Regex("""__(.+?)__""")) { match ->
-            if (match.value.contains("\u0000")) match.value
-            else "\u0000UNDERLINE\u0000${match.groupValues[1]}\u0000/UNDERLINE\u0000"
-        }
-
-        // Strikethrough: ~~text~~ - but NOT inside placeholders
-        result = result.replace(Regex("""~~(.+?)~~""")) { match ->
-            if (match.value.contains("\u0000")) match.value
-            else "\u0000STRIKE\u0000${match.groupValues[1]}\u0000/STRIKE\u0000"
-        }
-
-        // Superscript: ^^text^^ - but NOT inside placeholders
-        result = result.replace(Regex("""\^\^(.+?)\^\^""")) { match ->
-            if (match.value.contains("\u0000")) match.value
-            else "\u0000SUP\u0000${match.groupValues[1]}\u0000/SUP\u0000"
-        }
-
-        // Subscript: ,,text,, - but NOT inside placeholders
-        result = result.replace(Regex(""",,(.+?),,""")) { match ->
-            if (match.value.contains("\u0000")) match.value
-            else "\u0000SUB\u0000${match.groupValues[1]}\u0000/SUB\u0000"
-        }
-
-        // NOW escape HTML in remaining text
-        result = result.escapeHtml()
-
-        // Restore all markup with proper HTML tags
-        result = result.replace(Regex("""##CODE##(.+?)##/CODE##""")) { "<code>${it.groupValues[1]}</code>" }
-        result = result.replace(Regex("""\u0000BOLD\u0000(.+?)\u0000/BOLD\u0000""")) { "<strong>${it.groupValues[1]}</strong>" }
-        result = result.replace(Regex("""\u0000ITALIC\u0000(.+?)\u0000/ITALIC\u0000""")) { "<em>${it.groupValues[1]}</em>" }
-        result = result.replace(Regex("""\u0000UNDERLINE\u0000(.+?)\u0000/UNDERLINE\u0000""")) { "<u>${it.groupValues[1]}</u>" }
-        result = result.replace(Regex("""\u0000STRIKE\u0000(.+?)\u0000/STRIKE\u0000""")) { "<s>${it.groupValues[1]}</s>" }
-        result = result.replace(Regex("""\u0000SUP\u0000(.+?)\u0000/SUP\u0000""")) { "<sup>${it.groupValues[1]}</sup>" }
-        result = result.replace(Regex("""\u0000SUB\u0000(.+?)\u0000/SUB\u0000""")) { "<sub>${it.groupValues[1]}</sub>" }
-
-        result = result.replace(Regex("""\u0000LINK\u0000(.+?)\u0000SEP\u0000(.+?)\u0000/LINK\u0000""")) { match ->
-            "<a href='${match.groupValues[1]}'>${match.groupValues[2]}</a>"
-        }
-
-        result = result.replace(Regex("""\u0000EXTLINK\u0000(.+?)\u0000SEP\u0000(.+?)\u0000/EXTLINK\u0000""")) { match ->
-            "<a href='${match.groupValues[1]}' target='_blank'>${match.groupValues[2]}</a>"
-        }
-
-        result = result.replace(Regex("""\u0000IMG\u0000(.+?)\u0000/IMG\u0000""")) { match ->
-            "<img src='${match.groupValues[1]}' alt='${match.groupValues[1]}'/>"
-        }
-
-        return result
-    }
-
     /**
      * Extract file extension from filename
      */
@@ -467,6 +217,48 @@ class TiddlyWikiParser : TextParser {
     companion object {
         // Supported extensions
         val EXTENSIONS = setOf(".tid", ".tiddler")
+
+        /**
+         * Inline markup table: code, links and images first, then formatting.
+         */
+        private val INLINE = InlineFormatter(
+            listOf(
+                InlineRule("`", "`", InlineContent.TEXT, excluded = "`", atomic = true) { "<code>$it</code>" },
+                InlineRule.piped("[[", "]]") { target, label ->
+                    "<a href='${text(target)}'>${if (label != null) format(label) else text(target)}</a>"
+                },
+                InlineRule.piped("[ext[", "]]") { url, label ->
+                    "<a href='${text(url)}' target='_blank'>${if (label != null) format(label) else text(url)}</a>"
+                },
+                InlineRule("[img[", "]]", InlineContent.TEXT, excluded = "]", atomic = true) { "<img src='$it' alt='$it'/>" },
+                InlineRule("''", "''") { "<strong>$it</strong>" },
+                InlineRule("//", "//") { "<em>$it</em>" },
+                InlineRule("__", "__") { "<u>$it</u>" },
+                InlineRule("~~", "~~") { "<s>$it</s>" },
+                InlineRule("^^", "^^") { "<sup>$it</sup>" },
+                InlineRule(",,", ",,") { "<sub>$it</sub>" }
+            )
+        )
+
+        /**
+         * Block grammar: ``` verbatim blocks, `<<<` quote blocks, nested `*` and `#`
+         * lists, `!` headings, `---` rules and `> ` quotes.
+         */
+        internal val GRAMMAR = WikiGrammar(
+            rules = listOf(
+                LineRules.exact("<<<", WikiToken.QUOTE_TOGGLE),
+                LineRules.run('*', WikiToken.BULLET, anySpace = true),
+                LineRules.run('#', WikiToken.NUMBERED, anySpace = true),
+                LineRules.run('!', WikiToken.HEADING, anySpace = true, maxLevel = 6),
+                LineRules.fill('-', 3),
+                LineRules.prefix("> ", WikiToken.QUOTE)
+            ),
+            inline = INLINE,
+            code = CodeBlockRule(opens = { it.startsWith("```") }, closes = { it.startsWith("```") }),
+            nestedLists = true
+        )
+
+        private val RENDERER = WikiRenderer(GRAMMAR)
     }
 }
 
@@ -0,0 +1,404 @@
+/*#######################################################
+ *
+ * SPDX-FileCopyrightText: 2025 Milos Vasic
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * WikiText Link Graph - Platform Agnostic
+ * Forward links and backlinks of a notebook directory
+ *
+ *########################################################*/
+package digital.vasic.yole.format.wikitext
+
+import kotlinx.coroutines.CoroutineDispatcher
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.async
+import kotlinx.coroutines.awaitAll
+import kotlinx.coroutines.coroutineScope
+import okio.FileSystem
+import okio.IOException
+import okio.Path
+
+/**
+ * A `[[link]]` whose target page does not exist.
+ *
+ * @property source Page containing the link
+ * @property target Resolved name of the missing page
+ */
+data class BrokenLink(val source: String, val target: String)
+
+/**
+ * Link graph of a WikiText / Zim notebook directory.
+ *
+ * Every page and every link target gets an integer id. The outgoing and incoming
+ * links of a page are kept as sorted `IntArray`s, so "what links here" is one
+ * array read instead of a grep over the notebook. [rebuild] reads all pages, in
+ * parallel with [rebuildParallel]; [update] and [refresh] re-read only changed
+ * files and patch the adjacency arrays of the pages involved.
+ *
+ * Page names follow Zim: the path below [root] without extension, with `/` as
+ * `:` and `_` as space (`Projects/Road_map.txt` is `Projects:Road map`). Links
+ * are resolved the same way the page is named: `[[:Page]]` from the root,
+ * `[[+Child]]` below the linking page and anything else next to the linking page.
+ * Zim's search through parent namespaces is not applied, so resolving a link never
+ * depends on which other pages exist and updates stay local to the changed file.
+ * URLs and file links are ignored, as are links inside `'''` blocks.
+ *
+ * @param fileSystem File system to read pages from
+ * @param root Notebook directory
+ *
+ * @example
+ * ```kotlin
+ * val graph = WikiLinkGraph(FileSystem.SYSTEM, "/notes/Notebook".toPath())
+ * graph.rebuildParallel()
+ * graph.backlinks("Projects:Roadmap")
+ * graph.orphans()
+ * graph.brokenLinks()
+ *
+ * // After an edit
+ * graph.update(changedPath)
+ * ```
+ */
+class WikiLinkGraph(
+    val fileSystem: FileSystem,
+    val root: Path
+) {
+    private val ids = HashMap<String, Int>()
+    private val names = ArrayList<String>()
+    private var paths = arrayOfNulls<Path>(INITIAL_CAPACITY)
+    private var modTimes = LongArray(INITIAL_CAPACITY)
+    private var forward = Array(INITIAL_CAPACITY) { EMPTY }
+    private var backward = Array(INITIAL_CAPACITY) { EMPTY }
+    private val byPath = HashMap<Path, Int>()
+
+    /**
+     * Names of all existing pages, sorted.
+     */
+    val pages: List<String> get() = byPath.values.map { names[it] }.sorted()
+
+    /**
+     * Number of existing pages.
+     */
+    val size: Int get() = byPath.size
+
+    /**
+     * Whether a page with the given name exists.
+     */
+    fun exists(page: String): Boolean = ids[page]?.let { paths[it] != null } ?: false
+
+    /**
+     * Pages linked from [page], sorted; targets may not exist.
+     */
+    fun links(page: String): List<String> = namesOf(ids[page]?.let { forward[it] })
+
+    /**
+     * Pages linking to [page], sorted.
+     */
+    fun backlinks(page: String): List<String> = namesOf(ids[page]?.let { backward[it] })
+
+    /**
+     * Existing pages that no other page links to, sorted.
+     */
+    fun orphans(): List<String> {
+        return byPath.values
+            .filter { id -> backward[id].all { it == id } }
+            .map { names[it] }
+            .sorted()
+    }
+
+    /**
+     * Links to pages that do not exist, sorted by source and target.
+     */
+    fun brokenLinks(): List<BrokenLink> {
+        val broken = ArrayList<BrokenLink>()
+        for (source in byPath.values) {
+            for (target in forward[source]) {
+                if (paths[target] == null) broken.add(BrokenLink(names[source], names[target]))
+            }
+        }
+        return broken.sortedWith(compareBy({ it.source }, { it.target }))
+    }
+
+    /**
+     * Read every page below [root] on the calling thread, replacing the current graph.
+     *
+     * @return The number of pages
+     */
+    fun rebuild(): Int {
+        val files = pageFiles()
+        install(files, files.map { readPage(it) })
+        return size
+    }
+
+    /**
+     * Read every page below [root] in parallel, replacing the current graph.
+     *
+     * Files are read and scanned for links on [dispatcher] in chunks of [chunkSize];
+     * the adjacency arrays are then assembled on the calling coroutine.
+     *
+     * @return The number of pages
+     */
+    suspend fun rebuildParallel(
+        dispatcher: CoroutineDispatcher = Dispatchers.Default,
+        chunkSize: Int = DEFAULT_CHUNK_SIZE
+    ): Int {
+        val files = pageFiles()
+        val pages = coroutineScope {
+            files.chunked(chunkSize)
+                .map { chunk -> async(dispatcher) { chunk.map { readPage(it) } } }
+                .awaitAll()
+                .flatten()
+        }
+        install(files, pages)
+        return size
+    }
+
+    /**
+     * Re-read a single page, or mark it as missing if the file no longer exists.
+     *
+     * @return True if the graph changed
+     */
+    fun update(path: Path): Boolean {
+        val page = readPage(path)
+        val existing = byPath[path]
+        if (page == null) {
+            if (existing == null) return false
+            byPath.remove(path)
+            // Another file (e.g. page.wiki next to page.txt) may still provide the page
+            val other = byPath.entries.firstOrNull { it.value == existing }?.key
+            if (other != null) return update(other)
+            paths[existing] = null
+            setLinks(existing, EMPTY)
+            return true
+        }
+
+        val id = existing ?: intern(page.name)
+        byPath[path] = id
+        paths[id] = path
+        modTimes[id] = page.modTime
+        setLinks(id, resolveIds(page.targets))
+        return true
+    }
+
+    /**
+     * Re-read pages whose modification time changed, add new files and drop
+     * deleted ones.
+     *
+     * @return The number of pages that were added, updated or removed
+     */
+    fun refresh(): Int {
+        var changed = 0
+        val seen = HashSet<Path>()
+        for (path in pageFiles()) {
+            seen.add(path)
+            val id = byPath[path]
+            if (id == null || modTimes[id] != modTime(path)) {
+                if (update(path)) changed++
+            }
+        }
+        for (path in byPath.keys.filter { it !in seen }) {
+            if (update(path)) changed++
+        }
+        return changed
+    }
+
+    /**
+     * Page name of a file below [root].
+     */
+    fun pageName(path: Path): String {
+        val relative = path.relativeTo(root).segments
+        val last = relative.last()
+        val dot = last.lastIndexOf('.')
+        val segments = relative.dropLast(1) + (if (dot > 0) last.substring(0, dot) else last)
+        return segments.joinToString(":").replace('_', ' ')
+    }
+
+    private fun install(files: List<Path>, pages: List<Page?>) {
+        ids.clear()
+        names.clear()
+        byPath.clear()
+        ensureCapacity(files.size)
+
+        // Register existing pages first so their ids are dense
+        for (i in files.indices) {
+            val page = pages[i] ?: continue
+            val id = intern(page.name)
+            byPath[files[i]] = id
+            paths[id] = files[i]
+            modTimes[id] = page.modTime
+        }
+
+        // Interning broken targets may grow the arrays, so resolve every page before storing
+        val targets = arrayOfNulls<IntArray>(files.size)
+        for (i in files.indices) {
+            val page = pages[i] ?: continue
+            targets[i] = resolveIds(page.targets)
+        }
+        for (i in files.indices) {
+            forward[byPath[files[i]] ?: continue] = targets[i] ?: continue
+        }
+
+        // Size incoming arrays by counting first; sources are visited in id order so each array is sorted
+        val counts = IntArray(names.size)
+        for (source in names.indices) {
+            for (target in forward[source]) counts[target]++
+        }
+        for (id in names.indices) backward[id] = IntArray(counts[id])
+        val fill = IntArray(names.size)
+        for (source in names.indices) {
+            for (target in forward[source]) backward[target][fill[target]++] = source
+        }
+    }
+
+    private fun setLinks(id: Int, targets: IntArray) {
+        val old = forward[id]
+        for (target in old) {
+            if (targets.binarySearch(target) < 0) backward[target] = removeSorted(backward[target], id)
+        }
+        for (target in targets) {
+            if (old.binarySearch(target) < 0) backward[target] = insertSorted(backward[target], id)
+        }
+        forward[id] = targets
+    }
+
+    private fun resolveIds(targets: Collection<String>): IntArray {
+        val result = IntArray(targets.size)
+        var count = 0
+        for (target in targets) result[count++] = intern(target)
+        result.sort()
+        return result
+    }
+
+    private fun intern(name: String): Int {
+        ids[name]?.let { return it }
+        val id = names.size
+        names.add(name)
+        ids[name] = id
+        ensureCapacity(names.size)
+        paths[id] = null
+        modTimes[id] = 0L
+        forward[id] = EMPTY
+        backward[id] = EMPTY
+        return id
+    }
+
+    private fun ensureCapacity(capacity: Int) {
+        if (capacity <= forward.size) return
+        val newSize = maxOf(capacity, forward.size * 2)
+        paths = paths.copyOf(newSize)
+        modTimes = modTimes.copyOf(newSize)
+        forward = Array(newSize) { if (it < forward.size) forward[it] else EMPTY }
+        backward = Array(newSize) { if (it < backward.size) backward[it] else EMPTY }
+    }
+
+    private fun namesOf(ids: IntArray?): List<String> {
+        if (ids == null) return emptyList()
+        return ids.map { names[it] }.sorted()
+    }
+
+    private fun pageFiles(): List<Path> {
+        return try {
+            fileSystem.listRecursively(root)
+                .filter { path -> WikitextParser.EXTENSIONS.any { path.name.endsWith(it, ignoreCase = true) } }
+                .toList()
+        } catch (e: IOException) {
+            emptyList()
+        }
+    }
+
+    private fun modTime(path: Path): Long? {
+        return try {
+            fileSystem.metadataOrNull(path)?.let { it.lastModifiedAtMillis ?: -1L }
+        } catch (e: IOException) {
+            null
+        }
+    }
+
+    /**
+     * Read a page and resolve its link targets; safe to call from several threads.
+     */
+    private fun readPage(path: Path): Page? {
+        val modTime = modTime(path) ?: return null
+        val content = try {
+            fileSystem.read(path) { readUtf8() }
+        } catch (e: IOException) {
+            return null
+        }
+        val name = pageName(path)
+        return Page(name, modTime, extractLinks(WikitextParser.removeZimHeader(content), name))
+    }
+
+    private class Page(val name: String, val modTime: Long, val targets: Set<String>)
+
+    companion object {
+        private val EMPTY = IntArray(0)
+        private const val INITIAL_CAPACITY = 64
+        private const val DEFAULT_CHUNK_SIZE = 64
+
+        private fun insertSorted(values: IntArray, value: Int): IntArray {
+            val at = values.binarySearch(value)
+            if (at >= 0) return values
+            val insert = -at - 1
+            val result = IntArray(values.size + 1)
+            values.copyInto(result, 0, 0, insert)
+            result[insert] = value
+            values.copyInto(result, insert + 1, insert)
+            return result
+        }
+
+        private fun removeSorted(values: IntArray, value: Int): IntArray {
+            val at = values.binarySearch(value)
+            if (at < 0) return values
+            val result = IntArray(values.size - 1)
+            values.copyInto(result, 0, 0, at)
+            values.copyInto(result, at, at + 1)
+            return result
+        }
+
+        /**
+         * Resolved targets of the `[[Page]]` / `[[Page|label]]` links in [content],
+         * outside `'''` blocks.
+         */
+        internal fun extractLinks(content: String, page: String): Set<String> {
+            val links = LinkedHashSet<String>()
+            var inCode = false
+            for (line in content.lineSequence()) {
+                if (line.trim() == "'''") {
+                    inCode = !inCode
+                    continue
+                }
+                if (inCode) continue
+
+                var start = line.indexOf("[[")
+                while (start >= 0) {
+                    val end = line.indexOf("]]", start + 2)
+                    if (end < 0) break
+                    val link = line.substring(start + 2, end)
+                    val pipe = link.indexOf('|')
+                    resolve(if (pipe >= 0) link.substring(0, pipe) else link, page)?.let { links.add(it) }
+                    start = line.indexOf("[[", end + 2)
+                }
+            }
+            return links
+        }
+
+        /**
+         * Resolve a link target relative to the linking [page].
+         *
+         * @return The page name, or null for URLs, file links and empty targets
+         */
+        internal fun resolve(link: String, page: String): String? {
+            val target = link.substringBefore('#').trim().replace('_', ' ')
+            if (target.isEmpty() || "://" in target || target.startsWith("mailto:")) return null
+            if (target[0] == '/' || target[0] == '~' || target[0] == '.') return null
+
+            return when (target[0]) {
+                ':' -> target.trimStart(':')
+                '+' -> "$page:${target.substring(1)}"
+                else -> {
+                    val namespace = page.substringBeforeLast(':', "")
+                    if (namespace.isEmpty()) target else "$namespace:$target"
+                }
+            }.takeIf { it.isNotEmpty() }
+        }
+    }
+}
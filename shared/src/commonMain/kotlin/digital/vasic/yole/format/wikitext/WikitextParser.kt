@@ -47,215 +47,19 @@ class WikitextParser : TextParser {
         return document.parsedContent
     }
 
-    /**
-     * Remove Zim Wiki header from content
-     */
-    private fun removeZimHeader(content: String): String {
-        val zimHeaderRegex = Regex("""(?s)^\[DocumentAttributes\].*?\n\n""")
-        return content.replace(zimHeaderRegex, "")
-    }
-
     /**
      * Convert WikiText to HTML
      */
     private fun convertToHtml(content: String): String {
-        val lines = content.lines()
         val html = StringBuilder()
 
         html.append("<div class='wikitext'>")
         html.append(StyleSheets.WIKITEXT_STYLES)
-
-        var inCodeBlock = false
-        var inUnorderedList = false
-        var inOrderedList = false
-        var inCheckList = false
-
-        for ((index, line) in lines.withIndex()) {
-            // Handle code blocks
-            if (line.trim() == "'''") {
-                if (inCodeBlock) {
-                    html.append("</pre>")
-                    inCodeBlock = false
-                } else {
-                    html.append("<pre>")
-                    inCodeBlock = true
-                }
-                continue
-            }
-
-            if (inCodeBlock) {
-                html.append(line.escapeHtml())
-                html.append("\n")
-                continue
-            }
-
-            // Detect line types
-            val isUnorderedList = line.trimStart().startsWith("* ")
-            val isOrderedList = Regex("^\\s*[0-9a-zA-Z]\\. ").matches(line)
-            val isCheckList = Regex("^\\s*\\[[ x*><]\\] ").matches(line)
-            val isEmpty = line.trim().isEmpty()
-
-            // Handle checklist
-            if (isCheckList) {
-                if (!inCheckList) {
-                    // Close other lists if open
-                    if (inUnorderedList) { html.append("</ul>"); inUnorderedList = false }
-                    if (inOrderedList) { html.append("</ol>"); inOrderedList = false }
-                    html.append("<ul class='checklist'>")
-                    inCheckList = true
-                }
-                html.append(convertLine(line))
-            } else if (isUnorderedList) {
-                if (!inUnorderedList) {
-                    // Close other lists if open
-                    if (inCheckList) { html.append("</ul>"); inCheckList = false }
-                    if (inOrderedList) { html.append("</ol>"); inOrderedList = false }
-                    html.append("<ul>")
-                    inUnorderedList = true
-                }
-                html.append(convertLine(line))
-            } else if (isOrderedList) {
-                if (!inOrderedList) {
-                    // Close other lists if open
-                    if (inCheckList) { html.append("</ul>"); inCheckList = false }
-                    if (inUnorderedList) { html.append("</ul>"); inUnorderedList = false }
-                    html.append("<ol>")
-                    inOrderedList = true
-                }
-                html.append(convertLine(line))
-            } else {
-                // Not a list item - close any open lists
-                if (inCheckList) { html.append("</ul>"); inCheckList = false }
-                if (inUnorderedList) { html.append("</ul>"); inUnorderedList = false }
-                if (inOrderedList) { html.append("</ol>"); inOrderedList = false }
-
-                if (!isEmpty) {
-                    html.append(convertLine(line))
-                }
-            }
-        }
-
-        // Close any open lists at the end
-        if (inCheckList) html.append("</ul>")
-        if (inUnorderedList) html.append("</ul>")
-        if (inOrderedList) html.append("</ol>")
-
+        RENDERER.render(content, html)
         html.append("</div>")
         return html.toString()
     }
 
-    /**
-     * Convert a single line of WikiText to HTML
-     */
-    private fun convertLine(line: String): String {
-        var result = line
-
-        // Headings: == Heading == (more = means smaller heading)
-        val headingMatch = Regex("^(={2,6})\\s+(.+?)\\s+\\1$").find(result)
-        if (headingMatch != null) {
-            val level = 7 - headingMatch.groupValues[1].length
-            val text = headingMatch.groupValues[2]
-            return "<h$level>${convertInlineMarkup(text)}</h$level>"
-        }
-
-        // Checklists: [ ], [*], [x], [>], [<]
-        val checklistMatch = Regex("^(\\s*)(\\[)([ x*><])(\\])\\s+(.+)$").find(result)
-        if (checklistMatch != null) {
-            val indent = checklistMatch.groupValues[1]
-            val symbol = checklistMatch.groupValues[3]
-            val text = checklistMatch.groupValues[5]
-            val classAttr = when (symbol) {
-                "*" -> " class='checked'"
-                "x" -> " class='crossed'"
-                else -> ""
-            }
-            return "$indent<li$classAttr>${convertInlineMarkup(text)}</li>"
-        }
-
-        // Unordered list: * item
-        if (result.trimStart().startsWith("* ")) {
-            val indent = result.takeWhile { it.isWhitespace() }
-            val text = result.trimStart().substring(2)
-            return "$indent<li>${convertInlineMarkup(text)}</li>"
-        }
-
-        // Ordered list: 1. item or a. item
-        val orderedListMatch = Regex("^(\\s*)([0-9a-zA-Z])\\.\\s+(.+)$").find(result)
-        if (orderedListMatch != null) {
-            val indent = orderedListMatch.groupValues[1]
-            val text = orderedListMatch.groupValues[3]
-            return "$indent<li>${convertInlineMarkup(text)}</li>"
-        }
-
-        // Regular paragraph
-        if (result.trim().isNotEmpty()) {
-            return "<p>${convertInlineMarkup(result)}</p>"
-        }
-
-        return ""
-    }
-
-    /**
-     * Convert inline WikiText markup to HTML
-     */
-    private fun convertInlineMarkup(text: String): String {
-        var result = text
-
-        // Process inline code FIRST (before escaping) to preserve content
-        result = result.replace(Regex("""''(?!')(.+?)''""")) { match ->
-            val code = match.groupValues[1].escapeHtml()
-            "##CODE_START##$code##CODE_END##"
-        }
-
-        // Process links and images BEFORE escaping
-        result = result.replace(Regex("""\[\[([^|\]]+)(?:\|([^\]]+))?\]\]""")) { match ->
-            val link = match.groupValues[1]
-            val description = match.groupValues[2].ifEmpty { link }
-            "##LINK_START##$link##LINK_SEP##$description##LINK_END##"
-        }
-
-        result = result.replace(Regex("""\{\{([^}]+)\}\}""")) { match ->
-            val img = match.groupValues[1]
-            "##IMG_START##$img##IMG_END##"
-        }
-
-        // Now escape HTML in the remaining text
-        result = result.escapeHtml()
-
-        // Bold: **text**
-        result = result.replace(Regex("""(?<!\*)\*\*(?!\*)([^*]+)\*\*(?!\*)""")) { "<strong>${it.groupValues[1]}</strong>" }
-
-        // Italics: //text//
-        result = result.replace(Regex("""(?<!/)//(?!/)([^/]+)//(?!/)""")) { "<em>${it.groupValues[1]}</em>" }
-
-        // Highlighted: __text__
-        result = result.replace(Regex("""(?<!_)__(?!_)([^_]+)__(?!_)""")) { "<span class='highlight'>${it.groupValues[1]}</span>" }
-
-        // Strikethrough: ~~text~~
-        result = result.replace(Regex("""(?<!~)~~(?!~)([^~]+)~~(?!~)""")) { "<s>${it.groupValues[1]}</s>" }
-
-        // Superscript: ^{text}
-        result = result.replace(Regex("""\^\{([^}]+)\}""")) { "<sup>${it.groupValues[1]}</sup>" }
-
-        // Subscript: _{text}
-        result = result.replace(Regex("""_\{([^}]+)\}""")) { "<sub>${it.groupValues[1]}</sub>" }
-
-        // Restore inline code
-        result = result.replace(Regex("""##CODE_START##(.+?)##CODE_END##""")) { "<code>${it.groupValues[1]}</code>" }
-
-        // Restore links
-        result = result.replace(Regex("""##LINK_START##(.+?)##LINK_SEP##(.+?)##LINK_END##""")) { match ->
-            "<a href='${match.groupValues[1]}'>${match.groupValues[2]}</a>"
-        }
-
-        // Restore images
-        result = result.replace(Regex("""##IMG_START##(.+?)##IMG_END##""")) { match ->
-            "<img src='${match.groupValues[1]}' alt='${match.groupValues[1]}'/>"
-        }
-
-        return result
-    }
-
     /**
      * Extract file extension from filename
      */
@@ -304,6 +108,120 @@ class WikitextParser : TextParser {
     companion object {
         // Supported extensions
         val EXTENSIONS = setOf(".wiki", ".wikitext", ".txt")
+
+        /**
+         * Inline markup table: code, links and images first, then emphasis.
+         */
+        private val INLINE = InlineFormatter(
+            listOf(
+                InlineRule("''", "''", InlineContent.TEXT, innerGuard = true, atomic = true) { "<code>$it</code>" },
+                InlineRule.piped("[[", "]]") { target, label ->
+                    "<a href='${text(target)}'>${if (label != null) format(label) else text(target)}</a>"
+                },
+                InlineRule("{{", "}}", InlineContent.TEXT, excluded = "}", atomic = true) { "<img src='$it' alt='$it'/>" },
+                InlineRule("**", "**", excluded = "*", leftGuard = true, innerGuard = true, rightGuard = true) { "<strong>$it</strong>" },
+                InlineRule("//", "//", excluded = "/", leftGuard = true, innerGuard = true, rightGuard = true) { "<em>$it</em>" },
+                InlineRule("__", "__", excluded = "_", leftGuard = true, innerGuard = true, rightGuard = true) { "<span class='highlight'>$it</span>" },
+                InlineRule("~~", "~~", excluded = "~", leftGuard = true, innerGuard = true, rightGuard = true) { "<s>$it</s>" },
+                InlineRule("^{", "}", excluded = "}") { "<sup>$it</sup>" },
+                InlineRule("_{", "}", excluded = "}") { "<sub>$it</sub>" }
+            )
+        )
+
+        /**
+         * Block grammar: `'''` verbatim blocks, `== Heading ==` (more `=` is a smaller
+         * heading), and flat checklists, bullet and ordered lists that keep their indent.
+         */
+        internal val GRAMMAR = WikiGrammar(
+            rules = listOf(LineRule(::heading), LineRule(::checkItem), LineRule(::bulletItem), LineRule(::numberedItem)),
+            inline = INLINE,
+            code = CodeBlockRule(opens = { it.equalsTrimmed("'''") }, closes = { it.equalsTrimmed("'''") }),
+            trimParagraphs = false
+        )
+
+        private val RENDERER = WikiRenderer(GRAMMAR)
+
+        private val ZIM_HEADER = Regex("""(?s)^\[DocumentAttributes\].*?\n\n""")
+
+        /**
+         * Remove Zim Wiki header from content
+         */
+        internal fun removeZimHeader(content: String): String {
+            return content.replace(ZIM_HEADER, "")
+        }
+
+        /**
+         * `== Heading ==`: 2 to 6 `=` at the start of the line and the same number at its end.
+         */
+        private fun heading(line: WikiLine): Boolean {
+            val text = line.text
+            var p = line.start
+            while (p < line.end && text[p] == '=') p++
+            val count = p - line.start
+            if (count !in 2..6 || p >= line.end || !LineRules.isSpace(text[p])) return false
+
+            val close = line.end - count
+            if (close <= p || !LineRules.isSpace(text[close - 1])) return false
+            for (k in close until line.end) if (text[k] != '=') return false
+
+            var from = p
+            while (from < close && LineRules.isSpace(text[from])) from++
+            var to = close
+            while (to > from && LineRules.isSpace(text[to - 1])) to--
+            return when {
+                from < to -> line.token(WikiToken.HEADING, 7 - count, from, to)
+                close - p >= 3 -> line.token(WikiToken.HEADING, 7 - count, p + 1, p + 2)
+                else -> false
+            }
+        }
+
+        /**
+         * `[ ] task`, with `*` done, `x` cancelled, `>` moved and `<` migrated.
+         */
+        private fun checkItem(line: WikiLine): Boolean {
+            val text = line.text
+            val indent = indentEnd(line)
+            if (indent + 3 >= line.end || text[indent] != '[' || text[indent + 1] !in " x*><" || text[indent + 2] != ']') return false
+            return itemText(line, WikiToken.CHECK, indent, indent + 3, text[indent + 1])
+        }
+
+        private fun bulletItem(line: WikiLine): Boolean {
+            if (line.from + 1 >= line.end || line.text[line.from] != '*' || line.text[line.from + 1] != ' ') return false
+            return line.token(WikiToken.BULLET, 1, line.from + 2, line.end, indent = line.from - line.start)
+        }
+
+        /**
+         * `1. item` or `a. item`: a single letter or digit and a dot.
+         */
+        private fun numberedItem(line: WikiLine): Boolean {
+            val text = line.text
+            val indent = indentEnd(line)
+            if (indent + 2 >= line.end || !text[indent].isAsciiLetterOrDigit() || text[indent + 1] != '.') return false
+            return itemText(line, WikiToken.NUMBERED, indent, indent + 2, '\u0000')
+        }
+
+        private fun indentEnd(line: WikiLine): Int {
+            var p = line.start
+            while (p < line.end && LineRules.isSpace(line.text[p])) p++
+            return p
+        }
+
+        /**
+         * Whitespace after the marker, then the item text up to the end of the line.
+         */
+        private fun itemText(line: WikiLine, type: Byte, indent: Int, markerEnd: Int, marker: Char): Boolean {
+            val text = line.text
+            if (!LineRules.isSpace(text[markerEnd])) return false
+            var p = markerEnd
+            while (p < line.end && LineRules.isSpace(text[p])) p++
+            if (p == line.end) {
+                if (p - markerEnd < 2) return false
+                p = line.end - 1
+            }
+            return line.token(type, 1, p, line.end, marker, indent - line.start)
+        }
+
+        private fun Char.isAsciiLetterOrDigit(): Boolean = this in '0'..'9' || this in 'a'..'z' || this in 'A'..'Z'
     }
 }
 
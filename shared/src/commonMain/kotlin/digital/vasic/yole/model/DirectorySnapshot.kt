@@ -0,0 +1,244 @@
+/*#######################################################
+ *
+ * SPDX-FileCopyrightText: 2025 Milos Vasic
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Directory Snapshot - Platform Agnostic
+ * Stat-once listing with cached sort orders for file browsers
+ *
+ *########################################################*/
+package digital.vasic.yole.model
+
+import okio.FileSystem
+import okio.IOException
+import okio.Path
+
+/**
+ * Immutable listing of a directory, with each entry stat'ed once.
+ *
+ * Names, sizes, modification times and directory flags are held in parallel
+ * arrays. The permutation for each [SortKey] is computed on first use and
+ * kept, so sorting and filtering a large directory makes no file system
+ * calls. [updated] re-reads only the entries named by change events, e.g.
+ * from [watchDirectory], and returns a new snapshot.
+ *
+ * @property directory Listed directory
+ *
+ * @example
+ * ```kotlin
+ * var snapshot = DirectorySnapshot.load(FileSystem.SYSTEM, dir)
+ * val rows = snapshot.view(DirectorySnapshot.SortKey.DATE, query = "notes")
+ * rows.forEach { println(snapshot.name(it)) }
+ *
+ * watchDirectory(dir.toString()).collect { changed ->
+ *     snapshot = snapshot.updated(FileSystem.SYSTEM, listOf(changed))
+ * }
+ * ```
+ */
+class DirectorySnapshot private constructor(
+    val directory: Path,
+    private val names: Array<String>,
+    private val sizes: LongArray,
+    private val modTimes: LongArray,
+    private val directories: BooleanArray
+) {
+    /**
+     * Orders of [view]; directories are not grouped first.
+     */
+    enum class SortKey {
+        /** Name ascending, ignoring case */
+        NAME,
+
+        /** Modification time descending */
+        DATE,
+
+        /** File size descending; directories count as empty */
+        SIZE
+    }
+
+    private val lowerNames = Array(names.size) { names[it].lowercase() }
+    private val orders = arrayOfNulls<IntArray>(SortKey.entries.size)
+
+    /**
+     * Number of entries.
+     */
+    val size: Int get() = names.size
+
+    fun name(index: Int): String = names[index]
+
+    fun path(index: Int): Path = directory / names[index]
+
+    /**
+     * File size in bytes; 0 for directories.
+     */
+    fun size(index: Int): Long = sizes[index]
+
+    /**
+     * Modification time in milliseconds, or 0 if unknown.
+     */
+    fun modTime(index: Int): Long = modTimes[index]
+
+    fun isDirectory(index: Int): Boolean = directories[index]
+
+    /**
+     * Index of the entry called [name], or -1.
+     */
+    fun indexOf(name: String): Int {
+        val order = order(SortKey.NAME)
+        val key = name.lowercase()
+        var low = 0
+        var high = order.size - 1
+        while (low <= high) {
+            val mid = (low + high) ushr 1
+            val cmp = compareNames(order[mid], key, name)
+            when {
+                cmp < 0 -> low = mid + 1
+                cmp > 0 -> high = mid - 1
+                else -> return order[mid]
+            }
+        }
+        return -1
+    }
+
+    /**
+     * Entry indices sorted by [key]. The array is cached and must not be modified.
+     */
+    fun order(key: SortKey): IntArray {
+        orders[key.ordinal]?.let { return it }
+        val order = IntArray(size) { it }
+        when (key) {
+            SortKey.NAME -> sort(order) { a, b -> compareNames(a, lowerNames[b], names[b]) }
+            SortKey.DATE -> sort(order) { a, b -> modTimes[b].compareTo(modTimes[a]) }
+            SortKey.SIZE -> sort(order) { a, b -> sizes[b].compareTo(sizes[a]) }
+        }
+        orders[key.ordinal] = order
+        return order
+    }
+
+    /**
+     * Entry indices sorted by [sortBy] whose names contain [query], ignoring case.
+     */
+    fun view(sortBy: SortKey, query: String = ""): IntArray {
+        val order = order(sortBy)
+        if (query.isEmpty()) return order
+        val needle = query.lowercase()
+        val result = IntArray(order.size)
+        var count = 0
+        for (index in order) {
+            if (lowerNames[index].contains(needle)) result[count++] = index
+        }
+        return result.copyOf(count)
+    }
+
+    /**
+     * Snapshot with the entries at [changed] re-read. Paths outside
+     * [directory] are ignored, and [directory] itself reloads everything,
+     * as [watchDirectory] emits it after lost events.
+     */
+    fun updated(fileSystem: FileSystem, changed: Collection<Path>): DirectorySnapshot {
+        if (changed.any { it == directory }) return load(fileSystem, directory)
+        val changedNames = changed.filter { it.parent == directory }.mapTo(HashSet()) { it.name }
+        if (changedNames.isEmpty()) return this
+
+        val builder = Builder(directory, size + changedNames.size)
+        for (i in 0 until size) {
+            if (names[i] !in changedNames) builder.add(names[i], sizes[i], modTimes[i], directories[i])
+        }
+        for (name in changedNames) builder.stat(fileSystem, name)
+        return builder.build()
+    }
+
+    private fun compareNames(index: Int, lowerName: String, name: String): Int {
+        val cmp = lowerNames[index].compareTo(lowerName)
+        return if (cmp != 0) cmp else names[index].compareTo(name)
+    }
+
+    private class Builder(val directory: Path, capacity: Int) {
+        val names = ArrayList<String>(capacity)
+        var sizes = LongArray(capacity)
+        var modTimes = LongArray(capacity)
+        var directories = BooleanArray(capacity)
+
+        fun add(name: String, size: Long, modTime: Long, isDirectory: Boolean) {
+            val index = names.size
+            if (index == sizes.size) {
+                val newSize = maxOf(16, index * 2)
+                sizes = sizes.copyOf(newSize)
+                modTimes = modTimes.copyOf(newSize)
+                directories = directories.copyOf(newSize)
+            }
+            names.add(name)
+            sizes[index] = size
+            modTimes[index] = modTime
+            directories[index] = isDirectory
+        }
+
+        /**
+         * Add the entry [name] if it exists.
+         */
+        fun stat(fileSystem: FileSystem, name: String) {
+            val metadata = try {
+                fileSystem.metadataOrNull(directory / name)
+            } catch (e: IOException) {
+                null
+            } ?: return
+            add(
+                name,
+                if (metadata.isDirectory) 0L else metadata.size ?: 0L,
+                metadata.lastModifiedAtMillis ?: 0L,
+                metadata.isDirectory
+            )
+        }
+
+        fun build() = DirectorySnapshot(
+            directory,
+            names.toTypedArray(),
+            sizes.copyOf(names.size),
+            modTimes.copyOf(names.size),
+            directories.copyOf(names.size)
+        )
+    }
+
+    companion object {
+        /**
+         * List [directory] and stat each entry once. An unreadable directory
+         * gives an empty snapshot.
+         */
+        fun load(fileSystem: FileSystem, directory: Path): DirectorySnapshot {
+            val children = fileSystem.listOrNull(directory).orEmpty()
+            val builder = Builder(directory, children.size)
+            for (child in children) builder.stat(fileSystem, child.name)
+            return builder.build()
+        }
+
+        /**
+         * Stable merge sort of [order] by [compare], without boxing.
+         */
+        private inline fun sort(order: IntArray, compare: (Int, Int) -> Int) {
+            var source = order
+            var target = IntArray(order.size)
+            var width = 1
+            while (width < order.size) {
+                var start = 0
+                while (start < order.size) {
+                    val middle = minOf(start + width, order.size)
+                    val end = minOf(start + 2 * width, order.size)
+                    var i = start
+                    var j = middle
+                    var k = start
+                    while (i < middle && j < end) {
+                        target[k++] = if (compare(source[j], source[i]) < 0) source[j++] else source[i++]
+                    }
+                    while (i < middle) target[k++] = source[i++]
+                    while (j < end) target[k++] = source[j++]
+                    start = end
+                }
+                val swap = source
+                source = target
+                target = swap
+                width *= 2
+            }
+            if (source !== order) source.copyInto(order)
+        }
+    }
+}
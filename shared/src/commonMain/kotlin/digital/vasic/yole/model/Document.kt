@@ -118,11 +118,21 @@ data class Document(
     val filename: String
         get() = if (extension.isNotEmpty()) "$title.$extension" else title
 
+    /**
+     * File modification time last reported by a [DocumentWatcher], or -1 if
+     * the document is not watched or the watcher's changes are not collected.
+     *
+     * While set, [hasChanged] uses this value instead of querying the file system.
+     */
+    @Transient
+    var watchedModTime: Long = -1
+
     /**
      * Check if document has been modified since last tracking.
      * 
      * This method compares the stored modification time with the actual file
      * modification time to determine if the document has been changed externally.
+     * Documents of a collected [DocumentWatcher] use the time it last reported.
      * 
      * @return true if the document has been modified, false otherwise
      *
@@ -134,7 +144,9 @@ data class Document(
      * ```
      */
     fun hasChanged(): Boolean {
-        return modTime < 0 || touchTime < 0 || getFileModTime() > modTime
+        if (modTime < 0 || touchTime < 0) return true
+        val fileModTime = if (watchedModTime >= 0) watchedModTime else getFileModTime()
+        return fileModTime > modTime
     }
 
     /**
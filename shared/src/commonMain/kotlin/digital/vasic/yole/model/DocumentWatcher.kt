@@ -0,0 +1,235 @@
+/*#######################################################
+ *
+ * SPDX-FileCopyrightText: 2025 Milos Vasic
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Document Watcher - Platform Agnostic
+ * Pushes debounced file change events for open documents
+ *
+ *########################################################*/
+package digital.vasic.yole.model
+
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.channels.Channel
+import kotlinx.coroutines.channels.ProducerScope
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.MutableSharedFlow
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.channelFlow
+import kotlinx.coroutines.flow.update
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.withTimeoutOrNull
+import okio.Path.Companion.toPath
+import kotlin.time.TimeSource
+
+/**
+ * A watched document file changed on disk.
+ *
+ * @property path Normalized path of the file
+ * @property modTime New modification time, or -1 if the file was deleted
+ */
+data class DocumentChange(
+    val path: String,
+    val modTime: Long
+)
+
+/**
+ * Watches the files of open documents and pushes debounced change events.
+ *
+ * The directories of watched documents are registered with the platform's
+ * file notification service (see [watchDirectory]) while [changes] is
+ * collected. A file is only queried after the platform reports an event for
+ * it, and the result is stored in [Document.watchedModTime], so
+ * [Document.hasChanged] costs nothing while files are idle. The stored time is
+ * only kept while [changes] is collected; without a collector,
+ * [Document.hasChanged] queries the file as usual. Bursts of events,
+ * such as an editor writing a file in several steps, are merged into one
+ * change after [debounceMillis] of quiet.
+ *
+ * On platforms without notifications, call [notifyChanged] when a file is
+ * known to have changed.
+ *
+ * @param debounceMillis Quiet period before a change is reported
+ * @param directoryEvents Source of raw events for a directory
+ *
+ * @example
+ * ```kotlin
+ * val watcher = DocumentWatcher()
+ * watcher.watch(document)
+ *
+ * scope.launch {
+ *     watcher.changes().collect { change ->
+ *         if (change.path == currentPath && document.hasChanged()) reload()
+ *     }
+ * }
+ * ```
+ */
+class DocumentWatcher(
+    val debounceMillis: Long = DEFAULT_DEBOUNCE_MILLIS,
+    private val directoryEvents: (String) -> Flow<String> = ::watchDirectory
+) {
+    // Watched documents by normalized path
+    private val watched = MutableStateFlow<Map<String, List<Document>>>(emptyMap())
+    private val manual = MutableSharedFlow<String>(extraBufferCapacity = MANUAL_BUFFER)
+    private val clock = TimeSource.Monotonic.markNow()
+
+    /**
+     * Normalized paths of the watched documents.
+     */
+    val watchedPaths: Set<String>
+        get() = watched.value.keys
+
+    /**
+     * Start watching [document]. Its modification time is recorded once [changes]
+     * is collected.
+     */
+    fun watch(document: Document) {
+        val key = normalize(document.path)
+        watched.update { current ->
+            current + (key to (current[key].orEmpty().filterNot { it === document } + document))
+        }
+    }
+
+    /**
+     * Stop watching [document]; [Document.hasChanged] queries the file again.
+     */
+    fun unwatch(document: Document) {
+        val key = normalize(document.path)
+        watched.update { current ->
+            val rest = current[key].orEmpty().filterNot { it === document }
+            if (rest.isEmpty()) current - key else current + (key to rest)
+        }
+        document.watchedModTime = -1
+    }
+
+    /**
+     * Report that the file at [path] may have changed, for platforms without
+     * file notifications or for changes made by the app itself.
+     */
+    fun notifyChanged(path: String) {
+        manual.tryEmit(path)
+    }
+
+    /**
+     * Debounced changes of watched files. Directory watches are held while
+     * the flow is collected and follow [watch] and [unwatch] calls.
+     *
+     * When collection starts, and for each newly watched document, the current
+     * modification time is recorded; a document that is already out of date
+     * is reported right away. The recorded times are dropped when collection ends.
+     */
+    fun changes(): Flow<DocumentChange> = channelFlow {
+        val raw = Channel<String>(Channel.UNLIMITED)
+
+        launch {
+            val jobs = HashMap<String, Job>()
+            watched.collect { current ->
+                val directories = current.keys.mapNotNullTo(HashSet()) { parentOf(it) }
+                for (directory in jobs.keys - directories) jobs.remove(directory)?.cancel()
+                for (directory in directories - jobs.keys) {
+                    jobs[directory] = launch { directoryEvents(directory).collect { raw.send(it) } }
+                }
+                for (path in current.keys) record(path)?.let { send(it) }
+            }
+        }
+        launch { manual.collect { raw.send(it) } }
+
+        try {
+            debounceEvents(raw)
+        } finally {
+            watched.value.values.forEach { documents -> documents.forEach { it.watchedModTime = -1 } }
+        }
+    }
+
+    private suspend fun ProducerScope<DocumentChange>.debounceEvents(raw: Channel<String>) {
+        // Deadline of each path with pending events
+        val pending = LinkedHashMap<String, Long>()
+        while (true) {
+            val next = pending.values.minOrNull()
+            val event = if (next == null) {
+                raw.receive()
+            } else {
+                withTimeoutOrNull(maxOf(1L, next - now())) { raw.receive() }
+            }
+            if (event != null) {
+                val deadline = now() + debounceMillis
+                for (path in affectedPaths(normalize(event))) pending[path] = deadline
+            }
+
+            val time = now()
+            val due = pending.filterValues { it <= time }.keys
+            for (path in due) {
+                pending.remove(path)
+                refresh(path)?.let { send(it) }
+            }
+        }
+    }
+
+    /**
+     * Watched paths affected by an event for [path], which may be a file or,
+     * after lost events, its whole directory.
+     */
+    private fun affectedPaths(path: String): List<String> {
+        val current = watched.value
+        if (path in current) return listOf(path)
+        return current.keys.filter { parentOf(it) == path }
+    }
+
+    /**
+     * Record the modification time of documents at [path] that have none yet.
+     *
+     * @return A change if one of them is already out of date, else null
+     */
+    private fun record(path: String): DocumentChange? {
+        val documents = watched.value[path]?.filter { it.watchedModTime < 0 } ?: return null
+        if (documents.isEmpty()) return null
+        val modTime = documents.first().getFileModTime()
+        documents.forEach { it.watchedModTime = maxOf(0L, modTime) }
+
+        // Unwatched meanwhile: leave hasChanged() to query the file
+        val current = watched.value[path].orEmpty()
+        documents.filter { document -> current.none { it === document } }.forEach { it.watchedModTime = -1 }
+
+        val outdated = documents.any { modTime <= 0 || modTime > it.modTime }
+        return if (outdated) DocumentChange(path, if (modTime > 0) modTime else -1) else null
+    }
+
+    /**
+     * Read the modification time of [path] and update its documents.
+     *
+     * @return The change, or null if the time did not change
+     */
+    private fun refresh(path: String): DocumentChange? {
+        val documents = watched.value[path] ?: return null
+        val modTime = documents.first().getFileModTime()
+        val recorded = maxOf(0L, modTime)
+        if (documents.all { it.watchedModTime == recorded }) return null
+        documents.forEach { it.watchedModTime = recorded }
+        return DocumentChange(path, if (modTime > 0) modTime else -1)
+    }
+
+    private fun now(): Long = clock.elapsedNow().inWholeMilliseconds
+
+    companion object {
+        const val DEFAULT_DEBOUNCE_MILLIS = 300L
+        private const val MANUAL_BUFFER = 64
+
+        private fun normalize(path: String): String = path.toPath(normalize = true).toString()
+
+        private fun parentOf(path: String): String? = path.toPath().parent?.toString()
+    }
+}
+
+/**
+ * Raw change events for the entries of [directory].
+ *
+ * This is a platform-specific function implemented via expect/actual. The
+ * flow registers a watch when collected and releases it when cancelled. It
+ * emits the path of each created, modified or deleted entry, or [directory]
+ * itself when events were lost. Platforms without file notifications return
+ * an empty flow.
+ *
+ * @param directory Absolute path of the directory
+ * @return Flow of changed paths
+ */
+expect fun watchDirectory(directory: String): Flow<String>
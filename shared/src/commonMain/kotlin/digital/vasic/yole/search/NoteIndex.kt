@@ -0,0 +1,844 @@
+/*#######################################################
+ *
+ * SPDX-FileCopyrightText: 2025 Milos Vasic
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Notebook Full-Text Index - Platform Agnostic
+ * Persistent inverted index with incremental updates
+ *
+ *########################################################*/
+package digital.vasic.yole.search
+
+import digital.vasic.yole.format.FormatRegistry
+import kotlinx.coroutines.CoroutineDispatcher
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.async
+import kotlinx.coroutines.awaitAll
+import kotlinx.coroutines.coroutineScope
+import okio.BufferedSink
+import okio.BufferedSource
+import okio.FileSystem
+import okio.IOException
+import okio.Path
+import kotlin.math.ln
+
+/**
+ * A note matching a search query.
+ *
+ * @property path File of the note
+ * @property score BM25 relevance; higher is better
+ */
+data class SearchHit(val path: Path, val score: Double)
+
+/**
+ * Full-text inverted index of the notes below a notebook directory.
+ *
+ * Text is split into lowercase runs of letters and digits. Each term has a
+ * posting list of delta-encoded varints: the document id gap, the term
+ * frequency and the gaps between the term's positions, which is what phrase
+ * queries need. A manifest records the modification time, size and content
+ * hash of every indexed file. [refresh] re-reads only files whose time or
+ * size changed, and re-tokenizes only those whose content hash changed.
+ *
+ * Updates are append-only. A changed note gets a new document id and its
+ * old postings are skipped until [compact] rewrites the lists, which happens
+ * automatically once a third of the ids are stale.
+ *
+ * Queries are words and `"quoted phrases"`, all of which must match; `OR`
+ * between groups of them matches either group. Results are ranked by BM25.
+ * The index is kept in memory and persisted to [indexDirectory] with [save];
+ * it is not thread-safe.
+ *
+ * @param fileSystem File system holding the notebook and the index
+ * @param root Notebook directory
+ * @param indexDirectory Directory for the index files; skipped when below [root]
+ * @param extensions File extensions to index, including the dot
+ *
+ * @example
+ * ```kotlin
+ * val index = NoteIndex(FileSystem.SYSTEM, notebook, cacheDir / "search")
+ * if (!index.load()) index.refreshParallel() else index.refresh()
+ * index.save()
+ *
+ * index.search("kotlin \"coroutine scope\" OR flow")
+ * ```
+ */
+class NoteIndex(
+    val fileSystem: FileSystem,
+    val root: Path,
+    val indexDirectory: Path,
+    val extensions: Set<String> = DEFAULT_EXTENSIONS
+) {
+    // Documents by id; a null path marks a stale or deleted id
+    private var paths = arrayOfNulls<String>(INITIAL_CAPACITY)
+    private var modTimes = LongArray(INITIAL_CAPACITY)
+    private var sizes = LongArray(INITIAL_CAPACITY)
+    private var hashes = LongArray(INITIAL_CAPACITY)
+    private var lengths = IntArray(INITIAL_CAPACITY)
+    private var docCount = 0
+    private var liveCount = 0
+    private var totalLength = 0L
+    private val byPath = HashMap<String, Int>()
+
+    private val termIds = HashMap<String, Int>()
+    private val postings = ArrayList<PostingList>()
+
+    /**
+     * Number of indexed notes.
+     */
+    val size: Int get() = liveCount
+
+    /**
+     * Number of distinct terms, including terms only stale documents contain.
+     */
+    val termCount: Int get() = postings.size
+
+    // ==================== Updates ====================
+
+    /**
+     * Bring the index up to date with the notebook on the calling thread.
+     *
+     * @return The number of notes added, re-indexed or removed
+     */
+    fun refresh(): Int {
+        val (candidates, removed) = plan()
+        var changed = removed
+        for (candidate in candidates) {
+            if (apply(analyze(candidate))) changed++
+        }
+        compactIfStale()
+        return changed
+    }
+
+    /**
+     * Bring the index up to date, reading and tokenizing changed notes on
+     * [dispatcher] in chunks of [chunkSize]. The index itself is updated on
+     * the calling coroutine.
+     *
+     * @return The number of notes added, re-indexed or removed
+     */
+    suspend fun refreshParallel(
+        dispatcher: CoroutineDispatcher = Dispatchers.Default,
+        chunkSize: Int = DEFAULT_CHUNK_SIZE
+    ): Int {
+        val (candidates, removed) = plan()
+        val analyzed = coroutineScope {
+            candidates.chunked(chunkSize)
+                .map { chunk -> async(dispatcher) { chunk.map { analyze(it) } } }
+                .awaitAll()
+                .flatten()
+        }
+        var changed = removed
+        for (note in analyzed) {
+            if (apply(note)) changed++
+        }
+        compactIfStale()
+        return changed
+    }
+
+    /**
+     * Re-index a single note, or remove it if the file no longer exists.
+     *
+     * @return True if the index changed
+     */
+    fun update(path: Path): Boolean {
+        val key = keyOf(path)
+        val metadata = try {
+            fileSystem.metadataOrNull(path)
+        } catch (e: IOException) {
+            null
+        }
+        if (metadata == null || !metadata.isRegularFile) {
+            val id = byPath.remove(key) ?: return false
+            retire(id)
+            return true
+        }
+        val changed = apply(analyze(Candidate(path, key, metadata.lastModifiedAtMillis ?: 0L, metadata.size ?: 0L)))
+        compactIfStale()
+        return changed
+    }
+
+    /**
+     * Drop stale postings and renumber the documents densely.
+     */
+    fun compact() {
+        val remap = IntArray(docCount) { -1 }
+        var next = 0
+        for (id in 0 until docCount) {
+            if (paths[id] == null) continue
+            remap[id] = next
+            paths[next] = paths[id]
+            modTimes[next] = modTimes[id]
+            sizes[next] = sizes[id]
+            hashes[next] = hashes[id]
+            lengths[next] = lengths[id]
+            byPath[paths[next]!!] = next
+            next++
+        }
+        for (id in next until docCount) paths[id] = null
+        docCount = next
+
+        val survivors = ArrayList<PostingList>(postings.size)
+        termIds.clear()
+        for (list in postings) {
+            val compacted = list.remap(remap)
+            if (compacted.isEmpty()) continue
+            termIds[list.term] = survivors.size
+            survivors.add(compacted)
+        }
+        postings.clear()
+        postings.addAll(survivors)
+    }
+
+    // ==================== Search ====================
+
+    /**
+     * Notes matching [query], best first.
+     *
+     * Words and `"quoted phrases"` must all occur in a note; `OR` separates
+     * alternative groups. Matching ignores case and punctuation.
+     *
+     * @param limit Maximum number of results
+     */
+    fun search(query: String, limit: Int = DEFAULT_LIMIT): List<SearchHit> {
+        val groups = parseQuery(query)
+        if (groups.isEmpty() || liveCount == 0) return emptyList()
+
+        val decoded = HashMap<String, TermDocs?>()
+        fun docsOf(term: String): TermDocs? = decoded.getOrPut(term) {
+            termIds[term]?.let { postings[it].decode(paths) }
+        }
+
+        val averageLength = totalLength.toDouble() / liveCount
+        val scores = DoubleArray(docCount)
+        val matched = BooleanArray(docCount)
+        for (group in groups) {
+            val clauses = group.map { clause -> clause.map { docsOf(it) ?: TermDocs.EMPTY } }
+            var candidates: IntArray? = null
+            for (clause in clauses.sortedBy { it.minOf { docs -> docs.count } }) {
+                val docs = if (clause.size == 1) clause[0].docs.copyOf(clause[0].count) else phraseDocs(clause)
+                candidates = if (candidates == null) docs else intersect(candidates, docs)
+                if (candidates.isEmpty()) break
+            }
+            for (doc in candidates ?: continue) {
+                var score = 0.0
+                for (clause in clauses) {
+                    for (termDocs in clause) {
+                        val index = sortedIndexOf(termDocs.docs, termDocs.count, doc)
+                        score += bm25(termDocs.freqs[index], termDocs.count, lengths[doc], averageLength)
+                    }
+                }
+                scores[doc] += score
+                matched[doc] = true
+            }
+        }
+
+        val hits = ArrayList<Int>()
+        for (doc in 0 until docCount) if (matched[doc]) hits.add(doc)
+        return hits
+            .sortedWith(compareByDescending<Int> { scores[it] }.thenBy { paths[it] })
+            .take(limit)
+            .map { SearchHit(root / paths[it]!!, scores[it]) }
+    }
+
+    // ==================== Persistence ====================
+
+    /**
+     * Replace the index with the one saved in [indexDirectory].
+     *
+     * @return False if there is no saved index or it is unreadable; the
+     *         index is then empty
+     */
+    fun load(): Boolean {
+        clear()
+        return try {
+            val generation = fileSystem.read(indexDirectory / MANIFEST_FILE) { readManifest() }
+            fileSystem.read(indexDirectory / POSTINGS_FILE) { readPostings(generation) }
+            true
+        } catch (e: IOException) {
+            clear()
+            false
+        } catch (e: IllegalStateException) {
+            clear()
+            false
+        }
+    }
+
+    /**
+     * Write the index to [indexDirectory]. Each file is written to a
+     * temporary file first, so a crash leaves either the old or the new file.
+     */
+    fun save() {
+        fileSystem.createDirectories(indexDirectory)
+        var generation = docCount.toLong() * 31 + termCount
+        for (id in 0 until docCount) generation = generation * 31 + hashes[id]
+        writeAtomically(POSTINGS_FILE) { writePostings(generation) }
+        writeAtomically(MANIFEST_FILE) { writeManifest(generation) }
+    }
+
+    // ==================== Indexing ====================
+
+    /**
+     * Files that may have changed since they were indexed; removes deleted files.
+     *
+     * @return The candidates and the number of removed notes
+     */
+    private fun plan(): Pair<List<Candidate>, Int> {
+        val candidates = ArrayList<Candidate>()
+        val seen = HashSet<String>()
+        for (path in noteFiles()) {
+            val metadata = try {
+                fileSystem.metadataOrNull(path)
+            } catch (e: IOException) {
+                null
+            } ?: continue
+            val key = keyOf(path)
+            seen.add(key)
+            val modTime = metadata.lastModifiedAtMillis ?: 0L
+            val size = metadata.size ?: 0L
+            val id = byPath[key]
+            if (id == null || modTimes[id] != modTime || sizes[id] != size) {
+                candidates.add(Candidate(path, key, modTime, size))
+            }
+        }
+        val gone = byPath.keys.filter { it !in seen }
+        for (key in gone) retire(byPath.remove(key)!!)
+        return candidates to gone.size
+    }
+
+    /**
+     * Read and tokenize a note; safe to call from several threads while the
+     * index is not modified.
+     */
+    private fun analyze(candidate: Candidate): Analyzed? {
+        val content = try {
+            fileSystem.read(candidate.path) { readUtf8() }
+        } catch (e: IOException) {
+            return null
+        }
+        val hash = contentHash(content)
+        val existing = byPath[candidate.key]
+        if (existing != null && hashes[existing] == hash) {
+            // Touched but not modified: only the manifest entry changes
+            return Analyzed(candidate, hash, 0, null)
+        }
+        val terms = HashMap<String, Positions>()
+        val length = tokenize(content) { term, position ->
+            terms.getOrPut(term) { Positions() }.add(position)
+        }
+        return Analyzed(candidate, hash, length, terms)
+    }
+
+    private fun apply(note: Analyzed?): Boolean {
+        if (note == null) return false
+        val key = note.candidate.key
+        val existing = byPath[key]
+        if (note.terms == null && existing != null) {
+            modTimes[existing] = note.candidate.modTime
+            sizes[existing] = note.candidate.size
+            return false
+        }
+        if (existing != null) retire(existing)
+
+        val id = docCount++
+        ensureCapacity(docCount)
+        paths[id] = key
+        modTimes[id] = note.candidate.modTime
+        sizes[id] = note.candidate.size
+        hashes[id] = note.hash
+        lengths[id] = note.length
+        byPath[key] = id
+        liveCount++
+        totalLength += note.length
+
+        for ((term, positions) in note.terms.orEmpty()) {
+            val termId = termIds.getOrPut(term) {
+                postings.add(PostingList(term))
+                postings.size - 1
+            }
+            postings[termId].add(id, positions)
+        }
+        return true
+    }
+
+    private fun retire(id: Int) {
+        paths[id] = null
+        liveCount--
+        totalLength -= lengths[id]
+    }
+
+    private fun compactIfStale() {
+        val stale = docCount - liveCount
+        if (stale > MIN_STALE && stale * 3 > docCount) compact()
+    }
+
+    private fun clear() {
+        for (id in 0 until docCount) paths[id] = null
+        docCount = 0
+        liveCount = 0
+        totalLength = 0
+        byPath.clear()
+        termIds.clear()
+        postings.clear()
+    }
+
+    private fun ensureCapacity(capacity: Int) {
+        if (capacity <= paths.size) return
+        val newSize = maxOf(capacity, paths.size * 2)
+        paths = paths.copyOf(newSize)
+        modTimes = modTimes.copyOf(newSize)
+        sizes = sizes.copyOf(newSize)
+        hashes = hashes.copyOf(newSize)
+        lengths = lengths.copyOf(newSize)
+    }
+
+    private fun noteFiles(): List<Path> {
+        return try {
+            fileSystem.listRecursively(root)
+                .filter { path ->
+                    val name = path.name
+                    val dot = name.lastIndexOf('.')
+                    dot > 0 && name.substring(dot).lowercase() in extensions && !isIndexFile(path)
+                }
+                .toList()
+        } catch (e: IOException) {
+            emptyList()
+        }
+    }
+
+    private fun isIndexFile(path: Path): Boolean {
+        var parent = path.parent
+        while (parent != null) {
+            if (parent == indexDirectory) return true
+            parent = parent.parent
+        }
+        return false
+    }
+
+    private fun keyOf(path: Path): String = path.relativeTo(root).toString()
+
+    // ==================== Query evaluation ====================
+
+    /**
+     * Documents containing the terms of [clause] at consecutive positions.
+     */
+    private fun phraseDocs(clause: List<TermDocs>): IntArray {
+        var candidates = clause[0].docs.copyOf(clause[0].count)
+        for (i in 1 until clause.size) candidates = intersect(candidates, clause[i].docs.copyOf(clause[i].count))
+        val result = IntArray(candidates.size)
+        var count = 0
+        for (doc in candidates) {
+            val positions = clause.map { it.positions(sortedIndexOf(it.docs, it.count, doc)) }
+            val first = positions[0]
+            if (first.any { start -> (1 until positions.size).all { k -> sortedIndexOf(positions[k], positions[k].size, start + k) >= 0 } }) {
+                result[count++] = doc
+            }
+        }
+        return result.copyOf(count)
+    }
+
+    private fun bm25(frequency: Int, documentFrequency: Int, length: Int, averageLength: Double): Double {
+        val idf = ln(1.0 + (liveCount - documentFrequency + 0.5) / (documentFrequency + 0.5))
+        val norm = frequency + K1 * (1 - B + B * length / averageLength)
+        return idf * frequency * (K1 + 1) / norm
+    }
+
+    // ==================== File format ====================
+
+    private fun writeAtomically(name: String, writer: BufferedSink.() -> Unit) {
+        val temp = indexDirectory / "$name.tmp"
+        fileSystem.write(temp) { writer() }
+        fileSystem.atomicMove(temp, indexDirectory / name)
+    }
+
+    private fun BufferedSink.writeManifest(generation: Long) {
+        writeInt(MAGIC)
+        writeInt(VERSION)
+        writeLong(generation)
+        writeInt(docCount)
+        for (id in 0 until docCount) {
+            val path = paths[id]
+            if (path == null) {
+                writeByte(0)
+                continue
+            }
+            writeByte(1)
+            writeString(path)
+            writeLong(modTimes[id])
+            writeLong(sizes[id])
+            writeLong(hashes[id])
+            writeInt(lengths[id])
+        }
+    }
+
+    private fun BufferedSource.readManifest(): Long {
+        check(readInt() == MAGIC && readInt() == VERSION) { "Unknown index format" }
+        val generation = readLong()
+        val count = readInt()
+        ensureCapacity(count)
+        for (id in 0 until count) {
+            docCount = id + 1
+            if (readByte().toInt() == 0) {
+                paths[id] = null
+                continue
+            }
+            val path = readString()
+            paths[id] = path
+            modTimes[id] = readLong()
+            sizes[id] = readLong()
+            hashes[id] = readLong()
+            lengths[id] = readInt()
+            byPath[path] = id
+            liveCount++
+            totalLength += lengths[id]
+        }
+        return generation
+    }
+
+    private fun BufferedSink.writePostings(generation: Long) {
+        writeInt(MAGIC)
+        writeInt(VERSION)
+        writeLong(generation)
+        writeInt(postings.size)
+        for (list in postings) {
+            writeString(list.term)
+            list.write(this)
+        }
+    }
+
+    private fun BufferedSource.readPostings(generation: Long) {
+        check(readInt() == MAGIC && readInt() == VERSION) { "Unknown index format" }
+        check(readLong() == generation) { "Manifest and postings do not match" }
+        val count = readInt()
+        for (i in 0 until count) {
+            val list = PostingList.read(readString(), this)
+            termIds[list.term] = postings.size
+            postings.add(list)
+        }
+    }
+
+    private fun BufferedSink.writeString(value: String) {
+        val bytes = value.encodeToByteArray()
+        writeInt(bytes.size)
+        write(bytes)
+    }
+
+    private fun BufferedSource.readString(): String = readUtf8(readInt().toLong())
+
+    // ==================== Data ====================
+
+    private class Candidate(val path: Path, val key: String, val modTime: Long, val size: Long)
+
+    /**
+     * A tokenized note; [terms] is null when only the file metadata changed.
+     */
+    private class Analyzed(
+        val candidate: Candidate,
+        val hash: Long,
+        val length: Int,
+        val terms: Map<String, Positions>?
+    )
+
+    companion object {
+        const val DEFAULT_LIMIT = 50
+        private const val DEFAULT_CHUNK_SIZE = 64
+        private const val INITIAL_CAPACITY = 64
+        private const val MIN_STALE = 64
+        private const val MANIFEST_FILE = "manifest.bin"
+        private const val POSTINGS_FILE = "postings.bin"
+        private const val MAGIC = 0x594e4958 // "YNIX"
+        private const val VERSION = 1
+        private const val K1 = 1.2
+        private const val B = 0.75
+        private const val MAX_TERM_LENGTH = 64
+
+        /**
+         * Extensions of all text formats.
+         */
+        val DEFAULT_EXTENSIONS: Set<String> = FormatRegistry.getAllExtensions().map { it.lowercase() }.toSet()
+
+        /**
+         * Split [text] into lowercase terms, calling [onTerm] with each term
+         * and its position.
+         *
+         * @return The number of terms
+         */
+        fun tokenize(text: String, onTerm: (String, Int) -> Unit): Int {
+            var position = 0
+            var start = -1
+            val builder = StringBuilder()
+            for (i in 0..text.length) {
+                val c = if (i < text.length) text[i] else ' '
+                if (c.isLetterOrDigit()) {
+                    if (start < 0) {
+                        start = i
+                        builder.setLength(0)
+                    }
+                    builder.append(c.lowercaseChar())
+                } else if (start >= 0) {
+                    if (builder.length <= MAX_TERM_LENGTH) onTerm(builder.toString(), position++)
+                    start = -1
+                }
+            }
+            return position
+        }
+
+        /**
+         * Groups of clauses: a note matches a group if it matches every
+         * clause, and a clause with several terms is a phrase.
+         */
+        internal fun parseQuery(query: String): List<List<List<String>>> {
+            val groups = ArrayList<List<List<String>>>()
+            var group = ArrayList<List<String>>()
+            var i = 0
+            while (i < query.length) {
+                val c = query[i]
+                when {
+                    c.isWhitespace() -> i++
+                    c == '"' -> {
+                        val end = query.indexOf('"', i + 1).let { if (it < 0) query.length else it }
+                        termsOf(query.substring(i + 1, end))?.let { group.add(it) }
+                        i = end + 1
+                    }
+                    else -> {
+                        var end = i
+                        while (end < query.length && !query[end].isWhitespace() && query[end] != '"') end++
+                        val word = query.substring(i, end)
+                        if (word == "OR") {
+                            if (group.isNotEmpty()) groups.add(group)
+                            group = ArrayList()
+                        } else {
+                            termsOf(word)?.let { group.add(it) }
+                        }
+                        i = end
+                    }
+                }
+            }
+            if (group.isNotEmpty()) groups.add(group)
+            return groups
+        }
+
+        private fun termsOf(text: String): List<String>? {
+            val terms = ArrayList<String>()
+            tokenize(text) { term, _ -> terms.add(term) }
+            return terms.ifEmpty { null }
+        }
+
+        private fun contentHash(content: String): Long {
+            var hash = -0x340d631b7bdddcdbL
+            for (c in content) hash = (hash xor c.code.toLong()) * 0x100000001b3L
+            return hash
+        }
+
+        /**
+         * Index of [value] in the first [count] elements of sorted [array], or -1.
+         */
+        private fun sortedIndexOf(array: IntArray, count: Int, value: Int): Int {
+            var low = 0
+            var high = count - 1
+            while (low <= high) {
+                val mid = (low + high) ushr 1
+                when {
+                    array[mid] < value -> low = mid + 1
+                    array[mid] > value -> high = mid - 1
+                    else -> return mid
+                }
+            }
+            return -1
+        }
+
+        /**
+         * Intersection of two sorted arrays.
+         */
+        private fun intersect(a: IntArray, b: IntArray): IntArray {
+            val result = IntArray(minOf(a.size, b.size))
+            var i = 0
+            var j = 0
+            var count = 0
+            while (i < a.size && j < b.size) {
+                when {
+                    a[i] < b[j] -> i++
+                    a[i] > b[j] -> j++
+                    else -> {
+                        result[count++] = a[i]
+                        i++
+                        j++
+                    }
+                }
+            }
+            return result.copyOf(count)
+        }
+    }
+}
+
+/**
+ * Growable list of term positions within one document.
+ */
+internal class Positions {
+    var data = IntArray(4)
+    var size = 0
+
+    fun add(position: Int) {
+        if (size == data.size) data = data.copyOf(size * 2)
+        data[size++] = position
+    }
+}
+
+/**
+ * Posting list of one term: for each document, varints of the id gap, the
+ * term frequency and the position gaps.
+ */
+internal class PostingList(val term: String) {
+    private var bytes = ByteArray(16)
+    private var length = 0
+    private var lastDoc = -1
+
+    fun isEmpty(): Boolean = length == 0
+
+    fun add(doc: Int, positions: Positions) {
+        ensureCapacity(length + (positions.size + 2) * 5)
+        writeVarint(doc - lastDoc)
+        writeVarint(positions.size)
+        var previous = 0
+        for (i in 0 until positions.size) {
+            writeVarint(positions.data[i] - previous)
+            previous = positions.data[i]
+        }
+        lastDoc = doc
+    }
+
+    /**
+     * Entries of live documents, those with a non-null entry in [paths], or
+     * all entries if [paths] is null.
+     */
+    fun decode(paths: Array<String?>?): TermDocs {
+        var docs = IntArray(8)
+        var freqs = IntArray(8)
+        var offsets = IntArray(8)
+        var count = 0
+        var offset = 0
+        var doc = -1
+        while (offset < length) {
+            var value = 0
+            var shift = 0
+            var b: Int
+            do {
+                b = bytes[offset++].toInt()
+                value = value or ((b and 0x7F) shl shift)
+                shift += 7
+            } while (b and 0x80 != 0)
+            doc += value
+
+            var frequency = 0
+            shift = 0
+            do {
+                b = bytes[offset++].toInt()
+                frequency = frequency or ((b and 0x7F) shl shift)
+                shift += 7
+            } while (b and 0x80 != 0)
+
+            val positionsOffset = offset
+            var remaining = frequency
+            while (remaining > 0) {
+                if (bytes[offset++].toInt() and 0x80 == 0) remaining--
+            }
+
+            if (paths != null && paths[doc] == null) continue
+            if (count == docs.size) {
+                docs = docs.copyOf(count * 2)
+                freqs = freqs.copyOf(count * 2)
+                offsets = offsets.copyOf(count * 2)
+            }
+            docs[count] = doc
+            freqs[count] = frequency
+            offsets[count] = positionsOffset
+            count++
+        }
+        return TermDocs(docs, freqs, offsets, count, bytes)
+    }
+
+    /**
+     * Copy with document ids mapped through [remap]; ids mapped to -1 are dropped.
+     */
+    fun remap(remap: IntArray): PostingList {
+        val result = PostingList(term)
+        val all = decode(null)
+        val positions = Positions()
+        for (i in 0 until all.count) {
+            val doc = remap[all.docs[i]]
+            if (doc < 0) continue
+            val decoded = all.positions(i)
+            positions.size = 0
+            for (position in decoded) positions.add(position)
+            result.add(doc, positions)
+        }
+        return result
+    }
+
+    fun write(sink: BufferedSink) {
+        sink.writeInt(lastDoc)
+        sink.writeInt(length)
+        sink.write(bytes, 0, length)
+    }
+
+    private fun ensureCapacity(capacity: Int) {
+        if (capacity > bytes.size) bytes = bytes.copyOf(maxOf(capacity, bytes.size * 2))
+    }
+
+    private fun writeVarint(value: Int) {
+        var v = value
+        while (v and 0x7F.inv() != 0) {
+            bytes[length++] = ((v and 0x7F) or 0x80).toByte()
+            v = v ushr 7
+        }
+        bytes[length++] = v.toByte()
+    }
+
+    companion object {
+        fun read(term: String, source: BufferedSource): PostingList {
+            val list = PostingList(term)
+            list.lastDoc = source.readInt()
+            list.length = source.readInt()
+            check(list.length >= 0) { "Corrupt posting list" }
+            list.bytes = source.readByteArray(list.length.toLong())
+            return list
+        }
+    }
+}
+
+/**
+ * Decoded documents of one term, sorted by id.
+ */
+internal class TermDocs(
+    val docs: IntArray,
+    val freqs: IntArray,
+    private val offsets: IntArray,
+    val count: Int,
+    private val bytes: ByteArray
+) {
+    /**
+     * Positions of the term in the document at [index], ascending.
+     */
+    fun positions(index: Int): IntArray {
+        val result = IntArray(freqs[index])
+        var offset = offsets[index]
+        var previous = 0
+        for (i in result.indices) {
+            var value = 0
+            var shift = 0
+            var b: Int
+            do {
+                b = bytes[offset++].toInt()
+                value = value or ((b and 0x7F) shl shift)
+                shift += 7
+            } while (b and 0x80 != 0)
+            previous += value
+            result[i] = previous
+        }
+        return result
+    }
+
+    companion object {
+        val EMPTY = TermDocs(IntArray(0), IntArray(0), IntArray(0), 0, ByteArray(0))
+    }
+}
@@ -0,0 +1,182 @@
+/*#######################################################
+ *
+ * SPDX-FileCopyrightText: 2025 Milos Vasic
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Unit tests for include directive resolution
+ *
+ *########################################################*/
+package digital.vasic.yole.format
+
+import digital.vasic.yole.format.asciidoc.AsciidocParser
+import digital.vasic.yole.format.restructuredtext.RestructuredTextParser
+import kotlinx.datetime.Clock
+import kotlinx.datetime.Instant
+import okio.Path
+import okio.Path.Companion.toPath
+import okio.fakefilesystem.FakeFileSystem
+import kotlin.test.*
+
+/**
+ * Tests for [IncludeResolver] with the AsciiDoc and reStructuredText parsers.
+ *
+ * Tests cover:
+ * - AsciiDoc `include::` and reStructuredText `.. include::` expansion
+ * - Nested includes relative to the including file
+ * - Shared fragment cache and invalidation by modification time
+ * - Missing and circular includes
+ * - Unchanged behaviour without a resolver
+ */
+class IncludeResolverTest {
+
+    private var now = 1_000L
+    private val clock = object : Clock {
+        override fun now(): Instant = Instant.fromEpochMilliseconds(now)
+    }
+    private val fileSystem = FakeFileSystem(clock)
+    private val resolver = IncludeResolver(fileSystem)
+
+    @BeforeTest
+    fun setup() {
+        fileSystem.createDirectories("/docs/partials".toPath())
+        write("/docs/partials/header.adoc", "== Shared Header\ninclude::footer.adoc[]")
+        write("/docs/partials/footer.adoc", "Footer text")
+        write("/docs/partials/header.rst", "Shared header text")
+    }
+
+    @AfterTest
+    fun teardown() {
+        fileSystem.checkNoOpenFiles()
+    }
+
+    private fun write(path: String, content: String) {
+        now += 1_000
+        fileSystem.write(path.toPath()) { writeUtf8(content) }
+    }
+
+    private fun asciidoc(content: String, path: String = "/docs/page.adoc"): String {
+        val options = ParseOptions.create().setIncludeResolver(resolver, path).build()
+        val parser = AsciidocParser()
+        return parser.toHtml(parser.parse(content, options), true)
+    }
+
+    private fun rst(content: String, path: String = "/docs/page.rst"): String {
+        val options = ParseOptions.create().setIncludeResolver(resolver, path).build()
+        val parser = RestructuredTextParser()
+        return parser.toHtml(parser.parse(content, options), true)
+    }
+
+    // ==================== AsciiDoc ====================
+
+    @Test
+    fun `should expand asciidoc include with nested include`() {
+        val html = asciidoc("= Page\ninclude::partials/header.adoc[]\nBody")
+
+        val headerIndex = html.indexOf("Shared Header")
+        val footerIndex = html.indexOf("Footer text")
+        val bodyIndex = html.indexOf("Body")
+        assertTrue(headerIndex in 0 until footerIndex, html)
+        assertTrue(footerIndex < bodyIndex, html)
+    }
+
+    @Test
+    fun `should not expand includes inside code blocks`() {
+        val html = asciidoc("----\ninclude::partials/header.adoc[]\n----")
+
+        assertFalse(html.contains("Shared Header"))
+        assertTrue(html.contains("include::partials/header.adoc[]"))
+    }
+
+    @Test
+    fun `should leave asciidoc includes untouched without resolver`() {
+        val parser = AsciidocParser()
+        val html = parser.toHtml(parser.parse("include::partials/header.adoc[]"), true)
+
+        assertFalse(html.contains("Shared Header"))
+        assertTrue(html.contains("include::partials/header.adoc[]"))
+    }
+
+    // ==================== reStructuredText ====================
+
+    @Test
+    fun `should expand rst include and skip its options`() {
+        val html = rst("Intro\n\n.. include:: partials/header.rst\n   :start-line: 0\n\nOutro")
+
+        assertTrue(html.contains("Shared header text"), html)
+        assertFalse(html.contains(":start-line:"))
+        assertFalse(html.contains("class=\"rst-directive-header\""))
+        assertTrue(html.indexOf("Shared header text") < html.indexOf("Outro"))
+    }
+
+    @Test
+    fun `should keep rst include as directive without resolver`() {
+        val parser = RestructuredTextParser()
+        val html = parser.toHtml(parser.parse(".. include:: partials/header.rst"), true)
+
+        assertTrue(html.contains("class=\"rst-directive-header\""))
+        assertFalse(html.contains("Shared header text"))
+    }
+
+    // ==================== Cache ====================
+
+    @Test
+    fun `should render shared fragment once for many pages`() {
+        repeat(200) { index ->
+            val html = asciidoc("include::partials/header.adoc[]", "/docs/page$index.adoc")
+            assertTrue(html.contains("Footer text"))
+        }
+
+        // header.adoc and footer.adoc rendered once each
+        assertEquals(2, resolver.cache.missCount)
+        assertEquals(199, resolver.cache.hitCount)
+    }
+
+    @Test
+    fun `should re-render fragment when nested include changes`() {
+        asciidoc("include::partials/header.adoc[]")
+
+        write("/docs/partials/footer.adoc", "New footer")
+        val html = asciidoc("include::partials/header.adoc[]")
+
+        assertTrue(html.contains("New footer"), html)
+        assertFalse(html.contains("Footer text"))
+    }
+
+    @Test
+    fun `should share cache across formats without mixing fragments`() {
+        write("/docs/partials/common.txt", "Common")
+
+        asciidoc("include::partials/common.txt[]")
+        rst(".. include:: partials/common.txt")
+
+        assertEquals(2, resolver.cache.size)
+    }
+
+    // ==================== Errors ====================
+
+    @Test
+    fun `should render missing include`() {
+        val html = asciidoc("include::partials/missing.adoc[]")
+
+        assertTrue(html.contains("Missing include: missing.adoc"))
+    }
+
+    @Test
+    fun `should detect circular includes`() {
+        write("/docs/partials/a.adoc", "A\ninclude::b.adoc[]")
+        write("/docs/partials/b.adoc", "B\ninclude::a.adoc[]")
+
+        val html = asciidoc("include::partials/a.adoc[]")
+
+        assertTrue(html.contains("Circular include: a.adoc"), html)
+    }
+
+    @Test
+    fun `should resolve absolute include paths`() {
+        val path: Path = "/docs/partials/footer.adoc".toPath()
+
+        val html = rst(".. include:: $path", "/elsewhere/page.rst")
+
+        assertTrue(html.contains("Footer text"))
+    }
+}
@@ -0,0 +1,146 @@
+/*#######################################################
+ *
+ * SPDX-FileCopyrightText: 2025 Milos Vasic
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Unit tests for the table-driven inline formatter
+ *
+ *########################################################*/
+package digital.vasic.yole.format
+
+import digital.vasic.yole.format.orgmode.OrgModeParser
+import digital.vasic.yole.format.wikitext.WikitextParser
+import kotlin.test.*
+
+/**
+ * Tests for [InlineFormatter] and the WikiText and Org Mode inline tables.
+ *
+ * Tests cover:
+ * - Rule priority, nesting and escaping
+ * - Guards against repeated delimiter characters
+ * - Excluded characters and unclosed delimiters
+ * - Rejecting a match from the renderer
+ * - Atomic constructs, literal tokens and suffixes
+ * - WikiText and Org Mode inline output
+ */
+class InlineFormatterTest {
+
+    private val formatter = InlineFormatter(
+        listOf(
+            InlineRule("`", "`", InlineContent.TEXT) { "<code>$it</code>" },
+            InlineRule("**", "**", excluded = "*", leftGuard = true, innerGuard = true, rightGuard = true) { "<b>$it</b>" },
+            InlineRule("//", "//", excluded = "/") { "<i>$it</i>" },
+            InlineRule("[[", "]]", InlineContent.RAW) { if (it.isBlank()) null else "<a href='${text(it)}'>${format(it)}</a>" }
+        )
+    )
+
+    // ==================== Engine ====================
+
+    @Test
+    fun `should format and escape in one pass`() {
+        assertEquals("<b>bold</b> &amp; <i>it</i> &lt;x&gt;", formatter.format("**bold** & //it// <x>"))
+    }
+
+    @Test
+    fun `should nest formatted content but not text content`() {
+        assertEquals("<b>a <i>b</i></b>", formatter.format("**a //b//**"))
+        assertEquals("<code>**a** &lt;</code>", formatter.format("`**a** <`"))
+        assertEquals("<i>a <b>b</b> c</i>", formatter.format("//a **b** c//"))
+    }
+
+    @Test
+    fun `should respect guards`() {
+        assertEquals("***no***", formatter.format("***no***"))
+        assertEquals("<b>yes</b>", formatter.format("**yes**"))
+    }
+
+    @Test
+    fun `should leave unclosed and excluded delimiters as text`() {
+        assertEquals("**open and //more", formatter.format("**open and //more"))
+        assertEquals("//a/b//", formatter.format("//a/b//"))
+        assertEquals("<code> </code> `", formatter.format("` ` `"))
+        assertEquals("x `y", formatter.format("x `y"))
+    }
+
+    @Test
+    fun `should try next candidate when renderer rejects`() {
+        assertEquals("[[ ]] <a href='p'>p</a>", formatter.format("[[ ]] [[p]]"))
+    }
+
+    @Test
+    fun `should keep text when not escaping`() {
+        val raw = InlineFormatter(listOf(InlineRule("~", "~") { "<code>$it</code>" }), escape = false)
+
+        assertEquals("<x> <code>y</code>", raw.format("<x> ~y~"))
+    }
+
+    @Test
+    fun `should scan long unclosed lines`() {
+        val line = "[[a ".repeat(20_000)
+
+        assertEquals(line, formatter.format(line))
+    }
+
+    @Test
+    fun `should skip atomic constructs when looking for closer`() {
+        val atomic = InlineFormatter(
+            listOf(
+                InlineRule.piped("[[", "]]") { target, label -> "<a href='${text(target)}'>${text(label ?: target)}</a>" },
+                InlineRule("//", "//") { "<i>$it</i>" }
+            )
+        )
+
+        assertEquals("<i>see <a href='http://x'>http://x</a> now</i>", atomic.format("//see [[http://x]] now//"))
+        assertEquals("//a <a href='http://x'>b</a>", atomic.format("//a [[http://x|b]]"))
+        assertEquals("[[|x]]", atomic.format("[[|x]]"))
+    }
+
+    @Test
+    fun `should render literal tokens and suffixes`() {
+        val rules = InlineFormatter(
+            listOf(
+                InlineRule("\\\\", "") { "<br>" },
+                InlineRule("\"", "\":", InlineContent.RAW, excluded = "\"", suffix = { text, start, end ->
+                    var p = start
+                    while (p < end && text[p] != ' ') p++
+                    if (p > start) p else -1
+                }) { "<a href='${text(it.substringAfter("\":"))}'>${format(it.substringBefore("\":"))}</a>" }
+            )
+        )
+
+        assertEquals("a<br>b", rules.format("a\\\\b"))
+        assertEquals("<a href='x.org'>x</a> y", rules.format("\"x\":x.org y"))
+        assertEquals("&quot;x&quot;: y", rules.format("\"x\": y"))
+    }
+
+    // ==================== Parsers ====================
+
+    @Test
+    fun `should render wikitext inline markup`() {
+        val html = WikitextParser().parse("**b** //i// __h__ ~~s~~ ''a<b'' [[Page|**D**]] {{x.png}} E=mc^{2} H_{2}O").parsedContent
+
+        assertTrue(html.contains(
+            "<p><strong>b</strong> <em>i</em> <span class='highlight'>h</span> <s>s</s> <code>a&lt;b</code> " +
+                "<a href='Page'><strong>D</strong></a> <img src='x.png' alt='x.png'/> E=mc<sup>2</sup> H<sub>2</sub>O</p>"
+        ), html)
+    }
+
+    @Test
+    fun `should render org inline markup`() {
+        val html = OrgModeParser().parse("Text **b** /i/ _u_ +s+ =\"v=\" ~c~ [[https://orgmode.org/manual][The **manual**]]").parsedContent
+
+        assertTrue(html.contains(
+            "<p>Text <span class=\"org-bold\">b</span> <span class=\"org-italic\">i</span> " +
+                "<span class=\"org-underline\">u</span> <span class=\"org-strikethrough\">s</span> " +
+                "<span class=\"org-verbatim\">v</span> <span class=\"org-code\">c</span> " +
+                "<a href=\"https://orgmode.org/manual\" class=\"org-link\">The <span class=\"org-bold\">manual</span></a></p>"
+        ), html)
+    }
+
+    @Test
+    fun `should not close org emphasis inside a link`() {
+        val html = OrgModeParser().parse("a/b [[http://x.org/y][link]] end").parsedContent
+
+        assertTrue(html.contains("<p>a/b <a href=\"http://x.org/y\" class=\"org-link\">link</a> end</p>"), html)
+    }
+}
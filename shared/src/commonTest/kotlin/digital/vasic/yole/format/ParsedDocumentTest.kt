@@ -385,4 +385,36 @@ class ParsedDocumentTest {
 
         assertEquals(whitespace, doc.rawContent)
     }
+
+    @Test
+    fun `should store typed attachments`() {
+        val key = AttachmentKey<List<Int>>("test.numbers")
+        val doc = ParsedDocument(
+            format = testFormat,
+            rawContent = "content",
+            parsedContent = "content"
+        )
+
+        assertNull(doc.getAttachment(key))
+        doc.putAttachment(key, listOf(1, 2, 3))
+
+        assertEquals(listOf(1, 2, 3), doc.getAttachment(key))
+        assertNull(doc.getAttachment(AttachmentKey<List<Int>>("test.numbers")))
+    }
+
+    @Test
+    fun `should not copy attachments`() {
+        val key = AttachmentKey<String>("test.model")
+        val doc = ParsedDocument(
+            format = testFormat,
+            rawContent = "content",
+            parsedContent = "content"
+        )
+        doc.putAttachment(key, "model")
+
+        val copy = doc.copy(rawContent = "changed")
+
+        assertNull(copy.getAttachment(key))
+        assertEquals(doc, doc.copy())
+    }
 }
@@ -0,0 +1,191 @@
+/*#######################################################
+ *
+ * SPDX-FileCopyrightText: 2025 Milos Vasic
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Unit tests for the shared wiki lexer and renderer
+ *
+ *########################################################*/
+package digital.vasic.yole.format
+
+import digital.vasic.yole.format.creole.CreoleParser
+import digital.vasic.yole.format.textile.TextileParser
+import digital.vasic.yole.format.tiddlywiki.TiddlyWikiParser
+import digital.vasic.yole.format.wikitext.WikitextParser
+import kotlin.test.*
+
+/**
+ * Tests for [WikiLexer], [WikiTokenBuffer] and [WikiRenderer] with the grammars
+ * of the wiki-family parsers.
+ *
+ * Tests cover:
+ * - Line splitting, token ranges and buffer reuse
+ * - Verbatim blocks and blank lines
+ * - Per-format heading and list rules
+ * - Nested and flat lists, tables and quote blocks in the renderer
+ */
+class WikiLexerTest {
+
+    private fun types(tokens: WikiTokenBuffer) = (0 until tokens.size).map { tokens.type(it) }
+
+    private fun render(grammar: WikiGrammar, content: String) =
+        StringBuilder().also { WikiRenderer(grammar).render(content, it) }.toString()
+
+    // ==================== Lexer ====================
+
+    @Test
+    fun `should split lines like String lines`() {
+        val tokens = WikiLexer(CreoleParser.GRAMMAR).tokenize("a\r\nb\rc\n")
+
+        assertEquals(4, tokens.size)
+        assertEquals(listOf("a", "b", "c"), (0..2).map { tokens.text(it) })
+        assertEquals(WikiToken.BLANK, tokens.type(3))
+        assertEquals(3, tokens.line(3))
+    }
+
+    @Test
+    fun `should point token text into source`() {
+        val tokens = WikiLexer(CreoleParser.GRAMMAR).tokenize("  == Title ==  \n*** deep")
+
+        assertEquals(WikiToken.HEADING, tokens.type(0))
+        assertEquals(2, tokens.level(0))
+        assertEquals("Title", tokens.text(0))
+        assertEquals(WikiToken.BULLET, tokens.type(1))
+        assertEquals(3, tokens.level(1))
+        assertEquals("deep", tokens.text(1))
+    }
+
+    @Test
+    fun `should reuse buffer`() {
+        val lexer = WikiLexer(TextileParser.GRAMMAR)
+        val tokens = WikiTokenBuffer(capacity = 1)
+
+        lexer.tokenize((1..100).joinToString("\n") { "* item $it" }, tokens)
+        assertEquals(100, tokens.size)
+        assertEquals("item 100", tokens.text(99))
+
+        lexer.tokenize("h3. Only", tokens)
+        assertEquals(1, tokens.size)
+        assertEquals(WikiToken.HEADING, tokens.type(0))
+        assertEquals(3, tokens.level(0))
+    }
+
+    @Test
+    fun `should keep verbatim lines and drop nested openers`() {
+        val tokens = WikiLexer(CreoleParser.GRAMMAR).tokenize("{{{\n* not a list\n{{{\n}}}\n* list")
+
+        assertEquals(
+            listOf(WikiToken.CODE_OPEN, WikiToken.CODE_LINE, WikiToken.CODE_CLOSE, WikiToken.BULLET),
+            types(tokens)
+        )
+        assertEquals("* not a list", tokens.text(1))
+    }
+
+    @Test
+    fun `should end textile pre block at blank line`() {
+        val tokens = WikiLexer(TextileParser.GRAMMAR).tokenize("pre.\ncode\n\n* item")
+
+        assertEquals(
+            listOf(WikiToken.CODE_OPEN, WikiToken.CODE_LINE, WikiToken.CODE_CLOSE, WikiToken.BULLET),
+            types(tokens)
+        )
+    }
+
+    @Test
+    fun `should classify wikitext lines`() {
+        val tokens = WikiLexer(WikitextParser.GRAMMAR).tokenize("== Title ==\n  [*] done\n\t* bullet\na. first\n== Not closed")
+
+        assertEquals(
+            listOf(WikiToken.HEADING, WikiToken.CHECK, WikiToken.BULLET, WikiToken.NUMBERED, WikiToken.PARAGRAPH),
+            types(tokens)
+        )
+        assertEquals(5, tokens.level(0))
+        assertEquals('*', tokens.marker(1))
+        assertEquals("  ", tokens.indent(1))
+        assertEquals("\t", tokens.indent(2))
+        assertEquals("first", tokens.text(3))
+        assertEquals("== Not closed", tokens.text(4))
+    }
+
+    @Test
+    fun `should cap tiddlywiki heading level`() {
+        val tokens = WikiLexer(TiddlyWikiParser.GRAMMAR).tokenize("!!!!!!!! Deep\n#\tItem\n---")
+
+        assertEquals(listOf(WikiToken.HEADING, WikiToken.NUMBERED, WikiToken.RULE), types(tokens))
+        assertEquals(6, tokens.level(0))
+        assertEquals("Item", tokens.text(1))
+    }
+
+    // ==================== Renderer ====================
+
+    @Test
+    fun `should nest and switch lists`() {
+        assertEquals(
+            "<ul><li>a</li><ul><li>b</li></ul><li>c</li></ul><ol><li>d</li></ol>",
+            render(CreoleParser.GRAMMAR, "* a\n** b\n* c\n# d")
+        )
+    }
+
+    @Test
+    fun `should keep flat lists flat`() {
+        assertEquals("<ul><li>a</li><li>b</li></ul><p>c</p>", render(TextileParser.GRAMMAR, "* a\n* b\nc"))
+    }
+
+    @Test
+    fun `should render tables and close them`() {
+        assertEquals(
+            "<table><tr><th>Name</th><td><strong>x</strong></td></tr></table><ul><li>a</li></ul>",
+            render(CreoleParser.GRAMMAR, "|= Name | **x** |\n* a")
+        )
+    }
+
+    @Test
+    fun `should not interrupt lists with verbatim and quote blocks`() {
+        assertEquals(
+            "<ul><li>a</li><pre>x\n</pre><li>b</li><blockquote></ul></blockquote>",
+            render(TiddlyWikiParser.GRAMMAR, "* a\n```\nx\n```\n* b\n<<<")
+        )
+    }
+
+    @Test
+    fun `should close open verbatim block at end`() {
+        assertEquals("<pre>a &lt;b&gt;\n</pre>", render(WikitextParser.GRAMMAR, "'''\na <b>"))
+    }
+
+    // ==================== Parsers ====================
+
+    @Test
+    fun `should wrap wikitext checklists and ordered lists`() {
+        val html = WikitextParser().parse("[ ] open\n[x] dropped\n1. one\n2. two").parsedContent
+
+        assertTrue(html.contains(
+            "<ul class='checklist'><li>open</li><li class='crossed'>dropped</li></ul><ol><li>one</li><li>two</li></ol>"
+        ), html)
+    }
+
+    @Test
+    fun `should render textile inline markup`() {
+        val html = TextileParser().parse("*b* _i_ @a<b@ \"the *site*\":https://example.com/a-b-c !x.png! H~2~O").parsedContent
+
+        assertTrue(html.contains(
+            "<p><b>b</b> <em>i</em> <code>a&lt;b</code> <a href='https://example.com/a-b-c'>the <b>site</b></a> " +
+                "<img src='x.png' alt='x.png'/> H<sub>2</sub>O</p>"
+        ), html)
+    }
+
+    @Test
+    fun `should not format inside tiddlywiki links`() {
+        val html = TiddlyWikiParser().parse("See [ext[https://example.com|the site]] and //italic//").parsedContent
+
+        assertTrue(html.contains(
+            "<p>See <a href='https://example.com' target='_blank'>the site</a> and <em>italic</em></p>"
+        ), html)
+    }
+
+    @Test
+    fun `should render creole line breaks and images`() {
+        val html = CreoleParser().parse("a\\\\b {{{x}}} {{pic.png|A <pic>}}").parsedContent
+
+        assertTrue(html.contains("<p>a<br>b <code>x</code> <img src='pic.png' alt='A &lt;pic&gt;'/></p>"), html)
+    }
+}
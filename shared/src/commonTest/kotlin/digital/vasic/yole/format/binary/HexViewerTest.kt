@@ -0,0 +1,208 @@
+/*#######################################################
+ *
+ * SPDX-FileCopyrightText: 2025 Milos Vasic
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Unit tests for the paged hex viewer
+ *
+ *########################################################*/
+package digital.vasic.yole.format.binary
+
+import digital.vasic.yole.format.plaintext.FileHandlePagedFile
+import digital.vasic.yole.format.plaintext.PagedFile
+import okio.Path.Companion.toPath
+import okio.fakefilesystem.FakeFileSystem
+import kotlin.test.*
+
+/**
+ * Tests for [HexViewer].
+ *
+ * Tests cover:
+ * - Hex/ASCII rows, padding of the last row and HTML escaping
+ * - Offset jumps and page caching
+ * - Streaming pattern search across chunk boundaries
+ * - Hex and text search patterns
+ * - Reading pages of a file through okio
+ */
+class HexViewerTest {
+
+    /**
+     * Synthetic file of [size] bytes where each byte is its offset modulo 251,
+     * counting the bytes read.
+     */
+    private class SyntheticFile(override val size: Long) : PagedFile {
+        var bytesRead = 0L
+
+        override fun read(position: Long, buffer: ByteArray, offset: Int, length: Int): Int {
+            if (position >= size) return 0
+            val count = minOf(length.toLong(), size - position).toInt()
+            for (i in 0 until count) buffer[offset + i] = ((position + i) % 251).toByte()
+            bytesRead += count
+            return count
+        }
+
+        override fun close() {}
+    }
+
+    private class BytesFile(private val data: ByteArray) : PagedFile {
+        override val size: Long = data.size.toLong()
+
+        override fun read(position: Long, buffer: ByteArray, offset: Int, length: Int): Int {
+            if (position >= size) return 0
+            val count = minOf(length, data.size - position.toInt())
+            data.copyInto(buffer, offset, position.toInt(), position.toInt() + count)
+            return count
+        }
+
+        override fun close() {}
+    }
+
+    private fun rows(html: String): List<String> =
+        html.substringAfter("'>").substringAfter("'>").substringBefore("</pre>").lines()
+
+    // ==================== Rendering ====================
+
+    @Test
+    fun `should render offset hex and ascii columns`() {
+        val viewer = HexViewer(BytesFile("Hello, <world>!\n\u0000xyz".encodeToByteArray()))
+        val rows = rows(viewer.toHtml(viewer.page(0)))
+
+        assertEquals(2, rows.size)
+        assertEquals(
+            "00000000  48 65 6c 6c 6f 2c 20 3c  77 6f 72 6c 64 3e 21 0a  Hello, &lt;world&gt;!.",
+            rows[0]
+        )
+        assertEquals("00000010  00 78 79 7a" + " ".repeat(39) + ".xyz", rows[1])
+    }
+
+    @Test
+    fun `should mark highlighted bytes`() {
+        val viewer = HexViewer(BytesFile("abcdef".encodeToByteArray()))
+        val html = viewer.toHtml(viewer.page(0), 2L..3L)
+
+        assertTrue(html.contains("62 <mark>63</mark> <mark>64</mark> 65"), html)
+        assertTrue(html.contains("ab<mark>c</mark><mark>d</mark>ef"), html)
+    }
+
+    @Test
+    fun `should widen offsets for large files`() {
+        val viewer = HexViewer(SyntheticFile(0x1_0000_0010L))
+        val rows = rows(viewer.toHtml(viewer.pageAt(viewer.size - 1)))
+
+        assertTrue(rows.single().startsWith("000100000000  "), rows.single())
+        assertTrue(rows(viewer.toHtml(viewer.page(0)))[1].startsWith("000000000010  "))
+    }
+
+    @Test
+    fun `should render empty file`() {
+        val viewer = HexViewer(BytesFile(ByteArray(0)))
+
+        assertEquals(1, viewer.pageCount)
+        assertEquals(0, viewer.page(0).length)
+    }
+
+    // ==================== Paging ====================
+
+    @Test
+    fun `should read only requested pages`() {
+        val file = SyntheticFile(4L * 1024 * 1024 * 1024)
+        val viewer = HexViewer(file)
+
+        val page = viewer.pageAt(3_000_000_000L)
+        assertEquals(3_000_000_000L / viewer.pageSize, page.index)
+        assertEquals((3_000_000_000L % 251).toByte(), page[3_000_000_000L])
+        assertEquals(viewer.pageSize.toLong(), file.bytesRead)
+
+        viewer.pageAt(3_000_000_001L)
+        assertEquals(viewer.pageSize.toLong(), file.bytesRead)
+    }
+
+    @Test
+    fun `should evict least recently used page`() {
+        val file = SyntheticFile(100_000)
+        val viewer = HexViewer(file, bytesPerRow = 16, rowsPerPage = 4, cachedPages = 2)
+
+        viewer.page(0)
+        viewer.page(1)
+        viewer.page(0)
+        viewer.page(2)
+        val before = file.bytesRead
+        viewer.page(0)
+        assertEquals(before, file.bytesRead)
+        viewer.page(1)
+        assertEquals(before + viewer.pageSize, file.bytesRead)
+    }
+
+    @Test
+    fun `should clamp jumps and reject invalid pages`() {
+        val viewer = HexViewer(SyntheticFile(10_000))
+
+        assertEquals(viewer.pageCount - 1, viewer.pageAt(Long.MAX_VALUE).index)
+        assertEquals(0, viewer.pageAt(-5).index)
+        assertFailsWith<IllegalArgumentException> { viewer.page(viewer.pageCount) }
+    }
+
+    // ==================== Search ====================
+
+    @Test
+    fun `should find pattern across chunk boundaries`() {
+        val data = ByteArray(10_000) { 'a'.code.toByte() }
+        "aab".encodeToByteArray().copyInto(data, 4_095)
+        val viewer = HexViewer(BytesFile(data))
+
+        assertEquals(4_095, viewer.find("aab".encodeToByteArray(), chunkSize = 4_096))
+        assertEquals(-1, viewer.find("aab".encodeToByteArray(), from = 4_096, chunkSize = 4_096))
+        assertEquals(-1, viewer.find("abc".encodeToByteArray()))
+        assertEquals(-1, viewer.find(ByteArray(0)))
+    }
+
+    @Test
+    fun `should find repeated prefixes`() {
+        val viewer = HexViewer(BytesFile("abababacab".encodeToByteArray()))
+
+        assertEquals(2, viewer.find("ababac".encodeToByteArray()))
+        assertEquals(8, viewer.find("ab".encodeToByteArray(), from = 7))
+    }
+
+    @Test
+    fun `should stream search through large files`() {
+        val file = SyntheticFile(1L shl 32)
+        val viewer = HexViewer(file)
+        val target = 3_000_000_000L
+        val pattern = ByteArray(300) { ((target + it) % 251).toByte() }
+
+        assertEquals(target, viewer.find(pattern, from = target - 100))
+    }
+
+    @Test
+    fun `should parse search patterns`() {
+        assertContentEquals(byteArrayOf(0x7f, 0x45, 0x4c, 0x46), HexViewer.searchPattern("7f 45 4C 46"))
+        assertContentEquals(byteArrayOf(0xCA.toByte(), 0xFE.toByte()), HexViewer.searchPattern("CAFE"))
+        assertContentEquals("PK zip".encodeToByteArray(), HexViewer.searchPattern("PK zip"))
+        assertContentEquals("abc".encodeToByteArray(), HexViewer.searchPattern("abc"))
+    }
+
+    // ==================== Files ====================
+
+    @Test
+    fun `should page through okio file handle`() {
+        val fileSystem = FakeFileSystem()
+        val path = "/data.bin".toPath()
+        fileSystem.write(path) { write(ByteArray(5_000) { it.toByte() }) }
+
+        HexViewer(FileHandlePagedFile(fileSystem.openReadOnly(path))).use { viewer ->
+            assertEquals(2, viewer.pageCount)
+            assertEquals(5_000 - 4_096, viewer.page(1).length)
+            assertEquals(4_100L, viewer.find(byteArrayOf(4, 5, 6), from = 4_097))
+        }
+        fileSystem.checkNoOpenFiles()
+    }
+
+    @Test
+    fun `should fall back to generic preview without file`() {
+        val document = BinaryParser().parse("", mapOf("filename" to "disk.img", "path" to "/no/such/file.img"))
+
+        assertTrue(document.parsedContent.contains("cannot be previewed"))
+        assertEquals("/no/such/file.img", document.metadata["path"])
+    }
+}
@@ -475,6 +475,65 @@ class JupyterParserComprehensiveTest {
         assertTrue(html.contains("Jupyter Notebook"))
     }
 
+    @Test
+    fun `should attach notebook model to parsed document`() {
+        val notebook = """
+            {
+              "cells": [
+                {"cell_type": "markdown", "source": "# Heading"},
+                {"cell_type": "code", "source": "x = 1"}
+              ],
+              "metadata": {},
+              "nbformat": 4
+            }
+        """.trimIndent()
+
+        val doc = parser.parse(notebook)
+        val model = doc.getAttachment(JupyterParser.NOTEBOOK_MODEL)
+
+        assertNotNull(model)
+        assertEquals(2, model.cells.size)
+        assertEquals("x = 1", model.cells[1].source)
+    }
+
+    @Test
+    fun `should render markdown cells through markdown parser`() {
+        val notebook = """
+            {
+              "cells": [
+                {"cell_type": "markdown", "source": ["# Heading\n", "Some **bold** text"]}
+              ],
+              "metadata": {},
+              "nbformat": 4
+            }
+        """.trimIndent()
+
+        val doc = parser.parse(notebook)
+        val light = doc.toHtml(lightMode = true)
+        val dark = doc.toHtml(lightMode = false)
+
+        assertTrue(light.contains("<h1>Heading</h1>"))
+        assertTrue(light.contains("<strong>bold</strong>"))
+        assertTrue(dark.contains("<h1>Heading</h1>"))
+        assertTrue(dark.contains("jupyter-notebook dark"))
+    }
+
+    @Test
+    fun `should render from raw content when model is not attached`() {
+        val notebook = """
+            {
+              "cells": [{"cell_type": "code", "source": "print(42)"}],
+              "metadata": {},
+              "nbformat": 4
+            }
+        """.trimIndent()
+
+        val copy = parser.parse(notebook).copy()
+
+        assertNull(copy.getAttachment(JupyterParser.NOTEBOOK_MODEL))
+        assertTrue(copy.toHtml(lightMode = false).contains("print(42)"))
+    }
+
     // ==================== Invalid JSON Tests ====================
 
     @Test
@@ -0,0 +1,131 @@
+/*#######################################################
+ *
+ * SPDX-FileCopyrightText: 2025 Milos Vasic
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Unit tests for the streaming notebook reader
+ *
+ *########################################################*/
+package digital.vasic.yole.format.jupyter
+
+import kotlin.test.*
+
+/**
+ * Tests for [NotebookReader].
+ *
+ * Tests cover:
+ * - Cell streaming order and header extraction
+ * - Lazy output data references
+ * - Bounded output previews
+ * - Escape decoding
+ * - Malformed JSON detection with offsets
+ */
+class NotebookReaderTest {
+
+    private val notebook = """
+        {
+          "cells": [
+            {"cell_type": "markdown", "source": ["# Title\n", "Text"]},
+            {
+              "cell_type": "code",
+              "execution_count": 3,
+              "source": "plot()",
+              "outputs": [
+                {
+                  "output_type": "display_data",
+                  "data": {"image/png": "iVBORw0KGgo=", "text/plain": ["<Figure ", "size>"]},
+                  "metadata": {"image/png": {"width": 640}}
+                }
+              ]
+            }
+          ],
+          "metadata": {"kernelspec": {"name": "ir", "display_name": "R"}, "title": "Plots"},
+          "nbformat": 4,
+          "nbformat_minor": 2
+        }
+    """.trimIndent()
+
+    @Test
+    fun `should stream cells in document order`() {
+        val types = mutableListOf<String>()
+
+        val header = NotebookReader(notebook).read { types.add(it.cellType) }
+
+        assertEquals(listOf("markdown", "code"), types)
+        assertEquals(2, header.cellCount)
+        assertEquals("ir", header.kernel)
+        assertEquals("python", header.language)
+        assertEquals("4.2", header.formatVersion)
+        assertEquals("Plots", header.title)
+    }
+
+    @Test
+    fun `should read source from array and string`() {
+        val cells = mutableListOf<NotebookCell>()
+
+        NotebookReader(notebook).read { cells.add(it) }
+
+        assertEquals("# Title\nText", cells[0].source)
+        assertEquals("plot()", cells[1].source)
+        assertEquals(3, cells[1].executionCount)
+    }
+
+    @Test
+    fun `should record output data as lazy references`() {
+        val cells = mutableListOf<NotebookCell>()
+
+        NotebookReader(notebook).read { cells.add(it) }
+
+        val data = cells[1].outputs.single().data
+        assertEquals(listOf("image/png", "text/plain"), data.map { it.mimeType })
+        assertEquals("iVBORw0KGgo=", NotebookReader.loadOutputData(notebook, data[0]))
+        assertEquals("<Figure size>", NotebookReader.loadOutputData(notebook, data[1]))
+    }
+
+    @Test
+    fun `should bound output text preview`() {
+        val longText = "x".repeat(100)
+        val content = """{"cells": [{"cell_type": "code", "outputs": [
+            {"output_type": "stream", "text": ["$longText", "$longText"]}]}]}"""
+        val cells = mutableListOf<NotebookCell>()
+
+        NotebookReader(content, outputPreviewChars = 150).read { cells.add(it) }
+
+        val output = cells.single().outputs.single()
+        assertEquals(150, output.text.length)
+        assertTrue(output.textTruncated)
+    }
+
+    @Test
+    fun `should decode escape sequences`() {
+        val content = """{"cells": [{"cell_type": "code", "source": "a\"b\\c\né"}]}"""
+        val cells = mutableListOf<NotebookCell>()
+
+        NotebookReader(content).read { cells.add(it) }
+
+        assertEquals("a\"b\\c\né", cells.single().source)
+    }
+
+    @Test
+    fun `should report offset of malformed JSON`() {
+        val error = assertFailsWith<NotebookFormatException> {
+            NotebookReader("""{"cells": [1 2]}""").validate()
+        }
+
+        assertEquals(13, error.offset)
+    }
+
+    @Test
+    fun `should reject trailing content`() {
+        assertFailsWith<NotebookFormatException> {
+            NotebookReader("""{"cells": []} extra""").read { }
+        }
+    }
+
+    @Test
+    fun `should reject unterminated string`() {
+        assertFailsWith<NotebookFormatException> {
+            NotebookReader("""{"cells": [{"source": "abc""").read { }
+        }
+    }
+}
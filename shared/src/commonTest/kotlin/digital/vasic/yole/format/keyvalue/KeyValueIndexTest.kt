@@ -0,0 +1,110 @@
+/*#######################################################
+ *
+ * SPDX-FileCopyrightText: 2025 Milos Vasic
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Unit tests for the key-value index
+ *
+ *########################################################*/
+package digital.vasic.yole.format.keyvalue
+
+import okio.Buffer
+import kotlin.test.*
+
+/**
+ * Tests for [KeyValueIndex].
+ *
+ * Tests cover:
+ * - Section/key lookups with line numbers
+ * - Duplicate keys and keys outside sections
+ * - Streaming from an okio Source
+ * - Rendering and validation from the index
+ */
+class KeyValueIndexTest {
+
+    private val ini = """
+        # Global settings
+        name = demo
+
+        [database]
+        host = localhost
+        port: 5432
+        host = db.internal
+
+        [cache]
+        "ttl" = "60"
+        broken line
+    """.trimIndent()
+
+    @Test
+    fun `should look up values by section and key`() {
+        val index = KeyValueIndex.parse(ini)
+
+        assertEquals("demo", index[null, "name"])
+        assertEquals("5432", index["database", "port"])
+        assertEquals("60", index["cache", "ttl"])
+        assertNull(index["cache", "host"])
+        assertNull(index["missing", "host"])
+    }
+
+    @Test
+    fun `should keep last duplicate with its line number`() {
+        val index = KeyValueIndex.parse(ini)
+
+        val entry = index.entry("database", "host")
+        assertNotNull(entry)
+        assertEquals("db.internal", entry.value)
+        assertEquals(7, entry.lineNumber)
+        assertEquals(mapOf("host" to "db.internal", "port" to "5432"), index.section("database"))
+    }
+
+    @Test
+    fun `should count entries sections and lines`() {
+        val index = KeyValueIndex.parse(ini)
+
+        assertEquals(5, index.entryCount)
+        assertEquals(2, index.sectionCount)
+        assertEquals(listOf("database", "cache"), index.sectionNames)
+        assertEquals(11, index.lineCount)
+        assertEquals(listOf(11), index.invalidLineNumbers())
+    }
+
+    @Test
+    fun `should stream from source`() {
+        val source = Buffer().writeUtf8(ini)
+
+        val index = KeyValueIndex.read(source, retainLines = false)
+
+        assertEquals("db.internal", index["database", "host"])
+        assertFailsWith<IllegalStateException> { index.toHtml() }
+    }
+
+    @Test
+    fun `should index large properties file`() {
+        val source = Buffer()
+        repeat(100_000) { source.writeUtf8("key.$it=value$it\n") }
+
+        val index = KeyValueIndex.read(source)
+
+        assertEquals(100_000, index.entryCount)
+        assertEquals("value99999", index[null, "key.99999"])
+        assertEquals(50_001, index.entry(null, "key.50000")?.lineNumber)
+    }
+
+    @Test
+    fun `should render lines from index`() {
+        val html = KeyValueIndex.parse("[a]\n# c\nk = <v>\n").toHtml()
+
+        assertTrue(html.contains("<span style='color: #ef6d00; font-size: 1.25em; font-weight: bold;'>[a]</span>\n"))
+        assertTrue(html.contains("<span style='color: #88b04b;'># c</span>\n"))
+        assertTrue(html.contains("<span style='font-weight: bold;'>k </span>= &lt;v&gt;\n"))
+    }
+
+    @Test
+    fun `should attach index to parsed document`() {
+        val document = KeyValueParser().parse(ini, mapOf("filename" to "app.ini"))
+
+        assertEquals("db.internal", document.getAttachment(KeyValueParser.INDEX)?.get("database", "host"))
+        assertEquals("5", document.metadata["entries"])
+    }
+}
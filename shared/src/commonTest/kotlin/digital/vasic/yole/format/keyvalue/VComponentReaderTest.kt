@@ -0,0 +1,221 @@
+/*#######################################################
+ *
+ * SPDX-FileCopyrightText: 2025 Milos Vasic
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Unit tests for the vCard / iCalendar reader and calendar index
+ *
+ *########################################################*/
+package digital.vasic.yole.format.keyvalue
+
+import kotlinx.datetime.Instant
+import kotlinx.datetime.TimeZone
+import okio.Buffer
+import kotlin.test.*
+
+/**
+ * Tests for [VComponentReader], [ContentLine] and [CalendarIndex].
+ *
+ * Tests cover:
+ * - Line unfolding with spaces, tabs and CRLF
+ * - Parameters, quoted values and property groups
+ * - Streaming contacts and nested components
+ * - Date-range queries and reading matched events by offset
+ */
+class VComponentReaderTest {
+
+    // ==================== Content Lines ====================
+
+    @Test
+    fun `should unfold continuation lines`() {
+        val reader = VComponentReader(Buffer().writeUtf8("NOTE:This is a lo\r\n ng note\r\n\tthat wraps\r\nEND:X\r\n"))
+
+        assertEquals("NOTE:This is a long notethat wraps", reader.nextLine())
+        assertEquals("END:X", reader.nextLine())
+        assertNull(reader.nextLine())
+    }
+
+    @Test
+    fun `should parse parameters and group`() {
+        val line = ContentLine.parse("item1.EMAIL;TYPE=work;LABEL=\"Office: Main\":jane@example.com", 3)
+
+        assertNotNull(line)
+        assertEquals("item1", line.group)
+        assertEquals("EMAIL", line.name)
+        assertEquals(mapOf("TYPE" to "work", "LABEL" to "Office: Main"), line.parameters)
+        assertEquals("jane@example.com", line.value)
+        assertEquals(3, line.lineNumber)
+    }
+
+    @Test
+    fun `should collect bare vcard 2_1 parameters as type`() {
+        val line = ContentLine.parse("TEL;HOME;VOICE:555-1234")
+
+        assertEquals("HOME,VOICE", line?.parameters?.get("TYPE"))
+    }
+
+    @Test
+    fun `should resolve escapes in text`() {
+        val line = ContentLine.parse("DESCRIPTION:Line one\\nLine two\\, with comma\\; and semicolon")
+
+        assertEquals("Line one\nLine two, with comma; and semicolon", line?.text)
+    }
+
+    // ==================== Components ====================
+
+    @Test
+    fun `should stream contacts one at a time`() {
+        val vcf = """
+            BEGIN:VCARD
+            VERSION:3.0
+            FN:Jane Doe
+            END:VCARD
+            BEGIN:VCARD
+            VERSION:3.0
+            FN:John
+              Smith
+            END:VCARD
+        """.trimIndent()
+        val reader = VComponentReader(Buffer().writeUtf8(vcf))
+
+        val first = reader.next(setOf("VCARD"))
+        val second = reader.next(setOf("VCARD"))
+
+        assertEquals("Jane Doe", first?.value("FN"))
+        assertEquals("John Smith", second?.value("FN"))
+        assertEquals(5, second?.lineNumber)
+        assertNull(reader.next(setOf("VCARD")))
+    }
+
+    @Test
+    fun `should keep nested components`() {
+        val ics = """
+            BEGIN:VCALENDAR
+            BEGIN:VEVENT
+            SUMMARY:Standup
+            BEGIN:VALARM
+            TRIGGER:-PT5M
+            END:VALARM
+            END:VEVENT
+            END:VCALENDAR
+        """.trimIndent()
+
+        val event = VComponentReader(Buffer().writeUtf8(ics)).next(setOf("VEVENT"))
+
+        assertNotNull(event)
+        assertEquals("Standup", event.value("SUMMARY"))
+        assertEquals(listOf("VALARM"), event.children.map { it.name })
+        assertEquals("-PT5M", event.children[0].value("TRIGGER"))
+        assertEquals(1, event.properties.size)
+    }
+
+    @Test
+    fun `should count contacts and events in parsed document`() {
+        val parser = KeyValueParser()
+
+        val contacts = parser.parse("BEGIN:VCARD\nFN:A\nEND:VCARD\nBEGIN:VCARD\nFN:B\nEND:VCARD", mapOf("filename" to "a.vcf"))
+        val events = parser.parse(calendar(3), mapOf("filename" to "a.ics"))
+
+        assertEquals("2", contacts.metadata["contacts"])
+        assertEquals("3", events.metadata["events"])
+    }
+
+    // ==================== Calendar Index ====================
+
+    @Test
+    fun `should parse dates durations and time zones`() {
+        val utc = ContentLine.parse("DTSTART:20251020T090000Z")!!
+        val zoned = ContentLine.parse("DTSTART;TZID=Europe/Berlin:20251020T090000")!!
+        val date = ContentLine.parse("DTSTART;VALUE=DATE:20251020")!!
+
+        assertEquals(Instant.parse("2025-10-20T09:00:00Z").toEpochMilliseconds(), CalendarIndex.parseDateTime(utc, TimeZone.UTC))
+        assertEquals(Instant.parse("2025-10-20T07:00:00Z").toEpochMilliseconds(), CalendarIndex.parseDateTime(zoned, TimeZone.UTC))
+        assertEquals(Instant.parse("2025-10-20T00:00:00Z").toEpochMilliseconds(), CalendarIndex.parseDateTime(date, TimeZone.UTC))
+        assertEquals(90 * 60 * 1000L, CalendarIndex.parseDuration("PT1H30M"))
+        assertEquals(-7 * 24 * 60 * 60 * 1000L, CalendarIndex.parseDuration("-P1W"))
+        assertNull(CalendarIndex.parseDuration("P1X"))
+    }
+
+    @Test
+    fun `should query events in range`() {
+        val index = CalendarIndex.build(Buffer().writeUtf8(calendar(1000)))
+
+        // Events are daily at 09:00 for one hour, starting 2025-01-01
+        val positions = index.positionsBetween(
+            Instant.parse("2025-01-10T00:00:00Z"),
+            Instant.parse("2025-01-17T00:00:00Z")
+        )
+
+        assertEquals(1000, index.size)
+        assertEquals(7, positions.size)
+        assertEquals(Instant.parse("2025-01-10T09:00:00Z"), index.startOf(positions[0]))
+        assertEquals(Instant.parse("2025-01-10T10:00:00Z"), index.endOf(positions[0]))
+    }
+
+    @Test
+    fun `should include long events that started before range`() {
+        val ics = """
+            BEGIN:VCALENDAR
+            BEGIN:VEVENT
+            SUMMARY:Conference
+            DTSTART;VALUE=DATE:20250101
+            DTEND;VALUE=DATE:20250201
+            END:VEVENT
+            BEGIN:VEVENT
+            SUMMARY:Lunch
+            DTSTART:20250115T120000Z
+            DURATION:PT1H
+            END:VEVENT
+            BEGIN:VEVENT
+            SUMMARY:No start
+            END:VEVENT
+            END:VCALENDAR
+        """.trimIndent()
+        val index = CalendarIndex.build(Buffer().writeUtf8(ics))
+
+        val events = index.eventsBetween(
+            Instant.parse("2025-01-20T00:00:00Z"),
+            Instant.parse("2025-01-21T00:00:00Z")
+        ) { Buffer().writeUtf8(ics) }
+
+        assertEquals(1, index.skippedEvents)
+        assertEquals(listOf("Conference"), events.map { it.value("SUMMARY") })
+    }
+
+    @Test
+    fun `should read only matched events from offsets`() {
+        val ics = calendar(50_000)
+        val index = CalendarIndex.build(Buffer().writeUtf8(ics))
+
+        val events = index.eventsBetween(
+            Instant.parse("2026-03-02T00:00:00Z"),
+            Instant.parse("2026-03-09T00:00:00Z")
+        ) { Buffer().writeUtf8(ics) }
+
+        assertEquals(50_000, index.size)
+        assertEquals(7, events.size)
+        assertEquals("Event 425", events[0].value("SUMMARY"))
+        assertEquals("Event 431", events[6].value("SUMMARY"))
+        assertEquals(2 + 425 * 5, events[0].lineNumber)
+    }
+
+    /**
+     * Calendar with one one-hour event per day at 09:00 UTC from 2025-01-01.
+     */
+    private fun calendar(count: Int): String {
+        val start = Instant.parse("2025-01-01T09:00:00Z").toEpochMilliseconds()
+        return buildString {
+            append("BEGIN:VCALENDAR\r\n")
+            for (i in 0 until count) {
+                val day = Instant.fromEpochMilliseconds(start + i * 24L * 60 * 60 * 1000).toString()
+                val stamp = day.substring(0, 19).replace("-", "").replace(":", "") + "Z"
+                append("BEGIN:VEVENT\r\n")
+                append("SUMMARY:Event $i\r\n")
+                append("DTSTART:$stamp\r\n")
+                append("DURATION:PT1H\r\n")
+                append("END:VEVENT\r\n")
+            }
+            append("END:VCALENDAR\r\n")
+        }
+    }
+}
@@ -300,8 +300,8 @@ class LatexParserComprehensiveTest {
     @Test
     fun `should allow escaped special chars`() {
         val content = """
-            This \\& that
-            Number \\#1
+            This \& that
+            Number \#1
         """.trimIndent()
 
         val errors = parser.validate(content)
@@ -309,6 +309,138 @@ class LatexParserComprehensiveTest {
         assertFalse(errors.any { it.contains("Unescaped") })
     }
 
+    @Test
+    fun `should not treat line break as escape`() {
+        val content = "This \\\\& that"
+
+        val errors = parser.validate(content)
+
+        assertTrue(errors.any { it.contains("Unescaped ampersand") })
+    }
+
+    @Test
+    fun `should allow ampersand in alignment environments`() {
+        val content = """
+            \begin{tabular}{ll}
+            a & b \\
+            c & d
+            \end{tabular}
+        """.trimIndent()
+
+        val errors = parser.validate(content)
+
+        assertTrue(errors.isEmpty(), errors.toString())
+    }
+
+    @Test
+    fun `should allow hash in macro definitions`() {
+        val content = """
+            \newcommand{\pair}[2]{(#1, #2)}
+            \newcommand{\wrapped}[1]{%
+              [#1]
+            }
+        """.trimIndent()
+
+        val errors = parser.validate(content)
+
+        assertTrue(errors.isEmpty(), errors.toString())
+    }
+
+    @Test
+    fun `should report hash after one-line definition`() {
+        val content = """
+            \newcommand{\foo}[1]{#1}
+            \renewcommand\bar{x}
+            \def\baz#1{#1}
+            \section{A #1}
+        """.trimIndent()
+
+        val errors = parser.validate(content)
+
+        assertEquals(1, errors.size, errors.toString())
+        assertTrue(errors.single().contains("Unescaped hash (#)"))
+    }
+
+    @Test
+    fun `should not tokenize verbatim content`() {
+        val content = """
+            \begin{verbatim}
+            \end{itemize} & # \123
+            \end{verbatim}
+            Use \verb|\begin{x}| inline.
+        """.trimIndent()
+
+        val errors = parser.validate(content)
+
+        assertTrue(errors.isEmpty(), errors.toString())
+    }
+
+    @Test
+    fun `should validate deeply nested environments without errors`() {
+        val content = """
+            \begin{document}
+            \begin{figure}
+            \begin{center}
+            \begin{tabular}{c}
+            x
+            \end{tabular}
+            \end{center}
+            \end{figure}
+            \end{document}
+        """.trimIndent()
+
+        val errors = parser.validate(content)
+
+        assertTrue(errors.isEmpty(), errors.toString())
+    }
+
+    @Test
+    fun `should report mismatch against innermost environment with position`() {
+        val content = """
+            \begin{itemize}
+            \begin{enumerate}
+              \end{itemize}
+        """.trimIndent()
+
+        val diagnostics = parser.diagnose(content)
+
+        val mismatch = diagnostics.first { it.message.startsWith("Mismatched") }
+        assertEquals(3, mismatch.line)
+        assertEquals(3, mismatch.column)
+        assertTrue(mismatch.message.contains("expected: enumerate"))
+        assertFalse(diagnostics.any { it.message.startsWith("Unclosed environment") })
+    }
+
+    @Test
+    fun `should detect unbalanced braces`() {
+        val errors = parser.validate("\\textbf{open\n\nclose}}")
+
+        assertTrue(errors.any { it.contains("Unmatched closing brace") })
+    }
+
+    @Test
+    fun `should detect inline math spanning paragraphs`() {
+        val errors = parser.validate("Value \$x\n\nnext paragraph")
+
+        assertTrue(errors.any { it.contains("Unclosed inline math") })
+    }
+
+    @Test
+    fun `should validate large documents in linear time`() {
+        val section = """
+            \section{Chapter}
+            \begin{itemize}
+            \item Item with ${'$'}x^2${'$'} and \textbf{bold} % comment
+            \end{itemize}
+
+        """.trimIndent()
+        val content = section.repeat(10_000)
+
+        val errors = parser.validate(content)
+
+        assertTrue(errors.isEmpty(), errors.take(5).toString())
+    }
+
     // ==================== HTML Conversion - Document Structure ====================
 
     @Test
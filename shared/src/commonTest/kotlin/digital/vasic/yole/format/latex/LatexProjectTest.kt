@@ -0,0 +1,204 @@
+/*#######################################################
+ *
+ * SPDX-FileCopyrightText: 2025 Milos Vasic
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Unit tests for multi-file LaTeX projects
+ *
+ *########################################################*/
+package digital.vasic.yole.format.latex
+
+import kotlinx.datetime.Clock
+import kotlinx.datetime.Instant
+import okio.Path.Companion.toPath
+import okio.fakefilesystem.FakeFileSystem
+import kotlin.test.*
+
+/**
+ * Tests for [LatexProject].
+ *
+ * Tests cover:
+ * - Include graph construction
+ * - Composed HTML of the whole project
+ * - Incremental re-rendering of changed files and their ancestors
+ * - Missing and circular includes, and missing includes created later
+ */
+class LatexProjectTest {
+
+    private var now = 1_000L
+    private val clock = object : Clock {
+        override fun now(): Instant = Instant.fromEpochMilliseconds(now)
+    }
+    private val fileSystem = FakeFileSystem(clock)
+    private val main = "/thesis/main.tex".toPath()
+    private val intro = "/thesis/chapters/intro.tex".toPath()
+    private val results = "/thesis/chapters/results.tex".toPath()
+    private val table = "/thesis/tables/table.tex".toPath()
+
+    @BeforeTest
+    fun setup() {
+        fileSystem.createDirectories("/thesis/chapters".toPath())
+        fileSystem.createDirectories("/thesis/tables".toPath())
+        write(main, """
+            \documentclass{article}
+            \title{Thesis}
+            \begin{document}
+            \include{chapters/intro}
+            \input{chapters/results.tex}
+            % \input{chapters/unused}
+            \end{document}
+        """.trimIndent())
+        write(intro, "\\section{Introduction}\nIntro text")
+        write(results, "\\section{Results}\n\\input{tables/table}\nResult text")
+        write(table, "Table body")
+    }
+
+    @AfterTest
+    fun teardown() {
+        fileSystem.checkNoOpenFiles()
+    }
+
+    private fun write(path: okio.Path, content: String) {
+        now += 1_000
+        fileSystem.write(path) { writeUtf8(content) }
+    }
+
+    @Test
+    fun `should build include graph from root`() {
+        val project = LatexProject(fileSystem, main)
+        project.load()
+
+        assertEquals(setOf(main, intro, results, table), project.files)
+        assertEquals(listOf(intro, results), project.includesOf(main))
+        assertEquals(listOf(table), project.includesOf(results))
+        assertEquals(setOf(results), project.includersOf(table))
+    }
+
+    @Test
+    fun `should compose included files in order`() {
+        val project = LatexProject(fileSystem, main)
+        project.load()
+
+        val html = project.toHtml(lightMode = true)
+
+        val introIndex = html.indexOf("Introduction")
+        val resultsIndex = html.indexOf("Results")
+        val tableIndex = html.indexOf("Table body")
+        assertTrue(introIndex in 0 until resultsIndex, html)
+        assertTrue(resultsIndex < tableIndex, html)
+        assertTrue(html.contains("document-title"))
+        assertFalse(html.contains("unused"))
+    }
+
+    @Test
+    fun `should re-render only changed file and ancestors`() {
+        val project = LatexProject(fileSystem, main)
+        project.load()
+        project.toHtml()
+        val rendersAfterLoad = project.renderCount
+
+        write(table, "Updated table body")
+        val invalidated = project.update(table)
+
+        assertEquals(setOf(table, results, main), invalidated)
+        assertEquals(rendersAfterLoad + 1, project.renderCount)
+        assertTrue(project.toHtml().contains("Updated table body"))
+    }
+
+    @Test
+    fun `should detect changes when checking all files`() {
+        val project = LatexProject(fileSystem, main)
+        project.load()
+
+        write(intro, "\\section{Preface}")
+        val invalidated = project.update()
+
+        assertEquals(setOf(intro, main), invalidated)
+        assertTrue(project.toHtml().contains("Preface"))
+    }
+
+    @Test
+    fun `should ignore touched but unmodified files`() {
+        val project = LatexProject(fileSystem, main)
+        project.load()
+        val renders = project.renderCount
+
+        write(intro, "\\section{Introduction}\nIntro text")
+
+        assertTrue(project.update(intro).isEmpty())
+        assertEquals(renders, project.renderCount)
+    }
+
+    @Test
+    fun `should follow newly added includes`() {
+        val project = LatexProject(fileSystem, main)
+        project.load()
+        val appendix = "/thesis/chapters/appendix.tex".toPath()
+        write(appendix, "Appendix text")
+
+        write(intro, "\\section{Introduction}\n\\input{chapters/appendix}")
+        project.update(intro)
+
+        assertTrue(appendix in project.files)
+        assertTrue(project.toHtml().contains("Appendix text"))
+    }
+
+    @Test
+    fun `should render missing includes`() {
+        write(results, "\\input{chapters/missing}")
+        val project = LatexProject(fileSystem, main)
+        project.load()
+
+        assertTrue(project.toHtml().contains("Missing file: missing.tex"))
+    }
+
+    @Test
+    fun `should load missing includes once created`() {
+        write(results, "\\input{chapters/missing}")
+        val project = LatexProject(fileSystem, main)
+        project.load()
+        assertTrue(project.toHtml().contains("Missing file: missing.tex"))
+
+        val missing = "/thesis/chapters/missing.tex".toPath()
+        write(missing, "Recovered text")
+        val invalidated = project.update()
+
+        assertEquals(setOf(missing, results, main), invalidated)
+        val html = project.toHtml()
+        assertTrue(html.contains("Recovered text"))
+        assertFalse(html.contains("Missing file"))
+        assertTrue(missing in project.files)
+    }
+
+    @Test
+    fun `should load missing include when it is the updated path`() {
+        write(results, "\\input{chapters/missing}")
+        val project = LatexProject(fileSystem, main)
+        project.load()
+        project.toHtml()
+
+        val missing = "/thesis/chapters/missing.tex".toPath()
+        write(missing, "Recovered text")
+        project.update(missing)
+
+        assertTrue(project.toHtml().contains("Recovered text"))
+    }
+
+    @Test
+    fun `should detect circular includes`() {
+        write(table, "\\input{chapters/results}")
+        val project = LatexProject(fileSystem, main)
+        project.load()
+
+        assertTrue(project.toHtml().contains("Circular include: results.tex"))
+    }
+
+    @Test
+    fun `should prefix errors with file name`() {
+        write(intro, "\\begin{itemize}")
+        val project = LatexProject(fileSystem, main)
+        project.load()
+
+        assertTrue(project.errors().any { it.startsWith("intro.tex:") && it.contains("Unclosed environment") })
+    }
+}
@@ -0,0 +1,191 @@
+/*#######################################################
+ *
+ * SPDX-FileCopyrightText: 2025 Milos Vasic
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Unit tests for the streaming JSON formatter
+ *
+ *########################################################*/
+package digital.vasic.yole.format.plaintext
+
+import okio.Buffer
+import okio.Source
+import okio.Timeout
+import kotlin.test.*
+
+/**
+ * Tests for [JsonFormatter].
+ *
+ * Tests cover:
+ * - Pretty-printing objects, arrays, strings, numbers and literals
+ * - Deep nesting beyond the cached indentation table
+ * - Error offsets for malformed input
+ * - Outline view of long arrays and deep containers
+ * - Input arriving in small chunks and large generated input
+ */
+class JsonFormatterTest {
+
+    private fun errorAt(json: String): Long? =
+        JsonFormatter().validate(Buffer().writeUtf8(json))?.offset
+
+    /**
+     * Source returning at most [chunk] bytes per read, to split tokens across reads.
+     */
+    private class ChunkedSource(private val data: Buffer, private val chunk: Long) : Source {
+        override fun read(sink: Buffer, byteCount: Long): Long =
+            if (data.exhausted()) -1 else data.read(sink, minOf(byteCount, chunk))
+
+        override fun timeout(): Timeout = Timeout.NONE
+        override fun close() {}
+    }
+
+    // ==================== Formatting ====================
+
+    @Test
+    fun `should pretty print nested document`() {
+        val json = """{"name":"x","tags":["a","b"],"n":-1.5e+3,"ok":true,"none":null,"empty":{},"list":[]}"""
+        val expected = """
+            {
+              "name": "x",
+              "tags": [
+                "a",
+                "b"
+              ],
+              "n": -1.5e+3,
+              "ok": true,
+              "none": null,
+              "empty": {},
+              "list": []
+            }
+        """.trimIndent()
+
+        assertEquals(expected, JsonFormatter().format(json))
+    }
+
+    @Test
+    fun `should keep strings and escapes unchanged`() {
+        val json = """[ "a, b: {c}", "\"q\" \\ \u00e9 \n", "日本" ]"""
+
+        assertEquals("[\n  \"a, b: {c}\",\n  \"\\\"q\\\" \\\\ \\u00e9 \\n\",\n  \"日本\"\n]", JsonFormatter().format(json))
+    }
+
+    @Test
+    fun `should format scalar documents`() {
+        assertEquals("42", JsonFormatter().format("  42 \n"))
+        assertEquals("\"s\"", JsonFormatter().format("\"s\""))
+    }
+
+    @Test
+    fun `should indent beyond cached levels`() {
+        val depth = 40
+        val json = "[".repeat(depth) + "1" + "]".repeat(depth)
+        val lines = JsonFormatter(indent = 4).format(json).lines()
+
+        assertEquals(" ".repeat(depth * 4) + "1", lines[depth])
+        assertEquals("]", lines.last())
+    }
+
+    @Test
+    fun `should handle tokens split across reads`() {
+        val json = """{"key": "va\"lue", "num": 12345.678, "arr": [true, false, null]}"""
+        val out = Buffer()
+        JsonFormatter().format(ChunkedSource(Buffer().writeUtf8(json), 1), out)
+
+        assertEquals(JsonFormatter().format(json), out.readUtf8())
+    }
+
+    @Test
+    fun `should stream large arrays`() {
+        val input = Buffer()
+        input.writeUtf8("[")
+        for (i in 0 until 100_000) {
+            if (i > 0) input.writeUtf8(",")
+            input.writeUtf8("""{"id":$i,"name":"item $i"}""")
+        }
+        input.writeUtf8("]")
+        val size = input.size
+
+        val out = Buffer()
+        JsonFormatter().format(input, out)
+
+        assertTrue(out.size > size)
+        assertEquals("[", out.readUtf8Line())
+        assertEquals("  {", out.readUtf8Line())
+        assertEquals("    \"id\": 0,", out.readUtf8Line())
+    }
+
+    // ==================== Validation ====================
+
+    @Test
+    fun `should accept valid documents`() {
+        assertNull(errorAt("""{"a": [1, 2.0, -0, 0.5e-7, "x"], "b": {"c": null}}"""))
+        assertNull(errorAt(" [] "))
+    }
+
+    @Test
+    fun `should report error offsets`() {
+        assertEquals(12, errorAt("""{"a": [1, 2,]}"""))
+        assertEquals(5, errorAt("""{"a" 1}"""))
+        assertEquals(1, errorAt("""{1: 2}"""))
+        assertEquals(3, errorAt("[1 2]"))
+        assertEquals(4, errorAt("[tru]"))
+        assertEquals(1, errorAt("01"))
+        assertEquals(2, errorAt("1.e5"))
+        assertEquals(2, errorAt("\"\\x\""))
+        assertEquals(1, errorAt("\"\u0001\""))
+        assertEquals(3, errorAt("{} []"))
+        assertEquals(2, errorAt("[1"))
+        assertEquals(4, errorAt("\"abc"))
+        assertEquals(0, errorAt(""))
+    }
+
+    @Test
+    fun `should report message with offset`() {
+        val error = assertFailsWith<JsonFormatException> { JsonFormatter().format("[1,]") }
+
+        assertEquals(3, error.offset)
+        assertEquals("Unexpected character at offset 3", error.message)
+    }
+
+    @Test
+    fun `should reject excessive nesting`() {
+        val error = assertFailsWith<JsonFormatException> { JsonFormatter().format("[".repeat(600)) }
+
+        assertTrue(error.message!!.startsWith("Maximum nesting depth exceeded"))
+    }
+
+    // ==================== Outline ====================
+
+    @Test
+    fun `should collapse long arrays`() {
+        val json = (0 until 1000).joinToString(",", "[", "]")
+        val expected = "[\n  0,\n  1,\n  2\n  … 997 more items\n]"
+
+        assertEquals(expected, JsonFormatter.outline(maxArrayItems = 3).format(json))
+    }
+
+    @Test
+    fun `should collapse deep containers`() {
+        val json = """{"a": {"b": [1, 2, 3], "c": {"d": 1}}, "e": [[]]}"""
+        val expected = """
+            {
+              "a": {
+                "b": [… 3 items],
+                "c": {… 1 keys}
+              },
+              "e": [
+                []
+              ]
+            }
+        """.trimIndent()
+
+        assertEquals(expected, JsonFormatter.outline(collapseDepth = 2).format(json))
+    }
+
+    @Test
+    fun `should validate collapsed content`() {
+        assertFailsWith<JsonFormatException> {
+            JsonFormatter.outline(maxArrayItems = 1).format("[1, 2, {\"x\" 3}]")
+        }
+    }
+}
@@ -0,0 +1,207 @@
+/*#######################################################
+ *
+ * SPDX-FileCopyrightText: 2025 Milos Vasic
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Unit tests for the windowed large-file viewer
+ *
+ *########################################################*/
+package digital.vasic.yole.format.plaintext
+
+import kotlin.test.*
+
+/**
+ * Tests for [LineOffsetIndex] and [LargeFileViewer] over an in-memory file.
+ *
+ * Tests cover:
+ * - Incremental index build, line starts and line lookup by offset
+ * - Lines beyond the indexed part and past the end of the file
+ * - Windows by line and by byte offset, with margins
+ * - Byte budget truncation, CRLF lines and HTML output
+ */
+class LargeFileViewerTest {
+
+    private class BytesFile(private val bytes: ByteArray) : PagedFile {
+        var closed = false
+        override val size: Long = bytes.size.toLong()
+
+        override fun read(position: Long, buffer: ByteArray, offset: Int, length: Int): Int {
+            if (position >= size) return 0
+            val count = minOf(length.toLong(), size - position).toInt()
+            bytes.copyInto(buffer, offset, position.toInt(), position.toInt() + count)
+            return count
+        }
+
+        override fun close() {
+            closed = true
+        }
+    }
+
+    private fun numbered(lines: Int) = (0 until lines).joinToString("\n") { "line $it" } + "\n"
+
+    private fun viewer(content: String, margin: Int = 0, maxWindowBytes: Int = 1024 * 1024, stride: Int = 4) =
+        LargeFileViewer(BytesFile(content.encodeToByteArray()), margin, maxWindowBytes, stride)
+
+    // ==================== Index ====================
+
+    @Test
+    fun `should build index incrementally`() {
+        val index = LineOffsetIndex(BytesFile(numbered(100_000).encodeToByteArray()), stride = 16)
+
+        assertFalse(index.isComplete)
+        assertTrue(index.indexNext())
+        assertTrue(index.progress in 0f..1f)
+        while (index.indexNext()) Unit
+
+        assertTrue(index.isComplete)
+        assertEquals(100_000L, index.lineCount)
+        assertEquals(1f, index.progress)
+    }
+
+    @Test
+    fun `should find line starts between checkpoints`() {
+        val content = numbered(50)
+        val index = LineOffsetIndex(BytesFile(content.encodeToByteArray()), stride = 4)
+        while (index.indexNext()) Unit
+
+        for (line in listOf(0L, 1L, 3L, 4L, 5L, 17L, 49L)) {
+            assertEquals(content.indexOf("line $line\n").toLong(), index.lineStart(line), "line $line")
+        }
+        assertEquals(-1L, index.lineStart(50))
+    }
+
+    @Test
+    fun `should scan past indexed part`() {
+        val content = numbered(10)
+        val index = LineOffsetIndex(BytesFile(content.encodeToByteArray()), stride = 2)
+
+        assertEquals(content.indexOf("line 7").toLong(), index.lineStart(7))
+        assertEquals(-1L, index.lineAt(0))
+    }
+
+    @Test
+    fun `should find line containing offset`() {
+        val content = numbered(30)
+        val index = LineOffsetIndex(BytesFile(content.encodeToByteArray()), stride = 4)
+        while (index.indexNext()) Unit
+
+        assertEquals(0L, index.lineAt(0))
+        assertEquals(13L, index.lineAt(content.indexOf("line 13").toLong() + 3))
+        assertEquals(29L, index.lineAt(content.length - 1L))
+    }
+
+    @Test
+    fun `should count unterminated last line`() {
+        val index = LineOffsetIndex(BytesFile("a\nb".encodeToByteArray()))
+        while (index.indexNext()) Unit
+
+        assertEquals(2L, index.lineCount)
+    }
+
+    @Test
+    fun `should index empty file`() {
+        val index = LineOffsetIndex(BytesFile(ByteArray(0)))
+
+        assertFalse(index.indexNext())
+        assertEquals(0L, index.lineCount)
+        assertEquals(-1L, index.lineStart(0))
+    }
+
+    // ==================== Windows ====================
+
+    @Test
+    fun `should read window with margins`() {
+        val window = viewer(numbered(100), margin = 2).window(firstLine = 10, count = 3)
+
+        assertEquals(8L, window.firstLine)
+        assertEquals((8..14).map { "line $it" }, window.lines)
+        assertFalse(window.truncated)
+    }
+
+    @Test
+    fun `should clamp margin at start of file`() {
+        val window = viewer(numbered(100), margin = 5).window(firstLine = 1, count = 2)
+
+        assertEquals(0L, window.firstLine)
+        assertEquals((0..7).map { "line $it" }, window.lines)
+    }
+
+    @Test
+    fun `should return empty window past end`() {
+        val viewer = viewer(numbered(5))
+        val window = viewer.window(firstLine = 10, count = 3)
+
+        assertTrue(window.lines.isEmpty())
+        assertEquals(viewer.size, window.startOffset)
+    }
+
+    @Test
+    fun `should align byte offset to line start`() {
+        val content = numbered(100)
+        val viewer = viewer(content, margin = 1)
+        while (viewer.index.indexNext()) Unit
+
+        val window = viewer.windowAt(content.indexOf("line 42").toLong() + 4, count = 2)
+
+        assertEquals(41L, window.firstLine)
+        assertEquals(listOf("line 41", "line 42", "line 43", "line 44"), window.lines)
+        assertEquals(content.indexOf("line 41").toLong(), window.startOffset)
+        assertEquals(content.indexOf("line 45").toLong(), window.endOffset)
+    }
+
+    @Test
+    fun `should position by offset before index is built`() {
+        val content = numbered(100)
+        val window = viewer(content).windowAt(content.indexOf("line 70").toLong(), count = 1)
+
+        assertEquals(-1L, window.firstLine)
+        assertEquals(listOf("line 70"), window.lines)
+    }
+
+    @Test
+    fun `should stop at byte budget`() {
+        val content = "short\n" + "x".repeat(100) + "\nafter\n"
+        val window = viewer(content, maxWindowBytes = 32).window(firstLine = 0, count = 10)
+
+        assertEquals(2, window.lines.size)
+        assertEquals("x".repeat(26), window.lines[1])
+        assertTrue(window.truncated)
+        assertEquals(32L, window.endOffset)
+    }
+
+    @Test
+    fun `should drop carriage returns`() {
+        val window = viewer("a\r\nb\r\nc").window(firstLine = 0, count = 10)
+
+        assertEquals(listOf("a", "b", "c"), window.lines)
+    }
+
+    @Test
+    fun `should render escaped html`() {
+        val viewer = viewer("<b>\n&")
+        val html = viewer.toHtml(viewer.window(firstLine = 0, count = 10))
+
+        assertTrue(html.startsWith("<div class='plaintext' data-first-line='0' data-start-offset='0' data-end-offset='5' data-size='5'>"), html)
+        assertTrue(html.contains(">&lt;b&gt;\n&amp;</pre></div>"), html)
+    }
+
+    @Test
+    fun `should close file`() {
+        val file = BytesFile(ByteArray(1))
+        LargeFileViewer(file).close()
+
+        assertTrue(file.closed)
+    }
+
+    // ==================== Parser ====================
+
+    @Test
+    fun `should choose windowed viewer for large text files`() {
+        val large = PlaintextParser.WINDOWED_VIEWER_THRESHOLD
+
+        assertTrue(PlaintextParser.shouldUseWindowedViewer("server.LOG", large))
+        assertTrue(PlaintextParser.shouldUseWindowedViewer("notes.txt", large * 64))
+        assertFalse(PlaintextParser.shouldUseWindowedViewer("notes.txt", large - 1))
+        assertFalse(PlaintextParser.shouldUseWindowedViewer("page.html", large))
+    }
+}
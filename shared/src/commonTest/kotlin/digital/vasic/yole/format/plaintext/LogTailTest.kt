@@ -0,0 +1,188 @@
+/*#######################################################
+ *
+ * SPDX-FileCopyrightText: 2025 Milos Vasic
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Unit tests for log follow mode
+ *
+ *########################################################*/
+package digital.vasic.yole.format.plaintext
+
+import okio.Path.Companion.toPath
+import okio.buffer
+import okio.fakefilesystem.FakeFileSystem
+import kotlin.test.*
+
+/**
+ * Tests for [LogTail].
+ *
+ * Tests cover:
+ * - Reading appended lines only, from the start or from an offset
+ * - Holding back incomplete lines and CRLF terminators
+ * - Splitting lines longer than the cap
+ * - Truncation, rotation and missing files
+ * - Read limits and HTML rendering
+ */
+class LogTailTest {
+
+    private val fileSystem = FakeFileSystem()
+    private val log = "/var/log/app.log".toPath()
+
+    @BeforeTest
+    fun setup() {
+        fileSystem.createDirectories(log.parent!!)
+    }
+
+    @AfterTest
+    fun teardown() {
+        fileSystem.checkNoOpenFiles()
+    }
+
+    private fun append(text: String) {
+        fileSystem.appendingSink(log).buffer().use { it.writeUtf8(text) }
+    }
+
+    private fun write(text: String) {
+        fileSystem.write(log) { writeUtf8(text) }
+    }
+
+    // ==================== Appends ====================
+
+    @Test
+    fun `should read appended lines only`() {
+        write("one\ntwo\n")
+        val tail = LogTail(fileSystem, log)
+
+        assertEquals(listOf("one", "two"), tail.poll()?.lines)
+        assertNull(tail.poll())
+
+        append("three\n")
+        val update = assertNotNull(tail.poll())
+        assertEquals(listOf("three"), update.lines)
+        assertFalse(update.reset)
+        assertEquals(14L, update.offset)
+    }
+
+    @Test
+    fun `should split lines longer than the cap`() {
+        val tail = LogTail(fileSystem, log, maxLineBytes = 16)
+
+        append("0123456789")
+        assertNull(tail.poll())
+
+        append("abcdefghij")
+        assertEquals(listOf("0123456789abcdef"), tail.poll()?.lines)
+
+        append("ghij-more-and-more-text\nshort\n")
+        assertEquals(listOf("ghijghij-more-an", "d-more-text", "short"), tail.poll()?.lines)
+    }
+
+    @Test
+    fun `should split long lines at character boundaries`() {
+        val tail = LogTail(fileSystem, log, maxLineBytes = 16)
+
+        append("abcdefghijklmno\u00e9\u00e9\n")
+        val lines = assertNotNull(tail.poll()).lines
+
+        assertEquals(listOf("abcdefghijklmno", "\u00e9\u00e9"), lines)
+    }
+
+    @Test
+    fun `should start at offset`() {
+        write("old\n")
+        val tail = LogTail(fileSystem, log, startOffset = 4)
+
+        assertNull(tail.poll())
+        append("new\n")
+        assertEquals(listOf("new"), tail.poll()?.lines)
+    }
+
+    @Test
+    fun `should hold back incomplete line`() {
+        write("first\nsec")
+        val tail = LogTail(fileSystem, log)
+
+        assertEquals(listOf("first"), tail.poll()?.lines)
+        append("ond")
+        assertNull(tail.poll())
+        append("\r\nthird\n")
+        assertEquals(listOf("second", "third"), tail.poll()?.lines)
+    }
+
+    @Test
+    fun `should split large appends across polls`() {
+        write((1..10).joinToString("") { "line $it\n" })
+        val tail = LogTail(fileSystem, log, maxReadBytes = 30)
+
+        val first = assertNotNull(tail.poll())
+        assertTrue(first.hasMore)
+        val lines = first.lines.toMutableList()
+        while (true) {
+            val update = tail.poll() ?: break
+            lines += update.lines
+            if (!update.hasMore) break
+        }
+        assertEquals((1..10).map { "line $it" }, lines)
+    }
+
+    // ==================== Truncation and rotation ====================
+
+    @Test
+    fun `should restart after truncation`() {
+        write("a long first line\n")
+        val tail = LogTail(fileSystem, log)
+        tail.poll()
+
+        write("x\n")
+        val update = assertNotNull(tail.poll())
+        assertTrue(update.reset)
+        assertEquals(listOf("x"), update.lines)
+    }
+
+    @Test
+    fun `should report truncation to empty file`() {
+        write("line\n")
+        val tail = LogTail(fileSystem, log)
+        tail.poll()
+
+        write("")
+        val update = assertNotNull(tail.poll())
+        assertTrue(update.reset)
+        assertTrue(update.lines.isEmpty())
+        assertEquals(0L, update.offset)
+    }
+
+    @Test
+    fun `should detect rotation to larger file`() {
+        write("2025-10-18 started\n")
+        val tail = LogTail(fileSystem, log)
+        tail.poll()
+
+        fileSystem.atomicMove(log, "/var/log/app.log.1".toPath())
+        assertNull(tail.poll())
+
+        write("2025-10-19 started again after rotation\nnext\n")
+        val update = assertNotNull(tail.poll())
+        assertTrue(update.reset)
+        assertEquals(listOf("2025-10-19 started again after rotation", "next"), update.lines)
+    }
+
+    @Test
+    fun `should keep fingerprint growing with file`() {
+        write("a\n")
+        val tail = LogTail(fileSystem, log)
+        tail.poll()
+
+        append("b".repeat(300) + "\n")
+        assertFalse(assertNotNull(tail.poll()).reset)
+        append("c\n")
+        assertFalse(assertNotNull(tail.poll()).reset)
+    }
+
+    // ==================== Rendering ====================
+
+    @Test
+    fun `should render escaped lines`() {
+        assertEquals("&lt;error&gt;\na &amp; b\n", LogTail.toHtml(listOf("<error>", "a & b")))
+    }
+}
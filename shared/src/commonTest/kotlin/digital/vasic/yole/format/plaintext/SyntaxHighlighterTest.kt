@@ -0,0 +1,190 @@
+/*#######################################################
+ *
+ * SPDX-FileCopyrightText: 2025 Milos Vasic
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Unit tests for the code lexers and incremental syntax highlighter
+ *
+ *########################################################*/
+package digital.vasic.yole.format.plaintext
+
+import kotlin.test.*
+
+/**
+ * Tests for [CodeLanguages], the code lexers and [SyntaxHighlighter].
+ *
+ * Tests cover:
+ * - Keywords, literals, strings, numbers, comments and annotations
+ * - Keys, variables, markup and diff lines
+ * - Block comments and multi-line strings carried across lines
+ * - Re-tokenizing only until the line state converges
+ * - Parser output with highlighting enabled
+ */
+class SyntaxHighlighterTest {
+
+    private fun tokens(language: String, line: String, state: Int = 0): List<String> {
+        val result = mutableListOf<String>()
+        CodeLanguages.lexer(language).tokenize(line, state) { start, end, kind ->
+            result.add("${CodeToken.name(kind)}:${line.substring(start, end)}")
+        }
+        return result
+    }
+
+    private fun endState(language: String, line: String, state: Int = 0): Int =
+        CodeLanguages.lexer(language).tokenize(line, state) { _, _, _ -> }
+
+    // ==================== Lexers ====================
+
+    @Test
+    fun `should have a lexer for every parser language`() {
+        val expected = setOf(
+            "python", "javascript", "typescript", "java", "kotlin", "cpp", "c", "csharp", "ruby", "php", "swift",
+            "rust", "go", "bash", "xml", "json", "css", "html", "sql", "yaml", "r", "lua", "perl", "diff"
+        )
+        assertEquals(emptySet(), expected - CodeLanguages.names)
+    }
+
+    @Test
+    fun `should tokenize kotlin line`() {
+        assertEquals(
+            listOf("annotation:@JvmStatic", "keyword:fun", "keyword:val", "number:0x1F", "string:\"a\\\"b\"", "literal:null", "comment:// done"),
+            tokens("kotlin", "@JvmStatic fun f() { val x = 0x1F + \"a\\\"b\" ?: null } // done")
+        )
+    }
+
+    @Test
+    fun `should not highlight keywords inside identifiers`() {
+        assertEquals(listOf("keyword:return"), tokens("java", "return format(input, interval);"))
+    }
+
+    @Test
+    fun `should match sql keywords ignoring case`() {
+        assertEquals(
+            listOf("keyword:SELECT", "keyword:From", "keyword:where", "number:1.5", "comment:-- note"),
+            tokens("sql", "SELECT name From t where x > 1.5 -- note")
+        )
+    }
+
+    @Test
+    fun `should mark keys and variables`() {
+        assertEquals(
+            listOf("key:\"name\"", "string:\"x\"", "key:\"ok\"", "literal:true"),
+            tokens("json", "{\"name\": \"x\", \"ok\": true}")
+        )
+        assertEquals(listOf("key:runs-on", "comment:# os"), tokens("yaml", "runs-on: ubuntu # os"))
+        assertEquals(listOf("keyword:echo", "variable:\$user", "variable:\${HOME}"), tokens("php", "echo \$user . \${HOME};"))
+    }
+
+    @Test
+    fun `should tokenize markup`() {
+        assertEquals(
+            listOf("tag:<a", "attribute:href", "string:'x'", "tag:>", "literal:&amp;", "tag:</a", "tag:>", "comment:<!-- c -->"),
+            tokens("html", "<a href='x'>&amp;</a><!-- c -->")
+        )
+    }
+
+    @Test
+    fun `should tokenize diff lines`() {
+        assertEquals(listOf("meta:@@ -1 +1 @@"), tokens("diff", "@@ -1 +1 @@"))
+        assertEquals(listOf("inserted:+added"), tokens("diff", "+added"))
+        assertEquals(listOf("deleted:-removed"), tokens("diff", "-removed"))
+        assertEquals(emptyList(), tokens("diff", " context"))
+    }
+
+    @Test
+    fun `should carry block comments and strings across lines`() {
+        val inComment = endState("java", "int x; /* start")
+        assertNotEquals(0, inComment)
+        assertEquals(listOf("comment:still */", "keyword:int"), tokens("java", "still */ int y;", inComment))
+
+        val inString = endState("python", "s = '''first")
+        assertNotEquals(0, inString)
+        assertEquals(inString, endState("python", "middle", inString))
+        assertEquals(0, endState("python", "end'''", inString))
+
+        assertEquals(2, endState("html", "<img src='x'"))
+    }
+
+    @Test
+    fun `should report no tokens for unknown language`() {
+        assertEquals(emptyList(), tokens("plaintext", "fun val 1"))
+    }
+
+    // ==================== Incremental highlighting ====================
+
+    @Test
+    fun `should render escaped spans`() {
+        val highlighter = SyntaxHighlighter(CodeLanguages.lexer("javascript"))
+        highlighter.setText("if (a < b) x = 'y'")
+
+        assertEquals(
+            "<span class='hl-keyword'>if</span> (a &lt; b) x = <span class='hl-string'>&#39;y&#39;</span>",
+            highlighter.lineHtml(0)
+        )
+    }
+
+    @Test
+    fun `should re-tokenize only edited line`() {
+        val source = (0 until 1000).joinToString("\n") { "val x$it = $it" }
+        val highlighter = SyntaxHighlighter(CodeLanguages.lexer("kotlin"))
+        assertEquals(0 until 1000, highlighter.setText(source))
+
+        val edited = source.replace("val x500 = 500", "val x500 = 501")
+        assertEquals(500..500, highlighter.setText(edited))
+        assertTrue(highlighter.lineHtml(500).contains("501"))
+        assertEquals(IntRange.EMPTY, highlighter.setText(edited))
+    }
+
+    @Test
+    fun `should re-tokenize until state converges`() {
+        val lines = MutableList(10) { "int a$it;" }
+        val highlighter = SyntaxHighlighter(CodeLanguages.lexer("c"))
+        highlighter.setText(lines.joinToString("\n"))
+
+        lines[2] = "/* open"
+        lines[5] = "close */"
+        assertEquals(2..2, highlighter.replaceLines(2, 1, listOf("int z; // c")))
+        // Lines 2 to 5 changed; line 5 closes the comment, so line 6 is untouched
+        assertEquals(2..5, highlighter.setText(lines.joinToString("\n")))
+        assertTrue(highlighter.lineHtml(3).startsWith("<span class='hl-comment'>"))
+        assertTrue(highlighter.lineHtml(6).startsWith("<span class='hl-keyword'>int"))
+    }
+
+    @Test
+    fun `should match full highlight after inserts and deletes`() {
+        val highlighter = SyntaxHighlighter(CodeLanguages.lexer("python"))
+        val versions = listOf(
+            "a = 1\nb = '''x\ny'''\nc = 2",
+            "a = 1\nnew = 0\nb = '''x\ny'''\nc = 2",
+            "a = 1\nb = '''x\nc = 2",
+            "c = 2",
+            "",
+            "def f():\n    return '''doc\n'''\n"
+        )
+        for (version in versions) {
+            highlighter.setText(version)
+            assertEquals(SyntaxHighlighter.highlight(version, "python"), highlighter.toHtml(), version)
+        }
+    }
+
+    @Test
+    fun `should reject invalid line range`() {
+        val highlighter = SyntaxHighlighter(CodeLanguages.lexer("go"))
+        highlighter.setText("a\nb")
+
+        assertFailsWith<IllegalArgumentException> { highlighter.replaceLines(1, 2, emptyList()) }
+    }
+
+    // ==================== Parser ====================
+
+    @Test
+    fun `should highlight code when enabled`() {
+        val parser = PlaintextParser()
+        val plain = parser.parse("val x = 1", mapOf("filename" to "a.kt")).parsedContent
+        val highlighted = parser.parse("val x = 1", mapOf("filename" to "a.kt", "highlighting" to true)).parsedContent
+
+        assertFalse(plain.contains("hl-keyword"))
+        assertTrue(highlighted.contains("<code class='language-kotlin'><span class='hl-keyword'>val</span> x = <span class='hl-number'>1</span></code>"), highlighted)
+        assertTrue(highlighted.contains(".hl-keyword"))
+    }
+}
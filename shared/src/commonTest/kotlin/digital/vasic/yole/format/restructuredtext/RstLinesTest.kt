@@ -0,0 +1,95 @@
+/*#######################################################
+ *
+ * SPDX-FileCopyrightText: 2025 Milos Vasic
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Unit tests for reStructuredText line classification
+ *
+ *########################################################*/
+package digital.vasic.yole.format.restructuredtext
+
+import kotlin.test.*
+
+/**
+ * Tests for [RstLines].
+ *
+ * Tests cover:
+ * - Title, underline and overline classification
+ * - Directives and their content
+ * - Field lists and docinfo
+ * - Literal blocks
+ * - Rendering from the classified lines
+ */
+class RstLinesTest {
+
+    private val document = """
+        ==========
+        Main Title
+        ==========
+        :Author: Jane Doe
+        :Version: 1.0
+
+        Intro paragraph::
+
+           code line 1
+
+           code line 2
+        After code
+
+        .. note::
+           Note text
+        Section
+        -------
+    """.trimIndent()
+
+    @Test
+    fun `should classify each line`() {
+        val lines = RstLines(document)
+
+        val expected = byteArrayOf(
+            RstLineType.OVERLINE, RstLineType.TITLE, RstLineType.UNDERLINE,
+            RstLineType.FIELD, RstLineType.FIELD,
+            RstLineType.BLANK,
+            RstLineType.PARAGRAPH, RstLineType.BLANK,
+            RstLineType.LITERAL, RstLineType.BLANK, RstLineType.LITERAL,
+            RstLineType.PARAGRAPH, RstLineType.BLANK,
+            RstLineType.DIRECTIVE, RstLineType.DIRECTIVE_CONTENT,
+            RstLineType.TITLE, RstLineType.UNDERLINE
+        )
+        assertContentEquals(expected, lines.types)
+    }
+
+    @Test
+    fun `should extract sections and directives from types`() {
+        val lines = RstLines(document)
+
+        assertEquals(listOf("Main Title", "Section"), lines.sections().map { it.title })
+        assertEquals(listOf(1, 2), lines.sections().map { it.level })
+        assertEquals(listOf(RstDirective("note", "Note text")), lines.directives())
+    }
+
+    @Test
+    fun `should extract docinfo fields before body`() {
+        val lines = RstLines(document + "\n:Ignored: field")
+
+        assertEquals(mapOf("author" to "Jane Doe", "version" to "1.0"), lines.docinfo())
+    }
+
+    @Test
+    fun `should not treat whitespace or letters as underline`() {
+        assertFalse(RstLines.isUnderline("   "))
+        assertFalse(RstLines.isUnderline("aaaa"))
+        assertTrue(RstLines.isUnderline("~~"))
+    }
+
+    @Test
+    fun `should render literal block and skip overline`() {
+        val parser = RestructuredTextParser()
+
+        val doc = parser.parse(document)
+
+        assertTrue(doc.parsedContent.contains("<pre class=\"rst-block\">code line 1\n\ncode line 2</pre>"), doc.parsedContent)
+        assertFalse(doc.parsedContent.contains("<p>==========</p>"))
+        assertEquals("Jane Doe", doc.metadata["author"])
+    }
+}
@@ -0,0 +1,132 @@
+/*#######################################################
+ *
+ * SPDX-FileCopyrightText: 2025 Milos Vasic
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Unit tests for the R Markdown scanner
+ *
+ *########################################################*/
+package digital.vasic.yole.format.rmarkdown
+
+import kotlin.test.*
+
+/**
+ * Tests for [RMarkdownScanner].
+ *
+ * Tests cover:
+ * - Front matter, prose and chunk blocks with line numbers
+ * - Chunk header option parsing
+ * - Plain fenced code blocks and unbalanced fences
+ * - Linear behaviour on pathological input
+ */
+class RMarkdownScannerTest {
+
+    @Test
+    fun `should split document into front matter prose and chunks`() {
+        val content = """
+            ---
+            title: "Report"
+            output:
+              html_document:
+                toc: true
+            ---
+            # Intro
+
+            ```{r setup, echo=FALSE}
+            library(ggplot2)
+            ```
+            Outro
+        """.trimIndent()
+
+        val structure = RMarkdownScanner.scan(content)
+
+        assertEquals(mapOf("title" to "Report", "output" to ""), structure.frontMatter)
+        assertEquals(3, structure.blocks.size)
+        val intro = structure.blocks[0] as RMarkdownBlock.Prose
+        assertEquals("# Intro\n\n", intro.text)
+        assertEquals(7, intro.startLine)
+        val chunk = structure.blocks[1] as RMarkdownBlock.Chunk
+        assertEquals(9, chunk.startLine)
+        assertTrue(chunk.closed)
+        assertEquals("library(ggplot2)", chunk.chunk.code)
+        val outro = structure.blocks[2] as RMarkdownBlock.Prose
+        assertEquals("Outro", outro.text)
+        assertEquals(12, outro.startLine)
+    }
+
+    @Test
+    fun `should parse chunk header options`() {
+        val chunk = RMarkdownScanner.parseChunkHeader("r plot-1, fig.cap=\"A, B\", fig.dim=c(6, 4), echo=FALSE")
+
+        assertEquals("r", chunk.language)
+        assertEquals("plot-1", chunk.label)
+        assertEquals(
+            mapOf("fig.cap" to "\"A, B\"", "fig.dim" to "c(6, 4)", "echo" to "FALSE"),
+            chunk.parameters
+        )
+    }
+
+    @Test
+    fun `should parse header without label`() {
+        val chunk = RMarkdownScanner.parseChunkHeader("python, eval=TRUE")
+
+        assertEquals("python", chunk.language)
+        assertNull(chunk.label)
+        assertEquals(mapOf("eval" to "TRUE"), chunk.parameters)
+    }
+
+    @Test
+    fun `should not treat chunk headers inside plain code blocks as chunks`() {
+        val content = "````\n```{r}\nx\n```\n````\n"
+
+        val structure = RMarkdownScanner.scan(content)
+
+        assertTrue(structure.chunks.isEmpty())
+        assertEquals(content, (structure.blocks.single() as RMarkdownBlock.Prose).text)
+    }
+
+    @Test
+    fun `should report unclosed chunk`() {
+        val structure = RMarkdownScanner.scan("Text\n```{r}\nx <- 1\n")
+
+        val chunk = structure.blocks.last() as RMarkdownBlock.Chunk
+        assertFalse(chunk.closed)
+        assertEquals(2, chunk.startLine)
+        assertEquals("x <- 1", chunk.chunk.code)
+    }
+
+    @Test
+    fun `should treat unclosed front matter as prose`() {
+        val structure = RMarkdownScanner.scan("---\ntitle: Test\n")
+
+        assertFalse(structure.frontMatterClosed)
+        assertTrue(structure.frontMatter.isEmpty())
+        assertEquals("---\ntitle: Test\n", (structure.blocks.single() as RMarkdownBlock.Prose).text)
+    }
+
+    @Test
+    fun `should scan many unbalanced fences in one pass`() {
+        val content = buildString {
+            repeat(50_000) { append("```{r\n```{r}\n**a*b\n") }
+        }
+
+        val structure = RMarkdownScanner.scan(content)
+
+        // The first line opens a plain fence that never closes, so nothing is a chunk
+        assertTrue(structure.chunks.isEmpty())
+        assertEquals(1, structure.blocks.size)
+    }
+
+    @Test
+    fun `should keep chunk open until a bare closing fence`() {
+        val content = buildString {
+            repeat(50_000) { append("```{r}\nx\n") }
+        }
+
+        val structure = RMarkdownScanner.scan(content)
+
+        val chunk = structure.blocks.single() as RMarkdownBlock.Chunk
+        assertFalse(chunk.closed)
+        assertEquals(1, chunk.startLine)
+    }
+}
@@ -0,0 +1,158 @@
+/*#######################################################
+ *
+ * SPDX-FileCopyrightText: 2025 Milos Vasic
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Unit tests for the TiddlyWiki tiddler store
+ *
+ *########################################################*/
+package digital.vasic.yole.format.tiddlywiki
+
+import kotlinx.datetime.Clock
+import kotlinx.datetime.Instant
+import okio.Path.Companion.toPath
+import okio.fakefilesystem.FakeFileSystem
+import kotlin.test.*
+
+/**
+ * Tests for [TiddlerStore].
+ *
+ * Tests cover:
+ * - Folder scan with header fields and title fallback
+ * - Tag parsing with bracketed tags
+ * - Tag and backlink lookups
+ * - Incremental update, removal and refresh
+ */
+class TiddlerStoreTest {
+
+    private var now = 1_000L
+    private val clock = object : Clock {
+        override fun now(): Instant = Instant.fromEpochMilliseconds(now)
+    }
+    private val fileSystem = FakeFileSystem(clock)
+    private val root = "/wiki/tiddlers".toPath()
+    private val store = TiddlerStore(fileSystem, root)
+
+    @BeforeTest
+    fun setup() {
+        fileSystem.createDirectories(root / "projects")
+        write("HelloThere.tid", "title: HelloThere\ntags: Welcome\n\nSee [[Roadmap]] and [[Notes|my notes]].")
+        write("projects/Roadmap.tid", "title: Roadmap\ntags: Project [[Long Term]]\nmodified: 20251018\n\nBack to [[HelloThere]].")
+        write("Notes.tid", "tags: Project\n\n```\n[[NotALink]]\n```\nLinks to [[Roadmap]]")
+        write("readme.txt", "title: Ignored\n\n[[Roadmap]]")
+    }
+
+    @AfterTest
+    fun teardown() {
+        fileSystem.checkNoOpenFiles()
+    }
+
+    private fun write(name: String, content: String) {
+        now += 1_000
+        fileSystem.write(root / name) { writeUtf8(content) }
+    }
+
+    // ==================== Scan ====================
+
+    @Test
+    fun `should scan tiddler files recursively`() {
+        assertEquals(3, store.scan())
+
+        assertEquals(setOf("HelloThere", "Roadmap", "Notes"), store.titles)
+        assertEquals("20251018", store.tiddler("Roadmap")?.metadata?.modified)
+        assertEquals(root / "Notes.tid", store.tiddler("Notes")?.path)
+    }
+
+    @Test
+    fun `should parse bracketed tags`() {
+        assertEquals(listOf("Project", "Long Term", "x"), TiddlerStore.parseTags("Project [[Long Term]]  x"))
+        assertEquals(emptyList(), TiddlerStore.parseTags("  "))
+    }
+
+    // ==================== Queries ====================
+
+    @Test
+    fun `should look up tagged tiddlers`() {
+        store.scan()
+
+        assertEquals(listOf("Notes", "Roadmap"), store.tagged("Project"))
+        assertEquals(listOf("Roadmap"), store.tagged("Long Term"))
+        assertEquals(emptyList(), store.tagged("Missing"))
+        assertEquals(setOf("Welcome", "Project", "Long Term"), store.tags)
+    }
+
+    @Test
+    fun `should look up backlinks outside code blocks`() {
+        store.scan()
+
+        assertEquals(listOf("HelloThere", "Notes"), store.backlinks("Roadmap"))
+        assertEquals(listOf("HelloThere"), store.backlinks("Notes"))
+        assertEquals(emptyList(), store.backlinks("NotALink"))
+    }
+
+    // ==================== Incremental Updates ====================
+
+    @Test
+    fun `should update changed tiddler`() {
+        store.scan()
+
+        write("Notes.tid", "tags: Archive\n\nNo links any more")
+        assertTrue(store.update(root / "Notes.tid"))
+
+        assertEquals(listOf("Roadmap"), store.tagged("Project"))
+        assertEquals(listOf("Notes"), store.tagged("Archive"))
+        assertEquals(listOf("HelloThere"), store.backlinks("Roadmap"))
+    }
+
+    @Test
+    fun `should drop deleted tiddler on update`() {
+        store.scan()
+
+        fileSystem.delete(root / "projects/Roadmap.tid")
+        assertTrue(store.update(root / "projects/Roadmap.tid"))
+
+        assertNull(store.tiddler("Roadmap"))
+        assertFalse("Long Term" in store.tags)
+        assertEquals(emptyList(), store.backlinks("HelloThere"))
+    }
+
+    @Test
+    fun `should refresh only changed files`() {
+        store.scan()
+
+        write("New.tid", "title: New\ntags: Project\n")
+        write("HelloThere.tid", "title: HelloThere\n\nNothing")
+        fileSystem.delete(root / "Notes.tid")
+
+        assertEquals(3, store.refresh())
+        assertEquals(0, store.refresh())
+        assertEquals(listOf("New", "Roadmap"), store.tagged("Project"))
+        assertEquals(emptyList(), store.backlinks("Roadmap"))
+    }
+
+    @Test
+    fun `should keep duplicate title reachable after removal`() {
+        write("Copy.tid", "title: Roadmap\n\ncopy")
+        store.scan()
+
+        store.remove(root / "Copy.tid")
+
+        assertEquals(root / "projects/Roadmap.tid", store.tiddler("Roadmap")?.path)
+        assertEquals(listOf("Long Term"), store.tiddler("Roadmap")?.metadata?.tags?.drop(1))
+    }
+
+    @Test
+    fun `should index large folder`() {
+        fileSystem.createDirectories(root / "bulk")
+        repeat(5_000) { i ->
+            fileSystem.write(root / "bulk/T$i.tid") {
+                writeUtf8("title: T$i\ntags: Tag${i % 10}\n\nLinks to [[T${(i + 1) % 5_000}]] and [[HelloThere]]")
+            }
+        }
+
+        assertEquals(5_003, store.scan())
+        assertEquals(500, store.tagged("Tag3").size)
+        assertEquals(listOf("T4999"), store.backlinks("T0"))
+        assertEquals(5_001, store.backlinks("HelloThere").size)
+    }
+}
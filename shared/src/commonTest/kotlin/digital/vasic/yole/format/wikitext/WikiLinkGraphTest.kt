@@ -0,0 +1,168 @@
+/*#######################################################
+ *
+ * SPDX-FileCopyrightText: 2025 Milos Vasic
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Unit tests for the WikiText link graph
+ *
+ *########################################################*/
+package digital.vasic.yole.format.wikitext
+
+import kotlinx.datetime.Clock
+import kotlinx.datetime.Instant
+import okio.Path.Companion.toPath
+import okio.fakefilesystem.FakeFileSystem
+import kotlin.test.*
+
+/**
+ * Tests for [WikiLinkGraph].
+ *
+ * Tests cover:
+ * - Page naming and link resolution (absolute, sub page, sibling, external)
+ * - Forward links and backlinks, skipping Zim headers and code blocks
+ * - Orphan and broken-link queries
+ * - Incremental update and refresh
+ * - Links surviving array growth while interning broken targets
+ */
+class WikiLinkGraphTest {
+
+    private var now = 1_000L
+    private val clock = object : Clock {
+        override fun now(): Instant = Instant.fromEpochMilliseconds(now)
+    }
+    private val fileSystem = FakeFileSystem(clock)
+    private val root = "/Notebook".toPath()
+    private val graph = WikiLinkGraph(fileSystem, root)
+
+    @BeforeTest
+    fun setup() {
+        fileSystem.createDirectories(root / "Projects")
+        write("Home.txt", "[DocumentAttributes]\ntitle: [[Ignored]]\n\n== Home ==\nSee [[Projects:Road_map|the roadmap]] and [[Inbox]].\n[[https://example.com]]")
+        write("Projects/Road_map.txt", "Back [[:Home]], child [[+Q1]], sibling [[Ideas]]\n'''\n[[NotALink]]\n'''")
+        write("Projects/Ideas.txt", "Nothing links out")
+        write("Lonely.wiki", "Links to itself: [[Lonely]]")
+    }
+
+    @AfterTest
+    fun teardown() {
+        fileSystem.checkNoOpenFiles()
+    }
+
+    private fun write(name: String, content: String) {
+        now += 1_000
+        fileSystem.write(root / name) { writeUtf8(content) }
+    }
+
+    // ==================== Resolution ====================
+
+    @Test
+    fun `should name pages like zim`() {
+        assertEquals("Projects:Road map", graph.pageName(root / "Projects/Road_map.txt"))
+        assertEquals("Home", graph.pageName(root / "Home.txt"))
+    }
+
+    @Test
+    fun `should resolve links relative to page`() {
+        assertEquals("Home", WikiLinkGraph.resolve(":Home", "Projects:Plan"))
+        assertEquals("Projects:Plan:Q1", WikiLinkGraph.resolve("+Q1", "Projects:Plan"))
+        assertEquals("Projects:Ideas", WikiLinkGraph.resolve("Ideas#Section", "Projects:Plan"))
+        assertEquals("Ideas", WikiLinkGraph.resolve("Ideas", "Home"))
+        assertNull(WikiLinkGraph.resolve("https://example.com", "Home"))
+        assertNull(WikiLinkGraph.resolve("./file.pdf", "Home"))
+    }
+
+    // ==================== Queries ====================
+
+    @Test
+    fun `should build forward links and backlinks`() {
+        assertEquals(4, graph.rebuild())
+
+        assertEquals(listOf("Inbox", "Projects:Road map"), graph.links("Home"))
+        assertEquals(listOf("Home", "Projects:Ideas", "Projects:Road map:Q1"), graph.links("Projects:Road map"))
+        assertEquals(listOf("Home"), graph.backlinks("Projects:Road map"))
+        assertEquals(listOf("Projects:Road map"), graph.backlinks("Home"))
+        assertEquals(emptyList(), graph.backlinks("Ignored"))
+    }
+
+    @Test
+    fun `should report orphans and broken links`() {
+        graph.rebuild()
+
+        assertEquals(listOf("Lonely"), graph.orphans())
+        assertEquals(
+            listOf(BrokenLink("Home", "Inbox"), BrokenLink("Projects:Road map", "Projects:Road map:Q1")),
+            graph.brokenLinks()
+        )
+    }
+
+    // ==================== Incremental Updates ====================
+
+    @Test
+    fun `should resolve broken link when page is created`() {
+        graph.rebuild()
+
+        write("Inbox.txt", "Back to [[Home]]")
+        assertTrue(graph.update(root / "Inbox.txt"))
+
+        assertTrue(graph.exists("Inbox"))
+        assertEquals(listOf("Inbox", "Projects:Road map"), graph.backlinks("Home"))
+        assertEquals(listOf(BrokenLink("Projects:Road map", "Projects:Road map:Q1")), graph.brokenLinks())
+    }
+
+    @Test
+    fun `should patch backlinks when links change`() {
+        graph.rebuild()
+
+        write("Projects/Ideas.txt", "Now links to [[:Lonely]]")
+        write("Home.txt", "No links")
+        assertEquals(2, graph.refresh())
+
+        assertEquals(listOf("Lonely", "Projects:Ideas"), graph.backlinks("Lonely"))
+        assertEquals(emptyList(), graph.backlinks("Projects:Road map"))
+        assertEquals(listOf("Projects:Road map"), graph.orphans())
+        assertEquals(0, graph.refresh())
+    }
+
+    @Test
+    fun `should turn deleted page into broken link`() {
+        graph.rebuild()
+
+        fileSystem.delete(root / "Projects/Ideas.txt")
+        assertEquals(1, graph.refresh())
+
+        assertFalse(graph.exists("Projects:Ideas"))
+        assertEquals(3, graph.size)
+        assertTrue(BrokenLink("Projects:Road map", "Projects:Ideas") in graph.brokenLinks())
+    }
+
+    @Test
+    fun `should index large notebook`() {
+        fileSystem.createDirectories(root / "Bulk")
+        repeat(5_000) { i ->
+            fileSystem.write(root / "Bulk/P$i.txt") { writeUtf8("[[P${(i + 1) % 5_000}]] [[P${(i + 7) % 5_000}]] [[:Home]]") }
+        }
+
+        assertEquals(5_004, graph.rebuild())
+        assertEquals(listOf("Bulk:P4993", "Bulk:P4999"), graph.backlinks("Bulk:P0"))
+        assertEquals(5_001, graph.backlinks("Home").size)
+    }
+
+    @Test
+    fun `should keep links when broken targets grow the graph`() {
+        fileSystem.createDirectories(root / "Bulk")
+        repeat(100) { i ->
+            fileSystem.write(root / "Bulk/P$i.txt") { writeUtf8("[[P${(i + 1) % 100}]] [[Gone${i}a]] [[Gone${i}b]]") }
+        }
+
+        assertEquals(104, graph.rebuild())
+        val broken = graph.brokenLinks()
+        for (i in 0 until 100) {
+            val page = "Bulk:P$i"
+            assertEquals(listOf("Bulk:Gone${i}a", "Bulk:Gone${i}b", "Bulk:P${(i + 1) % 100}").sorted(), graph.links(page))
+            assertEquals(listOf("Bulk:P${(i + 99) % 100}"), graph.backlinks(page))
+            assertEquals(listOf(page), graph.backlinks("Bulk:Gone${i}a"))
+            assertTrue(BrokenLink(page, "Bulk:Gone${i}b") in broken)
+        }
+        assertEquals(202, broken.size)
+    }
+}
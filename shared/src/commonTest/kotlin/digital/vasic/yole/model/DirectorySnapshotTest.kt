@@ -0,0 +1,143 @@
+/*#######################################################
+ *
+ * SPDX-FileCopyrightText: 2025 Milos Vasic
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Unit tests for directory snapshots
+ *
+ *########################################################*/
+package digital.vasic.yole.model
+
+import digital.vasic.yole.model.DirectorySnapshot.SortKey
+import kotlinx.datetime.Clock
+import kotlinx.datetime.Instant
+import okio.Path.Companion.toPath
+import okio.fakefilesystem.FakeFileSystem
+import kotlin.test.*
+
+/**
+ * Tests for [DirectorySnapshot].
+ *
+ * Tests cover:
+ * - Stat'ing entries once into the snapshot
+ * - Name, date and size orders and filtering
+ * - Incremental updates from change events
+ */
+class DirectorySnapshotTest {
+
+    private var now = 1_000L
+    private val clock = object : Clock {
+        override fun now(): Instant = Instant.fromEpochMilliseconds(now)
+    }
+    private val fileSystem = FakeFileSystem(clock)
+    private val directory = "/notes".toPath()
+
+    @BeforeTest
+    fun setup() {
+        fileSystem.createDirectories(directory)
+        write("beta.md", "12345")
+        write("Alpha.txt", "1")
+        fileSystem.createDirectory(directory / "archive")
+        write("gamma.md", "123")
+    }
+
+    @AfterTest
+    fun teardown() {
+        fileSystem.checkNoOpenFiles()
+    }
+
+    private fun write(name: String, content: String) {
+        now += 1_000
+        fileSystem.write(directory / name) { writeUtf8(content) }
+    }
+
+    private fun DirectorySnapshot.names(sortBy: SortKey, query: String = "") =
+        view(sortBy, query).map { name(it) }
+
+    // ==================== Loading ====================
+
+    @Test
+    fun `should stat entries once`() {
+        val snapshot = DirectorySnapshot.load(fileSystem, directory)
+        fileSystem.delete(directory / "beta.md")
+
+        assertEquals(4, snapshot.size)
+        val beta = snapshot.indexOf("beta.md")
+        assertEquals(5L, snapshot.size(beta))
+        assertEquals(2_000L, snapshot.modTime(beta))
+        assertEquals(directory / "beta.md", snapshot.path(beta))
+        assertTrue(snapshot.isDirectory(snapshot.indexOf("archive")))
+        assertEquals(0L, snapshot.size(snapshot.indexOf("archive")))
+        assertEquals(-1, snapshot.indexOf("missing.md"))
+    }
+
+    @Test
+    fun `should load missing directory as empty`() {
+        val snapshot = DirectorySnapshot.load(fileSystem, "/missing".toPath())
+
+        assertEquals(0, snapshot.size)
+        assertTrue(snapshot.view(SortKey.NAME).isEmpty())
+    }
+
+    // ==================== Views ====================
+
+    @Test
+    fun `should sort by each key`() {
+        val snapshot = DirectorySnapshot.load(fileSystem, directory)
+
+        assertEquals(listOf("Alpha.txt", "archive", "beta.md", "gamma.md"), snapshot.names(SortKey.NAME))
+        assertEquals(listOf("gamma.md", "Alpha.txt", "archive", "beta.md"), snapshot.names(SortKey.DATE))
+        assertEquals(listOf("beta.md", "gamma.md", "Alpha.txt", "archive"), snapshot.names(SortKey.SIZE))
+        assertSame(snapshot.order(SortKey.DATE), snapshot.order(SortKey.DATE))
+    }
+
+    @Test
+    fun `should filter names ignoring case`() {
+        val snapshot = DirectorySnapshot.load(fileSystem, directory)
+
+        assertEquals(listOf("beta.md", "gamma.md"), snapshot.names(SortKey.NAME, ".MD"))
+        assertEquals(listOf("Alpha.txt"), snapshot.names(SortKey.SIZE, "alp"))
+        assertTrue(snapshot.names(SortKey.NAME, "zzz").isEmpty())
+    }
+
+    @Test
+    fun `should keep large sorts stable`() {
+        repeat(100) { write("n$it.md", "x".repeat(it % 7)) }
+        val snapshot = DirectorySnapshot.load(fileSystem, directory)
+        val bySize = snapshot.names(SortKey.SIZE)
+
+        assertEquals(104, bySize.size)
+        val sizes = snapshot.view(SortKey.SIZE).map { snapshot.size(it) }
+        assertEquals(sizes.sortedDescending(), sizes)
+        assertEquals(snapshot.names(SortKey.NAME), snapshot.names(SortKey.NAME).sortedBy { it.lowercase() })
+    }
+
+    // ==================== Updates ====================
+
+    @Test
+    fun `should update changed entries only`() {
+        val snapshot = DirectorySnapshot.load(fileSystem, directory)
+        write("beta.md", "1")
+        write("delta.md", "1234567")
+        fileSystem.delete(directory / "gamma.md")
+
+        val updated = snapshot.updated(
+            fileSystem,
+            listOf(directory / "beta.md", directory / "delta.md", directory / "gamma.md", "/outside.md".toPath())
+        )
+
+        assertEquals(listOf("Alpha.txt", "archive", "beta.md", "delta.md"), updated.names(SortKey.NAME))
+        assertEquals(1L, updated.size(updated.indexOf("beta.md")))
+        assertEquals("delta.md", updated.names(SortKey.SIZE).first())
+        assertEquals(5L, snapshot.size(snapshot.indexOf("beta.md")))
+        assertSame(snapshot, snapshot.updated(fileSystem, emptyList()))
+    }
+
+    @Test
+    fun `should reload on directory event`() {
+        val snapshot = DirectorySnapshot.load(fileSystem, directory)
+        write("new.md", "")
+
+        assertEquals(5, snapshot.updated(fileSystem, listOf(directory)).size)
+    }
+}
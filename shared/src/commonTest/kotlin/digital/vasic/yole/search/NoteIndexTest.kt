@@ -0,0 +1,226 @@
+/*#######################################################
+ *
+ * SPDX-FileCopyrightText: 2025 Milos Vasic
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Unit tests for the notebook full-text index
+ *
+ *########################################################*/
+package digital.vasic.yole.search
+
+import kotlinx.datetime.Clock
+import kotlinx.datetime.Instant
+import okio.Path
+import okio.Path.Companion.toPath
+import okio.fakefilesystem.FakeFileSystem
+import kotlin.test.*
+
+/**
+ * Tests for [NoteIndex].
+ *
+ * Tests cover:
+ * - Tokenizing and query parsing
+ * - AND, OR and phrase queries and BM25 ranking
+ * - Incremental refresh of added, changed, touched and deleted notes
+ * - Saving and loading the index, and rejecting damaged files
+ * - Compaction of stale documents
+ */
+class NoteIndexTest {
+
+    private var now = 1_000L
+    private val clock = object : Clock {
+        override fun now(): Instant = Instant.fromEpochMilliseconds(now)
+    }
+    private val fileSystem = FakeFileSystem(clock)
+    private val root = "/notes".toPath()
+    private val indexDirectory = "/notes/.index".toPath()
+
+    @BeforeTest
+    fun setup() {
+        fileSystem.createDirectories(root / "projects")
+        write("kotlin.md", "# Kotlin\nCoroutine scopes structure concurrency in Kotlin. Kotlin flows are cold.")
+        write("projects/yole.md", "Yole is a markdown editor written in Kotlin.")
+        write("groceries.txt", "Milk, eggs and bread.")
+        write("image.png", "kotlin kotlin kotlin")
+    }
+
+    @AfterTest
+    fun teardown() {
+        fileSystem.checkNoOpenFiles()
+    }
+
+    private fun write(name: String, content: String) {
+        now += 1_000
+        fileSystem.write(root / name) { writeUtf8(content) }
+    }
+
+    private fun index() = NoteIndex(fileSystem, root, indexDirectory, setOf(".md", ".txt"))
+
+    private fun NoteIndex.names(query: String): List<String> =
+        search(query).map { it.path.relativeTo(root).toString() }
+
+    // ==================== Parsing ====================
+
+    @Test
+    fun `should tokenize lowercase words with positions`() {
+        val terms = mutableListOf<Pair<String, Int>>()
+        val count = NoteIndex.tokenize("Hello, World! e-mail 42") { term, position -> terms.add(term to position) }
+
+        assertEquals(5, count)
+        assertEquals(listOf("hello" to 0, "world" to 1, "e" to 2, "mail" to 3, "42" to 4), terms)
+    }
+
+    @Test
+    fun `should parse groups phrases and alternatives`() {
+        assertEquals(
+            listOf(listOf(listOf("kotlin"), listOf("cold", "flows")), listOf(listOf("milk"))),
+            NoteIndex.parseQuery("Kotlin \"cold flows\" OR milk")
+        )
+        assertEquals(listOf(listOf(listOf("e", "mail"))), NoteIndex.parseQuery("e-mail OR"))
+        assertTrue(NoteIndex.parseQuery(" \"\" ... ").isEmpty())
+    }
+
+    // ==================== Queries ====================
+
+    @Test
+    fun `should index matching extensions only`() {
+        val index = index()
+        assertEquals(3, index.refresh())
+
+        assertEquals(3, index.size)
+        assertEquals(listOf("kotlin.md", "projects/yole.md"), index.names("kotlin"))
+    }
+
+    @Test
+    fun `should require all terms`() {
+        val index = index().apply { refresh() }
+
+        assertEquals(listOf("projects/yole.md"), index.names("kotlin EDITOR"))
+        assertTrue(index.names("kotlin milk").isEmpty())
+        assertTrue(index.names("unknown").isEmpty())
+        assertTrue(index.names("").isEmpty())
+    }
+
+    @Test
+    fun `should match either group`() {
+        val index = index().apply { refresh() }
+
+        assertEquals(setOf("groceries.txt", "projects/yole.md"), index.names("milk OR markdown").toSet())
+    }
+
+    @Test
+    fun `should match phrases in order`() {
+        val index = index().apply { refresh() }
+
+        assertEquals(listOf("kotlin.md"), index.names("\"kotlin flows\""))
+        assertTrue(index.names("\"flows kotlin\"").isEmpty())
+        assertEquals(listOf("projects/yole.md"), index.names("\"markdown editor\" kotlin"))
+    }
+
+    @Test
+    fun `should rank frequent terms higher`() {
+        val index = index().apply { refresh() }
+        val hits = index.search("kotlin")
+
+        assertEquals("kotlin.md", hits[0].path.name)
+        assertTrue(hits[0].score > hits[1].score)
+        assertEquals(1, index.search("kotlin", limit = 1).size)
+    }
+
+    // ==================== Refresh ====================
+
+    @Test
+    fun `should refresh only changed notes`() {
+        val index = index()
+        index.refresh()
+        assertEquals(0, index.refresh())
+
+        write("groceries.txt", "Milk, eggs and butter.")
+        write("new.md", "Fresh butter")
+        assertEquals(2, index.refresh())
+        assertEquals(setOf("groceries.txt", "new.md"), index.names("butter").toSet())
+        assertTrue(index.names("bread").isEmpty())
+
+        fileSystem.delete(root / "new.md")
+        assertEquals(1, index.refresh())
+        assertEquals(listOf("groceries.txt"), index.names("butter"))
+        assertEquals(3, index.size)
+    }
+
+    @Test
+    fun `should not re-index touched notes`() {
+        val index = index().apply { refresh() }
+        val before = index.search("milk")
+
+        write("groceries.txt", "Milk, eggs and bread.")
+
+        assertEquals(0, index.refresh())
+        assertEquals(before, index.search("milk"))
+    }
+
+    @Test
+    fun `should update single notes`() {
+        val index = index().apply { refresh() }
+
+        write("projects/yole.md", "Yole now supports Java.")
+        assertTrue(index.update(root / "projects/yole.md"))
+        assertEquals(listOf("projects/yole.md"), index.names("java"))
+
+        fileSystem.delete(root / "projects/yole.md")
+        assertTrue(index.update(root / "projects/yole.md"))
+        assertFalse(index.update(root / "projects/yole.md"))
+        assertTrue(index.names("java").isEmpty())
+    }
+
+    @Test
+    fun `should compact stale documents`() {
+        val index = index().apply { refresh() }
+        repeat(5) { write("groceries.txt", "Milk version $it") }
+        index.refresh()
+        val terms = index.termCount
+
+        index.compact()
+
+        assertEquals(listOf("groceries.txt"), index.names("milk"))
+        assertTrue(index.names("eggs").isEmpty())
+        assertTrue(index.termCount < terms)
+        assertEquals(listOf("kotlin.md", "projects/yole.md"), index.names("kotlin"))
+    }
+
+    // ==================== Persistence ====================
+
+    @Test
+    fun `should save and load`() {
+        val index = index().apply { refresh() }
+        index.save()
+
+        val loaded = index()
+        assertTrue(loaded.load())
+        assertEquals(3, loaded.size)
+        assertEquals(index.search("kotlin OR milk"), loaded.search("kotlin OR milk"))
+        assertEquals(0, loaded.refresh())
+        assertTrue(fileSystem.list(indexDirectory).none { it.name.endsWith(".tmp") })
+    }
+
+    @Test
+    fun `should reject missing or mismatched files`() {
+        val index = index()
+        assertFalse(index.load())
+
+        index.refresh()
+        index.save()
+        val postings: Path = indexDirectory / "postings.bin"
+        val saved = fileSystem.read(postings) { readByteString() }
+        write("groceries.txt", "Changed")
+        index.refresh()
+        index.save()
+        fileSystem.write(postings) { write(saved) }
+
+        assertFalse(index.load())
+        assertEquals(0, index.size)
+        assertTrue(index.search("kotlin").isEmpty())
+
+        fileSystem.write(postings) { writeUtf8("garbage") }
+        assertFalse(index().load())
+    }
+}
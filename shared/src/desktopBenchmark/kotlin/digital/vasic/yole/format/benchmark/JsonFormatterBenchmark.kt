@@ -0,0 +1,61 @@
+/*#######################################################
+ *
+ * SPDX-FileCopyrightText: 2025 Milos Vasic
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * JSON Formatter Performance Benchmarks
+ * Measures streaming pretty-printing and validation of large JSON
+ *
+ *########################################################*/
+package digital.vasic.yole.format.benchmark
+
+import digital.vasic.yole.format.plaintext.JsonFormatter
+import okio.Buffer
+import okio.ByteString
+import okio.blackholeSink
+import org.openjdk.jmh.annotations.*
+import java.util.concurrent.TimeUnit
+
+/**
+ * Performance benchmarks for the streaming JSON formatter.
+ *
+ * The input is a minified ~10MB array of records, the shape of a typical
+ * API or database dump.
+ *
+ * Performance Targets:
+ * - Pretty-printing 10MB of JSON: < 100ms
+ * - Validating 10MB of JSON: < 50ms
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+class JsonFormatterBenchmark {
+
+    private lateinit var json: ByteString
+    private val formatter = JsonFormatter()
+
+    @Setup
+    fun setup() {
+        val buffer = Buffer()
+        buffer.writeUtf8("[")
+        var i = 0
+        while (buffer.size < 10L * 1024 * 1024) {
+            if (i > 0) buffer.writeUtf8(",")
+            buffer.writeUtf8("""{"id":$i,"name":"record \"$i\"","score":${i * 0.25},"tags":["a","b"],"active":true}""")
+            i++
+        }
+        buffer.writeUtf8("]")
+        json = buffer.readByteString()
+    }
+
+    @Benchmark
+    fun format() {
+        formatter.format(Buffer().write(json), blackholeSink())
+    }
+
+    @Benchmark
+    fun validate(): Boolean = formatter.validate(Buffer().write(json)) == null
+}
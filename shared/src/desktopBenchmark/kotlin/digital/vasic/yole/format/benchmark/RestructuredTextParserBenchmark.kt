@@ -10,6 +10,7 @@
 package digital.vasic.yole.format.benchmark
 
 import digital.vasic.yole.format.restructuredtext.RestructuredTextParser
+import digital.vasic.yole.format.restructuredtext.RstLines
 import org.openjdk.jmh.annotations.*
 import java.util.concurrent.TimeUnit
 
@@ -86,6 +87,23 @@ class RestructuredTextParserBenchmark {
         parser.validate(mediumDocument)
     }
 
+    /**
+     * The single classification pass that metadata extraction and rendering share.
+     */
+    @Benchmark
+    fun classifyLargeDocument(): ByteArray {
+        return RstLines(largeDocument).types
+    }
+
+    /**
+     * Parse plus render, which reuses the classified lines of the parse.
+     */
+    @Benchmark
+    fun parseAndRenderLargeDocument(): String {
+        val document = parser.parse(largeDocument, emptyMap())
+        return parser.toHtml(document, lightMode = true)
+    }
+
     // Test data generators
 
     private fun generateSmallRestDocument(): String = buildString {
@@ -228,6 +228,14 @@ object SimpleBenchmarkRunner {
             rstBench.parseComplexDocument()
         })
 
+        results.add(runBenchmark("reST: Classify large document") {
+            rstBench.classifyLargeDocument()
+        })
+
+        results.add(runBenchmark("reST: Parse and render large document") {
+            rstBench.parseAndRenderLargeDocument()
+        })
+
         println("  ✓ Complete")
         println()
 
@@ -255,6 +263,94 @@ object SimpleBenchmarkRunner {
         println("  ✓ Complete")
         println()
 
+        // Wiki Lexer Benchmarks
+        println("Running Wiki Lexer Benchmarks...")
+        val wikiLexerBench = WikiLexerBenchmark()
+        wikiLexerBench.setup()
+
+        results.add(runBenchmark("Wiki lexer: Creole lex (~200KB)") {
+            wikiLexerBench.lexCreole()
+        })
+
+        results.add(runBenchmark("Wiki lexer: WikiText lex (~200KB)") {
+            wikiLexerBench.lexWikitext()
+        })
+
+        results.add(runBenchmark("Wiki lexer: Creole parse (~200KB)") {
+            wikiLexerBench.parseCreole()
+        })
+
+        results.add(runBenchmark("Wiki lexer: Textile parse (~200KB)") {
+            wikiLexerBench.parseTextile()
+        })
+
+        results.add(runBenchmark("Wiki lexer: TiddlyWiki parse (~200KB)") {
+            wikiLexerBench.parseTiddlyWiki()
+        })
+
+        results.add(runBenchmark("Wiki lexer: WikiText parse (~200KB)") {
+            wikiLexerBench.parseWikitext()
+        })
+
+        println("  ✓ Complete")
+        println()
+
+        // Syntax Highlighter Benchmarks
+        println("Running Syntax Highlighter Benchmarks...")
+        val highlighterBench = SyntaxHighlighterBenchmark()
+        highlighterBench.setup()
+
+        results.add(runBenchmark("Highlighter: Full file (10k lines)") {
+            highlighterBench.highlightFull()
+        })
+
+        results.add(runBenchmark("Highlighter: Keystroke (10k lines)") {
+            highlighterBench.highlightKeystroke()
+        })
+
+        println("  ✓ Complete")
+        println()
+
+        // JSON Formatter Benchmarks
+        println("Running JSON Formatter Benchmarks...")
+        val jsonBench = JsonFormatterBenchmark()
+        jsonBench.setup()
+
+        results.add(runBenchmark("JSON: Pretty-print (10MB)") {
+            jsonBench.format()
+        })
+
+        results.add(runBenchmark("JSON: Validate (10MB)") {
+            jsonBench.validate()
+        })
+
+        println("  ✓ Complete")
+        println()
+
+        // Note Index Benchmarks
+        println("Running Note Index Benchmarks...")
+        val indexBench = NoteIndexBenchmark()
+        indexBench.setup()
+
+        results.add(runBenchmark("Index: AND query (20k notes)") {
+            indexBench.searchAll()
+        })
+
+        results.add(runBenchmark("Index: Phrase query (20k notes)") {
+            indexBench.searchPhrase()
+        })
+
+        results.add(runBenchmark("Index: OR query (20k notes)") {
+            indexBench.searchAny()
+        })
+
+        results.add(runBenchmark("Index: Refresh unchanged (20k notes)") {
+            indexBench.refreshUnchanged()
+        })
+
+        println("  ✓ Complete")
+        println()
+
         // Print results
         println("============================================")
         println("Benchmark Results")
@@ -299,7 +395,21 @@ object SimpleBenchmarkRunner {
             "reST: Large document (~200KB)" to 1800.0,
             "WikiText: Small document (~2KB)" to 20.0,
             "WikiText: Medium document (~20KB)" to 100.0,
-            "WikiText: Large document (~200KB)" to 1000.0
+            "WikiText: Large document (~200KB)" to 1000.0,
+            "Wiki lexer: Creole lex (~200KB)" to 5.0,
+            "Wiki lexer: WikiText lex (~200KB)" to 5.0,
+            "Wiki lexer: Creole parse (~200KB)" to 100.0,
+            "Wiki lexer: Textile parse (~200KB)" to 100.0,
+            "Wiki lexer: TiddlyWiki parse (~200KB)" to 100.0,
+            "Wiki lexer: WikiText parse (~200KB)" to 100.0,
+            "Highlighter: Full file (10k lines)" to 50.0,
+            "Highlighter: Keystroke (10k lines)" to 5.0,
+            "JSON: Pretty-print (10MB)" to 100.0,
+            "JSON: Validate (10MB)" to 50.0,
+            "Index: AND query (20k notes)" to 50.0,
+            "Index: Phrase query (20k notes)" to 50.0,
+            "Index: OR query (20k notes)" to 50.0,
+            "Index: Refresh unchanged (20k notes)" to 200.0
         )
 
         var passedCount = 0
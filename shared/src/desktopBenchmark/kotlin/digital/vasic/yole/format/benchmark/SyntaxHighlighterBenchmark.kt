@@ -0,0 +1,67 @@
+/*#######################################################
+ *
+ * SPDX-FileCopyrightText: 2025 Milos Vasic
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Syntax Highlighter Performance Benchmarks
+ * Measures full and incremental highlighting of source files
+ *
+ *########################################################*/
+package digital.vasic.yole.format.benchmark
+
+import digital.vasic.yole.format.plaintext.CodeLanguages
+import digital.vasic.yole.format.plaintext.SyntaxHighlighter
+import org.openjdk.jmh.annotations.*
+import java.util.concurrent.TimeUnit
+
+/**
+ * Performance benchmarks for the incremental syntax highlighter.
+ *
+ * The keystroke benchmark alternates between two versions of a 10k-line
+ * Kotlin file that differ in one character, which is what the editor sees
+ * on every key press.
+ *
+ * Performance Targets:
+ * - Highlighting a 10k-line file from scratch: < 50ms
+ * - Re-highlighting after a keystroke in a 10k-line file: < 5ms
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+class SyntaxHighlighterBenchmark {
+
+    private lateinit var source: String
+    private lateinit var edited: String
+    private lateinit var highlighter: SyntaxHighlighter
+    private var toggle = false
+
+    @Setup
+    fun setup() {
+        source = buildString {
+            for (i in 0 until 10_000) {
+                when (i % 5) {
+                    0 -> appendLine("/** Documentation for function $i */")
+                    1 -> appendLine("@JvmStatic fun compute$i(value: Int): String {")
+                    2 -> appendLine("    val result = value * $i + 0x1F // scaled")
+                    3 -> appendLine("    return \"item \$result\" ?: null")
+                    else -> appendLine("}")
+                }
+            }
+        }
+        edited = source.replace("value * 5002 +", "value * 5003 +")
+        highlighter = SyntaxHighlighter(CodeLanguages.lexer("kotlin"))
+        highlighter.setText(source)
+    }
+
+    @Benchmark
+    fun highlightFull(): String = SyntaxHighlighter.highlight(source, "kotlin")
+
+    @Benchmark
+    fun highlightKeystroke(): Int {
+        toggle = !toggle
+        return highlighter.setText(if (toggle) edited else source).count()
+    }
+}
@@ -0,0 +1,136 @@
+/*#######################################################
+ *
+ * SPDX-FileCopyrightText: 2025 Milos Vasic
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Wiki Lexer Performance Benchmarks
+ * Measures the shared block lexer and renderer of the wiki-family formats
+ *
+ *########################################################*/
+package digital.vasic.yole.format.benchmark
+
+import digital.vasic.yole.format.WikiLexer
+import digital.vasic.yole.format.WikiTokenBuffer
+import digital.vasic.yole.format.creole.CreoleParser
+import digital.vasic.yole.format.textile.TextileParser
+import digital.vasic.yole.format.tiddlywiki.TiddlyWikiParser
+import digital.vasic.yole.format.wikitext.WikitextParser
+import org.openjdk.jmh.annotations.*
+import java.util.concurrent.TimeUnit
+
+/**
+ * Performance benchmarks for the wiki lexer shared by Creole, Textile,
+ * TiddlyWiki and WikiText.
+ *
+ * Lexing reuses one token buffer, so it measures the scanning loop alone;
+ * the parse benchmarks add inline formatting and HTML output.
+ *
+ * Performance Targets:
+ * - Lexing a large document (~200KB): < 5ms
+ * - Parsing a large document (~200KB): < 100ms
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+class WikiLexerBenchmark {
+
+    private val creole = CreoleParser()
+    private val textile = TextileParser()
+    private val tiddlyWiki = TiddlyWikiParser()
+    private val wikitext = WikitextParser()
+
+    private val tokens = WikiTokenBuffer()
+    private val creoleLexer = WikiLexer(CreoleParser.GRAMMAR)
+    private val wikitextLexer = WikiLexer(WikitextParser.GRAMMAR)
+
+    // Test data (~200KB each)
+    private lateinit var creoleDocument: String
+    private lateinit var textileDocument: String
+    private lateinit var tiddlyWikiDocument: String
+    private lateinit var wikitextDocument: String
+
+    @Setup
+    fun setup() {
+        creoleDocument = generateDocument { i ->
+            appendLine("== Section $i ==")
+            appendLine("Some **bold** and //italic// text with a [[Page$i|link]] and {{{code}}}.")
+            appendLine("* Item one")
+            appendLine("** Nested item with {{image$i.png|alt}}")
+            appendLine("# Numbered")
+            appendLine("|= Name |= Value |")
+            appendLine("| key$i | **value** |")
+            appendLine("{{{")
+            appendLine("val x = $i")
+            appendLine("}}}")
+        }
+        textileDocument = generateDocument { i ->
+            appendLine("h2. Section $i")
+            appendLine("Some *bold* and _emphasis_ text with a \"link\":https://example.com/$i and @code@.")
+            appendLine("* Item one")
+            appendLine("# Numbered ^sup^ ~sub~")
+            appendLine("bq. A quotation")
+            appendLine("pre.")
+            appendLine("val x = $i")
+            appendLine()
+        }
+        tiddlyWikiDocument = generateDocument { i ->
+            appendLine("!! Section $i")
+            appendLine("Some ''bold'' and //italic// text with [[Tiddler$i]] and [ext[https://example.com|site]].")
+            appendLine("* Item one")
+            appendLine("** Nested __underlined__")
+            appendLine("# Numbered")
+            appendLine("> A quotation with `code`")
+            appendLine("```")
+            appendLine("val x = $i")
+            appendLine("```")
+        }
+        wikitextDocument = generateDocument { i ->
+            appendLine("=== Section $i ===")
+            appendLine("Some **bold** and //italic// text with [[Page$i|a link]] and ''code''.")
+            appendLine("* Item one")
+            appendLine("[*] Done task")
+            appendLine("[ ] Open task")
+            appendLine("1. Numbered")
+            appendLine("'''")
+            appendLine("val x = $i")
+            appendLine("'''")
+        }
+    }
+
+    @Benchmark
+    fun lexCreole(): Int = creoleLexer.tokenize(creoleDocument, tokens).size
+
+    @Benchmark
+    fun lexWikitext(): Int = wikitextLexer.tokenize(wikitextDocument, tokens).size
+
+    @Benchmark
+    fun parseCreole() {
+        creole.parse(creoleDocument, emptyMap())
+    }
+
+    @Benchmark
+    fun parseTextile() {
+        textile.parse(textileDocument, emptyMap())
+    }
+
+    @Benchmark
+    fun parseTiddlyWiki() {
+        tiddlyWiki.parse(tiddlyWikiDocument, emptyMap())
+    }
+
+    @Benchmark
+    fun parseWikitext() {
+        wikitext.parse(wikitextDocument, emptyMap())
+    }
+
+    private fun generateDocument(section: StringBuilder.(Int) -> Unit): String = buildString {
+        var i = 0
+        while (length < 200_000) {
+            section(i++)
+            appendLine()
+        }
+    }
+}
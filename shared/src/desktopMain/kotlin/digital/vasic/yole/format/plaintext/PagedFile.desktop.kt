@@ -0,0 +1,74 @@
+/*#######################################################
+ *
+ * SPDX-FileCopyrightText: 2025 Milos Vasic
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Paged File - Desktop (JVM) Implementation
+ *
+ *########################################################*/
+package digital.vasic.yole.format.plaintext
+
+import java.io.RandomAccessFile
+import java.nio.MappedByteBuffer
+import java.nio.channels.FileChannel
+import java.util.concurrent.atomic.AtomicReferenceArray
+
+/**
+ * Open [path] as a memory-mapped [PagedFile] (Desktop)
+ */
+actual fun openMappedFile(path: String): PagedFile? {
+    return try {
+        MappedPagedFile(RandomAccessFile(path, "r").channel)
+    } catch (e: Exception) {
+        null
+    }
+}
+
+/**
+ * [PagedFile] over a [FileChannel], mapped in fixed-size segments on first access.
+ */
+internal class MappedPagedFile(
+    private val channel: FileChannel,
+    private val segmentSize: Long = SEGMENT_SIZE
+) : PagedFile {
+    override val size: Long = channel.size()
+
+    private val segments = AtomicReferenceArray<MappedByteBuffer>(((size + segmentSize - 1) / segmentSize).toInt())
+
+    override fun read(position: Long, buffer: ByteArray, offset: Int, length: Int): Int {
+        if (position < 0 || position >= size || length <= 0) return 0
+        val total = minOf(length.toLong(), size - position).toInt()
+        var copied = 0
+        while (copied < total) {
+            val at = position + copied
+            val index = (at / segmentSize).toInt()
+            val inSegment = (at - index * segmentSize).toInt()
+            // Each read gets its own cursor so concurrent readers do not interfere
+            val view = segment(index).duplicate()
+            val count = minOf(total - copied, view.limit() - inSegment)
+            view.position(inSegment)
+            view.get(buffer, offset + copied, count)
+            copied += count
+        }
+        return copied
+    }
+
+    private fun segment(index: Int): MappedByteBuffer {
+        segments.get(index)?.let { return it }
+        synchronized(segments) {
+            segments.get(index)?.let { return it }
+            val start = index * segmentSize
+            val mapped = channel.map(FileChannel.MapMode.READ_ONLY, start, minOf(segmentSize, size - start))
+            segments.set(index, mapped)
+            return mapped
+        }
+    }
+
+    override fun close() {
+        channel.close()
+    }
+
+    private companion object {
+        const val SEGMENT_SIZE = 64L * 1024 * 1024
+    }
+}
@@ -0,0 +1,62 @@
+/*#######################################################
+ *
+ * SPDX-FileCopyrightText: 2025 Milos Vasic
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Document Watcher - Desktop (JVM) Implementation
+ *
+ *########################################################*/
+package digital.vasic.yole.model
+
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.channels.awaitClose
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.callbackFlow
+import kotlinx.coroutines.launch
+import java.nio.file.ClosedWatchServiceException
+import java.nio.file.Path
+import java.nio.file.Paths
+import java.nio.file.StandardWatchEventKinds
+import java.nio.file.WatchService
+
+/**
+ * Raw change events for the entries of [directory] from a [WatchService] (Desktop)
+ */
+actual fun watchDirectory(directory: String): Flow<String> = callbackFlow {
+    val dir = Paths.get(directory)
+    val service = try {
+        dir.fileSystem.newWatchService().also {
+            dir.register(
+                it,
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_DELETE
+            )
+        }
+    } catch (e: Exception) {
+        // Missing or unreadable directory: nothing to watch
+        null
+    }
+
+    if (service != null) {
+        // take() blocks; closing the service in awaitClose ends the loop
+        launch(Dispatchers.IO) {
+            try {
+                while (true) {
+                    val key = service.take()
+                    for (event in key.pollEvents()) {
+                        val name = event.context() as? Path
+                        trySend(if (name != null) dir.resolve(name).toString() else directory)
+                    }
+                    if (!key.reset()) break
+                }
+            } catch (e: ClosedWatchServiceException) {
+                // Collection stopped
+            } catch (e: InterruptedException) {
+                // Collection stopped
+            }
+        }
+    }
+
+    awaitClose { service?.close() }
+}
@@ -0,0 +1,184 @@
+/*#######################################################
+ *
+ * SPDX-FileCopyrightText: 2025 Milos Vasic
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Tests for the two-tier thumbnail cache (Desktop)
+ *
+ *########################################################*/
+package digital.vasic.yole.format.binary
+
+import kotlinx.coroutines.CompletableDeferred
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.async
+import kotlinx.coroutines.awaitAll
+import kotlinx.coroutines.runBlocking
+import kotlinx.coroutines.withTimeout
+import okio.Path.Companion.toPath
+import okio.fakefilesystem.FakeFileSystem
+import java.util.concurrent.atomic.AtomicInteger
+import kotlin.test.*
+
+/**
+ * Tests for [ThumbnailCache] and thumbnail previews in [BinaryParser].
+ *
+ * Tests cover:
+ * - Keys that change with the file's size and modification time
+ * - Memory hits, disk hits after a restart and LRU eviction by size
+ * - Sharing one generation between concurrent requests
+ * - Trimming the disk tier
+ * - Embedding a thumbnail in the image preview
+ */
+class ThumbnailCacheTest {
+
+    private val fileSystem = FakeFileSystem()
+    private val directory = "/cache/thumbnails".toPath()
+    private val image = "/notes/photo.png".toPath()
+
+    @BeforeTest
+    fun setup() {
+        fileSystem.createDirectories(image.parent!!)
+        fileSystem.write(image) { writeUtf8("original") }
+    }
+
+    @AfterTest
+    fun teardown() {
+        fileSystem.checkNoOpenFiles()
+    }
+
+    private fun cache(memoryBytes: Long = 1024, diskBytes: Long = 1024 * 1024) =
+        ThumbnailCache(fileSystem, directory, memoryBytes, diskBytes, Dispatchers.IO)
+
+    private fun key(name: String, maxDimen: Int = 64) = ThumbnailKey("/notes/$name", 1, 1, maxDimen)
+
+    // ==================== Keys ====================
+
+    @Test
+    fun `should change key when file changes`() {
+        val cache = cache()
+        val before = assertNotNull(cache.keyFor(image, 128))
+
+        fileSystem.write(image) { writeUtf8("modified content") }
+        val after = assertNotNull(cache.keyFor(image, 128))
+
+        assertNotEquals(before, after)
+        assertNotEquals(before.fileName, after.fileName)
+        assertNotEquals(before.fileName, before.copy(maxDimen = 256).fileName)
+        assertNull(cache.keyFor("/notes/missing.png".toPath(), 128))
+        assertNull(cache.keyFor(image.parent!!, 128))
+    }
+
+    // ==================== Tiers ====================
+
+    @Test
+    fun `should generate once and then hit memory`() = runBlocking {
+        val cache = cache()
+        val calls = AtomicInteger()
+        val generate: suspend (ThumbnailKey) -> ByteArray? = { calls.incrementAndGet(); byteArrayOf(1, 2, 3) }
+
+        assertContentEquals(byteArrayOf(1, 2, 3), cache.get(key("a.png"), generate))
+        assertContentEquals(byteArrayOf(1, 2, 3), cache.get(key("a.png"), generate))
+        assertContentEquals(byteArrayOf(1, 2, 3), cache.getCached(key("a.png")))
+        assertEquals(1, calls.get())
+        assertTrue(fileSystem.exists(directory / key("a.png").fileName))
+    }
+
+    @Test
+    fun `should read disk tier after restart`() = runBlocking {
+        cache().get(key("a.png")) { byteArrayOf(7) }
+
+        val restarted = cache()
+        assertNull(restarted.getCached(key("a.png")))
+        assertContentEquals(byteArrayOf(7), restarted.get(key("a.png")) { fail("Should read from disk") })
+    }
+
+    @Test
+    fun `should evict least recently used entries by size`() = runBlocking {
+        val cache = cache(memoryBytes = 250)
+        cache.get(key("a.png")) { ByteArray(100) }
+        cache.get(key("b.png")) { ByteArray(100) }
+        cache.get(key("a.png")) { fail("Should be cached") }
+        cache.get(key("c.png")) { ByteArray(100) }
+
+        assertNotNull(cache.getCached(key("a.png")))
+        assertNull(cache.getCached(key("b.png")))
+        assertNotNull(cache.getCached(key("c.png")))
+        assertEquals(200, cache.memorySize())
+
+        cache.get(key("huge.png")) { ByteArray(1000) }
+        assertNull(cache.getCached(key("huge.png")))
+    }
+
+    @Test
+    fun `should not cache missing thumbnails`() = runBlocking {
+        val cache = cache()
+
+        assertNull(cache.get(key("broken.png")) { null })
+        assertContentEquals(byteArrayOf(1), cache.get(key("broken.png")) { byteArrayOf(1) })
+    }
+
+    @Test
+    fun `should share concurrent generation`() = runBlocking {
+        val cache = cache()
+        val calls = AtomicInteger()
+        val release = CompletableDeferred<Unit>()
+
+        val results = withTimeout(5_000) {
+            val requests = List(8) {
+                async(Dispatchers.Default) {
+                    cache.get(key("shared.png")) {
+                        calls.incrementAndGet()
+                        release.await()
+                        byteArrayOf(42)
+                    }
+                }
+            }
+            release.complete(Unit)
+            requests.awaitAll()
+        }
+
+        assertEquals(1, calls.get())
+        results.forEach { assertContentEquals(byteArrayOf(42), it) }
+    }
+
+    @Test
+    fun `should propagate generator failures without caching`() = runBlocking {
+        val cache = cache()
+
+        assertFailsWith<IllegalStateException> { cache.get(key("bad.png")) { error("decode failed") } }
+        assertContentEquals(byteArrayOf(5), cache.get(key("bad.png")) { byteArrayOf(5) })
+    }
+
+    @Test
+    fun `should trim disk tier`() = runBlocking {
+        val cache = cache(diskBytes = 1000)
+        for (i in 0 until 20) cache.get(key("img$i.png")) { ByteArray(100) }
+
+        val used = fileSystem.list(directory).sumOf { fileSystem.metadata(it).size!! }
+        assertTrue(used <= 1000, "Disk usage $used")
+        assertTrue(fileSystem.list(directory).none { it.name.endsWith(".tmp") })
+    }
+
+    @Test
+    fun `should clear both tiers`() = runBlocking {
+        val cache = cache()
+        cache.get(key("a.png")) { byteArrayOf(1) }
+        cache.clear()
+
+        assertNull(cache.getCached(key("a.png")))
+        assertEquals(0, cache.memorySize())
+        assertTrue(fileSystem.list(directory).isEmpty())
+    }
+
+    // ==================== Parser ====================
+
+    @Test
+    fun `should embed thumbnail in image preview`() {
+        val png = byteArrayOf(0x89.toByte(), 0x50, 0x4E, 0x47, 0x0D, 0x0A)
+        val document = BinaryParser().parse("", mapOf("filename" to "photo.jpg", "thumbnail" to png))
+
+        assertTrue(document.parsedContent.contains("src=\"data:image/png;base64,iVBORw0K\""), document.parsedContent)
+        assertFalse(document.parsedContent.contains("would be displayed here"))
+        assertTrue(BinaryParser().toHtml(document, true).contains("data:image/png;base64"))
+    }
+}
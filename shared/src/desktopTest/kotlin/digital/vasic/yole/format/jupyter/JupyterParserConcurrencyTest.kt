@@ -0,0 +1,48 @@
+/*#######################################################
+ *
+ * SPDX-FileCopyrightText: 2025 Milos Vasic
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Tests for concurrent Jupyter parsing (Desktop)
+ *
+ *########################################################*/
+package digital.vasic.yole.format.jupyter
+
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.async
+import kotlinx.coroutines.awaitAll
+import kotlinx.coroutines.runBlocking
+import kotlin.test.*
+
+/**
+ * Tests for sharing one [JupyterParser] between threads.
+ *
+ * Tests cover:
+ * - Concurrent parses through the Markdown cell cache
+ */
+class JupyterParserConcurrencyTest {
+
+    private fun notebook(seed: Int): String {
+        val cells = (0 until 50).joinToString(",") { cell ->
+            """{"cell_type": "markdown", "metadata": {}, "source": ["# Cell ${(seed + cell) % 300}\n", "Text **$cell**"]}"""
+        }
+        return """{"cells": [$cells], "metadata": {}, "nbformat": 4, "nbformat_minor": 5}"""
+    }
+
+    @Test
+    fun `should parse concurrently with one parser`() = runBlocking {
+        val parser = JupyterParser()
+        val expected = (0 until 16).map { JupyterParser().parse(notebook(it * 37), emptyMap()).parsedContent }
+
+        val results = (0 until 16).map { seed ->
+            async(Dispatchers.Default) {
+                var html = ""
+                repeat(20) { html = parser.parse(notebook(seed * 37), emptyMap()).parsedContent }
+                html
+            }
+        }.awaitAll()
+
+        assertEquals(expected, results)
+        assertTrue(results[0].contains("Cell 0"))
+    }
+}
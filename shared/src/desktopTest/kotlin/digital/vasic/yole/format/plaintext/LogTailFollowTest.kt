@@ -0,0 +1,109 @@
+/*#######################################################
+ *
+ * SPDX-FileCopyrightText: 2025 Milos Vasic
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Tests for the log follow flow (Desktop)
+ *
+ *########################################################*/
+package digital.vasic.yole.format.plaintext
+
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.async
+import kotlinx.coroutines.flow.MutableSharedFlow
+import kotlinx.coroutines.flow.emptyFlow
+import kotlinx.coroutines.flow.first
+import kotlinx.coroutines.flow.flowOn
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.runBlocking
+import kotlinx.coroutines.withTimeout
+import okio.FileSystem
+import okio.Path.Companion.toOkioPath
+import okio.Path.Companion.toPath
+import okio.fakefilesystem.FakeFileSystem
+import java.io.File
+import kotlin.test.*
+import kotlin.time.Duration.Companion.hours
+import kotlin.time.Duration.Companion.milliseconds
+
+/**
+ * Tests for [LogTail.follow] on a real file.
+ *
+ * Tests cover:
+ * - Emitting lines as they are appended by another writer
+ * - Reading on directory events rather than on a timer
+ * - Falling back to polling without file notifications
+ */
+class LogTailFollowTest {
+
+    @Test
+    fun `should emit appended lines`() {
+        val file = File.createTempFile("follow", ".log")
+        try {
+            file.writeText("existing\n")
+            val tail = LogTail(FileSystem.SYSTEM, file.toOkioPath(), startOffset = file.length())
+
+            val lines = mutableListOf<String>()
+            runBlocking {
+                withTimeout(5_000) {
+                    launch(Dispatchers.IO) {
+                        for (i in 1..3) {
+                            Thread.sleep(30)
+                            file.appendText("event $i\n")
+                        }
+                    }
+                    tail.follow(pollInterval = 10.milliseconds)
+                        .flowOn(Dispatchers.IO)
+                        .first { update ->
+                            lines += update.lines
+                            lines.size >= 3
+                        }
+                }
+            }
+            assertEquals(listOf("event 1", "event 2", "event 3"), lines)
+        } finally {
+            file.delete()
+        }
+    }
+
+    @Test
+    fun `should read when the directory reports a change`() = runBlocking {
+        val fileSystem = FakeFileSystem()
+        val log = "/var/log/app.log".toPath()
+        fileSystem.createDirectories(log.parent!!)
+        fileSystem.write(log) { writeUtf8("") }
+        val events = MutableSharedFlow<String>(extraBufferCapacity = 8)
+        val tail = LogTail(fileSystem, log, directoryEvents = { events })
+
+        withTimeout(5_000) {
+            val update = async {
+                tail.follow(pollInterval = 1.hours, rescanInterval = 1.hours).first()
+            }
+            events.subscriptionCount.first { it > 0 }
+            fileSystem.write(log) { writeUtf8("written\n") }
+            events.emit("/var/log/other.log")
+            events.emit("/var/log/./app.log")
+
+            assertEquals(listOf("written"), update.await().lines)
+        }
+    }
+
+    @Test
+    fun `should poll without file notifications`() = runBlocking {
+        val fileSystem = FakeFileSystem()
+        val log = "/var/log/app.log".toPath()
+        fileSystem.createDirectories(log.parent!!)
+        fileSystem.write(log) { writeUtf8("") }
+        val tail = LogTail(fileSystem, log, directoryEvents = { emptyFlow() })
+
+        withTimeout(5_000) {
+            val update = async {
+                tail.follow(pollInterval = 10.milliseconds, rescanInterval = 1.hours).first()
+            }
+            Thread.sleep(50)
+            fileSystem.write(log) { writeUtf8("polled\n") }
+
+            assertEquals(listOf("polled"), update.await().lines)
+        }
+    }
+}
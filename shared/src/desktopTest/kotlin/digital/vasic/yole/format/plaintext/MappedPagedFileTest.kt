@@ -0,0 +1,72 @@
+/*#######################################################
+ *
+ * SPDX-FileCopyrightText: 2025 Milos Vasic
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Tests for the memory-mapped paged file (Desktop)
+ *
+ *########################################################*/
+package digital.vasic.yole.format.plaintext
+
+import kotlinx.coroutines.runBlocking
+import java.io.File
+import java.io.RandomAccessFile
+import kotlin.test.*
+
+/**
+ * Tests for [MappedPagedFile] and [PlaintextParser.openWindowed] on real files.
+ *
+ * Tests cover:
+ * - Reads across segment boundaries and at the end of the file
+ * - Missing files
+ * - Building the index in a coroutine and reading a window
+ */
+class MappedPagedFileTest {
+
+    private lateinit var file: File
+
+    @BeforeTest
+    fun setup() {
+        file = File.createTempFile("mapped", ".log")
+    }
+
+    @AfterTest
+    fun teardown() {
+        file.delete()
+    }
+
+    @Test
+    fun `should read across segments`() {
+        val bytes = ByteArray(1000) { (it % 251).toByte() }
+        file.writeBytes(bytes)
+
+        MappedPagedFile(RandomAccessFile(file, "r").channel, segmentSize = 64).use { mapped ->
+            val buffer = ByteArray(300)
+            assertEquals(300, mapped.read(50, buffer))
+            assertContentEquals(bytes.copyOfRange(50, 350), buffer)
+
+            assertEquals(10, mapped.read(990, buffer, 5, 100))
+            assertContentEquals(bytes.copyOfRange(990, 1000), buffer.copyOfRange(5, 15))
+            assertEquals(0, mapped.read(1000, buffer))
+        }
+    }
+
+    @Test
+    fun `should return null for missing file`() {
+        assertNull(openMappedFile(File(file.parentFile, "missing-${System.nanoTime()}.log").path))
+    }
+
+    @Test
+    fun `should build index and read window`() {
+        file.writeText((0 until 20_000).joinToString("\n") { "entry $it" })
+
+        val viewer = assertNotNull(PlaintextParser.openWindowed(file.path, margin = 0))
+        viewer.use {
+            runBlocking { it.buildIndex() }
+            assertEquals(20_000L, it.index.lineCount)
+
+            val window = it.window(firstLine = 15_000, count = 2)
+            assertEquals(listOf("entry 15000", "entry 15001"), window.lines)
+        }
+    }
+}
@@ -0,0 +1,49 @@
+/*#######################################################
+ *
+ * SPDX-FileCopyrightText: 2025 Milos Vasic
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Parallel build tests for the WikiText link graph
+ *
+ *########################################################*/
+package digital.vasic.yole.format.wikitext
+
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.runBlocking
+import okio.FileSystem
+import kotlin.test.*
+
+/**
+ * Tests that [WikiLinkGraph.rebuildParallel] builds the same graph as
+ * [WikiLinkGraph.rebuild].
+ */
+class WikiLinkGraphParallelTest {
+
+    @Test
+    fun `should build same graph in parallel`() {
+        val fileSystem = FileSystem.SYSTEM
+        val root = FileSystem.SYSTEM_TEMPORARY_DIRECTORY / "wiki-link-graph-${System.nanoTime()}"
+        fileSystem.createDirectories(root / "A")
+        repeat(2_000) { i ->
+            fileSystem.write(root / "A/P$i.txt") { writeUtf8("[[P${(i * 31) % 2_000}]] [[Missing$i]] [[:Home]]") }
+        }
+        fileSystem.write(root / "Home.txt") { writeUtf8("[[A:P1]]") }
+
+        try {
+            val sequential = WikiLinkGraph(fileSystem, root)
+            val parallel = WikiLinkGraph(fileSystem, root)
+            sequential.rebuild()
+            runBlocking { parallel.rebuildParallel(Dispatchers.Default, chunkSize = 50) }
+
+            assertEquals(2_001, parallel.size)
+            assertEquals(sequential.pages, parallel.pages)
+            assertEquals(sequential.brokenLinks(), parallel.brokenLinks())
+            assertEquals(sequential.orphans(), parallel.orphans())
+            for (page in sequential.pages) {
+                assertEquals(sequential.backlinks(page), parallel.backlinks(page), page)
+            }
+        } finally {
+            fileSystem.deleteRecursively(root)
+        }
+    }
+}
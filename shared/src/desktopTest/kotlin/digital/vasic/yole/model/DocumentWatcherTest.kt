@@ -0,0 +1,220 @@
+/*#######################################################
+ *
+ * SPDX-FileCopyrightText: 2025 Milos Vasic
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Tests for the document watcher (Desktop)
+ *
+ *########################################################*/
+package digital.vasic.yole.model
+
+import kotlinx.coroutines.async
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.flow.MutableSharedFlow
+import kotlinx.coroutines.flow.emptyFlow
+import kotlinx.coroutines.flow.first
+import kotlinx.coroutines.flow.launchIn
+import kotlinx.coroutines.flow.onEach
+import kotlinx.coroutines.runBlocking
+import kotlinx.coroutines.withTimeout
+import kotlinx.coroutines.yield
+import java.io.File
+import java.nio.file.Files
+import kotlin.test.*
+
+/**
+ * Tests for [DocumentWatcher].
+ *
+ * Tests cover:
+ * - Merging bursts of events into one debounced change
+ * - Ignoring unwatched files and unchanged modification times
+ * - Directory-wide events after lost notifications
+ * - Change detection without file queries while collected, file queries otherwise
+ * - Notifications from a real WatchService
+ */
+class DocumentWatcherTest {
+
+    private lateinit var directory: File
+
+    @BeforeTest
+    fun setup() {
+        directory = Files.createTempDirectory("watcher").toFile()
+    }
+
+    @AfterTest
+    fun teardown() {
+        directory.deleteRecursively()
+    }
+
+    private fun document(name: String, text: String = "x"): Document {
+        val file = File(directory, name)
+        file.writeText(text)
+        return Document(file.path, name.substringBeforeLast('.'), name.substringAfterLast('.')).apply {
+            modTime = file.lastModified()
+            touchTime = modTime
+        }
+    }
+
+    private fun File.bump() {
+        setLastModified(lastModified() + 5_000)
+    }
+
+    // ==================== Debouncing ====================
+
+    @Test
+    fun `should merge bursts into one change`() = runBlocking {
+        val events = MutableSharedFlow<String>()
+        val watcher = DocumentWatcher(debounceMillis = 100) { events }
+        val document = document("a.md")
+        val other = document("b.md")
+        watcher.watch(document)
+
+        val changes = mutableListOf<DocumentChange>()
+        val job = watcher.changes().onEach { changes += it }.launchIn(this)
+        while (events.subscriptionCount.value == 0) yield()
+
+        File(document.path).bump()
+        repeat(5) { events.emit(document.path) }
+        events.emit(other.path)
+        delay(400)
+        job.cancel()
+
+        assertEquals(listOf(DocumentChange(watcher.watchedPaths.single(), File(document.path).lastModified())), changes)
+        assertTrue(document.hasChanged())
+    }
+
+    @Test
+    fun `should skip events without new modification time`() = runBlocking {
+        val events = MutableSharedFlow<String>()
+        val watcher = DocumentWatcher(debounceMillis = 50) { events }
+        val document = document("a.md")
+        watcher.watch(document)
+
+        val changes = mutableListOf<DocumentChange>()
+        val job = watcher.changes().onEach { changes += it }.launchIn(this)
+        while (events.subscriptionCount.value == 0) yield()
+
+        events.emit(document.path)
+        delay(200)
+        job.cancel()
+
+        assertTrue(changes.isEmpty())
+        assertFalse(document.hasChanged())
+    }
+
+    @Test
+    fun `should refresh all documents on directory event`() = runBlocking {
+        val events = MutableSharedFlow<String>()
+        val watcher = DocumentWatcher(debounceMillis = 50) { events }
+        val a = document("a.md")
+        val b = document("b.md")
+        watcher.watch(a)
+        watcher.watch(b)
+
+        val changes = mutableListOf<DocumentChange>()
+        val job = watcher.changes().onEach { changes += it }.launchIn(this)
+        while (events.subscriptionCount.value == 0) yield()
+
+        File(a.path).bump()
+        File(b.path).delete()
+        events.emit(directory.path)
+        delay(200)
+        job.cancel()
+
+        assertEquals(2, changes.size)
+        assertEquals(-1, changes.single { it.path.endsWith("b.md") }.modTime)
+        assertTrue(a.hasChanged())
+    }
+
+    @Test
+    fun `should report manual notifications`() = runBlocking {
+        val watcher = DocumentWatcher(debounceMillis = 10) { emptyFlow() }
+        val document = document("a.md")
+        watcher.watch(document)
+        File(document.path).bump()
+
+        val change = withTimeout(5_000) {
+            val pending = async { watcher.changes().first() }
+            while (!pending.isCompleted) {
+                watcher.notifyChanged(document.path)
+                delay(20)
+            }
+            pending.await()
+        }
+
+        assertEquals(File(document.path).lastModified(), change.modTime)
+    }
+
+    // ==================== Change tracking ====================
+
+    @Test
+    fun `should use watched time while changes are collected`() = runBlocking {
+        val events = MutableSharedFlow<String>()
+        val watcher = DocumentWatcher { events }
+        val document = document("a.md")
+        watcher.watch(document)
+
+        val job = watcher.changes().launchIn(this)
+        while (events.subscriptionCount.value == 0) yield()
+        assertEquals(document.modTime, document.watchedModTime)
+
+        // Without an event the watcher has not seen the change yet
+        File(document.path).bump()
+        assertFalse(document.hasChanged())
+
+        job.cancel()
+        job.join()
+        assertEquals(-1, document.watchedModTime)
+        assertTrue(document.hasChanged())
+    }
+
+    @Test
+    fun `should query file when changes are not collected`() {
+        val watcher = DocumentWatcher { emptyFlow() }
+        val document = document("a.md")
+        watcher.watch(document)
+
+        File(document.path).bump()
+        assertEquals(-1, document.watchedModTime)
+        assertTrue(document.hasChanged())
+
+        watcher.unwatch(document)
+        assertTrue(watcher.watchedPaths.isEmpty())
+    }
+
+    @Test
+    fun `should report documents changed before collection`() = runBlocking {
+        val watcher = DocumentWatcher { emptyFlow() }
+        val document = document("a.md")
+        val unchanged = document("b.md")
+        watcher.watch(document)
+        watcher.watch(unchanged)
+        File(document.path).bump()
+
+        val change = withTimeout(5_000) { watcher.changes().first() }
+
+        assertTrue(change.path.endsWith("a.md"))
+        assertEquals(File(document.path).lastModified(), change.modTime)
+    }
+
+    // ==================== WatchService ====================
+
+    @Test
+    fun `should receive real file notifications`() = runBlocking {
+        val watcher = DocumentWatcher(debounceMillis = 50)
+        val document = document("live.md")
+        watcher.watch(document)
+
+        val change = withTimeout(15_000) {
+            val pending = async { watcher.changes().first() }
+            delay(200)
+            val file = File(document.path)
+            file.writeText("changed")
+            file.bump()
+            pending.await()
+        }
+
+        assertEquals(File(document.path).lastModified(), change.modTime)
+        assertTrue(document.hasChanged())
+    }
+}
@@ -0,0 +1,14 @@
+/*#######################################################
+ *
+ * SPDX-FileCopyrightText: 2025 Milos Vasic
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Paged File - WebAssembly Implementation
+ *
+ *########################################################*/
+package digital.vasic.yole.format.plaintext
+
+/**
+ * Memory mapping is not available in the browser (WebAssembly)
+ */
+actual fun openMappedFile(path: String): PagedFile? = null
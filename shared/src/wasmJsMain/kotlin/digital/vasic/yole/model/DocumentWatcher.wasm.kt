@@ -0,0 +1,17 @@
+/*#######################################################
+ *
+ * SPDX-FileCopyrightText: 2025 Milos Vasic
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Document Watcher - WebAssembly Implementation
+ *
+ *########################################################*/
+package digital.vasic.yole.model
+
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.emptyFlow
+
+/**
+ * No file notifications in the browser; use [DocumentWatcher.notifyChanged] (Wasm)
+ */
+actual fun watchDirectory(directory: String): Flow<String> = emptyFlow()